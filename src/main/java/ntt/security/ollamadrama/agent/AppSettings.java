@@ -8,6 +8,8 @@ import java.util.Map;
 import java.util.function.Function;
 
 import ntt.security.ollamadrama.enums.InteractMethod;
+import ntt.security.ollamadrama.enums.RequestPriority;
+import ntt.security.ollamadrama.objects.PromptInjectionRule;
 
 public class AppSettings {
 
@@ -34,6 +36,12 @@ public class AppSettings {
 	private float temperature_override = -1f;         // -1 = no override
 	private boolean prompt_logging = false;
 	private int rounds_per_pass = 2;
+	private String ollama_lock_dir = "/ollama_lock";
+	private int ollama_lock_slots = 1;                // per endpoint, usually OLLAMA_NUM_PARALLEL
+	private boolean ollama_lock_per_model = false;
+	private boolean concurrent_tasks = false;         // run all eligible tasks of a round in parallel
+	private int task_workers = 0;                     // 0 = active endpoints x ollama_lock_slots
+	private int task_deadline_seconds = 0;            // 0 = no deadline
 
 	// --- Ollama ---
 	private String ollama_username = "";
@@ -43,7 +51,23 @@ public class AppSettings {
 	private long ollama_timeout = 240;
 	private boolean ollama_scan = true;
 	private boolean ollama_skip_paris_validation = false;
+	private int ollama_validation_concurrency = 1;
+	private int ollama_max_connections = 16;
+	private int ollama_vram_capacity_gb = 0;          // 0 = learn from the first out-of-memory load
+	private int ollama_request_slots = 4;
+	private int request_priority_aging_seconds = 30;
+	private int request_deadline_seconds = 0;         // 0 = no deadline per question
+	private Map<String, Integer> tenant_weights = new HashMap<>();
+	private RequestPriority request_priority = RequestPriority.NORMAL; // class of this agent's requests
 	private String orchestrator_url = null;
+	private int orchestrator_poll_interval_seconds = 2;
+	private List<String> discovery_cidrs = new ArrayList<>();
+	private List<String> discovery_exclude_cidrs = new ArrayList<>();
+	private int discovery_max_connects_per_second = 2000;
+	private String endpoint_registry_file = "";
+	private String satellites_file = "";
+	private int health_probe_interval_seconds = 5;
+	private int health_min_ollama_endpoints = 1;
 	private int thread_pool_count = 20;
 	private String autopull_max_llm_size = "XL";
 
@@ -51,11 +75,13 @@ public class AppSettings {
 	private String mcp_ports = "";
 	private List<String> mcp_sse_paths = new ArrayList<>(Collections.singletonList("/sse"));
 	private boolean mcp_scan = false;
+	private int mcp_discovery_deadline_seconds = 90;
 	private boolean mcp_blind_trust = false;
 	private boolean mcp_enable_promptinject_protection = true;
 	private String filtered_mcp_toolnames_csv = "";
 	private String trusted_mcp_toolnames_csv = "";
 	private Map<String, Function<String, String>> mcp_preprocess = new HashMap<>();
+	private List<PromptInjectionRule> mcp_promptinject_rules = new ArrayList<>();
 
 	// --- External API keys ---
 	private String openaikey = "";
@@ -146,6 +172,24 @@ public class AppSettings {
 	public int getRounds_per_pass() { return rounds_per_pass; }
 	public void setRounds_per_pass(int rounds_per_pass) { this.rounds_per_pass = rounds_per_pass; }
 
+	public String getOllama_lock_dir() { return ollama_lock_dir; }
+	public void setOllama_lock_dir(String ollama_lock_dir) { this.ollama_lock_dir = ollama_lock_dir; }
+
+	public int getOllama_lock_slots() { return ollama_lock_slots; }
+	public void setOllama_lock_slots(int ollama_lock_slots) { this.ollama_lock_slots = ollama_lock_slots; }
+
+	public boolean isOllama_lock_per_model() { return ollama_lock_per_model; }
+	public void setOllama_lock_per_model(boolean ollama_lock_per_model) { this.ollama_lock_per_model = ollama_lock_per_model; }
+
+	public boolean isConcurrent_tasks() { return concurrent_tasks; }
+	public void setConcurrent_tasks(boolean concurrent_tasks) { this.concurrent_tasks = concurrent_tasks; }
+
+	public int getTask_workers() { return task_workers; }
+	public void setTask_workers(int task_workers) { this.task_workers = task_workers; }
+
+	public int getTask_deadline_seconds() { return task_deadline_seconds; }
+	public void setTask_deadline_seconds(int task_deadline_seconds) { this.task_deadline_seconds = task_deadline_seconds; }
+
 	public String getOllama_username() { return ollama_username; }
 	public void setOllama_username(String ollama_username) { this.ollama_username = ollama_username; }
 
@@ -167,9 +211,57 @@ public class AppSettings {
 	public boolean isOllama_skip_paris_validation() { return ollama_skip_paris_validation; }
 	public void setOllama_skip_paris_validation(boolean ollama_skip_paris_validation) { this.ollama_skip_paris_validation = ollama_skip_paris_validation; }
 
+	public int getOllama_validation_concurrency() { return ollama_validation_concurrency; }
+	public void setOllama_validation_concurrency(int ollama_validation_concurrency) { this.ollama_validation_concurrency = ollama_validation_concurrency; }
+
+	public int getOllama_max_connections() { return ollama_max_connections; }
+	public void setOllama_max_connections(int ollama_max_connections) { this.ollama_max_connections = ollama_max_connections; }
+
+	public int getOllama_vram_capacity_gb() { return ollama_vram_capacity_gb; }
+	public void setOllama_vram_capacity_gb(int ollama_vram_capacity_gb) { this.ollama_vram_capacity_gb = ollama_vram_capacity_gb; }
+
+	public int getOllama_request_slots() { return ollama_request_slots; }
+	public void setOllama_request_slots(int ollama_request_slots) { this.ollama_request_slots = ollama_request_slots; }
+
+	public int getRequest_priority_aging_seconds() { return request_priority_aging_seconds; }
+	public void setRequest_priority_aging_seconds(int request_priority_aging_seconds) { this.request_priority_aging_seconds = request_priority_aging_seconds; }
+
+	public int getRequest_deadline_seconds() { return request_deadline_seconds; }
+	public void setRequest_deadline_seconds(int request_deadline_seconds) { this.request_deadline_seconds = request_deadline_seconds; }
+
+	public Map<String, Integer> getTenant_weights() { return tenant_weights; }
+	public void setTenant_weights(Map<String, Integer> tenant_weights) { this.tenant_weights = tenant_weights; }
+
+	public RequestPriority getRequest_priority() { return request_priority; }
+	public void setRequest_priority(RequestPriority request_priority) { this.request_priority = request_priority; }
+
 	public String getOrchestrator_url() { return orchestrator_url; }
 	public void setOrchestrator_url(String orchestrator_url) { this.orchestrator_url = orchestrator_url; }
 
+	public int getOrchestrator_poll_interval_seconds() { return orchestrator_poll_interval_seconds; }
+	public void setOrchestrator_poll_interval_seconds(int orchestrator_poll_interval_seconds) { this.orchestrator_poll_interval_seconds = orchestrator_poll_interval_seconds; }
+
+	public List<String> getDiscovery_cidrs() { return discovery_cidrs; }
+	public void setDiscovery_cidrs(List<String> discovery_cidrs) { this.discovery_cidrs = discovery_cidrs; }
+
+	public List<String> getDiscovery_exclude_cidrs() { return discovery_exclude_cidrs; }
+	public void setDiscovery_exclude_cidrs(List<String> discovery_exclude_cidrs) { this.discovery_exclude_cidrs = discovery_exclude_cidrs; }
+
+	public int getDiscovery_max_connects_per_second() { return discovery_max_connects_per_second; }
+	public void setDiscovery_max_connects_per_second(int discovery_max_connects_per_second) { this.discovery_max_connects_per_second = discovery_max_connects_per_second; }
+
+	public String getEndpoint_registry_file() { return endpoint_registry_file; }
+	public void setEndpoint_registry_file(String endpoint_registry_file) { this.endpoint_registry_file = endpoint_registry_file; }
+
+	public String getSatellites_file() { return satellites_file; }
+	public void setSatellites_file(String satellites_file) { this.satellites_file = satellites_file; }
+
+	public int getHealth_probe_interval_seconds() { return health_probe_interval_seconds; }
+	public void setHealth_probe_interval_seconds(int health_probe_interval_seconds) { this.health_probe_interval_seconds = health_probe_interval_seconds; }
+
+	public int getHealth_min_ollama_endpoints() { return health_min_ollama_endpoints; }
+	public void setHealth_min_ollama_endpoints(int health_min_ollama_endpoints) { this.health_min_ollama_endpoints = health_min_ollama_endpoints; }
+
 	public int getThread_pool_count() { return thread_pool_count; }
 	public void setThread_pool_count(int thread_pool_count) { this.thread_pool_count = thread_pool_count; }
 
@@ -185,6 +277,9 @@ public class AppSettings {
 	public boolean isMcp_scan() { return mcp_scan; }
 	public void setMcp_scan(boolean mcp_scan) { this.mcp_scan = mcp_scan; }
 
+	public int getMcp_discovery_deadline_seconds() { return mcp_discovery_deadline_seconds; }
+	public void setMcp_discovery_deadline_seconds(int mcp_discovery_deadline_seconds) { this.mcp_discovery_deadline_seconds = mcp_discovery_deadline_seconds; }
+
 	public boolean isMcp_blind_trust() { return mcp_blind_trust; }
 	public void setMcp_blind_trust(boolean mcp_blind_trust) { this.mcp_blind_trust = mcp_blind_trust; }
 
@@ -200,6 +295,9 @@ public class AppSettings {
 	public Map<String, Function<String, String>> getMcp_preprocess() { return mcp_preprocess; }
 	public void setMcp_preprocess(Map<String, Function<String, String>> mcp_preprocess) { this.mcp_preprocess = mcp_preprocess; }
 
+	public List<PromptInjectionRule> getMcp_promptinject_rules() { return mcp_promptinject_rules; }
+	public void setMcp_promptinject_rules(List<PromptInjectionRule> mcp_promptinject_rules) { this.mcp_promptinject_rules = mcp_promptinject_rules; }
+
 	public String getOpenaikey() { return openaikey; }
 	public void setOpenaikey(String openaikey) { this.openaikey = openaikey; }
 
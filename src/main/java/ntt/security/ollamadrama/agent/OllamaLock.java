@@ -2,14 +2,36 @@ package ntt.security.ollamadrama.agent;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
- 
+
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.FileTime;
 import java.time.Instant;
- 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ntt.security.ollamadrama.utils.RetryPolicy;
+
 /**
  * File-based distributed lock that prevents multiple agents from sending
  * requests to Ollama simultaneously.
@@ -18,10 +40,28 @@ import java.time.Instant;
  * Before sending any request to Ollama, call {@link #acquire()} and release with
  * {@link #release()} in a finally block.
  *
- * <h3>Lock file format</h3>
+ * <p>The lock is a FIFO ticket lock. A waiter draws the next ticket number from a
+ * counter file guarded by {@link FileChannel#lock()} and queues a ticket file under
+ * {@code queue/}. The lowest live ticket holds the lock. Waiters are woken through a
+ * {@link WatchService} when a ticket leaves the queue, so a handoff takes milliseconds
+ * and agents are served in arrival order.
+ *
+ * <p>With more than one slot the lock is a counting semaphore: the {@code slots} lowest
+ * live tickets hold it at the same time. {@link #forEndpoint} keeps one queue per Ollama
+ * endpoint (optionally per endpoint and model) below the shared directory, so agents only
+ * wait for agents routed to the same server. All agents sharing a queue must agree on
+ * the number of slots, which is usually the server's {@code OLLAMA_NUM_PARALLEL}.
+ *
+ * <p>Every queued ticket is a lease. Its owner touches the file every second, and a ticket
+ * not touched for {@code LEASE_MS} belongs to a dead agent and is removed by the next waiter.
+ * A holder whose ticket was removed that way has lost the lock: {@link #isLost()} turns true
+ * and the thread that acquired it is interrupted, so it stops using Ollama.
+ *
+ * <h3>Ticket file format</h3>
  * <pre>
  *   persona=<agentname>
- *   acquired=2026-03-24T09:04:39Z
+ *   ticket=42
+ *   queued=2026-03-24T09:04:39Z
  * </pre>
  *
  * <h3>Usage</h3>
@@ -33,106 +73,352 @@ import java.time.Instant;
  * } finally {
  *     lock.release();
  * }
+ *
+ * // or one of 4 slots on the endpoint the session was routed to
+ * OllamaLock slot = OllamaLock.forEndpoint(Path.of("/ollama_lock"), endpoint.getOllama_url(), null, "<agentname>", 4);
  * }</pre>
  */
 public class OllamaLock {
- 
-    private static final Logger log         = LoggerFactory.getLogger(OllamaLock.class);
-    private static final String LOCK_FILE   = "lock";
-    private static final long   POLL_MS     = 2_000;   // check every 2 seconds
-    private static final long   STALE_MS    = 120 * 60 * 1000; // 120 min = stale lock
- 
-    private final Path   lock_file;
+
+    private static final Logger log          = LoggerFactory.getLogger(OllamaLock.class);
+    private static final String COUNTER_FILE = "ticket";
+    private static final String QUEUE_DIR    = "queue";
+    private static final String TICKET_EXT   = ".ticket";
+    private static final String ENDPOINT_DIR = "endpoints";
+    private static final long   HEARTBEAT_MS = 1_000;  // lease renewal
+    private static final long   LEASE_MS     = 10_000; // a ticket not renewed for this long is dead
+
+    private static final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread t = new Thread(runnable, "ollamadrama-lock-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Wait-time metrics across all locks in this JVM
+    private static final AtomicLong acquisitions  = new AtomicLong();
+    private static final AtomicLong total_wait_ms = new AtomicLong();
+    private static final AtomicLong max_wait_ms   = new AtomicLong();
+    private static final AtomicLong stale_cleared = new AtomicLong();
+
+    private final Path   counter_file;
+    private final Path   queue_dir;
     private final String persona;
- 
+    private final int    slots;
+
+    private volatile Path             ticket_file = null;
+    private volatile Thread           holder = null; // set while the lock is held
+    private volatile boolean          lost = false;
+    private ScheduledFuture<?>        heartbeat = null;
+    private long                      last_wait_ms = 0L;
+
     /**
      * @param lock_dir Directory shared across all NPC containers (e.g. {@code /ollama_lock}).
-     * @param persona  Name of this NPC — written into the lock file for diagnostics.
+     * @param persona  Name of this NPC — written into the ticket file for diagnostics.
      */
     public OllamaLock(Path lock_dir, String persona) {
-        this.lock_file = lock_dir.resolve(LOCK_FILE);
-        this.persona   = persona;
- 
+        this(lock_dir, persona, 1);
+    }
+
+    /**
+     * @param lock_dir Directory shared across all NPC containers.
+     * @param persona  Name of this NPC — written into the ticket file for diagnostics.
+     * @param slots    Number of agents allowed to hold the lock at the same time.
+     */
+    public OllamaLock(Path lock_dir, String persona, int slots) {
+        this.counter_file = lock_dir.resolve(COUNTER_FILE);
+        this.queue_dir    = lock_dir.resolve(QUEUE_DIR);
+        this.persona      = persona;
+        this.slots        = Math.max(1, slots);
+
         try {
-            Files.createDirectories(lock_dir);
+            Files.createDirectories(queue_dir);
         } catch (IOException e) {
-            log.warn("Could not create lock directory: {}", lock_dir, e);
+            log.warn("Could not create lock directory: {}", queue_dir, e);
         }
     }
- 
+
+    /**
+     * Lock with its own queue for one Ollama endpoint, below {@code lock_root/endpoints/}.
+     *
+     * @param model if not null, the queue is per endpoint and model
+     */
+    public static OllamaLock forEndpoint(Path lock_root, String ollama_url, String model, String persona, int slots) {
+        String key = ollama_url;
+        if (model != null && !model.isEmpty()) {
+            key = key + "_" + model;
+        }
+        return new OllamaLock(lock_root.resolve(ENDPOINT_DIR).resolve(sanitize(key)), persona, slots);
+    }
+
     /**
-     * Block until the lock is acquired. Polls every 2 seconds.
-     * Automatically clears stale locks older than 120 minutes.
+     * Block until the lock is acquired, in ticket order. Returns early with the
+     * interrupt flag set if the thread is interrupted. Errors on the lock directory are
+     * retried with backoff.
+     *
+     * @throws UncheckedIOException if the lock directory stays unusable until the caller's
+     *         RetryPolicy deadline, the lock is not held then
      */
     public void acquire() {
-        log.debug("Waiting for Ollama lock (persona={})", persona);
+        long start = System.currentTimeMillis();
+        RetryPolicy.Backoff backoff = RetryPolicy.DEFAULT.backoff();
         while (true) {
-            clear_if_stale();
-            if (try_acquire()) {
-                log.debug("Ollama lock acquired (persona={})", persona);
-                return;
-            }
-            log.debug("Ollama lock held by another NPC, waiting {}ms...", POLL_MS);
             try {
-                Thread.sleep(POLL_MS);
-            } catch (InterruptedException e) {
+                wait_in_line();
+                break;
+            } catch (InterruptedException | ClosedWatchServiceException e) {
                 Thread.currentThread().interrupt();
+                dequeue();
                 return;
+            } catch (IOException e) {
+                dequeue();
+                log.warn("Ollama lock failed, retrying (persona={}): {}", persona, e.getMessage());
+                if (!backoff.pause()) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    throw new UncheckedIOException("Ollama lock unavailable (persona=" + persona + ")", e);
+                }
             }
         }
+        synchronized (this) {
+            lost = false;
+            holder = Thread.currentThread();
+        }
+
+        last_wait_ms = System.currentTimeMillis() - start;
+        acquisitions.incrementAndGet();
+        total_wait_ms.addAndGet(last_wait_ms);
+        max_wait_ms.accumulateAndGet(last_wait_ms, Math::max);
+        log.debug("Ollama lock acquired (persona={}) after {}ms", persona, last_wait_ms);
     }
- 
+
     /**
      * Release the lock. Should always be called in a finally block.
-     * Only deletes the lock file if it is still owned by this persona.
+     * Only removes the ticket queued by this lock instance.
      */
     public void release() {
+        if (ticket_file == null) return;
+        dequeue();
+        log.debug("Ollama lock released (persona={})", persona);
+    }
+
+    /**
+     * @return true if the ticket of the held lock was cleared as stale by another agent, which
+     *         may already be using the slot
+     */
+    public boolean isLost() {
+        return lost;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    /**
+     * @return milliseconds the last {@link #acquire()} waited
+     */
+    public long getLast_wait_ms() {
+        return last_wait_ms;
+    }
+
+    public static long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+    public static long getTotal_wait_ms() {
+        return total_wait_ms.get();
+    }
+
+    public static long getMax_wait_ms() {
+        return max_wait_ms.get();
+    }
+
+    public static long getAverage_wait_ms() {
+        long n = acquisitions.get();
+        return (n == 0) ? 0L : total_wait_ms.get() / n;
+    }
+
+    /**
+     * @return tickets of dead agents removed by this JVM
+     */
+    public static long getStale_cleared() {
+        return stale_cleared.get();
+    }
+
+    // ── Internals ─────────────────────────────────────────────────────────────
+
+    private void wait_in_line() throws IOException, InterruptedException {
+        try (WatchService watcher = FileSystems.getDefault().newWatchService()) {
+            queue_dir.register(watcher, StandardWatchEventKinds.ENTRY_DELETE);
+            enqueue();
+            log.debug("Waiting for Ollama lock (persona={}, ticket={})", persona, ticket_file.getFileName());
+            while (!is_our_turn()) {
+                // woken by a ticket leaving the queue, the timeout catches holders whose lease expired
+                WatchKey key = watcher.poll(HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        }
+    }
+
+    private void enqueue() throws IOException {
+        ticket_file = take_ticket();
+        if (heartbeat == null) {
+            heartbeat = heartbeats.scheduleWithFixedDelay(this::renew, HEARTBEAT_MS, HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void dequeue() {
+        if (heartbeat != null) {
+            heartbeat.cancel(false);
+            heartbeat = null;
+        }
+        Path file = ticket_file;
+        ticket_file = null;
+        holder = null;
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to remove Ollama lock ticket {}", file, e);
+            }
+        }
+    }
+
+    /**
+     * Draws the next ticket number and queues its ticket file. The counter file is updated
+     * under an exclusive {@link FileLock}, which blocks in the kernel until the previous
+     * holder is done. The ticket file is written before the lock is released, so a lower
+     * ticket can never show up after a higher one. File locks are held per JVM, so threads
+     * of this JVM take turns on the class monitor.
+     *
+     * <p>The counter is written zero-padded to a fixed width over the old value, never truncated
+     * first, so a crash cannot leave it empty. Numbering also continues after the highest
+     * queued ticket, in case the counter was lost anyway.
+     */
+    private Path take_ticket() throws IOException {
+        synchronized (OllamaLock.class) {
+            try (FileChannel channel = FileChannel.open(counter_file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                 FileLock ignored = channel.lock()) {
+                ByteBuffer buffer = ByteBuffer.allocate(32);
+                channel.read(buffer, 0);
+                String current = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).trim();
+                long ticket = Math.max(current.isEmpty() ? 0L : Long.parseLong(current), highest_queued()) + 1L;
+
+                Path file = queue_dir.resolve(String.format("%020d", ticket) + TICKET_EXT);
+                String content = "persona=" + persona + "\nticket=" + ticket + "\nqueued=" + Instant.now() + "\n";
+                Files.writeString(file, content, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+                ByteBuffer counter = ByteBuffer.wrap(String.format("%020d", ticket).getBytes(StandardCharsets.UTF_8));
+                while (counter.hasRemaining()) {
+                    channel.write(counter, counter.position());
+                }
+                channel.force(false);
+                return file;
+            } catch (NumberFormatException e) {
+                throw new IOException("Corrupt ticket counter " + counter_file, e);
+            }
+        }
+    }
+
+    private long highest_queued() throws IOException {
+        long highest = 0L;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(queue_dir, "*" + TICKET_EXT)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    highest = Math.max(highest, Long.parseLong(name.substring(0, name.length() - TICKET_EXT.length())));
+                } catch (NumberFormatException e) {
+                    log.debug("Ignoring foreign file {} in the lock queue", name);
+                }
+            }
+        }
+        return highest;
+    }
+
+    /**
+     * Renews the lease on our ticket. A held lock whose ticket is gone was lost, the holder
+     * is interrupted.
+     */
+    private synchronized void renew() {
+        Path file = ticket_file;
+        if (file == null) return;
         try {
-            if (!Files.exists(lock_file)) return;
-            String content = Files.readString(lock_file, StandardCharsets.UTF_8);
-            if (content.contains("persona=" + persona)) {
-                Files.deleteIfExists(lock_file);
-                log.debug("Ollama lock released (persona={})", persona);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            Thread owner = holder;
+            if (owner != null) {
+                lost = true;
+                holder = null;
+                if (heartbeat != null) {
+                    heartbeat.cancel(false);
+                    heartbeat = null;
+                }
+                log.error("Lost Ollama lock, ticket {} was removed as stale (persona={})", file.getFileName(), persona);
+                owner.interrupt();
             } else {
-                log.warn("Lock file not owned by us (persona={}), not deleting", persona);
+                log.warn("Ollama lock ticket {} was removed as stale (persona={})", file.getFileName(), persona);
             }
         } catch (IOException e) {
-            log.warn("Failed to release Ollama lock", e);
+            log.warn("Failed to renew Ollama lock ticket {}", file, e);
         }
     }
- 
-    // ── Internals ─────────────────────────────────────────────────────────────
- 
-    private boolean try_acquire() {
+
+    /**
+     * Removes dead tickets and checks whether ours is among the first {@code slots} in line. If our own ticket was
+     * removed as stale while we were stalled, we queue again at the back.
+     */
+    private boolean is_our_turn() throws IOException {
+        if (!Files.exists(ticket_file)) {
+            log.warn("Lost Ollama lock ticket {}, queueing again (persona={})", ticket_file.getFileName(), persona);
+            enqueue();
+        }
+        List<Path> tickets = live_tickets();
+        int position = tickets.indexOf(ticket_file);
+        return position >= 0 && position < slots;
+    }
+
+    private List<Path> live_tickets() throws IOException {
+        long now = System.currentTimeMillis();
+        List<Path> live = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(queue_dir, "*" + TICKET_EXT)) {
+            for (Path file : stream) {
+                if (!file.equals(ticket_file) && is_stale(file, now)) {
+                    clear_stale(file);
+                } else {
+                    live.add(file);
+                }
+            }
+        }
+        Collections.sort(live); // zero-padded ticket numbers sort in queue order
+        return live;
+    }
+
+    private static String sanitize(String key) {
+        return key.replaceFirst("^[a-zA-Z]+://", "").replaceAll("[^a-zA-Z0-9._-]", "_");
+    }
+
+    private static boolean is_stale(Path file, long now) {
         try {
-            // ATOMIC: CREATE_NEW fails if file already exists — no race condition
-            String content = "persona=" + persona + "\nacquired=" + Instant.now() + "\n";
-            Files.writeString(lock_file, content,
-                    StandardCharsets.UTF_8,
-                    StandardOpenOption.CREATE_NEW,
-                    StandardOpenOption.WRITE);
-            return true;
-        } catch (java.nio.file.FileAlreadyExistsException e) {
-            return false;
+            return (now - Files.getLastModifiedTime(file).toMillis()) > LEASE_MS;
         } catch (IOException e) {
-            log.warn("Error trying to acquire lock", e);
-            return false;
+            return false; // removed meanwhile, the next listing will not see it
         }
     }
- 
-    private void clear_if_stale() {
+
+    private void clear_stale(Path file) {
         try {
-            if (!Files.exists(lock_file)) return;
-            long age_ms = System.currentTimeMillis()
-                    - Files.getLastModifiedTime(lock_file).toMillis();
-            if (age_ms > STALE_MS) {
-                String content = Files.readString(lock_file, StandardCharsets.UTF_8);
-                log.warn("Clearing stale Ollama lock (age={}min, content={})",
-                        age_ms / 60_000, content.trim());
-                Files.deleteIfExists(lock_file);
+            String content = Files.readString(file, StandardCharsets.UTF_8);
+            if (Files.deleteIfExists(file)) {
+                stale_cleared.incrementAndGet();
+                log.warn("Clearing stale Ollama lock ticket (lease expired, content={})", content.trim().replace('\n', ' '));
             }
         } catch (IOException e) {
-            log.warn("Error checking stale lock", e);
+            log.debug("Stale ticket {} already gone", file);
         }
     }
-}
\ No newline at end of file
+}
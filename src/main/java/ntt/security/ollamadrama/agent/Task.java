@@ -1,16 +1,35 @@
 package ntt.security.ollamadrama.agent;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 
 public class Task {
     private final String id;
     private final String prompt;
+    private final Path promptFile;
     private final Scheduler schedule;
-    private LocalDateTime lastExecuted;
+    private volatile LocalDateTime lastExecuted;
 
     public Task(String id, String prompt, Scheduler schedule) {
         this.id = id;
         this.prompt = prompt;
+        this.promptFile = null;
+        this.schedule = schedule;
+        this.lastExecuted = null;
+    }
+
+    /**
+     * A task whose prompt is read from the file each time it runs, so edits to the file apply
+     * to the next run and the prompt is not held in memory in between.
+     */
+    public Task(String id, Path promptFile, Scheduler schedule) {
+        this.id = id;
+        this.prompt = null;
+        this.promptFile = promptFile;
         this.schedule = schedule;
         this.lastExecuted = null;
     }
@@ -20,7 +39,18 @@ public class Task {
     }
 
     public String getPrompt() {
-        return prompt;
+        if (promptFile == null) {
+            return prompt;
+        }
+        try {
+            return String.join("\n", Files.readAllLines(promptFile, StandardCharsets.UTF_8)).trim();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read prompt of task " + id + " from " + promptFile, e);
+        }
+    }
+
+    public Path getPromptFile() {
+        return promptFile;
     }
 
     public Scheduler getSchedule() {
@@ -39,6 +69,21 @@ public class Task {
         this.lastExecuted = lastExecuted;
     }
 
+    /**
+     * @return when the task is next due, {@link LocalDateTime#MIN} if it never ran,
+     *         null if it is a {@link Scheduler#ONCE} task that already ran
+     */
+    public LocalDateTime getNextDue() {
+        LocalDateTime last = lastExecuted;
+        if (last == null) {
+            return LocalDateTime.MIN;
+        }
+        if (schedule == Scheduler.ONCE) {
+            return null;
+        }
+        return last.plusMinutes(schedule.getWaitMinutes());
+    }
+
     public boolean isEligibleToRun() {
         if (lastExecuted == null) {
             return true;
@@ -56,7 +101,7 @@ public class Task {
     public String toString() {
         return "Task{" +
                 "id='" + id + '\'' +
-                ", prompt='" + prompt + '\'' +
+                (promptFile != null ? ", promptFile=" + promptFile : ", prompt='" + prompt + '\'') +
                 ", schedule=" + schedule +
                 ", lastExecuted=" + lastExecuted +
                 '}';
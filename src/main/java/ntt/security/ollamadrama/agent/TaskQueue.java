@@ -0,0 +1,82 @@
+package ntt.security.ollamadrama.agent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Tasks ordered by their next due time ({@link Task#getNextDue()}). The head is the most
+ * overdue task, so due tasks are served by lateness and the scheduler can sleep exactly until
+ * the head is due, without scanning every task each round.
+ *
+ * <p>A task taken out with {@link #pollDue} is not in the queue while it runs. Put it back
+ * with {@link #reschedule} once {@link Task#markExecuted()} was called.
+ */
+public class TaskQueue {
+
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(
+            Comparator.comparing((Entry e) -> e.due).thenComparingLong(e -> e.seq));
+    private long sequence = 0L;
+
+    public TaskQueue(List<Task> tasks) {
+        for (Task task : tasks) {
+            reschedule(task);
+        }
+    }
+
+    /**
+     * Queues the task at its next due time. ONCE tasks that already ran are dropped.
+     */
+    public synchronized void reschedule(Task task) {
+        LocalDateTime due = task.getNextDue();
+        if (due != null) {
+            queue.add(new Entry(task, due, sequence++));
+        }
+    }
+
+    public synchronized boolean remove(Task task) {
+        return queue.removeIf(e -> e.task == task);
+    }
+
+    /**
+     * Takes up to {@code max} tasks that are due at {@code now}, most overdue first.
+     */
+    public synchronized List<Task> pollDue(LocalDateTime now, int max) {
+        List<Task> due = new ArrayList<>();
+        while (due.size() < max && !queue.isEmpty() && !queue.peek().due.isAfter(now)) {
+            due.add(queue.poll().task);
+        }
+        return due;
+    }
+
+    /**
+     * @return how long until the next task is due, zero if one is due now, null if nothing
+     *         is ever due again
+     */
+    public synchronized Duration untilNextDue(LocalDateTime now) {
+        Entry head = queue.peek();
+        if (head == null) {
+            return null;
+        }
+        return head.due.isAfter(now) ? Duration.between(now, head.due) : Duration.ZERO;
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    private static final class Entry {
+        private final Task task;
+        private final LocalDateTime due;
+        private final long seq;
+
+        private Entry(Task task, LocalDateTime due, long seq) {
+            this.task = task;
+            this.due = due;
+            this.seq = seq;
+        }
+    }
+}
@@ -1,40 +1,69 @@
 package ntt.security.ollamadrama.agent;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
 import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.github.ollama4j.exceptions.OllamaException;
 import ntt.security.ollamadrama.agent.*;
 import ntt.security.ollamadrama.config.OllamaDramaSettings;
+import ntt.security.ollamadrama.objects.OllamaEndpoint;
 import ntt.security.ollamadrama.objects.sessions.OllamaSession;
 import ntt.security.ollamadrama.singletons.OllamaService;
-import ntt.security.ollamadrama.utils.SystemUtils;
+import ntt.security.ollamadrama.utils.RequestScheduler;
+import ntt.security.ollamadrama.utils.RetryPolicy;
 
 public class TaskSchedulerApp {
-	private final ArrayList<Task> tasks;
-	private final Random random;
+	private final String foldername;
+	private final String taskstatefile;
+	private final List<Task> tasks;
+	private final Map<String, Task> task_files = new ConcurrentHashMap<>(); // task file name -> task
+	private final TaskQueue queue;
+	private WatchService watcher;
+	private final Map<Task, Long> task_started = new ConcurrentHashMap<>();
+	private final AtomicInteger completed = new AtomicInteger();
+	private final AtomicInteger timed_out = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(TaskSchedulerApp.class);
 
 	public TaskSchedulerApp(String foldername, String taskstatefile) {
-		this.tasks = new ArrayList<>();
-		this.random = new Random();
+		this.foldername = foldername;
+		this.taskstatefile = taskstatefile;
+		this.tasks = new CopyOnWriteArrayList<>();
 		loadTasksFromFolder(foldername);
 		TaskStateManager.loadState(tasks, taskstatefile);
+		this.queue = new TaskQueue(tasks);
+		watchTaskFolder();
 	}
 
 	private void loadTasksFromFolder(String foldername) {
@@ -62,31 +91,16 @@ public class TaskSchedulerApp {
 		int loadedCount = 0;
 		for (File file : files) {
 			if (file.isFile()) {
-				String fileName = file.getName();
-
-				// Find the scheduler based on file extension
-				Scheduler scheduler = null;
-				String taskId = null;
-
-				for (Scheduler s : Scheduler.values()) {
-					if (fileName.endsWith(s.getExtension())) {
-						scheduler = s;
-						taskId = fileName.substring(0, fileName.length() - s.getExtension().length());
-						break;
-					}
-				}
-
-				if (scheduler != null && taskId != null && !taskId.isEmpty()) {
-					try {
-						String prompt = readFileContent(file);
-						tasks.add(new Task(taskId, prompt, scheduler));
-						loadedCount++;
-						System.out.println("Loaded task: " + taskId + " (" + scheduler + ")");
-					} catch (IOException e) {
-						System.err.println("Error reading file " + fileName + ": " + e.getMessage());
-					}
+				Task task = taskFromFile(file);
+				if (task == null) {
+					System.out.println("Skipping file with unknown extension: " + file.getName());
+				} else if (!file.canRead()) {
+					System.err.println("Error reading file " + file.getName());
 				} else {
-					System.out.println("Skipping file with unknown extension: " + fileName);
+					tasks.add(task);
+					task_files.put(file.getName(), task);
+					loadedCount++;
+					System.out.println("Loaded task: " + task.getId() + " (" + task.getSchedule() + ")");
 				}
 			}
 		}
@@ -95,32 +109,119 @@ public class TaskSchedulerApp {
 		System.out.println("----------------------------------------");
 	}
 
-	private String readFileContent(File file) throws IOException {
-		StringBuilder content = new StringBuilder();
-		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
-			String line;
-			while ((line = reader.readLine()) != null) {
-				if (content.length() > 0) {
-					content.append("\n");
-				}
-				content.append(line);
+	/**
+	 * @return the task the file defines, null if the file name has no schedule extension.
+	 *         The prompt is read from the file when the task runs.
+	 */
+	private Task taskFromFile(File file) {
+		String fileName = file.getName();
+		for (Scheduler s : Scheduler.values()) {
+			if (fileName.endsWith(s.getExtension())) {
+				String taskId = fileName.substring(0, fileName.length() - s.getExtension().length());
+				return taskId.isEmpty() ? null : new Task(taskId, file.toPath(), s);
+			}
+		}
+		return null;
+	}
+
+	// ========== HOT RELOAD ==========
+
+	/**
+	 * Watches the task folder so tasks can be added, edited or removed without a restart.
+	 */
+	private void watchTaskFolder() {
+		try {
+			watcher = FileSystems.getDefault().newWatchService();
+			Path.of(foldername).register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException | RuntimeException e) {
+			LOGGER.warn("Not watching task folder " + foldername + ", task changes need a restart: " + e.getMessage());
+			closeWatcher();
+		}
+	}
+
+	private void closeWatcher() {
+		if (watcher != null) {
+			try {
+				watcher.close();
+			} catch (IOException e) {
+				LOGGER.debug("Unable to close task folder watcher: " + e.getMessage());
 			}
+			watcher = null;
 		}
-		return content.toString().trim();
 	}
 
-	private List<Task> getEligibleTasks() {
-		return tasks.stream()
-				.filter(Task::isEligibleToRun)
-				.collect(Collectors.toList());
+	/**
+	 * Waits up to the given time, returning early when the task folder changed.
+	 */
+	private void awaitTaskChanges(Duration wait) throws InterruptedException {
+		if (watcher == null) {
+			Thread.sleep(wait.toMillis());
+			return;
+		}
+		WatchKey key = watcher.poll(wait.toMillis(), TimeUnit.MILLISECONDS);
+		if (key != null) {
+			applyTaskChanges(key);
+			reloadTasks();
+		}
+	}
+
+	/**
+	 * Applies the task folder changes seen so far, without waiting.
+	 */
+	private void reloadTasks() {
+		if (watcher == null) {
+			return;
+		}
+		WatchKey key;
+		while ((key = watcher.poll()) != null) {
+			applyTaskChanges(key);
+		}
+	}
+
+	private void applyTaskChanges(WatchKey key) {
+		Set<String> changed = new LinkedHashSet<>();
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				// events were lost, compare every known and present file
+				changed.addAll(task_files.keySet());
+				String[] names = new File(foldername).list();
+				if (names != null) {
+					changed.addAll(Arrays.asList(names));
+				}
+			} else {
+				changed.add(event.context().toString());
+			}
+		}
+		key.reset();
+		for (String name : changed) {
+			reloadTaskFile(name);
+		}
 	}
 
-	private Task selectRandomTask(List<Task> eligibleTasks) {
-		if (eligibleTasks.isEmpty()) {
-			return null;
+	/**
+	 * Brings the task of one file in line with the folder. A task that is still defined is left
+	 * alone, and a task that comes back gets the lastExecuted recorded for it.
+	 */
+	private void reloadTaskFile(String name) {
+		File file = new File(foldername, name);
+		Task current = task_files.get(name);
+		Task defined = file.isFile() ? taskFromFile(file) : null;
+		if (current != null && defined != null) {
+			return; // the prompt is read when the task runs, an edit needs nothing here
+		}
+		if (current != null) {
+			task_files.remove(name);
+			tasks.remove(current);
+			queue.remove(current);
+			System.out.println("[" + LocalDateTime.now() + "] Removed task: " + current.getId() + " (" + current.getSchedule() + ")");
+		}
+		if (defined != null) {
+			TaskStateManager.loadState(List.of(defined), taskstatefile);
+			task_files.put(name, defined);
+			tasks.add(defined);
+			queue.reschedule(defined);
+			System.out.println("[" + LocalDateTime.now() + "] Loaded task: " + defined.getId() + " (" + defined.getSchedule() + ")");
 		}
-		int randomIndex = random.nextInt(eligibleTasks.size());
-		return eligibleTasks.get(randomIndex);
 	}
 
 	public void run(OllamaDramaSettings _settings, AppSettings _appsettings) {
@@ -138,54 +239,174 @@ public class TaskSchedulerApp {
 			TaskStateManager.saveState(tasks, _appsettings.getTaskstatefile());
 		}));
 
-		System.out.println("Running " + _appsettings.getRounds_per_pass() + " rounds for agent pass with " + _appsettings.getPersona());
-		for (int i=1; i<=_appsettings.getRounds_per_pass(); i++) {
-			try {
-				List<Task> eligibleTasks = getEligibleTasks();
+		int workers = _appsettings.isConcurrent_tasks() ? workerCount(_appsettings) : 1;
+		ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+			Thread t = new Thread(runnable, "ollamadrama-task-worker");
+			t.setDaemon(true);
+			return t;
+		});
+		long started = System.currentTimeMillis();
 
-				if (eligibleTasks.isEmpty()) {
-					System.out.println("[" + LocalDateTime.now() + "] No eligible tasks to run. Waiting...");
-				} else {
-					Task selectedTask = selectRandomTask(eligibleTasks);
-					if (selectedTask != null) {
-						System.out.println("[" + LocalDateTime.now() + "] [" + selectedTask.getId() + "] waiting for lock \n");
-						OllamaLock lock = new OllamaLock(Path.of("/ollama_lock"), _appsettings.getPersona());
-						lock.acquire();
-						try {
-							System.out.println("[" + LocalDateTime.now() + "] [" + selectedTask.getId() + "] \n");
-							executeTask(selectedTask.getPrompt(), _settings, _appsettings);
-							selectedTask.markExecuted();
-							TaskStateManager.saveState(tasks, _appsettings.getTaskstatefile());
-							System.out.println("  -> Executed. Schedule: " + selectedTask.getSchedule() + 
-									" | Eligible tasks: " + eligibleTasks.size());
-						} finally {
-							lock.release();
-						}
+		System.out.println("Running " + _appsettings.getRounds_per_pass() + " rounds for agent pass with " + _appsettings.getPersona()
+				+ (_appsettings.isConcurrent_tasks() ? " (" + workers + " concurrent workers)" : ""));
+		try {
+			for (int i=1; i<=_appsettings.getRounds_per_pass(); i++) {
+				try {
+					reloadTasks();
+					Duration wait = queue.untilNextDue(LocalDateTime.now());
+					while (wait != null && !wait.isZero()) {
+						System.out.println("[" + LocalDateTime.now() + "] No eligible tasks to run. Next task due in " + wait.toSeconds() + "s. Waiting...");
+						awaitTaskChanges(wait);
+						wait = queue.untilNextDue(LocalDateTime.now());
+					}
+					if (wait == null) {
+						System.out.println("[" + LocalDateTime.now() + "] No task will be due again. Stopping.");
+						break;
 					}
-				}
 
-				LOGGER.info("Rescanning for available MCP tools");
-				OllamaService.wireMCPs(true);
-				LOGGER.info("Sleeping 4.2 seconds");
-				Thread.sleep(4200);
-
-			} catch (InterruptedException e) {
-				System.err.println("Application interrupted: " + e.getMessage());
-				Thread.currentThread().interrupt();
-				break;
-			} catch (Exception e) {
-				System.err.println("Error during execution: " + e.getMessage());
-				e.printStackTrace();
+					// most overdue first
+					List<Task> selected = queue.pollDue(LocalDateTime.now(), _appsettings.isConcurrent_tasks() ? Integer.MAX_VALUE : 1);
+					if (!selected.isEmpty()) {
+						runRound(pool, selected, _settings, _appsettings);
+						System.out.println("  -> Throughput: " + throughput(started));
+					}
+
+					LOGGER.info("Refreshing available MCP tools");
+					OllamaService.refreshMCPs();
+
+				} catch (InterruptedException e) {
+					System.err.println("Application interrupted: " + e.getMessage());
+					Thread.currentThread().interrupt();
+					break;
+				} catch (Exception e) {
+					System.err.println("Error during execution: " + e.getMessage());
+					e.printStackTrace();
+				}
 			}
+		} finally {
+			pool.shutdownNow();
+			closeWatcher();
 		}
 
 		TaskStateManager.saveState(tasks, _appsettings.getTaskstatefile());
-		System.out.println("Task Scheduler Application Stopped");
+		System.out.println("Task Scheduler Application Stopped. Throughput: " + throughput(started));
 	}
 
-	private void executeTask(String _prompt, OllamaDramaSettings _settings, AppSettings _appsettings) {
-		try {
-			OllamaSession a1 = OllamaService.getStrictProtocolSession(_appsettings.getSelected_model(), false, _appsettings.isUse_random_seed(), _appsettings.getInitial_prompt(), _appsettings.isMake_mcp_tools_available());
+	/**
+	 * One worker per task slot on the active endpoints, unless task_workers is set.
+	 */
+	private int workerCount(AppSettings _appsettings) {
+		if (_appsettings.getTask_workers() > 0) {
+			return _appsettings.getTask_workers();
+		}
+		int endpoints = OllamaService.getollama_hosts().size();
+		return Math.max(1, endpoints * Math.max(1, _appsettings.getOllama_lock_slots()));
+	}
+
+	/**
+	 * Runs the selected tasks on the pool and waits for them, each for at most task_deadline_seconds.
+	 * A task past its deadline is counted as timed out and interrupted, its RetryPolicy deadline
+	 * and request timeouts make it give up the worker and lock slot soon after. Each run is counted
+	 * once, as completed, failed or timed out, whichever is claimed first. All tasks go back into
+	 * the queue at their next due time.
+	 */
+	private void runRound(ExecutorService pool, List<Task> selected, OllamaDramaSettings _settings, AppSettings _appsettings) throws InterruptedException {
+		Map<Task, Future<?>> futures = new LinkedHashMap<>();
+		Map<Task, AtomicBoolean> outcomes = new HashMap<>();
+		for (Task task : selected) {
+			AtomicBoolean outcome = new AtomicBoolean();
+			outcomes.put(task, outcome);
+			futures.put(task, pool.submit(() -> {
+				runTask(task, outcome, selected.size(), _settings, _appsettings);
+				return null;
+			}));
+		}
+
+		long deadline_ms = TimeUnit.SECONDS.toMillis(_appsettings.getTask_deadline_seconds());
+		for (Map.Entry<Task, Future<?>> entry : futures.entrySet()) {
+			Task task = entry.getKey();
+			Future<?> future = entry.getValue();
+			AtomicBoolean outcome = outcomes.get(task);
+			try {
+				if (deadline_ms > 0) {
+					// the clock starts once the task has a worker, queued tasks are not penalised
+					Long start;
+					while ((start = task_started.get(task)) == null && !future.isDone()) {
+						Thread.sleep(100);
+					}
+					long remaining = (start == null) ? 0L : start + deadline_ms - System.currentTimeMillis();
+					future.get(Math.max(0L, remaining), TimeUnit.MILLISECONDS);
+				} else {
+					future.get();
+				}
+			} catch (TimeoutException e) {
+				if (outcome.compareAndSet(false, true)) {
+					timed_out.incrementAndGet();
+					task.markExecuted(); // no retry storm, same as a failed task
+					System.err.println("[" + LocalDateTime.now() + "] [" + task.getId() + "] exceeded its deadline of " + _appsettings.getTask_deadline_seconds() + "s, cancelled");
+				}
+				future.cancel(true); // blocking I/O ignores this, the task's own deadline ends it
+			} catch (ExecutionException e) {
+				if (outcome.compareAndSet(false, true)) {
+					failed.incrementAndGet();
+					task.markExecuted();
+					System.err.println("[" + LocalDateTime.now() + "] [" + task.getId() + "] failed: " + e.getCause());
+				}
+			} finally {
+				TaskStateManager.record(task, _appsettings.getTaskstatefile());
+				if (tasks.contains(task)) { // not removed from the folder meanwhile
+					queue.reschedule(task);
+				}
+			}
+		}
+		TaskStateManager.sync(_appsettings.getTaskstatefile());
+	}
+
+	private void runTask(Task selectedTask, AtomicBoolean outcome, int due, OllamaDramaSettings _settings, AppSettings _appsettings) throws OllamaException {
+		task_started.put(selectedTask, System.currentTimeMillis());
+		// same clock as runRound, the deadline also ends retries and requests once the task timed out
+		try (RetryPolicy.Deadline deadline = RetryPolicy.within(_appsettings.getTask_deadline_seconds())) {
+			OllamaEndpoint endpoint = OllamaService.selectOllamaEndpoint(_appsettings.getSelected_model());
+			System.out.println("[" + LocalDateTime.now() + "] [" + selectedTask.getId() + "] waiting for a slot on " + endpoint.getOllama_url() + " \n");
+			OllamaLock lock = OllamaLock.forEndpoint(Path.of(_appsettings.getOllama_lock_dir()), endpoint.getOllama_url(),
+					_appsettings.isOllama_lock_per_model() ? _appsettings.getSelected_model() : null,
+					_appsettings.getPersona(), _appsettings.getOllama_lock_slots());
+			lock.acquire();
+			try {
+				if (Thread.currentThread().isInterrupted()) {
+					return;
+				}
+				System.out.println("[" + LocalDateTime.now() + "] [" + selectedTask.getId() + "] \n");
+				executeTask(selectedTask.getPrompt(), endpoint, _settings, _appsettings);
+				if (lock.isLost()) {
+					throw new IllegalStateException("lost the Ollama lock on " + endpoint.getOllama_url() + " while running");
+				}
+				if (outcome.compareAndSet(false, true)) { // not already counted as timed out
+					selectedTask.markExecuted();
+					completed.incrementAndGet();
+					System.out.println("  -> Executed. Schedule: " + selectedTask.getSchedule() + 
+							" | Due tasks: " + due);
+				}
+			} finally {
+				lock.release();
+			}
+		} finally {
+			task_started.remove(selectedTask);
+		}
+	}
+
+	private String throughput(long started) {
+		double hours = Math.max(1L, System.currentTimeMillis() - started) / 3_600_000.0;
+		return String.format("%.1f tasks/hour (%d completed, %d failed, %d timed out in %.1f min)",
+				completed.get() / hours, completed.get(), failed.get(), timed_out.get(), hours * 60.0);
+	}
+
+	/**
+	 * Failures propagate to runRound, which counts them, other tasks keep running.
+	 */
+	private void executeTask(String _prompt, OllamaEndpoint _endpoint, OllamaDramaSettings _settings, AppSettings _appsettings) throws OllamaException {
+		try (RequestScheduler.Scope scope = RequestScheduler.scope(_appsettings.getPersona(), _appsettings.getRequest_priority())) {
+			OllamaSession a1 = OllamaService.getStrictProtocolSession(_appsettings.getSelected_model(), _endpoint, false, _appsettings.isUse_random_seed(), _appsettings.getInitial_prompt(), _appsettings.isMake_mcp_tools_available());
 			if (a1.getOllama().ping()) System.out.println(" - STRICT ollama session [" + _appsettings.getSelected_model() + "] is operational\n");
 
 			// Agent interaction loop
@@ -194,9 +415,6 @@ public class TaskSchedulerApp {
 
 			int chatsize_wordcount_a1 = a1.getChatSizeWordCount();
 			LOGGER.info("session wordcount: " + chatsize_wordcount_a1);
-		} catch (Exception e) {
-			LOGGER.error("Caught exception: " + e.getMessage());
-			SystemUtils.halt();
 		}
 	}
 
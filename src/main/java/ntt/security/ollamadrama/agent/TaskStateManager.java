@@ -1,191 +1,350 @@
 package ntt.security.ollamadrama.agent;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import ntt.security.ollamadrama.agent.Task;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
+/**
+ * Task state as a snapshot plus an append-only journal. The snapshot is the state file, the
+ * journal sits next to it as {@code <statefile>.journal} with one JSON record per executed task.
+ * Records are fsynced in batches. Once the journal has grown past {@link #COMPACT_AFTER} records,
+ * or on {@link #saveState}, the state is written to a temp file that is atomically moved over the
+ * snapshot and the journal is truncated. Loading reads the snapshot and replays the journal, a
+ * record torn by a crash is skipped.
+ */
 public class TaskStateManager {
     private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final JsonFactory JSON = new JsonFactory();
 
-    public static void saveState(List<Task> tasks, String statefile) {
-        try (PrintWriter writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(statefile), StandardCharsets.UTF_8)))) {
-            writer.println("{");
-            writer.println("  \"tasks\": [");
-            
-            for (int i = 0; i < tasks.size(); i++) {
-                Task task = tasks.get(i);
-                writer.println("    {");
-                writer.println("      \"id\": " + escapeJson(task.getId()) + ",");
-                writer.println("      \"schedule\": \"" + task.getSchedule().name() + "\",");
-                
-                String lastExec = task.getLastExecuted() != null 
-                    ? "\"" + task.getLastExecuted().format(FORMATTER) + "\""
-                    : "null";
-                writer.println("      \"lastExecuted\": " + lastExec);
-                
-                writer.print("    }");
-                if (i < tasks.size() - 1) {
-                    writer.println(",");
-                } else {
-                    writer.println();
-                }
+    static final int SYNC_BATCH = 32;
+    static final long SYNC_INTERVAL_MS = 1_000L;
+    static final int COMPACT_AFTER = 1_000;
+
+    private static final Map<String, Journal> JOURNALS = new HashMap<>();
+
+    /**
+     * Appends the task's last execution to the journal. Cheap regardless of the number of tasks.
+     */
+    public static synchronized void record(Task task, String statefile) {
+        Journal journal = journal(statefile);
+        Entry entry = Entry.of(task);
+        journal.state.put(entry.id, entry);
+        try {
+            journal.append(entry);
+            if (journal.records >= COMPACT_AFTER) {
+                compact(journal);
             }
-            
-            writer.println("  ]");
-            writer.println("}");
-            
+        } catch (IOException e) {
+            System.err.println("Error journaling state: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Forces journaled records to disk.
+     */
+    public static synchronized void sync(String statefile) {
+        Journal journal = JOURNALS.get(statefile);
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.sync();
+        } catch (IOException e) {
+            System.err.println("Error syncing state journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a snapshot of all tasks and truncates the journal.
+     */
+    public static synchronized void saveState(List<Task> tasks, String statefile) {
+        Journal journal = journal(statefile);
+        for (Task task : tasks) {
+            Entry entry = Entry.of(task);
+            journal.state.put(entry.id, entry);
+        }
+        try {
+            compact(journal);
             System.out.println("  -> State saved to " + statefile);
         } catch (IOException e) {
             System.err.println("Error saving state: " + e.getMessage());
         }
     }
 
-    public static void loadState(List<Task> tasks, String statefile) {
-        File stateFile = new File(statefile);
-        if (!stateFile.exists()) {
+    public static synchronized void loadState(List<Task> tasks, String statefile) {
+        Journal journal = journal(statefile);
+        if (journal.state.isEmpty()) {
             System.out.println("No previous state found. Starting fresh.");
             return;
         }
-
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(statefile), StandardCharsets.UTF_8))) {
-            StringBuilder json = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                json.append(line.trim());
+        for (Task task : tasks) {
+            Entry entry = journal.state.get(task.getId());
+            if (entry != null && entry.schedule.equals(task.getSchedule().name()) && entry.lastExecuted != null) {
+                task.setLastExecuted(entry.lastExecuted);
             }
+        }
+        System.out.println("Loaded previous state from " + statefile + " (" + journal.replayed + " journal records replayed)");
+    }
 
-            String jsonStr = json.toString();
-            
-            int tasksArrayStart = jsonStr.indexOf("[");
-            int tasksArrayEnd = jsonStr.lastIndexOf("]");
-            
-            if (tasksArrayStart == -1 || tasksArrayEnd == -1) {
-                System.err.println("Invalid JSON format in state file");
-                return;
-            }
+    /**
+     * Closes the journal of the state file, the next call reads it from disk again.
+     */
+    public static synchronized void close(String statefile) {
+        Journal journal = JOURNALS.remove(statefile);
+        if (journal != null) {
+            journal.close();
+        }
+    }
 
-            String tasksJson = jsonStr.substring(tasksArrayStart + 1, tasksArrayEnd);
-            String[] taskObjects = splitJsonObjects(tasksJson);
+    private static Journal journal(String statefile) {
+        Journal journal = JOURNALS.get(statefile);
+        if (journal == null) {
+            journal = new Journal(Path.of(statefile));
+            journal.load();
+            JOURNALS.put(statefile, journal);
+        }
+        return journal;
+    }
 
-            // Create a map of tasks by ID for quick lookup
-            Map<String, Task> taskMap = new HashMap<>();
-            for (Task task : tasks) {
-                taskMap.put(task.getId(), task);
+    private static void compact(Journal journal) throws IOException {
+        journal.sync();
+        Path dir = journal.snapshot.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(dir, journal.snapshot.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+                writeSnapshot(writer, journal.state.values());
+                writer.flush();
+                channel.force(true);
             }
+            try {
+                Files.move(tmp, journal.snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, journal.snapshot, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        // a crash before this point replays records the snapshot already has, which is harmless
+        journal.truncate();
+    }
+
+    // ========== FORMAT ==========
 
-            for (String taskJson : taskObjects) {
-                String id = extractJsonValue(taskJson, "id");
-                String schedule = extractJsonValue(taskJson, "schedule");
-                String lastExecutedStr = extractJsonValue(taskJson, "lastExecuted");
+    private static void writeSnapshot(Writer writer, Iterable<Entry> entries) throws IOException {
+        try (JsonGenerator gen = JSON.createGenerator(writer)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET); // the caller still has to fsync
+            gen.useDefaultPrettyPrinter();
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("tasks");
+            for (Entry entry : entries) {
+                entry.write(gen);
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+        }
+    }
 
-                Task task = taskMap.get(id);
-                if (task != null && schedule != null && schedule.equals(task.getSchedule().name())) {
-                    if (lastExecutedStr != null && !lastExecutedStr.equals("null")) {
-                        LocalDateTime lastExecuted = LocalDateTime.parse(lastExecutedStr, FORMATTER);
-                        task.setLastExecuted(lastExecuted);
+    /**
+     * Streams the task objects of a snapshot into the state map.
+     */
+    private static void readSnapshot(Reader reader, Map<String, Entry> state) throws IOException {
+        try (JsonParser parser = JSON.createParser(reader)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("state file is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("tasks".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        Entry entry = Entry.read(parser);
+                        if (entry != null) {
+                            state.put(entry.id, entry);
+                        }
                     }
+                } else {
+                    parser.skipChildren();
                 }
             }
-
-            System.out.println("Loaded previous state from " + statefile);
-            
-        } catch (IOException e) {
-            System.err.println("Error loading state: " + e.getMessage());
-        } catch (Exception e) {
-            System.err.println("Error parsing state file: " + e.getMessage());
-            e.printStackTrace();
         }
     }
 
-    private static String escapeJson(String str) {
-        return "\"" + str.replace("\\", "\\\\")
-                         .replace("\"", "\\\"")
-                         .replace("\n", "\\n")
-                         .replace("\r", "\\r")
-                         .replace("\t", "\\t") + "\"";
-    }
+    /**
+     * One task's persisted state, also the journal record format.
+     */
+    private static final class Entry {
+        private final String id;
+        private final String schedule;
+        private final LocalDateTime lastExecuted;
 
-    private static String[] splitJsonObjects(String json) {
-        List<String> objects = new ArrayList<>();
-        int braceCount = 0;
-        int start = -1;
+        private Entry(String id, String schedule, LocalDateTime lastExecuted) {
+            this.id = id;
+            this.schedule = schedule;
+            this.lastExecuted = lastExecuted;
+        }
 
-        for (int i = 0; i < json.length(); i++) {
-            char c = json.charAt(i);
-            if (c == '{') {
-                if (braceCount == 0) {
-                    start = i;
-                }
-                braceCount++;
-            } else if (c == '}') {
-                braceCount--;
-                if (braceCount == 0 && start != -1) {
-                    objects.add(json.substring(start, i + 1));
-                    start = -1;
-                }
+        private static Entry of(Task task) {
+            return new Entry(task.getId(), task.getSchedule().name(), task.getLastExecuted());
+        }
+
+        private void write(JsonGenerator gen) throws IOException {
+            gen.writeStartObject();
+            gen.writeStringField("id", id);
+            gen.writeStringField("schedule", schedule);
+            if (lastExecuted != null) {
+                gen.writeStringField("lastExecuted", lastExecuted.format(FORMATTER));
+            } else {
+                gen.writeNullField("lastExecuted");
             }
+            gen.writeEndObject();
         }
 
-        return objects.toArray(new String[0]);
+        /**
+         * Reads the object the parser is positioned on, null if it lacks an id or schedule.
+         */
+        private static Entry read(JsonParser parser) throws IOException {
+            String id = null;
+            String schedule = null;
+            LocalDateTime lastExecuted = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_STRING) {
+                    switch (field) {
+                        case "id": id = parser.getText(); break;
+                        case "schedule": schedule = parser.getText(); break;
+                        case "lastExecuted": lastExecuted = LocalDateTime.parse(parser.getText(), FORMATTER); break;
+                        default: break;
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return (id == null || schedule == null) ? null : new Entry(id, schedule, lastExecuted);
+        }
     }
 
-    private static String extractJsonValue(String json, String key) {
-        String searchKey = "\"" + key + "\"";
-        int keyIndex = json.indexOf(searchKey);
-        if (keyIndex == -1) {
-            return null;
-        }
+    /**
+     * Snapshot, journal and the state they add up to, for one state file.
+     */
+    private static final class Journal {
+        private final Path snapshot;
+        private final Path log;
+        private final Map<String, Entry> state = new LinkedHashMap<>();
+        private FileChannel channel;
+        private int records = 0;
+        private int replayed = 0;
+        private int unsynced = 0;
+        private long last_sync = System.currentTimeMillis();
 
-        int colonIndex = json.indexOf(":", keyIndex);
-        if (colonIndex == -1) {
-            return null;
+        private Journal(Path snapshot) {
+            this.snapshot = snapshot;
+            this.log = Path.of(snapshot.toString() + ".journal");
         }
 
-        int valueStart = colonIndex + 1;
-        while (valueStart < json.length() && Character.isWhitespace(json.charAt(valueStart))) {
-            valueStart++;
+        private void load() {
+            if (Files.exists(snapshot)) {
+                try (Reader reader = Files.newBufferedReader(snapshot, StandardCharsets.UTF_8)) {
+                    readSnapshot(reader, state);
+                } catch (Exception e) {
+                    System.err.println("Error parsing state file " + snapshot + ": " + e.getMessage());
+                }
+            }
+            if (Files.exists(log)) {
+                try {
+                    for (String line : Files.readAllLines(log, StandardCharsets.UTF_8)) {
+                        if (line.isBlank()) {
+                            continue;
+                        }
+                        records++;
+                        try (JsonParser parser = JSON.createParser(line)) {
+                            Entry entry = (parser.nextToken() == JsonToken.START_OBJECT) ? Entry.read(parser) : null;
+                            if (entry != null) {
+                                state.put(entry.id, entry);
+                                replayed++;
+                            }
+                        } catch (Exception e) {
+                            System.err.println("Skipping damaged state journal record: " + e.getMessage());
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error reading state journal " + log + ": " + e.getMessage());
+                }
+            }
         }
 
-        if (valueStart >= json.length()) {
-            return null;
+        private void append(Entry entry) throws IOException {
+            if (channel == null) {
+                channel = FileChannel.open(log, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            }
+            StringWriter line = new StringWriter();
+            try (JsonGenerator gen = JSON.createGenerator(line)) {
+                entry.write(gen);
+            }
+            line.write('\n');
+            ByteBuffer bytes = ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            records++;
+            unsynced++;
+            // group commit, the OS already has the record so only power loss can drop a batch
+            if (unsynced >= SYNC_BATCH || System.currentTimeMillis() - last_sync >= SYNC_INTERVAL_MS) {
+                sync();
+            }
         }
 
-        if (json.startsWith("null", valueStart)) {
-            return "null";
+        private void sync() throws IOException {
+            if (channel != null && unsynced > 0) {
+                channel.force(false);
+            }
+            unsynced = 0;
+            last_sync = System.currentTimeMillis();
         }
 
-        if (json.charAt(valueStart) == '"') {
-            int valueEnd = json.indexOf('"', valueStart + 1);
-            if (valueEnd == -1) {
-                return null;
+        private void truncate() throws IOException {
+            if (channel != null) {
+                channel.truncate(0L);
+                channel.force(false);
+            } else {
+                Files.deleteIfExists(log);
             }
-            return json.substring(valueStart + 1, valueEnd);
+            records = 0;
         }
 
-        int valueEnd = valueStart;
-        while (valueEnd < json.length() && 
-               json.charAt(valueEnd) != ',' && 
-               json.charAt(valueEnd) != '}' && 
-               json.charAt(valueEnd) != ']') {
-            valueEnd++;
+        private void close() {
+            try {
+                sync();
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Error closing state journal: " + e.getMessage());
+            }
+            channel = null;
         }
-
-        return json.substring(valueStart, valueEnd).trim();
     }
 }
-
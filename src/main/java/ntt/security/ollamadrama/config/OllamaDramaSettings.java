@@ -18,6 +18,8 @@ import ntt.security.ollamadrama.agent.AppSettings;
 import ntt.security.ollamadrama.enums.InteractMethod;
 import ntt.security.ollamadrama.objects.MCPEndpoint;
 import ntt.security.ollamadrama.objects.OllamaEndpoint;
+import ntt.security.ollamadrama.objects.PromptInjectionRule;
+import ntt.security.ollamadrama.utils.CidrRange;
 
 /**
  * Configuration settings for OllamaDrama application.
@@ -33,6 +35,15 @@ public class OllamaDramaSettings {
 	private static final int DEFAULT_THREAD_POOL_COUNT = 20;
 	private static final int MAX_PORT_NUMBER = 65535;
 	private static final int MIN_PORT_NUMBER = 1;
+	private static final int DEFAULT_DISCOVERY_MAX_CONNECTS_PER_SECOND = 2000;
+	private static final int DEFAULT_OLLAMA_VALIDATION_CONCURRENCY = 1;
+	private static final int DEFAULT_HEALTH_PROBE_INTERVAL_SECONDS = 5;
+	private static final int DEFAULT_ORCHESTRATOR_POLL_INTERVAL_SECONDS = 2;
+	private static final int DEFAULT_OLLAMA_MAX_CONNECTIONS = 16;
+	private static final int DEFAULT_OLLAMA_REQUEST_SLOTS = 4;
+	private static final int DEFAULT_REQUEST_PRIORITY_AGING_SECONDS = 30;
+	private static final int DEFAULT_REQUEST_DEADLINE_SECONDS = 0;
+	private static final int DEFAULT_MCP_DISCOVERY_DEADLINE_SECONDS = 90;
 
 	// Ollama configuration
 	private String ollama_username = "";
@@ -42,19 +53,44 @@ public class OllamaDramaSettings {
 	private long ollama_timeout = DEFAULT_OLLAMA_TIMEOUT;
 	private boolean ollama_scan = true;
 	private boolean ollama_skip_paris_validation = false;
+	private int ollama_validation_concurrency = DEFAULT_OLLAMA_VALIDATION_CONCURRENCY; // sanity checks run at once per endpoint
+	private int ollama_max_connections = DEFAULT_OLLAMA_MAX_CONNECTIONS; // pooled keep-alive connections per endpoint
+	private int ollama_vram_capacity_gb = 0; // VRAM per endpoint for admission control, 0 = learn from the first out-of-memory load
+	private int ollama_request_slots = DEFAULT_OLLAMA_REQUEST_SLOTS; // concurrent requests per endpoint from this process
+	private int request_priority_aging_seconds = DEFAULT_REQUEST_PRIORITY_AGING_SECONDS; // waiting this long promotes a request one class
+	private int request_deadline_seconds = DEFAULT_REQUEST_DEADLINE_SECONDS; // overall budget of one question incl. retries and tool calls, 0 = none
+	private Map<String, Integer> tenant_weights = new HashMap<>(); // fair-share weight per tenant/persona, 1 if absent
 	private int n_ctx_override = -1;
 	private float temperature_override = -1f; // leave for no override
 	private String orchestrator_url = null; // http://127.0.0.1:1111/api/status
+	private int orchestrator_poll_interval_seconds = DEFAULT_ORCHESTRATOR_POLL_INTERVAL_SECONDS;
+	
+	// Discovery ranges (empty = the /24 of each local interface)
+	private List<String> discovery_cidrs = new ArrayList<>();
+	private List<String> discovery_exclude_cidrs = new ArrayList<>();
+	private int discovery_max_connects_per_second = DEFAULT_DISCOVERY_MAX_CONNECTS_PER_SECOND;
+	
+	// Verified endpoints persisted between runs for warm start (empty = disabled)
+	private String endpoint_registry_file = "";
+	
+	// Watched JSON file with satellites and mcp_satellites, applied at runtime (empty = disabled)
+	private String satellites_file = "";
+	
+	// Endpoint health monitoring
+	private int health_probe_interval_seconds = DEFAULT_HEALTH_PROBE_INTERVAL_SECONDS;
+	private int health_min_ollama_endpoints = 1; // full rediscovery below this many healthy endpoints
 	
 	// MCP configuration
 	private List<Integer> mcp_ports = new ArrayList<>(Arrays.asList(8000, 8080, 9000));
 	private List<String> mcp_sse_paths = new ArrayList<>(Collections.singletonList("/sse"));
 	private boolean mcp_scan = false;
+	private int mcp_discovery_deadline_seconds = DEFAULT_MCP_DISCOVERY_DEADLINE_SECONDS; // budget for validating the MCP candidates of one sweep
 	private boolean mcp_blind_trust = false;
 	private boolean mcp_enable_promptinject_protection = true;
 	private String trusted_mcp_toolnames_csv = "";
 	private String filtered_mcp_toolnames_csv = "";
 	private Map<String, Function<String, String>> mcp_preprocess = new HashMap<>();
+	private List<PromptInjectionRule> mcp_promptinject_rules = new ArrayList<>(); // added to the built-in rules
 	
 	// Thread pool configuration
 	private Integer threadPoolCount = DEFAULT_THREAD_POOL_COUNT;
@@ -66,6 +102,8 @@ public class OllamaDramaSettings {
 	private boolean use_claude = false;
 	private String xaikey = "";
 	private boolean use_xai = false;
+	private Map<String, Integer> cloud_requests_per_minute = new HashMap<>(); // per API key of "openai", "claude", "xai", unlimited if absent
+	private Map<String, Integer> cloud_tokens_per_minute = new HashMap<>(); // per API key of "openai", "claude", "xai", unlimited if absent
 	
 	// Endpoints
 	private List<OllamaEndpoint> satellites = new ArrayList<>();
@@ -315,6 +353,19 @@ public class OllamaDramaSettings {
 		this.mcp_scan = mcp_scan;
 	}
 
+	public int getMcp_discovery_deadline_seconds() {
+		return mcp_discovery_deadline_seconds;
+	}
+
+	public void setMcp_discovery_deadline_seconds(int mcp_discovery_deadline_seconds) {
+		if (mcp_discovery_deadline_seconds <= 0) {
+			LOGGER.warn("Invalid MCP discovery deadline {}s. Using default {}s", mcp_discovery_deadline_seconds, DEFAULT_MCP_DISCOVERY_DEADLINE_SECONDS);
+			this.mcp_discovery_deadline_seconds = DEFAULT_MCP_DISCOVERY_DEADLINE_SECONDS;
+		} else {
+			this.mcp_discovery_deadline_seconds = mcp_discovery_deadline_seconds;
+		}
+	}
+
 	public boolean isMcp_blind_trust() {
 		return mcp_blind_trust;
 	}
@@ -371,6 +422,202 @@ public class OllamaDramaSettings {
 		this.orchestrator_url = orchestrator_url;
 	}
 
+	public int getOrchestrator_poll_interval_seconds() {
+		return orchestrator_poll_interval_seconds;
+	}
+
+	public void setOrchestrator_poll_interval_seconds(int orchestrator_poll_interval_seconds) {
+		if (orchestrator_poll_interval_seconds <= 0) {
+			LOGGER.warn("Invalid orchestrator poll interval {}. Using default {}", orchestrator_poll_interval_seconds, DEFAULT_ORCHESTRATOR_POLL_INTERVAL_SECONDS);
+			this.orchestrator_poll_interval_seconds = DEFAULT_ORCHESTRATOR_POLL_INTERVAL_SECONDS;
+		} else {
+			this.orchestrator_poll_interval_seconds = orchestrator_poll_interval_seconds;
+		}
+	}
+
+	public List<String> getDiscovery_cidrs() {
+		return Collections.unmodifiableList(discovery_cidrs);
+	}
+
+	public void setDiscovery_cidrs(List<String> discovery_cidrs) {
+		this.discovery_cidrs = validCIDRs(discovery_cidrs);
+	}
+
+	public List<String> getDiscovery_exclude_cidrs() {
+		return Collections.unmodifiableList(discovery_exclude_cidrs);
+	}
+
+	public void setDiscovery_exclude_cidrs(List<String> discovery_exclude_cidrs) {
+		this.discovery_exclude_cidrs = validCIDRs(discovery_exclude_cidrs);
+	}
+
+	public int getDiscovery_max_connects_per_second() {
+		return discovery_max_connects_per_second;
+	}
+
+	public void setDiscovery_max_connects_per_second(int discovery_max_connects_per_second) {
+		if (discovery_max_connects_per_second < 0) {
+			LOGGER.warn("Invalid discovery rate {}. Using default {}", discovery_max_connects_per_second, DEFAULT_DISCOVERY_MAX_CONNECTS_PER_SECOND);
+			this.discovery_max_connects_per_second = DEFAULT_DISCOVERY_MAX_CONNECTS_PER_SECOND;
+		} else {
+			this.discovery_max_connects_per_second = discovery_max_connects_per_second;
+		}
+	}
+
+	public int getOllama_validation_concurrency() {
+		return ollama_validation_concurrency;
+	}
+
+	public void setOllama_validation_concurrency(int ollama_validation_concurrency) {
+		if (ollama_validation_concurrency <= 0) {
+			LOGGER.warn("Invalid validation concurrency {}. Using default {}", ollama_validation_concurrency, DEFAULT_OLLAMA_VALIDATION_CONCURRENCY);
+			this.ollama_validation_concurrency = DEFAULT_OLLAMA_VALIDATION_CONCURRENCY;
+		} else {
+			this.ollama_validation_concurrency = ollama_validation_concurrency;
+		}
+	}
+
+	public int getOllama_max_connections() {
+		return ollama_max_connections;
+	}
+
+	public void setOllama_max_connections(int ollama_max_connections) {
+		if (ollama_max_connections <= 0) {
+			LOGGER.warn("Invalid max connections {}. Using default {}", ollama_max_connections, DEFAULT_OLLAMA_MAX_CONNECTIONS);
+			this.ollama_max_connections = DEFAULT_OLLAMA_MAX_CONNECTIONS;
+		} else {
+			this.ollama_max_connections = ollama_max_connections;
+		}
+	}
+
+	public int getOllama_vram_capacity_gb() {
+		return ollama_vram_capacity_gb;
+	}
+
+	public void setOllama_vram_capacity_gb(int ollama_vram_capacity_gb) {
+		if (ollama_vram_capacity_gb < 0) {
+			LOGGER.warn("Invalid VRAM capacity {} GB. Learning it from the endpoints instead", ollama_vram_capacity_gb);
+			this.ollama_vram_capacity_gb = 0;
+		} else {
+			this.ollama_vram_capacity_gb = ollama_vram_capacity_gb;
+		}
+	}
+
+	public int getOllama_request_slots() {
+		return ollama_request_slots;
+	}
+
+	public void setOllama_request_slots(int ollama_request_slots) {
+		if (ollama_request_slots <= 0) {
+			LOGGER.warn("Invalid request slots {}. Using default {}", ollama_request_slots, DEFAULT_OLLAMA_REQUEST_SLOTS);
+			this.ollama_request_slots = DEFAULT_OLLAMA_REQUEST_SLOTS;
+		} else {
+			this.ollama_request_slots = ollama_request_slots;
+		}
+	}
+
+	public int getRequest_priority_aging_seconds() {
+		return request_priority_aging_seconds;
+	}
+
+	public void setRequest_priority_aging_seconds(int request_priority_aging_seconds) {
+		if (request_priority_aging_seconds <= 0) {
+			LOGGER.warn("Invalid priority aging {}s. Using default {}s", request_priority_aging_seconds, DEFAULT_REQUEST_PRIORITY_AGING_SECONDS);
+			this.request_priority_aging_seconds = DEFAULT_REQUEST_PRIORITY_AGING_SECONDS;
+		} else {
+			this.request_priority_aging_seconds = request_priority_aging_seconds;
+		}
+	}
+
+	public int getRequest_deadline_seconds() {
+		return request_deadline_seconds;
+	}
+
+	public void setRequest_deadline_seconds(int request_deadline_seconds) {
+		if (request_deadline_seconds < 0) {
+			LOGGER.warn("Invalid request deadline {}s. Using default {}s", request_deadline_seconds, DEFAULT_REQUEST_DEADLINE_SECONDS);
+			this.request_deadline_seconds = DEFAULT_REQUEST_DEADLINE_SECONDS;
+		} else {
+			this.request_deadline_seconds = request_deadline_seconds;
+		}
+	}
+
+	public Map<String, Integer> getTenant_weights() {
+		return Collections.unmodifiableMap(tenant_weights);
+	}
+
+	public void setTenant_weights(Map<String, Integer> tenant_weights) {
+		this.tenant_weights = (tenant_weights == null) ? new HashMap<>() : new HashMap<>(tenant_weights);
+	}
+
+	public Map<String, Integer> getCloud_requests_per_minute() {
+		return Collections.unmodifiableMap(cloud_requests_per_minute);
+	}
+
+	public void setCloud_requests_per_minute(Map<String, Integer> cloud_requests_per_minute) {
+		this.cloud_requests_per_minute = (cloud_requests_per_minute == null) ? new HashMap<>() : new HashMap<>(cloud_requests_per_minute);
+	}
+
+	public Map<String, Integer> getCloud_tokens_per_minute() {
+		return Collections.unmodifiableMap(cloud_tokens_per_minute);
+	}
+
+	public void setCloud_tokens_per_minute(Map<String, Integer> cloud_tokens_per_minute) {
+		this.cloud_tokens_per_minute = (cloud_tokens_per_minute == null) ? new HashMap<>() : new HashMap<>(cloud_tokens_per_minute);
+	}
+
+	public String getEndpoint_registry_file() {
+		return endpoint_registry_file;
+	}
+
+	public void setEndpoint_registry_file(String endpoint_registry_file) {
+		this.endpoint_registry_file = (endpoint_registry_file == null) ? "" : endpoint_registry_file.trim();
+	}
+
+	public String getSatellites_file() {
+		return satellites_file;
+	}
+
+	public void setSatellites_file(String satellites_file) {
+		this.satellites_file = (satellites_file == null) ? "" : satellites_file.trim();
+	}
+
+	public int getHealth_probe_interval_seconds() {
+		return health_probe_interval_seconds;
+	}
+
+	public void setHealth_probe_interval_seconds(int health_probe_interval_seconds) {
+		if (health_probe_interval_seconds <= 0) {
+			LOGGER.warn("Invalid health probe interval {}. Using default {}", health_probe_interval_seconds, DEFAULT_HEALTH_PROBE_INTERVAL_SECONDS);
+			this.health_probe_interval_seconds = DEFAULT_HEALTH_PROBE_INTERVAL_SECONDS;
+		} else {
+			this.health_probe_interval_seconds = health_probe_interval_seconds;
+		}
+	}
+
+	public int getHealth_min_ollama_endpoints() {
+		return health_min_ollama_endpoints;
+	}
+
+	public void setHealth_min_ollama_endpoints(int health_min_ollama_endpoints) {
+		this.health_min_ollama_endpoints = Math.max(0, health_min_ollama_endpoints);
+	}
+
+	private static List<String> validCIDRs(List<String> cidrs) {
+		List<String> valid = new ArrayList<>();
+		if (cidrs == null) {
+			return valid;
+		}
+		for (String cidr : cidrs) {
+			if (CidrRange.isValid(cidr)) {
+				valid.add(cidr.trim());
+			} else {
+				LOGGER.warn("Ignoring invalid CIDR range: {}", cidr);
+			}
+		}
+		return valid;
+	}
+
 	public void setTemperature_override(float temperature_override) {
 		this.temperature_override = temperature_override;
 	}
@@ -391,6 +638,14 @@ public class OllamaDramaSettings {
 		this.mcp_preprocess = mcp_preprocess;
 	}
 
+	public List<PromptInjectionRule> getMcp_promptinject_rules() {
+		return Collections.unmodifiableList(mcp_promptinject_rules);
+	}
+
+	public void setMcp_promptinject_rules(List<PromptInjectionRule> mcp_promptinject_rules) {
+		this.mcp_promptinject_rules = mcp_promptinject_rules != null ? new ArrayList<>(mcp_promptinject_rules) : new ArrayList<>();
+	}
+
 	public InteractMethod getInteract_method() {
 		return interact_method;
 	}
@@ -478,7 +733,22 @@ public class OllamaDramaSettings {
 		this.setOllama_timeout(appsettings.getOllama_timeout());
 		this.setOllama_scan(appsettings.isOllama_scan());
 		this.setOllama_skip_paris_validation(appsettings.isOllama_skip_paris_validation());
+		this.setOllama_validation_concurrency(appsettings.getOllama_validation_concurrency());
+		this.setOllama_max_connections(appsettings.getOllama_max_connections());
+		this.setOllama_vram_capacity_gb(appsettings.getOllama_vram_capacity_gb());
+		this.setOllama_request_slots(appsettings.getOllama_request_slots());
+		this.setRequest_priority_aging_seconds(appsettings.getRequest_priority_aging_seconds());
+		this.setRequest_deadline_seconds(appsettings.getRequest_deadline_seconds());
+		this.setTenant_weights(appsettings.getTenant_weights());
 		this.setOrchestrator_url(appsettings.getOrchestrator_url());
+		this.setOrchestrator_poll_interval_seconds(appsettings.getOrchestrator_poll_interval_seconds());
+		this.setDiscovery_cidrs(appsettings.getDiscovery_cidrs());
+		this.setDiscovery_exclude_cidrs(appsettings.getDiscovery_exclude_cidrs());
+		this.setDiscovery_max_connects_per_second(appsettings.getDiscovery_max_connects_per_second());
+		this.setEndpoint_registry_file(appsettings.getEndpoint_registry_file());
+		this.setSatellites_file(appsettings.getSatellites_file());
+		this.setHealth_probe_interval_seconds(appsettings.getHealth_probe_interval_seconds());
+		this.setHealth_min_ollama_endpoints(appsettings.getHealth_min_ollama_endpoints());
 		this.setThreadPoolCount(appsettings.getThread_pool_count());
 		this.setAutopull_max_llm_size(appsettings.getAutopull_max_llm_size());
 
@@ -496,11 +766,13 @@ public class OllamaDramaSettings {
 		this.setMcp_ports_csv(appsettings.getMcp_ports());
 		this.setMcp_sse_paths(appsettings.getMcp_sse_paths());
 		this.setMcp_scan(appsettings.isMcp_scan());
+		this.setMcp_discovery_deadline_seconds(appsettings.getMcp_discovery_deadline_seconds());
 		this.setMcp_blind_trust(appsettings.isMcp_blind_trust());
 		this.setMcp_enable_promptinject_protection(appsettings.isMcp_enable_promptinject_protection());
 		this.setFiltered_mcp_toolnames_csv(appsettings.getFiltered_mcp_toolnames_csv());
 		this.setTrusted_mcp_toolnames_csv(appsettings.getTrusted_mcp_toolnames_csv());
 		this.setMcp_preprocess(appsettings.getMcp_preprocess());
+		this.setMcp_promptinject_rules(appsettings.getMcp_promptinject_rules());
 
 		// External API keys
 		this.setOpenaikey(appsettings.getOpenaikey());
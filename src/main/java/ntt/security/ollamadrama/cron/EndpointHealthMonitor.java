@@ -0,0 +1,174 @@
+package ntt.security.ollamadrama.cron;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ntt.security.ollamadrama.enums.CircuitState;
+import ntt.security.ollamadrama.objects.OllamaEndpoint;
+import ntt.security.ollamadrama.singletons.OllamaService;
+import ntt.security.ollamadrama.utils.CircuitBreaker;
+import ntt.security.ollamadrama.utils.OllamaTransport;
+
+/**
+ * Pings the registered Ollama endpoints on a jittered schedule and keeps a circuit breaker per
+ * endpoint. An endpoint whose breaker opens is evicted from the active set right away and
+ * restored once a half-open probe succeeds. A full rediscovery only runs when fewer than
+ * health_min_ollama_endpoints endpoints are healthy, at most once per rediscovery cooldown.
+ *
+ * Probes and rediscovery run on their own threads, so a slow endpoint never delays the others.
+ */
+public class EndpointHealthMonitor {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(EndpointHealthMonitor.class);
+
+	private static final long TICK_MS = 1000L;
+	private static final int PING_TIMEOUT_SECONDS = 3;
+	private static final int PROBE_THREADS = 8;
+	private static final int FAILURE_THRESHOLD = 2;
+	private static final long BASE_OPEN_MS = 5_000L;
+	private static final long MAX_OPEN_MS = 300_000L;
+	private static final double PROBE_JITTER = 0.2;
+
+	private final long rediscovery_cooldown_ms;
+	private final ScheduledExecutorService scheduler;
+	private final ExecutorService probes;
+	private final ExecutorService rediscovery;
+	private final AtomicBoolean rediscovery_running = new AtomicBoolean(false);
+	private final Map<String, MonitoredEndpoint> monitored = new ConcurrentHashMap<>();
+	private volatile long last_rediscovery = 0L;
+
+	/**
+	 * @param _initial_delay_ms delay before the first probe round
+	 * @param _rediscovery_cooldown_ms minimum time between two full rediscoveries
+	 */
+	public EndpointHealthMonitor(long _initial_delay_ms, long _rediscovery_cooldown_ms) {
+		this.rediscovery_cooldown_ms = _rediscovery_cooldown_ms;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(daemon_threads("ollamadrama-health"));
+		this.probes = Executors.newFixedThreadPool(PROBE_THREADS, daemon_threads("ollamadrama-health-probe"));
+		this.rediscovery = Executors.newSingleThreadExecutor(daemon_threads("ollamadrama-rediscovery"));
+		this.scheduler.scheduleWithFixedDelay(this::tick, _initial_delay_ms, TICK_MS, TimeUnit.MILLISECONDS);
+	}
+
+	public void stop() {
+		scheduler.shutdownNow();
+		probes.shutdownNow();
+		rediscovery.shutdownNow();
+	}
+
+	private void tick() {
+		try {
+			long now = System.currentTimeMillis();
+			Map<String, OllamaEndpoint> active = OllamaService.get_ollama_hosts();
+
+			for (var entry : active.entrySet()) {
+				monitored.computeIfAbsent(entry.getKey(), url -> new MonitoredEndpoint(entry.getValue(), now));
+			}
+			// endpoints dropped by a rewire are no longer ours to watch, evicted ones are kept until restored
+			monitored.values().removeIf(m -> !m.evicted && !active.containsKey(m.endpoint.getOllama_url()));
+
+			for (MonitoredEndpoint m : monitored.values()) {
+				if (!m.in_flight && now >= m.next_probe && m.breaker.allowProbe(now)) {
+					m.in_flight = true;
+					probes.submit(() -> probe(m));
+				}
+			}
+
+			int healthy = active.size();
+			if (healthy < OllamaService.get_settings().getHealth_min_ollama_endpoints()) {
+				trigger_rediscovery(now, healthy);
+			}
+		} catch (Exception e) {
+			LOGGER.warn("Health monitor tick failed: {}", e.getMessage());
+		}
+	}
+
+	private void probe(MonitoredEndpoint m) {
+		String url = m.endpoint.getOllama_url();
+		try {
+			boolean up = false;
+			try {
+				up = OllamaTransport.forEndpoint(m.endpoint).ping(PING_TIMEOUT_SECONDS);
+			} catch (Exception e) {
+				LOGGER.debug("Health probe of {} failed: {}", url, e.getMessage());
+			}
+
+			long now = System.currentTimeMillis();
+			if (up) {
+				m.breaker.recordSuccess();
+				if (m.evicted) {
+					if (OllamaService.restore_ollama_endpoint(m.endpoint)) {
+						m.evicted = false;
+					} else {
+						monitored.remove(url);
+					}
+				}
+			} else if (m.breaker.recordFailure(now) == CircuitState.OPEN) {
+				if (!m.evicted) {
+					OllamaService.evict_ollama_endpoint(url);
+					m.evicted = true;
+				}
+				LOGGER.info("Circuit for {} open, next probe in {} ms", url, m.breaker.getOpen_until() - now);
+			}
+			m.next_probe = now + jittered(TimeUnit.SECONDS.toMillis(OllamaService.get_settings().getHealth_probe_interval_seconds()));
+		} finally {
+			m.in_flight = false;
+		}
+	}
+
+	private void trigger_rediscovery(long now, int healthy) {
+		if ((now - last_rediscovery) < rediscovery_cooldown_ms || !rediscovery_running.compareAndSet(false, true)) {
+			return;
+		}
+		last_rediscovery = now;
+		LOGGER.warn("Only {} healthy Ollama endpoints, starting full rediscovery", healthy);
+		rediscovery.submit(() -> {
+			try {
+				boolean found_ollamas = OllamaService.wire_ollama(false);
+				LOGGER.info("Rediscovery finished, found_ollamas: {}", found_ollamas);
+			} finally {
+				rediscovery_running.set(false);
+			}
+		});
+	}
+
+	private static long jittered(long interval_ms) {
+		double factor = 1.0 + ThreadLocalRandom.current().nextDouble(-PROBE_JITTER, PROBE_JITTER);
+		return (long) (interval_ms * factor);
+	}
+
+	private static ThreadFactory daemon_threads(String name) {
+		return runnable -> {
+			Thread t = new Thread(runnable, name);
+			t.setDaemon(true);
+			return t;
+		};
+	}
+
+	public CircuitState getState(String ollama_url) {
+		MonitoredEndpoint m = monitored.get(ollama_url);
+		return (m == null) ? null : m.breaker.getState();
+	}
+
+	private static final class MonitoredEndpoint {
+		final OllamaEndpoint endpoint;
+		final CircuitBreaker breaker = new CircuitBreaker(FAILURE_THRESHOLD, BASE_OPEN_MS, MAX_OPEN_MS);
+		volatile boolean in_flight = false;
+		volatile boolean evicted = false;
+		volatile long next_probe;
+
+		MonitoredEndpoint(OllamaEndpoint endpoint, long now) {
+			this.endpoint = endpoint;
+			this.next_probe = now + jittered(TICK_MS);
+		}
+	}
+}
@@ -1,34 +1,30 @@
 package ntt.security.ollamadrama.cron;
 
-import java.util.Timer;
-import java.util.TimerTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import ntt.security.ollamadrama.singletons.OllamaService;
-
-
+/**
+ * Keeps the registered Ollama endpoints usable. Endpoints are health checked by an
+ * EndpointHealthMonitor and evicted/restored within seconds, the full discovery and
+ * validation pipeline only runs when too few endpoints are healthy, at most once per
+ * check interval.
+ */
 public class RewireOllama {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(RewireOllama.class);
 
-	private Timer timer;
+	private final EndpointHealthMonitor monitor;
 
 	public RewireOllama(final int initalDelayInSeconds, final int checkIntervalInSeconds) {
-		this.timer = new Timer();
-		this.timer.schedule(new RewireTask(), initalDelayInSeconds*1000, checkIntervalInSeconds * 1000);
+		LOGGER.info("Starting Ollama endpoint health monitor, rediscovery at most every {}s", checkIntervalInSeconds);
+		this.monitor = new EndpointHealthMonitor(initalDelayInSeconds * 1000L, checkIntervalInSeconds * 1000L);
 	}
 
-	class RewireTask extends TimerTask {
-
-		@Override
-		public void run() {
-			LOGGER.info("RewireTask()");
-			
-			// Before update, make sure we can find at least one ollama server
-			boolean found_ollamas = OllamaService.wireOllama(false);
-			LOGGER.debug("found_ollamas: " + found_ollamas);
-		}
+	public EndpointHealthMonitor getMonitor() {
+		return monitor;
+	}
 
+	public void stop() {
+		monitor.stop();
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,103 @@
+package ntt.security.ollamadrama.cron;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ntt.security.ollamadrama.objects.SatelliteConfig;
+import ntt.security.ollamadrama.utils.SatelliteConfigUtils;
+
+/**
+ * Watches satellites_file and hands every successfully parsed version to a listener. The parent
+ * directory is watched so editors that replace the file by renaming a temp file are picked up
+ * too. Bursts of events are coalesced, and a file that does not parse is ignored until the next
+ * change.
+ */
+public class SatelliteFileWatcher {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SatelliteFileWatcher.class);
+
+	private static final long SETTLE_MS = 300L;
+
+	private final Path file;
+	private final Consumer<SatelliteConfig> listener;
+	private final WatchService watcher;
+	private final Thread thread;
+
+	public SatelliteFileWatcher(String _file, Consumer<SatelliteConfig> _listener) throws IOException {
+		this.file = Path.of(_file).toAbsolutePath();
+		this.listener = _listener;
+		this.watcher = FileSystems.getDefault().newWatchService();
+		this.file.getParent().register(watcher,
+				StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+		this.thread = new Thread(this::run, "ollamadrama-satellite-watch");
+		this.thread.setDaemon(true);
+		this.thread.start();
+		LOGGER.info("Watching {} for satellite changes", file);
+	}
+
+	private void run() {
+		try {
+			while (true) {
+				WatchKey key = watcher.take();
+				boolean ours = touches_file(key);
+				key.reset();
+				if (!ours) {
+					continue;
+				}
+				// let the writer finish, and fold the follow-up events into this reload
+				Thread.sleep(SETTLE_MS);
+				WatchKey more;
+				while ((more = watcher.poll(SETTLE_MS, TimeUnit.MILLISECONDS)) != null) {
+					more.pollEvents();
+					more.reset();
+				}
+				reload();
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			LOGGER.debug("Satellite file watcher stopped");
+		}
+	}
+
+	private boolean touches_file(WatchKey key) {
+		boolean ours = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+				ours = true;
+			}
+		}
+		return ours;
+	}
+
+	private void reload() {
+		SatelliteConfig config = SatelliteConfigUtils.load(file.toString());
+		if (config == null) {
+			return;
+		}
+		try {
+			listener.accept(config);
+		} catch (Exception e) {
+			LOGGER.warn("Applying satellites from {} failed: {}", file, e.getMessage());
+		}
+	}
+
+	public void stop() {
+		thread.interrupt();
+		try {
+			watcher.close();
+		} catch (IOException e) {
+			LOGGER.debug("Closing satellite watcher failed: {}", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,7 @@
+package ntt.security.ollamadrama.enums;
+
+public enum CircuitState {
+	CLOSED,
+	OPEN,
+	HALF_OPEN
+}
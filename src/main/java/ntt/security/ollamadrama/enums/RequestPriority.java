@@ -0,0 +1,10 @@
+package ntt.security.ollamadrama.enums;
+
+/**
+ * Scheduling class of an Ollama request, most urgent first.
+ */
+public enum RequestPriority {
+	INTERACTIVE,
+	NORMAL,
+	BATCH
+}
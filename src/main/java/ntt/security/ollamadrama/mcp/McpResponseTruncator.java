@@ -6,6 +6,7 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.util.*;
+import java.util.function.ToIntFunction;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -26,6 +27,11 @@ public class McpResponseTruncator {
     private int maxDepth = 5;
     private int maxTotalChars = 15000;
 
+    // Floors used when shrinking limits to fit a token budget
+    private static final int MIN_STRING_LENGTH = 40;
+    private static final int MIN_ARRAY_ELEMENTS = 1;
+    private static final int MIN_TOTAL_CHARS = 200;
+
     public McpResponseTruncator() {}
 
     public McpResponseTruncator maxStringLength(int length) {
@@ -74,6 +80,55 @@ public class McpResponseTruncator {
         }
     }
 
+    /**
+     * Size a response to fit within a token budget. Returns the response untouched if it
+     * already fits, otherwise truncates with progressively smaller array sampling, string
+     * and total limits until it does. Returns null if even the floor limits do not fit.
+     * The limits configured on this instance are not modified.
+     */
+    public String truncateToTokenBudget(String response, int maxTokens, ToIntFunction<String> tokenEstimator) {
+        if (response == null || response.isBlank()) {
+            return "";
+        }
+        if (tokenEstimator.applyAsInt(response) <= maxTokens) {
+            return response;
+        }
+
+        McpResponseTruncator attempt = new McpResponseTruncator()
+                .maxStringLength(maxStringLength)
+                .maxArrayElements(maxArrayElements)
+                .maxDepth(maxDepth)
+                .maxTotalChars(Math.min(maxTotalChars, response.length()));
+
+        while (true) {
+            String fitted = attempt.truncate(response);
+            int tokens = tokenEstimator.applyAsInt(fitted);
+            if (tokens <= maxTokens) {
+                LOGGER.info("Sized response to " + tokens + " tokens (budget " + maxTokens + ") using maxStringLength=" + attempt.maxStringLength
+                        + ", maxArrayElements=" + attempt.maxArrayElements + ", maxTotalChars=" + attempt.maxTotalChars);
+                return fitted;
+            }
+            if (!attempt.shrink()) {
+                LOGGER.warn("Unable to size response below " + tokens + " tokens (budget " + maxTokens + ")");
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Halve all limits towards their floors, returns false once nothing can shrink further.
+     */
+    private boolean shrink() {
+        int s = Math.min(maxStringLength, Math.max(MIN_STRING_LENGTH, maxStringLength / 2));
+        int a = Math.min(maxArrayElements, Math.max(MIN_ARRAY_ELEMENTS, maxArrayElements / 2));
+        int t = Math.min(maxTotalChars, Math.max(MIN_TOTAL_CHARS, maxTotalChars / 2));
+        boolean changed = (s != maxStringLength) || (a != maxArrayElements) || (t != maxTotalChars);
+        maxStringLength = s;
+        maxArrayElements = a;
+        maxTotalChars = t;
+        return changed;
+    }
+
     /**
      * Recursively clean a JSON node - remove nulls, truncate strings, limit arrays.
      */
@@ -0,0 +1,148 @@
+package ntt.security.ollamadrama.mcp;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import ntt.security.ollamadrama.objects.MCPTool;
+
+/**
+ * Immutable snapshot of the MCP tools known at one point in time. A new index with a higher
+ * version is published on every refresh, readers never need a lock.
+ *
+ * Tool name lookups, trusted/filtered matching and the rendered tool catalogs are all computed
+ * once at build time.
+ */
+public final class McpToolIndex {
+
+	public static final McpToolIndex EMPTY = build(0L, Collections.emptyMap(), "", "");
+
+	private final long version;
+	private final Map<String, MCPTool> tools;
+	private final Map<String, MCPTool> visible_tools;
+	private final Map<String, MCPTool> tools_by_name;
+	private final String trusted_csv;
+	private final String filtered_csv;
+	private final Set<String> trusted_names;
+	private final Set<String> filtered_names;
+	private final String catalog;
+	private final String brief_catalog;
+
+	private McpToolIndex(long version, Map<String, MCPTool> tools, String trusted_csv, String filtered_csv) {
+		this.version = version;
+		this.tools = Collections.unmodifiableMap(new TreeMap<>(tools));
+		this.trusted_csv = trusted_csv;
+		this.filtered_csv = filtered_csv;
+		this.trusted_names = split_csv(trusted_csv);
+		this.filtered_names = split_csv(filtered_csv);
+
+		Map<String, MCPTool> visible = new TreeMap<>();
+		Set<String> listed_names = new HashSet<>();
+		Map<String, MCPTool> by_name = new HashMap<>();
+		StringBuilder sb = new StringBuilder("MCP TOOLS AVAILABLE:\n");
+		StringBuilder sb_brief = new StringBuilder("MCP TOOLS AVAILABLE:\n");
+		for (var entry : this.tools.entrySet()) {
+			MCPTool tool = entry.getValue();
+			// first tool in key order wins, same as the previous linear scan
+			by_name.putIfAbsent(tool.getToolname(), tool);
+			if (filtered_names.contains(tool.getToolname())) {
+				continue;
+			}
+			if (listed_names.add(tool.getToolname())) {
+				sb.append(tool.getTool_str().replaceAll(" {2,}", " ")).append("\n");
+				sb_brief.append(" - " + tool.getToolname()).append("\n");
+			}
+			visible.put(entry.getKey(), tool);
+		}
+		this.visible_tools = Collections.unmodifiableMap(visible);
+		this.tools_by_name = Collections.unmodifiableMap(by_name);
+		this.catalog = sb.toString().replaceAll("\n{3,}", "\n\n");
+		this.brief_catalog = sb_brief.toString().replaceAll("\n{3,}", "\n\n");
+	}
+
+	public static McpToolIndex build(long version, Map<String, MCPTool> tools, String trusted_csv, String filtered_csv) {
+		return new McpToolIndex(version, tools, Objects.toString(trusted_csv, ""), Objects.toString(filtered_csv, ""));
+	}
+
+	/**
+	 * Same tools, recompiled against new trusted/filtered settings.
+	 */
+	public McpToolIndex withSettings(long new_version, String new_trusted_csv, String new_filtered_csv) {
+		return build(new_version, tools, new_trusted_csv, new_filtered_csv);
+	}
+
+	public boolean isCompiledFor(String other_trusted_csv, String other_filtered_csv) {
+		return trusted_csv.equals(Objects.toString(other_trusted_csv, ""))
+				&& filtered_csv.equals(Objects.toString(other_filtered_csv, ""));
+	}
+
+	/**
+	 * Matches a tool name against a CSV list, using the precompiled sets when the CSV is the
+	 * one this index was built from.
+	 */
+	public boolean matches(String tool_name, String csv) {
+		if (tool_name == null || csv == null) {
+			return false;
+		}
+		if (csv.equals(trusted_csv)) {
+			return trusted_names.contains(tool_name);
+		}
+		if (csv.equals(filtered_csv)) {
+			return filtered_names.contains(tool_name);
+		}
+		return split_csv(csv).contains(tool_name);
+	}
+
+	private static Set<String> split_csv(String csv) {
+		Set<String> names = new HashSet<>();
+		if (csv != null) {
+			for (String name : csv.split(",")) {
+				names.add(name);
+			}
+		}
+		return Collections.unmodifiableSet(names);
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public Map<String, MCPTool> getTools() {
+		return tools;
+	}
+
+	public Map<String, MCPTool> getVisibleTools() {
+		return visible_tools;
+	}
+
+	public MCPTool getTool(String tool_name) {
+		if (tool_name == null) {
+			return null;
+		}
+		return tools_by_name.get(tool_name);
+	}
+
+	public boolean isTrusted(String tool_name) {
+		return tool_name != null && trusted_names.contains(tool_name);
+	}
+
+	public boolean isFiltered(String tool_name) {
+		return tool_name != null && filtered_names.contains(tool_name);
+	}
+
+	public String getCatalog() {
+		return catalog;
+	}
+
+	public String getBriefCatalog() {
+		return brief_catalog;
+	}
+
+	public boolean isEmpty() {
+		return tools.isEmpty();
+	}
+}
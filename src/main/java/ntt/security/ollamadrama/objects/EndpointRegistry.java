@@ -0,0 +1,51 @@
+package ntt.security.ollamadrama.objects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Verified Ollama and MCP endpoints saved between runs so a restart can use them right away.
+ */
+public class EndpointRegistry {
+
+	private long saved_at = 0L;
+	private List<RegisteredOllamaEndpoint> ollamas = new ArrayList<>();
+	private List<RegisteredMCPEndpoint> mcps = new ArrayList<>();
+	
+	public EndpointRegistry() {
+		super();
+	}
+	
+	public EndpointRegistry(long _saved_at, List<RegisteredOllamaEndpoint> _ollamas, List<RegisteredMCPEndpoint> _mcps) {
+		super();
+		this.saved_at = _saved_at;
+		this.setOllamas(_ollamas);
+		this.setMcps(_mcps);
+	}
+
+	public long getSaved_at() {
+		return saved_at;
+	}
+
+	public void setSaved_at(long saved_at) {
+		this.saved_at = saved_at;
+	}
+
+	public List<RegisteredOllamaEndpoint> getOllamas() {
+		return Collections.unmodifiableList(ollamas);
+	}
+
+	public void setOllamas(List<RegisteredOllamaEndpoint> ollamas) {
+		this.ollamas = (ollamas == null) ? new ArrayList<>() : new ArrayList<>(ollamas);
+	}
+
+	public List<RegisteredMCPEndpoint> getMcps() {
+		return Collections.unmodifiableList(mcps);
+	}
+
+	public void setMcps(List<RegisteredMCPEndpoint> mcps) {
+		this.mcps = (mcps == null) ? new ArrayList<>() : new ArrayList<>(mcps);
+	}
+
+}
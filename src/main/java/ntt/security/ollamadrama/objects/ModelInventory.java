@@ -0,0 +1,97 @@
+package ntt.security.ollamadrama.objects;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import ntt.security.ollamadrama.utils.OllamaUtils;
+
+/**
+ * Immutable snapshot of the models installed on one Ollama server, built from a single /api/tags
+ * listing. The fingerprint is computed from model names and digests, so two servers with the same
+ * model names but different quantizations or builds are told apart.
+ */
+public final class ModelInventory {
+
+	public static final ModelInventory EMPTY = new ModelInventory(Collections.emptyList());
+
+	private final Map<String, OllamaModel> models_by_name;
+	private final String fingerprint;
+
+	public ModelInventory(Collection<OllamaModel> models) {
+		Map<String, OllamaModel> by_name = new TreeMap<>();
+		for (OllamaModel model : models) {
+			by_name.put(model.getName(), model);
+		}
+		this.models_by_name = Collections.unmodifiableMap(by_name);
+
+		if (by_name.isEmpty()) {
+			this.fingerprint = "empty";
+		} else {
+			List<String> entries = new ArrayList<>();
+			for (OllamaModel model : by_name.values()) {
+				entries.add(model.getName() + "@" + model.getDigest());
+			}
+			this.fingerprint = OllamaUtils.compute_sha256_hash(String.join("|", entries));
+		}
+	}
+
+	public boolean hasModel(String model_name) {
+		return model_name != null && models_by_name.containsKey(model_name);
+	}
+
+	public OllamaModel getModel(String model_name) {
+		return (model_name == null) ? null : models_by_name.get(model_name);
+	}
+
+	public String getDigest(String model_name) {
+		OllamaModel model = getModel(model_name);
+		return (model == null) ? null : model.getDigest();
+	}
+
+	public List<String> getModelNames() {
+		return new ArrayList<>(models_by_name.keySet());
+	}
+
+	public Collection<OllamaModel> getModels() {
+		return models_by_name.values();
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public int size() {
+		return models_by_name.size();
+	}
+
+	public boolean isEmpty() {
+		return models_by_name.isEmpty();
+	}
+
+	/**
+	 * Names of models that were added, removed or re-pulled with a new digest compared to an older inventory.
+	 */
+	public List<String> changedSince(ModelInventory previous) {
+		Map<String, OllamaModel> before = (previous == null) ? Collections.emptyMap() : previous.models_by_name;
+		TreeSet<String> changed = new TreeSet<>();
+		for (OllamaModel model : models_by_name.values()) {
+			OllamaModel old = before.get(model.getName());
+			if (old == null || !Objects.equals(old.getDigest(), model.getDigest())) {
+				changed.add(model.getName());
+			}
+		}
+		for (String name : before.keySet()) {
+			if (!models_by_name.containsKey(name)) {
+				changed.add(name);
+			}
+		}
+		return new ArrayList<>(changed);
+	}
+
+}
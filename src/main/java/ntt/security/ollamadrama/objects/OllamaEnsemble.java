@@ -11,6 +11,7 @@ import org.slf4j.LoggerFactory;
 import ntt.security.ollamadrama.objects.response.SingleStringEnsembleResponse;
 import ntt.security.ollamadrama.objects.response.SingleStringQuestionResponse;
 import ntt.security.ollamadrama.objects.sessions.OllamaSession;
+import ntt.security.ollamadrama.utils.RetryPolicy;
 
 /**
  * Manages an ensemble of Ollama sessions for consensus-based responses.
@@ -75,6 +76,10 @@ public class OllamaEnsemble {
         LOGGER.info("Querying {} sessions in ensemble with question: {}", sessions.size(), question);
 
         for (var entry : sessions.entrySet()) {
+            if (RetryPolicy.expired()) {
+                LOGGER.warn("Request deadline reached, skipping the remaining sessions of the ensemble");
+                break;
+            }
             String uuid = entry.getKey();
             OllamaWrappedSession wrapped_session = entry.getValue();
             
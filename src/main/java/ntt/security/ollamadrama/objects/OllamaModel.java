@@ -0,0 +1,67 @@
+package ntt.security.ollamadrama.objects;
+
+/**
+ * A model installed on an Ollama server, as listed by /api/tags.
+ */
+public class OllamaModel {
+
+	private String name = "";
+	private String digest = "";
+	private long size = 0L;
+	private String parameter_size = "";
+	private String quantization_level = "";
+	
+	public OllamaModel() {
+		super();
+	}
+	
+	public OllamaModel(String _name, String _digest, long _size, String _parameter_size, String _quantization_level) {
+		super();
+		this.name = _name;
+		this.digest = _digest;
+		this.size = _size;
+		this.parameter_size = _parameter_size;
+		this.quantization_level = _quantization_level;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getDigest() {
+		return digest;
+	}
+
+	public void setDigest(String digest) {
+		this.digest = digest;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	public void setSize(long size) {
+		this.size = size;
+	}
+
+	public String getParameter_size() {
+		return parameter_size;
+	}
+
+	public void setParameter_size(String parameter_size) {
+		this.parameter_size = parameter_size;
+	}
+
+	public String getQuantization_level() {
+		return quantization_level;
+	}
+
+	public void setQuantization_level(String quantization_level) {
+		this.quantization_level = quantization_level;
+	}
+
+}
@@ -10,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import ntt.security.ollamadrama.objects.response.SingleStringEnsembleResponse;
 import ntt.security.ollamadrama.objects.response.SingleStringQuestionResponse;
 import ntt.security.ollamadrama.objects.sessions.OpenAISession;
+import ntt.security.ollamadrama.utils.RetryPolicy;
 
 /**
  * Manages an ensemble of OpenAI sessions for consensus-based responses.
@@ -70,6 +71,10 @@ public class OpenAIEnsemble {
         LOGGER.info("Querying {} OpenAI sessions in ensemble with question: {}", sessions.size(), question);
 
         for (var entry : sessions.entrySet()) {
+            if (RetryPolicy.expired()) {
+                LOGGER.warn("Request deadline reached, skipping the remaining sessions of the ensemble");
+                break;
+            }
             String uuid = entry.getKey();
             OpenAIWrappedSession wrapped_session = entry.getValue();
             
@@ -0,0 +1,44 @@
+package ntt.security.ollamadrama.objects;
+
+public class PromptInjectionRule {
+
+	private String id = "";
+	private String pattern = "";
+	private String prefilter = ""; // lowercase literal that must be present for the pattern to match, empty = always scan
+	
+	public PromptInjectionRule() {
+		super();
+	}
+
+	public PromptInjectionRule(String id, String prefilter, String pattern) {
+		super();
+		this.id = id;
+		this.prefilter = prefilter;
+		this.pattern = pattern;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public String getPattern() {
+		return pattern;
+	}
+
+	public void setPattern(String pattern) {
+		this.pattern = pattern;
+	}
+
+	public String getPrefilter() {
+		return prefilter;
+	}
+
+	public void setPrefilter(String prefilter) {
+		this.prefilter = prefilter;
+	}
+
+}
@@ -0,0 +1,29 @@
+package ntt.security.ollamadrama.objects;
+
+import java.util.Collections;
+import java.util.List;
+
+public class PromptInjectionScanResult {
+
+	private final String sanitized;
+	private final List<String> matched_rule_ids;
+	
+	public PromptInjectionScanResult(String sanitized, List<String> matched_rule_ids) {
+		super();
+		this.sanitized = sanitized;
+		this.matched_rule_ids = Collections.unmodifiableList(matched_rule_ids);
+	}
+
+	public String getSanitized() {
+		return sanitized;
+	}
+
+	public List<String> getMatched_rule_ids() {
+		return matched_rule_ids;
+	}
+
+	public boolean isInjectionFound() {
+		return !matched_rule_ids.isEmpty();
+	}
+
+}
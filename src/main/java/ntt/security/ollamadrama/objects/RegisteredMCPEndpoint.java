@@ -0,0 +1,61 @@
+package ntt.security.ollamadrama.objects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * MCP endpoint with its resolved schema/path and listed tools, as persisted in the endpoint registry.
+ */
+public class RegisteredMCPEndpoint {
+
+	private MCPEndpoint endpoint;
+	private String tool_fingerprint = "";
+	private List<MCPTool> tools = new ArrayList<>();
+	private long last_seen = 0L;
+	
+	public RegisteredMCPEndpoint() {
+		super();
+	}
+	
+	public RegisteredMCPEndpoint(MCPEndpoint _endpoint, String _tool_fingerprint, List<MCPTool> _tools, long _last_seen) {
+		super();
+		this.endpoint = _endpoint;
+		this.tool_fingerprint = _tool_fingerprint;
+		this.setTools(_tools);
+		this.last_seen = _last_seen;
+	}
+
+	public MCPEndpoint getEndpoint() {
+		return endpoint;
+	}
+
+	public void setEndpoint(MCPEndpoint endpoint) {
+		this.endpoint = endpoint;
+	}
+
+	public String getTool_fingerprint() {
+		return tool_fingerprint;
+	}
+
+	public void setTool_fingerprint(String tool_fingerprint) {
+		this.tool_fingerprint = tool_fingerprint;
+	}
+
+	public List<MCPTool> getTools() {
+		return Collections.unmodifiableList(tools);
+	}
+
+	public void setTools(List<MCPTool> tools) {
+		this.tools = (tools == null) ? new ArrayList<>() : new ArrayList<>(tools);
+	}
+
+	public long getLast_seen() {
+		return last_seen;
+	}
+
+	public void setLast_seen(long last_seen) {
+		this.last_seen = last_seen;
+	}
+
+}
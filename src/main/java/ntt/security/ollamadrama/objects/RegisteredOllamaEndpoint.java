@@ -0,0 +1,62 @@
+package ntt.security.ollamadrama.objects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ollama endpoint as persisted in the endpoint registry. Credentials are not stored, they are
+ * taken from the satellites or the settings when the endpoint is restored.
+ */
+public class RegisteredOllamaEndpoint {
+
+	private String ollama_url = "";
+	private String fingerprint = "";
+	private List<String> models = new ArrayList<>();
+	private long last_seen = 0L;
+	
+	public RegisteredOllamaEndpoint() {
+		super();
+	}
+	
+	public RegisteredOllamaEndpoint(String _ollama_url, String _fingerprint, List<String> _models, long _last_seen) {
+		super();
+		this.ollama_url = _ollama_url;
+		this.fingerprint = _fingerprint;
+		this.setModels(_models);
+		this.last_seen = _last_seen;
+	}
+
+	public String getOllama_url() {
+		return ollama_url;
+	}
+
+	public void setOllama_url(String ollama_url) {
+		this.ollama_url = ollama_url;
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public void setFingerprint(String fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
+	public List<String> getModels() {
+		return Collections.unmodifiableList(models);
+	}
+
+	public void setModels(List<String> models) {
+		this.models = (models == null) ? new ArrayList<>() : new ArrayList<>(models);
+	}
+
+	public long getLast_seen() {
+		return last_seen;
+	}
+
+	public void setLast_seen(long last_seen) {
+		this.last_seen = last_seen;
+	}
+
+}
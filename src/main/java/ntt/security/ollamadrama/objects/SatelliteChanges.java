@@ -0,0 +1,123 @@
+package ntt.security.ollamadrama.objects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Satellites added and removed between two satellite configurations. An Ollama satellite whose
+ * credentials changed counts as removed and added again, MCP satellites are keyed by host:port.
+ */
+public class SatelliteChanges {
+
+	private final List<OllamaEndpoint> added_ollamas;
+	private final List<OllamaEndpoint> removed_ollamas;
+	private final List<MCPEndpoint> added_mcps;
+	private final List<MCPEndpoint> removed_mcps;
+
+	private SatelliteChanges(List<OllamaEndpoint> _added_ollamas, List<OllamaEndpoint> _removed_ollamas,
+			List<MCPEndpoint> _added_mcps, List<MCPEndpoint> _removed_mcps) {
+		this.added_ollamas = Collections.unmodifiableList(_added_ollamas);
+		this.removed_ollamas = Collections.unmodifiableList(_removed_ollamas);
+		this.added_mcps = Collections.unmodifiableList(_added_mcps);
+		this.removed_mcps = Collections.unmodifiableList(_removed_mcps);
+	}
+
+	public static SatelliteChanges between(List<OllamaEndpoint> _old_ollamas, List<MCPEndpoint> _old_mcps,
+			List<OllamaEndpoint> _new_ollamas, List<MCPEndpoint> _new_mcps) {
+		Map<String, OllamaEndpoint> old_ollamas = by_url(_old_ollamas);
+		Map<String, OllamaEndpoint> new_ollamas = by_url(_new_ollamas);
+		List<OllamaEndpoint> added_ollamas = new ArrayList<>();
+		List<OllamaEndpoint> removed_ollamas = new ArrayList<>();
+		for (OllamaEndpoint previous : old_ollamas.values()) {
+			OllamaEndpoint current = new_ollamas.get(previous.getOllama_url());
+			if (current == null || !same_credentials(previous, current)) {
+				removed_ollamas.add(previous);
+			}
+		}
+		for (OllamaEndpoint current : new_ollamas.values()) {
+			OllamaEndpoint previous = old_ollamas.get(current.getOllama_url());
+			if (previous == null || !same_credentials(previous, current)) {
+				added_ollamas.add(current);
+			}
+		}
+
+		Map<String, MCPEndpoint> old_mcps = by_host_port(_old_mcps);
+		Map<String, MCPEndpoint> new_mcps = by_host_port(_new_mcps);
+		List<MCPEndpoint> added_mcps = new ArrayList<>();
+		List<MCPEndpoint> removed_mcps = new ArrayList<>();
+		for (var entry : old_mcps.entrySet()) {
+			if (!new_mcps.containsKey(entry.getKey())) {
+				removed_mcps.add(entry.getValue());
+			}
+		}
+		for (var entry : new_mcps.entrySet()) {
+			if (!old_mcps.containsKey(entry.getKey())) {
+				added_mcps.add(entry.getValue());
+			}
+		}
+		return new SatelliteChanges(added_ollamas, removed_ollamas, added_mcps, removed_mcps);
+	}
+
+	private static Map<String, OllamaEndpoint> by_url(List<OllamaEndpoint> endpoints) {
+		Map<String, OllamaEndpoint> map = new LinkedHashMap<>();
+		if (endpoints != null) {
+			for (OllamaEndpoint endpoint : endpoints) {
+				if (endpoint != null && endpoint.getOllama_url() != null) {
+					map.put(endpoint.getOllama_url(), endpoint);
+				}
+			}
+		}
+		return map;
+	}
+
+	private static Map<String, MCPEndpoint> by_host_port(List<MCPEndpoint> endpoints) {
+		Map<String, MCPEndpoint> map = new LinkedHashMap<>();
+		if (endpoints != null) {
+			for (MCPEndpoint endpoint : endpoints) {
+				if (endpoint != null && endpoint.getHost() != null) {
+					map.put(endpoint.getHost() + ":" + endpoint.getPort(), endpoint);
+				}
+			}
+		}
+		return map;
+	}
+
+	private static boolean same_credentials(OllamaEndpoint a, OllamaEndpoint b) {
+		return Objects.equals(a.getOllama_username(), b.getOllama_username())
+				&& Objects.equals(a.getOllama_password(), b.getOllama_password());
+	}
+
+	public boolean isEmpty() {
+		return added_ollamas.isEmpty() && removed_ollamas.isEmpty() && added_mcps.isEmpty() && removed_mcps.isEmpty();
+	}
+
+	public List<OllamaEndpoint> getAdded_ollamas() {
+		return added_ollamas;
+	}
+
+	public List<OllamaEndpoint> getRemoved_ollamas() {
+		return removed_ollamas;
+	}
+
+	public List<MCPEndpoint> getAdded_mcps() {
+		return added_mcps;
+	}
+
+	public List<MCPEndpoint> getRemoved_mcps() {
+		return removed_mcps;
+	}
+
+	@Override
+	public String toString() {
+		List<String> parts = new ArrayList<>();
+		added_ollamas.forEach(e -> parts.add("+" + e.getOllama_url()));
+		removed_ollamas.forEach(e -> parts.add("-" + e.getOllama_url()));
+		added_mcps.forEach(e -> parts.add("+mcp " + e.getHost() + ":" + e.getPort()));
+		removed_mcps.forEach(e -> parts.add("-mcp " + e.getHost() + ":" + e.getPort()));
+		return String.join(", ", parts);
+	}
+}
@@ -0,0 +1,41 @@
+package ntt.security.ollamadrama.objects;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Contents of satellites_file, the Ollama and MCP satellites that can be changed at runtime.
+ */
+public class SatelliteConfig {
+
+	private List<OllamaEndpoint> satellites = new ArrayList<>();
+	private List<MCPEndpoint> mcp_satellites = new ArrayList<>();
+
+	public SatelliteConfig() {
+		super();
+	}
+
+	public SatelliteConfig(List<OllamaEndpoint> _satellites, List<MCPEndpoint> _mcp_satellites) {
+		super();
+		this.setSatellites(_satellites);
+		this.setMcp_satellites(_mcp_satellites);
+	}
+
+	public List<OllamaEndpoint> getSatellites() {
+		return Collections.unmodifiableList(satellites);
+	}
+
+	public void setSatellites(List<OllamaEndpoint> satellites) {
+		this.satellites = (satellites == null) ? new ArrayList<>() : new ArrayList<>(satellites);
+	}
+
+	public List<MCPEndpoint> getMcp_satellites() {
+		return Collections.unmodifiableList(mcp_satellites);
+	}
+
+	public void setMcp_satellites(List<MCPEndpoint> mcp_satellites) {
+		this.mcp_satellites = (mcp_satellites == null) ? new ArrayList<>() : new ArrayList<>(mcp_satellites);
+	}
+
+}
@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.anthropic.client.AnthropicClient;
+import com.anthropic.errors.AnthropicServiceException;
 import com.anthropic.models.messages.Message;
 import com.anthropic.models.messages.MessageCreateParams;
 
@@ -15,6 +16,8 @@ import ntt.security.ollamadrama.config.OllamaDramaSettings;
 import ntt.security.ollamadrama.objects.response.SingleStringQuestionResponse;
 import ntt.security.ollamadrama.utils.JSONUtils;
 import ntt.security.ollamadrama.utils.OllamaUtils;
+import ntt.security.ollamadrama.utils.RateLimiter;
+import ntt.security.ollamadrama.utils.RetryPolicy;
 import ntt.security.ollamadrama.utils.SystemUtils;
 
 public class ClaudeSession {
@@ -25,14 +28,20 @@ public class ClaudeSession {
 	private AnthropicClient client;
 	private OllamaDramaSettings settings;
 	private String uuid;
+	private RateLimiter rate_limiter;
 
 	public ClaudeSession(String _model_name, AnthropicClient _client, OllamaDramaSettings _settings) {
+		this(_model_name, _client, _settings, RateLimiter.forKey("claude", null));
+	}
+
+	public ClaudeSession(String _model_name, AnthropicClient _client, OllamaDramaSettings _settings, RateLimiter _rate_limiter) {
 		super();
 
 		this.model_name = _model_name;
 		this.client = _client;
 		this.settings = _settings;
 		this.uuid = UUID.randomUUID().toString();
+		this.rate_limiter = _rate_limiter;
 	}
 
 	public String getModel_name() {
@@ -51,7 +60,8 @@ public class ClaudeSession {
 		}
 
 		int retryCounter = 0;
-		while (retryCounter <= 3) {
+		RetryPolicy.Backoff retry_backoff = RetryPolicy.DEFAULT.backoff();
+		while (retryCounter <= 3 && !RetryPolicy.expired()) {
 
 			try {
 
@@ -63,7 +73,13 @@ public class ClaudeSession {
 						.addUserMessage(prompt)
 						.build();
 
+				long estimated_tokens = RateLimiter.estimate_tokens(prompt);
+				if (rate_limiter.acquire(estimated_tokens) < 0L) {
+					LOGGER.warn("Request deadline reached while rate limited, giving up with model " + this.model_name);
+					break;
+				}
 				Message message = client.messages().create(params);
+				rate_limiter.settle(estimated_tokens, message.usage().inputTokens() + message.usage().outputTokens());
 
 				String response = message.content().stream()
 						.flatMap(block -> block.text().stream())
@@ -74,7 +90,7 @@ public class ClaudeSession {
 				if (firstBraceIndex < 0) {
 					LOGGER.warn("No JSON found in response from model " + this.model_name);
 					retryCounter++;
-					SystemUtils.sleepInSeconds(1);
+					if (!retry_backoff.pause()) break;
 					continue;
 				}
 				String json = response.substring(firstBraceIndex);
@@ -105,18 +121,56 @@ public class ClaudeSession {
 				retryCounter++;
 				if (retryCounter >= 3) LOGGER.warn("Having problems getting a valid reply using this question: " + _question);
 
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
 			} catch (Exception e) {
 				LOGGER.warn("Exception: " + e.getMessage() + " when making query against model " + this.model_name);
-				SystemUtils.sleepInSeconds(10); // extra API throttle
 				retryCounter++;
+				if (!backoff(e, retry_backoff)) break;
+				continue;
 			}
 
-			SystemUtils.sleepInSeconds(1); // throttle
+			if (!retry_backoff.pause()) break; // throttle
 		}
 
 		return OllamaUtils.applyResponseSanity(null, model_name, _hide_llm_reply_if_uncertain);
 	}
 
+	/**
+	 * Waits before retrying a failed call. A 429 holds every session on the API key for as long
+	 * as the provider asks, other failures wait the next delay of the request's RetryPolicy backoff.
+	 *
+	 * @return false if a retry cannot fix the error or would run past the request deadline
+	 */
+	private boolean backoff(Exception e, RetryPolicy.Backoff retry_backoff) {
+		if ((e instanceof AnthropicServiceException && !RetryPolicy.is_retryable_status(((AnthropicServiceException) e).statusCode())) || !RetryPolicy.is_retryable(e)) {
+			LOGGER.warn("Not retrying with model " + this.model_name + ": " + e.getMessage());
+			return false;
+		}
+		long backoff_ms = retry_backoff.next_delay_ms();
+		boolean throttled = (e instanceof AnthropicServiceException && ((AnthropicServiceException) e).statusCode() == 429);
+		long wait_ms = backoff_ms;
+		if (throttled) {
+			long retry_after_ms = RateLimiter.retry_after_ms(((AnthropicServiceException) e).headers()::values);
+			wait_ms = (retry_after_ms >= 0L) ? retry_after_ms : backoff_ms;
+		}
+		if (RetryPolicy.remaining_ms() <= wait_ms) {
+			LOGGER.warn("Request deadline reached, giving up with model " + this.model_name);
+			return false;
+		}
+		if (throttled) {
+			rate_limiter.pause(wait_ms);
+		} else {
+			SystemUtils.sleepInMilliSeconds(wait_ms);
+		}
+		return true;
+	}
+
+	public RateLimiter getRate_limiter() {
+		return rate_limiter;
+	}
+
 	public OllamaDramaSettings getSettings() {
 		return settings;
 	}
@@ -15,9 +15,12 @@ import io.github.ollama4j.utils.Options;
 import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
 import ntt.security.ollamadrama.config.Globals;
 import ntt.security.ollamadrama.config.OllamaDramaSettings;
+import ntt.security.ollamadrama.enums.RequestPriority;
+import ntt.security.ollamadrama.mcp.McpResponseTruncator;
 import ntt.security.ollamadrama.objects.ChatInteraction;
 import ntt.security.ollamadrama.objects.MCPTool;
 import ntt.security.ollamadrama.objects.OllamaEndpoint;
+import ntt.security.ollamadrama.objects.PromptInjectionScanResult;
 import ntt.security.ollamadrama.objects.SessionType;
 import ntt.security.ollamadrama.objects.ToolCallRequest;
 import ntt.security.ollamadrama.objects.response.SingleStringQuestionResponse;
@@ -28,6 +31,9 @@ import ntt.security.ollamadrama.utils.InteractUtils;
 import ntt.security.ollamadrama.utils.JSONUtils;
 import ntt.security.ollamadrama.utils.MCPUtils;
 import ntt.security.ollamadrama.utils.OllamaUtils;
+import ntt.security.ollamadrama.utils.PromptInjectionScanner;
+import ntt.security.ollamadrama.utils.RequestScheduler;
+import ntt.security.ollamadrama.utils.RetryPolicy;
 import ntt.security.ollamadrama.utils.SystemUtils;
 
 public class OllamaSession {
@@ -48,6 +54,8 @@ public class OllamaSession {
 	private boolean make_tools_available = false;
 	private String sessionid = "";
 	private String toolcall_history = "";
+	private String tenant = RequestScheduler.DEFAULT_TENANT;
+	private RequestPriority priority = RequestPriority.NORMAL;
 
 	// Runaway detection: tracks how often the model hit the num_predict cap
 	// (a strong signal it was looping and only stopped by the output limit).
@@ -62,6 +70,10 @@ public class OllamaSession {
 	private static final double TRIM_TRIGGER_RATIO = 0.9; // start trimming above this
 	private static final double TRIM_TARGET_RATIO  = 0.75; // trim down to this
 
+	// Tool replies are sized so the recursive prompt stays below this fraction, leaving room for the LLM reply
+	private static final double TOOLCALL_HEADROOM_RATIO = 0.8;
+	private static final int MIN_TOOLCALL_RESPONSE_TOKENS = 150;
+
 	// Runaway detection: if reported/estimated output tokens reach this
 	// fraction of num_predict, we flag the response as a likely runaway.
 	private static final double RUNAWAY_DETECTION_RATIO = 0.9;
@@ -379,14 +391,17 @@ public class OllamaSession {
 	}
 
 	public String askGenericSingleWordQuestion(String _question) {
-		boolean success = false;
-		while (!success) {
-			String resp = OllamaUtils.askGenericSingleWordQuestion(this.Ollama, this.model_name, this.options, _question);
+		RetryPolicy.Backoff backoff = RetryPolicy.DEFAULT.backoff();
+		while (!RetryPolicy.expired()) {
+			String resp;
+			try (RequestScheduler.Scope scope = request_scope()) {
+				resp = OllamaUtils.askGenericSingleWordQuestion(this.Ollama, this.model_name, this.options, _question, this.settings.getOllama_timeout());
+			}
 			if (null != resp) {
 				SingleStringQuestionResponse swr = JSONUtils.createPOJOFromJSONOpportunistic(resp, SingleStringQuestionResponse.class);
 				if (null != swr) return swr.getResponse();
 			}
-			SystemUtils.sleepInSeconds(1); // throttle
+			if (!backoff.pause()) break;
 		}
 		return "";
 	}
@@ -395,8 +410,12 @@ public class OllamaSession {
 		int errorCount = 0;
 
 		if (null == this.chatResult) {
-			while (null == this.chatResult) {
-				OllamaChatResult res = OllamaUtils.setChatSystemProfile(this.Ollama, this.model_name, this.options, _profile_statement, _autopull_max_llm_size, _timeout);
+			RetryPolicy.Backoff backoff = RetryPolicy.DEFAULT.backoff();
+			while (null == this.chatResult && !RetryPolicy.expired()) {
+				OllamaChatResult res;
+				try (RequestScheduler.Scope scope = request_scope()) {
+					res = OllamaUtils.setChatSystemProfile(this.Ollama, this.model_name, this.options, _profile_statement, _autopull_max_llm_size, _timeout);
+				}
 				if (null != res) {
 					//this.chatResult = res;
 					// Lets not store the initial prompt reply as part of the session
@@ -411,8 +430,7 @@ public class OllamaSession {
 				}
 				errorCount++;
 				LOGGER.warn("Unable to set system profile for model " + this.model_name + ", errorCount: " + errorCount);
-				SystemUtils.sleepInSeconds(10); // throttle
-				if (errorCount >= 600) {
+				if (errorCount >= 600 || !backoff.pause()) {
 					LOGGER.warn("Unable to set system profile for model " + this.model_name + ", errorCount: " + errorCount + " so giving up ..");
 					return false;
 				}
@@ -428,13 +446,19 @@ public class OllamaSession {
 			LOGGER.warn("You need to initialize a chat session with a profile statement first");
 		} else {
 			if (this.getSessiontype() == SessionType.CREATIVE) {
-				ChatInteraction ci = OllamaUtils.addCreativeStatementToExistingChat(this.Ollama, this.model_name, this.options, this.chatResult, _statement, _timeout);
+				ChatInteraction ci;
+				try (RequestScheduler.Scope scope = request_scope()) {
+					ci = OllamaUtils.addCreativeStatementToExistingChat(this.Ollama, this.model_name, this.options, this.chatResult, _statement, _timeout);
+				}
 				if (null != ci) {
 					LOGGER.debug("Successfully extended chat session with results from STATEMENT interaction");
 					this.chatResult = ci.getChatResult();
 				}
 			} else {
-				ChatInteraction ci = OllamaUtils.addStrictStatementToExistingChat(this.Ollama, this.model_name, this.options, this.chatResult, _statement, _timeout);
+				ChatInteraction ci;
+				try (RequestScheduler.Scope scope = request_scope()) {
+					ci = OllamaUtils.addStrictStatementToExistingChat(this.Ollama, this.model_name, this.options, this.chatResult, _statement, _timeout);
+				}
 				if (null != ci) {
 					LOGGER.debug("Successfully extended chat session with results from STATEMENT interaction");
 					this.chatResult = ci.getChatResult();
@@ -524,7 +548,17 @@ public class OllamaSession {
 		}
 	}
 
+	/**
+	 * Bounded by request_deadline_seconds together with every retry, tool call and recursive
+	 * call it makes, a deadline already opened by the caller is only ever shortened.
+	 */
 	public SingleStringQuestionResponse askStrictChatQuestion(final String _prompt, String _recursive_question, int session_tokens_maxlen, boolean _hide_llm_reply_if_uncertain, int _retryThreshold, long _timeout_seconds, int _exec_depth_counter, int _max_recursive_toolcall_depth, int _toolcall_pausetime_in_seconds, boolean _return_toolcall, boolean _halt_on_tool_error, String _history_file, boolean _unloadModelAfterQuery, boolean _debug, Map<String, Function<String, String>> _mcp_preprocess, boolean _prompt_logging) {
+		try (RetryPolicy.Deadline deadline = RetryPolicy.within(settings.getRequest_deadline_seconds())) {
+			return ask_strict_chat_question(_prompt, _recursive_question, session_tokens_maxlen, _hide_llm_reply_if_uncertain, _retryThreshold, _timeout_seconds, _exec_depth_counter, _max_recursive_toolcall_depth, _toolcall_pausetime_in_seconds, _return_toolcall, _halt_on_tool_error, _history_file, _unloadModelAfterQuery, _debug, _mcp_preprocess, _prompt_logging);
+		}
+	}
+
+	private SingleStringQuestionResponse ask_strict_chat_question(final String _prompt, String _recursive_question, int session_tokens_maxlen, boolean _hide_llm_reply_if_uncertain, int _retryThreshold, long _timeout_seconds, int _exec_depth_counter, int _max_recursive_toolcall_depth, int _toolcall_pausetime_in_seconds, boolean _return_toolcall, boolean _halt_on_tool_error, String _history_file, boolean _unloadModelAfterQuery, boolean _debug, Map<String, Function<String, String>> _mcp_preprocess, boolean _prompt_logging) {
 		if (_max_recursive_toolcall_depth < 0) LOGGER.warn("No tools will be called if value of_max_recursive_toolcall_depth is not 1 or more");
 		String full_prompt = _prompt;
 		String full_prompt_STDOUT = _prompt;
@@ -580,6 +614,7 @@ public class OllamaSession {
 				return swr;
 			} else {
 				int retryCounter = 0;
+				RetryPolicy.Backoff backoff = RetryPolicy.DEFAULT.backoff();
 				while (true) {
 					// FIXED: log the FULL estimate (system + history + new prompt),
 					// not just system + new prompt. Compare this number against
@@ -615,7 +650,10 @@ public class OllamaSession {
 				    	 LOGGER.info("Context " + estimatedTotal + " tokens does not exceed " + (int)(TRIM_TRIGGER_RATIO * 100) + "% of limit " + session_tokens_maxlen + ", keeping chat history");
 				    }
 					
-					ChatInteraction ci =  OllamaUtils.askChatQuestion(this.Ollama, this.model_name, this.options, this.chatResult, full_prompt, _timeout_seconds, _retryThreshold, _unloadModelAfterQuery);
+					ChatInteraction ci;
+					try (RequestScheduler.Scope scope = request_scope()) {
+						ci = OllamaUtils.askChatQuestion(this.Ollama, this.model_name, this.options, this.chatResult, full_prompt, _timeout_seconds, _retryThreshold, _unloadModelAfterQuery);
+					}
 					if (null != ci) {
 						String json = "";
 
@@ -780,22 +818,24 @@ public class OllamaSession {
 														} else {
 
 															String tool_response = "";
+															String tool_response_header = "";
 
 															// defined preprocessing
 															if ((null != _mcp_preprocess) && (null != _mcp_preprocess.get(tcr.getToolname()))) {
 																LOGGER.info("Applying preprocessing");
 																tool_response = _mcp_preprocess.get(tcr.getToolname()).apply(MCPUtils.getRawText(result));
 															} else {
-																tool_response = "\nResponse from running tool_call " + tcr.getRawrequest() + ":\n\n" + MCPUtils.getRawText(result);
+																tool_response_header = "\nResponse from running tool_call " + tcr.getRawrequest() + ":\n\n";
+																tool_response = tool_response_header + MCPUtils.getRawText(result);
 															}
 
 															// Simple prompt injection checks
 															if (settings.isMcp_enable_promptinject_protection()) {
-																String tool_response_sanitized = OllamaUtils.sanitizePromptInjection(tool_response, "PROMPT_INJECTION_ATTACK_IDENTIFIED");
-																if (!tool_response.equals(tool_response_sanitized)) {
-																	LOGGER.warn("Prompt injection attack found in tool_response");
+																PromptInjectionScanResult scan = PromptInjectionScanner.forSettings(settings).scan(tool_response, "PROMPT_INJECTION_ATTACK_IDENTIFIED");
+																if (scan.isInjectionFound()) {
+																	LOGGER.warn("Prompt injection attack found in tool_response, matched rules: " + scan.getMatched_rule_ids());
 																	LOGGER.warn("tool_response: " + tool_response);
-																	LOGGER.warn("NEW tool_response: " + tool_response_sanitized);
+																	LOGGER.warn("NEW tool_response: " + scan.getSanitized());
 																	LOGGER.warn("Your MCP Tool call response from " + tcr.getToolname() + " seems to include a prompt injection attack so leaving recursive TOOLCALL loop");
 																	swr.setResponse("PROMPT_INJECTION_ATTACK_IDENTIFIED");
 																	swr.setPromptinject(true);
@@ -803,15 +843,24 @@ public class OllamaSession {
 																}
 															}
 
-															// Check for context overflows when received tool reply 
+															// Size the tool reply to the remaining context budget
 															int estimated_response_token_count = estimateTokenCount(tool_response);
-
-															int estimated_sum_context_token_count = this.getChatSizeWordCount() + estimated_response_token_count;
-															if (estimated_sum_context_token_count >= session_tokens_maxlen) {
-																LOGGER.warn("Estimated tokencount in TOOLCALL response is " + estimated_response_token_count + ", so the full context " + estimated_sum_context_token_count + " exceeds the total context restriction of " + session_tokens_maxlen + ". Will abort recursive TOOLCALL run.");
-																return swr;
+															int remaining_token_budget = getRemainingTokenBudget(session_tokens_maxlen,
+																	sb_toolcallresulthistory.toString() + _recursive_question + swr.getOutputAsString());
+															if (estimated_response_token_count > remaining_token_budget) {
+																int body_token_budget = remaining_token_budget - estimateTokenCount(tool_response_header);
+																String fitted = null;
+																if (body_token_budget >= MIN_TOOLCALL_RESPONSE_TOKENS) {
+																	fitted = new McpResponseTruncator().truncateToTokenBudget(tool_response.substring(tool_response_header.length()), body_token_budget, this::estimateTokenCount);
+																}
+																if (null == fitted) {
+																	LOGGER.warn("Estimated tokencount in TOOLCALL response is " + estimated_response_token_count + " and only " + remaining_token_budget + " tokens remain of the total context restriction of " + session_tokens_maxlen + ". Will abort recursive TOOLCALL run.");
+																	return swr;
+																}
+																tool_response = tool_response_header + fitted;
+																LOGGER.warn("Estimated tokencount in TOOLCALL response was " + estimated_response_token_count + ", sized down to " + estimateTokenCount(tool_response) + " to fit the remaining budget of " + remaining_token_budget);
 															} else {
-																LOGGER.warn("Estimated tokencount in TOOLCALL response is " + estimated_response_token_count + ", so the full context is roughly " + estimated_sum_context_token_count);
+																LOGGER.info("Estimated tokencount in TOOLCALL response is " + estimated_response_token_count + ", remaining budget is " + remaining_token_budget);
 															}
 
 															System.out.println("tool_response: " + tool_response);
@@ -851,9 +900,9 @@ public class OllamaSession {
 												+ this.getChatSizeWordCount()  // session history
 												+ estimateTokenCount(sb_toolcallresulthistory.toString()); // session new toolcall reply data
 										LOGGER.info("estimated session wordcount (including toolcall replies): " + chatsize_wordcount_a1);
-										int headroom = (int)(session_tokens_maxlen * 0.8); // leave 20% for the LLM reply
+										int headroom = (int)(session_tokens_maxlen * TOOLCALL_HEADROOM_RATIO); // leave room for the LLM reply
 										if (chatsize_wordcount_a1 > headroom) {
-											LOGGER.info("Breaking recursive toolcall, estimated tokens: " + chatsize_wordcount_a1 + " (80% of session_tokens_maxlen: " + headroom + ")");
+											LOGGER.info("Breaking recursive toolcall, estimated tokens: " + chatsize_wordcount_a1 + " (" + (int)(TOOLCALL_HEADROOM_RATIO * 100) + "% of session_tokens_maxlen: " + headroom + ")");
 											return swr;
 										}
 
@@ -899,7 +948,10 @@ public class OllamaSession {
 					}
 					retryCounter++;
 					if (retryCounter > 5) LOGGER.warn("Having problems getting a valid reply using this question: " + full_prompt);
-					SystemUtils.sleepInSeconds(1); // throttle
+					if (!backoff.pause()) {
+						LOGGER.warn("Request deadline reached, giving up on this question after " + retryCounter + " attempts");
+						return OllamaUtils.applyResponseSanity(null, this.model_name, _hide_llm_reply_if_uncertain);
+					}
 				}
 			}
 		} else {
@@ -917,17 +969,20 @@ public class OllamaSession {
 			return "";
 		} else {
 			if (settings.isMcp_enable_promptinject_protection()) {
-				String sanitized = OllamaUtils.sanitizePromptInjection(_untrusted_input_prompt, "PROMPT_INJECTION_ATTACK_IDENTIFIED");
-				if (!sanitized.equals(_untrusted_input_prompt)) {
-					LOGGER.warn("Prompt injection attack found in _untrusted_input_prompt");
+				PromptInjectionScanResult scan = PromptInjectionScanner.forSettings(settings).scan(_untrusted_input_prompt, "PROMPT_INJECTION_ATTACK_IDENTIFIED");
+				if (scan.isInjectionFound()) {
+					LOGGER.warn("Prompt injection attack found in _untrusted_input_prompt, matched rules: " + scan.getMatched_rule_ids());
 					LOGGER.warn("_untrusted_input_prompt: " + _untrusted_input_prompt);
-					LOGGER.info("sanitized output: " + sanitized);
+					LOGGER.info("sanitized output: " + scan.getSanitized());
 					return "PROMPT_INJECTION_ATTACK_IDENTIFIED";
 				}
 			}
 
 			while (true) {
-				ChatInteraction ci =  OllamaUtils.askRawChatQuestion(this.Ollama, this.model_name, this.options, this.chatResult, _untrusted_input_prompt, _timeout_in_seconds);
+				ChatInteraction ci;
+				try (RequestScheduler.Scope scope = request_scope()) {
+					ci = OllamaUtils.askRawChatQuestion(this.Ollama, this.model_name, this.options, this.chatResult, _untrusted_input_prompt, _timeout_in_seconds);
+				}
 				if (null != ci) {
 					return ci.getResponse();
 				} else {
@@ -944,16 +999,45 @@ public class OllamaSession {
 			return "";
 		} else {
 			int retryCounter = 0;
-			while (true) {
-				ChatInteraction ci =  OllamaUtils.askRawChatQuestionWithCustomChatHistory(this.Ollama, this.model_name, this.options, this.chatResult, _question, _customChatHistory, _timeout_in_seconds);
+			RetryPolicy.Backoff backoff = RetryPolicy.DEFAULT.backoff();
+			while (!RetryPolicy.expired()) {
+				ChatInteraction ci;
+				try (RequestScheduler.Scope scope = request_scope()) {
+					ci = OllamaUtils.askRawChatQuestionWithCustomChatHistory(this.Ollama, this.model_name, this.options, this.chatResult, _question, _customChatHistory, _timeout_in_seconds);
+				}
 				if (null != ci) return ci.getResponse();
 				retryCounter++;
 				if (retryCounter > 5) LOGGER.warn("Having problems getting a valid reply using this question: " + _question);
-				SystemUtils.sleepInSeconds(1); // throttle
+				if (!backoff.pause()) break;
 			}
+			return "";
 		}
 	}
 
+	/**
+	 * Tenant and priority this session's requests are scheduled with, unless the caller opened
+	 * a RequestScheduler.scope() for the call.
+	 */
+	private RequestScheduler.Scope request_scope() {
+		return RequestScheduler.default_scope(tenant, priority);
+	}
+
+	public String getTenant() {
+		return tenant;
+	}
+
+	public void setTenant(String tenant) {
+		this.tenant = tenant;
+	}
+
+	public RequestPriority getPriority() {
+		return priority;
+	}
+
+	public void setPriority(RequestPriority priority) {
+		this.priority = priority;
+	}
+
 	public Options getOptions() {
 		return options;
 	}
@@ -1061,6 +1145,17 @@ public class OllamaSession {
 		}
 	}
 
+	/**
+	 * Tokens still available for new content before the recursive toolcall prompt reaches
+	 * the headroom limit, given the system prompt, chat history and any pending text.
+	 */
+	public int getRemainingTokenBudget(int session_tokens_maxlen, String pending) {
+		int used = estimateTokenCount(this.getSystem_prompt())
+				+ this.getChatSizeWordCount()
+				+ estimateTokenCount(pending);
+		return Math.max(0, (int)(session_tokens_maxlen * TOOLCALL_HEADROOM_RATIO) - used);
+	}
+
 	/**
 	 * FIXED: retuned for dense JSON / tool-call / code content. Previously used
 	 * chars/3.8 which was reasonable for plain English but undercounts MCP tool
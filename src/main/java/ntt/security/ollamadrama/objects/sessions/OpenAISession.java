@@ -6,6 +6,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.openai.client.OpenAIClient;
+import com.openai.errors.OpenAIServiceException;
 import com.openai.models.chat.completions.ChatCompletion;
 import com.openai.models.chat.completions.ChatCompletionCreateParams;
 
@@ -14,6 +15,8 @@ import ntt.security.ollamadrama.config.OllamaDramaSettings;
 import ntt.security.ollamadrama.objects.response.SingleStringQuestionResponse;
 import ntt.security.ollamadrama.utils.JSONUtils;
 import ntt.security.ollamadrama.utils.OllamaUtils;
+import ntt.security.ollamadrama.utils.RateLimiter;
+import ntt.security.ollamadrama.utils.RetryPolicy;
 import ntt.security.ollamadrama.utils.SystemUtils;
 
 public class OpenAISession {
@@ -24,14 +27,20 @@ public class OpenAISession {
 	private OpenAIClient client;
 	private OllamaDramaSettings settings;
 	private String uuid;
+	private RateLimiter rate_limiter;
 
 	public OpenAISession(String _model_name, OpenAIClient client, OllamaDramaSettings _settings) {
+		this(_model_name, client, _settings, RateLimiter.forKey("openai", null));
+	}
+
+	public OpenAISession(String _model_name, OpenAIClient client, OllamaDramaSettings _settings, RateLimiter _rate_limiter) {
 		super();
 
 		this.model_name = _model_name;
 		this.client = client;
 		this.settings = _settings;
 		this.uuid = UUID.randomUUID().toString();
+		this.rate_limiter = _rate_limiter;
 	}
 
 	public String getModel_name() {
@@ -50,7 +59,8 @@ public class OpenAISession {
 			return swr;
 		} else {
 			int retryCounter = 0;
-			while (retryCounter <= 3) {
+			RetryPolicy.Backoff retry_backoff = RetryPolicy.DEFAULT.backoff();
+			while (retryCounter <= 3 && !RetryPolicy.expired()) {
 
 				try {
 
@@ -73,13 +83,19 @@ public class OpenAISession {
 
 					ChatCompletionCreateParams params = param_builder.build();
 
+					long estimated_tokens = RateLimiter.estimate_tokens(user_content);
+					if (rate_limiter.acquire(estimated_tokens) < 0L) {
+						LOGGER.warn("Request deadline reached while rate limited, giving up with model " + this.model_name);
+						break;
+					}
 					ChatCompletion completion = client.chat().completions().create(params);
+					completion.usage().ifPresent(usage -> rate_limiter.settle(estimated_tokens, usage.totalTokens()));
 					String response = completion.choices().get(0).message().content().orElse("");
 					int firstBraceIndex = response.indexOf('{');
 					if (firstBraceIndex < 0) {
 						LOGGER.warn("No JSON found in response from model " + this.model_name);
 						retryCounter++;
-						SystemUtils.sleepInSeconds(1);
+						if (!retry_backoff.pause()) break;
 						continue;
 					}
 					String json = response.substring(firstBraceIndex);
@@ -110,13 +126,17 @@ public class OpenAISession {
 					retryCounter++;
 					if (retryCounter >= 3) LOGGER.warn("Having problems getting a valid reply using this question: " + _question);
 
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
 				} catch (Exception e) {
 					LOGGER.warn("Exception: " + e.getMessage() + " when making query against model " + this.model_name);
-					SystemUtils.sleepInSeconds(10); // extra API throttle
 					retryCounter++;
+					if (!backoff(e, retry_backoff)) break;
+					continue;
 				}
 
-				SystemUtils.sleepInSeconds(1); // throttle
+				if (!retry_backoff.pause()) break; // throttle
 			}
 		}
 		
@@ -131,6 +151,40 @@ public class OpenAISession {
 				|| name.startsWith("o4");
 	}
 
+	/**
+	 * Waits before retrying a failed call. A 429 holds every session on the API key for as long
+	 * as the provider asks, other failures wait the next delay of the request's RetryPolicy backoff.
+	 *
+	 * @return false if a retry cannot fix the error or would run past the request deadline
+	 */
+	private boolean backoff(Exception e, RetryPolicy.Backoff retry_backoff) {
+		if ((e instanceof OpenAIServiceException && !RetryPolicy.is_retryable_status(((OpenAIServiceException) e).statusCode())) || !RetryPolicy.is_retryable(e)) {
+			LOGGER.warn("Not retrying with model " + this.model_name + ": " + e.getMessage());
+			return false;
+		}
+		long backoff_ms = retry_backoff.next_delay_ms();
+		boolean throttled = (e instanceof OpenAIServiceException && ((OpenAIServiceException) e).statusCode() == 429);
+		long wait_ms = backoff_ms;
+		if (throttled) {
+			long retry_after_ms = RateLimiter.retry_after_ms(((OpenAIServiceException) e).headers()::values);
+			wait_ms = (retry_after_ms >= 0L) ? retry_after_ms : backoff_ms;
+		}
+		if (RetryPolicy.remaining_ms() <= wait_ms) {
+			LOGGER.warn("Request deadline reached, giving up with model " + this.model_name);
+			return false;
+		}
+		if (throttled) {
+			rate_limiter.pause(wait_ms);
+		} else {
+			SystemUtils.sleepInMilliSeconds(wait_ms);
+		}
+		return true;
+	}
+
+	public RateLimiter getRate_limiter() {
+		return rate_limiter;
+	}
+
 	public OllamaDramaSettings getSettings() {
 		return settings;
 	}
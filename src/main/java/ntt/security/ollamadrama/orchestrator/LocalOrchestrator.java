@@ -0,0 +1,90 @@
+package ntt.security.ollamadrama.orchestrator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sun.net.httpserver.HttpServer;
+
+import ntt.security.ollamadrama.utils.JSONUtils;
+
+/**
+ * Stand-in for the remote orchestrator, serving /api/status from an in-memory server list on
+ * the loopback interface. Health and load can be changed while it runs, so the router can be
+ * exercised and load tested without real Ollama servers.
+ */
+public class LocalOrchestrator {
+
+	private final Map<String, Server> servers = new ConcurrentHashMap<>();
+	private HttpServer http;
+
+	public Server addServer(String name, String url, int capacity, List<String> models, List<String> priority) {
+		Server server = new Server();
+		server.setName(name);
+		server.setUrl(url);
+		server.setHealthy(true);
+		server.setCapacity(String.valueOf(capacity));
+		server.setModels(new ArrayList<>(models));
+		server.setPriority(new ArrayList<>(priority));
+		server.setActive_requests(0);
+		servers.put(url, server);
+		return server;
+	}
+
+	public void setHealthy(String url, boolean healthy) {
+		servers.get(url).setHealthy(healthy);
+	}
+
+	/**
+	 * Simulates a request starting (+1) or finishing (-1) on a server.
+	 */
+	public synchronized void addActive_requests(String url, int delta) {
+		Server server = servers.get(url);
+		server.setActive_requests(Math.max(0, server.getActive_requests() + delta));
+	}
+
+	public int getActive_requests(String url) {
+		return servers.get(url).getActive_requests();
+	}
+
+	public synchronized OrchestratorStatus getStatus() {
+		OrchestratorStatus status = new OrchestratorStatus();
+		List<Server> list = new ArrayList<>(servers.values());
+		status.setServers(list);
+		status.setTotal_servers(list.size());
+		status.setHealthy_servers((int) list.stream().filter(Server::isHealthy).count());
+		status.setStatus("ok");
+		return status;
+	}
+
+	/**
+	 * Starts serving on an ephemeral loopback port.
+	 *
+	 * @return the status URL to use as orchestrator_url
+	 */
+	public synchronized String start() throws IOException {
+		http = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		http.createContext("/api/status", exchange -> {
+			byte[] body = JSONUtils.createJSONFromPOJO(getStatus()).getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream os = exchange.getResponseBody()) {
+				os.write(body);
+			}
+		});
+		http.start();
+		return "http://127.0.0.1:" + http.getAddress().getPort() + "/api/status";
+	}
+
+	public synchronized void stop() {
+		if (http != null) {
+			http.stop(0);
+			http = null;
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package ntt.security.ollamadrama.orchestrator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ntt.security.ollamadrama.objects.OllamaEndpoint;
+import ntt.security.ollamadrama.routing.RoutingPolicy;
+import ntt.security.ollamadrama.utils.HttpRequestUtils;
+import ntt.security.ollamadrama.utils.JSONUtils;
+
+/**
+ * Load-aware router fed by the orchestrator status endpoint. The status is polled on a short
+ * interval, and a model is routed to a healthy server that lists it:
+ * servers with the model in their priority list first, then the lowest active_requests
+ * relative to capacity. Requests dispatched since the last poll are added to a server's
+ * active_requests so a burst between two polls is spread instead of piling onto one server.
+ */
+public class OrchestratorRouter implements RoutingPolicy {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(OrchestratorRouter.class);
+
+	private final String status_url;
+	private final Map<String, AtomicInteger> dispatched_since_poll = new ConcurrentHashMap<>();
+	private volatile List<Server> servers = Collections.emptyList();
+	private volatile long last_poll = 0L;
+	private ScheduledExecutorService poller;
+
+	public OrchestratorRouter(String _status_url) {
+		this.status_url = _status_url;
+	}
+
+	/**
+	 * Starts polling in the background, the first poll runs synchronously.
+	 */
+	public synchronized void start(long _poll_interval_ms) {
+		if (poller != null) {
+			return;
+		}
+		refresh();
+		poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread t = new Thread(runnable, "ollamadrama-orchestrator-poll");
+			t.setDaemon(true);
+			return t;
+		});
+		poller.scheduleWithFixedDelay(this::refresh, _poll_interval_ms, _poll_interval_ms, TimeUnit.MILLISECONDS);
+	}
+
+	public synchronized void stop() {
+		if (poller != null) {
+			poller.shutdownNow();
+			poller = null;
+		}
+	}
+
+	/**
+	 * Fetches the status feed once. A failed fetch keeps the previous snapshot.
+	 *
+	 * @return true if a status was received
+	 */
+	public boolean refresh() {
+		String json = HttpRequestUtils.getBodyUsingGETUrlRequestOpportunistic(status_url);
+		OrchestratorStatus status = (json == null || json.isEmpty()) ? null
+				: JSONUtils.createPOJOFromJSONOpportunistic(json, OrchestratorStatus.class);
+		if (status == null || status.getServers() == null) {
+			LOGGER.debug("No usable status from orchestrator {}", status_url);
+			return false;
+		}
+		servers = List.copyOf(status.getServers());
+		dispatched_since_poll.clear();
+		last_poll = System.currentTimeMillis();
+		LOGGER.debug("Orchestrator reports {}/{} healthy servers", status.getHealthy_servers(), status.getTotal_servers());
+		return true;
+	}
+
+	/**
+	 * @return all servers in the last status, healthy or not
+	 */
+	public List<Server> getServers() {
+		return servers;
+	}
+
+	public List<Server> getHealthyServers() {
+		List<Server> healthy = new ArrayList<>();
+		for (Server server : servers) {
+			if (server.isHealthy() && server.getUrl() != null) {
+				healthy.add(server);
+			}
+		}
+		return healthy;
+	}
+
+	public long getLast_poll() {
+		return last_poll;
+	}
+
+	/**
+	 * Picks the server for a model and counts the dispatch against it.
+	 *
+	 * @param _model_name model the request is for
+	 * @param _allowed_urls only consider these server URLs, or null for any
+	 * @return the chosen server URL, or null if no healthy server lists the model
+	 */
+	public String route(String _model_name, Collection<String> _allowed_urls) {
+		Server best = null;
+		boolean best_prioritized = false;
+		double best_load = Double.MAX_VALUE;
+		for (Server server : servers) {
+			if (!server.isHealthy() || server.getUrl() == null) {
+				continue;
+			}
+			if (server.getModels() == null || !server.getModels().contains(_model_name)) {
+				continue;
+			}
+			if (_allowed_urls != null && !_allowed_urls.contains(server.getUrl())) {
+				continue;
+			}
+			boolean prioritized = server.getPriority() != null && server.getPriority().contains(_model_name);
+			double load = load_of(server);
+			if (best == null
+					|| (prioritized && !best_prioritized)
+					|| (prioritized == best_prioritized && load < best_load)) {
+				best = server;
+				best_prioritized = prioritized;
+				best_load = load;
+			}
+		}
+		if (best == null) {
+			return null;
+		}
+		dispatched_since_poll.computeIfAbsent(best.getUrl(), u -> new AtomicInteger()).incrementAndGet();
+		return best.getUrl();
+	}
+
+	@Override
+	public OllamaEndpoint select(String model_name, Map<String, OllamaEndpoint> endpoints) {
+		String url = route(model_name, endpoints.keySet());
+		return (url == null) ? null : endpoints.get(url);
+	}
+
+	private double load_of(Server server) {
+		AtomicInteger dispatched = dispatched_since_poll.get(server.getUrl());
+		int active = server.getActive_requests() + ((dispatched == null) ? 0 : dispatched.get());
+		return (double) active / parse_capacity(server.getCapacity());
+	}
+
+	/**
+	 * Capacity is reported as a string, anything that is not a positive number counts as 1.
+	 */
+	static int parse_capacity(String capacity) {
+		if (capacity == null) {
+			return 1;
+		}
+		try {
+			return Math.max(1, Integer.parseInt(capacity.trim()));
+		} catch (NumberFormatException e) {
+			return 1;
+		}
+	}
+}
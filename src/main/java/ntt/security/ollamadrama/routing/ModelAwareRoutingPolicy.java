@@ -0,0 +1,187 @@
+package ntt.security.ollamadrama.routing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import ntt.security.ollamadrama.objects.OllamaEndpoint;
+import ntt.security.ollamadrama.singletons.OllamaService;
+import ntt.security.ollamadrama.utils.OllamaUtils;
+
+/**
+ * Default routing: endpoints that already have the model loaded in VRAM first, then endpoints
+ * that have it installed, then any endpoint. Within a tier the least loaded endpoint wins, load
+ * being the number of resident models plus the sessions routed to it since its residency was
+ * last checked. Residency is cached per endpoint for RESIDENCY_TTL_MS, installed models come
+ * from the model inventory kept by OllamaService.
+ *
+ * Residency is probed off the session-creation path. An expired snapshot is still served while a
+ * background refresh runs, at most one per endpoint. Only endpoints never probed before are waited
+ * for, all in parallel and for no longer than COLD_WAIT_MS.
+ */
+public class ModelAwareRoutingPolicy implements RoutingPolicy {
+
+	private static final long RESIDENCY_TTL_MS = 5_000L;
+	private static final int PS_TIMEOUT_SECONDS = 2;
+	private static final long COLD_WAIT_MS = PS_TIMEOUT_SECONDS * 1_000L + 500L;
+
+	private static final ExecutorService probes = Executors.newCachedThreadPool(runnable -> {
+		Thread t = new Thread(runnable, "ollamadrama-residency-probe");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final Function<String, Set<String>> installed_lookup;
+	private final Function<OllamaEndpoint, Set<String>> resident_lookup;
+	private final long residency_ttl_ms;
+	private final Executor executor;
+	private final Map<String, Residency> residency = new ConcurrentHashMap<>();
+	private final Map<String, CompletableFuture<Void>> refreshing = new ConcurrentHashMap<>();
+
+	public ModelAwareRoutingPolicy() {
+		this(url -> Set.copyOf(OllamaService.get_model_inventory(url).getModelNames()),
+				endpoint -> OllamaUtils.getResidentModels(OllamaUtils.createConnection(endpoint, PS_TIMEOUT_SECONDS)));
+	}
+
+	/**
+	 * @param _installed_lookup models installed on an endpoint URL
+	 * @param _resident_lookup models loaded on an endpoint, null if it could not be asked
+	 */
+	public ModelAwareRoutingPolicy(Function<String, Set<String>> _installed_lookup, Function<OllamaEndpoint, Set<String>> _resident_lookup) {
+		this(_installed_lookup, _resident_lookup, RESIDENCY_TTL_MS, probes);
+	}
+
+	/**
+	 * @param _residency_ttl_ms how long a residency snapshot is served before it is refreshed
+	 * @param _executor runs the residency probes
+	 */
+	public ModelAwareRoutingPolicy(Function<String, Set<String>> _installed_lookup, Function<OllamaEndpoint, Set<String>> _resident_lookup, long _residency_ttl_ms, Executor _executor) {
+		this.installed_lookup = _installed_lookup;
+		this.resident_lookup = _resident_lookup;
+		this.residency_ttl_ms = _residency_ttl_ms;
+		this.executor = _executor;
+	}
+
+	@Override
+	public OllamaEndpoint select(String model_name, Map<String, OllamaEndpoint> endpoints) {
+		List<OllamaEndpoint> candidates = new ArrayList<>(endpoints.values());
+		Collections.shuffle(candidates, ThreadLocalRandom.current()); // random tie-break
+
+		refresh_residency(candidates);
+		OllamaEndpoint chosen = least_loaded(candidates, e -> residency_of(e).models.contains(model_name));
+		if (chosen == null) {
+			chosen = least_loaded(candidates, e -> installed_lookup.apply(e.getOllama_url()).contains(model_name));
+		}
+		if (chosen == null) {
+			chosen = least_loaded(candidates, e -> true);
+		}
+		if (chosen != null) {
+			residency_of(chosen).routed.incrementAndGet();
+		}
+		return chosen;
+	}
+
+	private OllamaEndpoint least_loaded(List<OllamaEndpoint> candidates, Predicate<OllamaEndpoint> tier) {
+		OllamaEndpoint best = null;
+		int best_load = Integer.MAX_VALUE;
+		for (OllamaEndpoint endpoint : candidates) {
+			if (!tier.test(endpoint)) {
+				continue;
+			}
+			Residency r = residency_of(endpoint);
+			int load = r.models.size() + r.routed.get();
+			if (load < best_load) {
+				best = endpoint;
+				best_load = load;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Starts a background refresh for every expired snapshot and waits, in parallel and bounded by
+	 * COLD_WAIT_MS, only for endpoints that have no snapshot yet.
+	 */
+	private void refresh_residency(List<OllamaEndpoint> candidates) {
+		long now = System.currentTimeMillis();
+		List<CompletableFuture<Void>> cold = new ArrayList<>();
+		for (OllamaEndpoint endpoint : candidates) {
+			Residency r = residency.get(endpoint.getOllama_url());
+			if (r == null) {
+				cold.add(refresh(endpoint));
+			} else if ((now - r.fetched_at) >= residency_ttl_ms) {
+				refresh(endpoint);
+			}
+		}
+		if (cold.isEmpty()) {
+			return;
+		}
+		try {
+			CompletableFuture.allOf(cold.toArray(new CompletableFuture[0])).get(COLD_WAIT_MS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException | TimeoutException e) {
+			// endpoints that did not answer in time count as nothing resident until their probe lands
+		}
+	}
+
+	private CompletableFuture<Void> refresh(OllamaEndpoint endpoint) {
+		String url = endpoint.getOllama_url();
+		CompletableFuture<Void> pending = new CompletableFuture<>();
+		CompletableFuture<Void> running = refreshing.putIfAbsent(url, pending);
+		if (running != null) {
+			return running;
+		}
+		Runnable probe = () -> {
+			try {
+				Set<String> resident = null;
+				try {
+					resident = resident_lookup.apply(endpoint);
+				} catch (RuntimeException e) {
+					// unreachable, counts as nothing resident
+				}
+				residency.put(url, new Residency((resident == null) ? Set.of() : resident, System.currentTimeMillis()));
+			} finally {
+				refreshing.remove(url, pending);
+				pending.complete(null);
+			}
+		};
+		try {
+			executor.execute(probe);
+		} catch (RejectedExecutionException e) {
+			refreshing.remove(url, pending);
+			pending.complete(null);
+		}
+		return pending;
+	}
+
+	private Residency residency_of(OllamaEndpoint endpoint) {
+		return residency.computeIfAbsent(endpoint.getOllama_url(), url -> new Residency(Set.of(), 0L));
+	}
+
+	private static final class Residency {
+		final Set<String> models;
+		final long fetched_at;
+		final AtomicInteger routed = new AtomicInteger();
+
+		Residency(Set<String> models, long fetched_at) {
+			this.models = models;
+			this.fetched_at = fetched_at;
+		}
+	}
+}
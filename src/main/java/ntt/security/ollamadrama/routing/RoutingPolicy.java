@@ -0,0 +1,19 @@
+package ntt.security.ollamadrama.routing;
+
+import java.util.Map;
+
+import ntt.security.ollamadrama.objects.OllamaEndpoint;
+
+/**
+ * Chooses the Ollama endpoint a new session for a model is created on.
+ */
+public interface RoutingPolicy {
+
+	/**
+	 * @param model_name model the session is for
+	 * @param endpoints active endpoints keyed by URL, never empty
+	 * @return the endpoint to use, or null to let the caller fall back to a random one
+	 */
+	OllamaEndpoint select(String model_name, Map<String, OllamaEndpoint> endpoints);
+
+}
@@ -10,6 +10,7 @@ import com.anthropic.client.okhttp.AnthropicOkHttpClient;
 
 import ntt.security.ollamadrama.config.OllamaDramaSettings;
 import ntt.security.ollamadrama.objects.sessions.ClaudeSession;
+import ntt.security.ollamadrama.utils.RateLimiter;
 import ntt.security.ollamadrama.utils.SystemUtils;
 
 /**
@@ -80,10 +81,11 @@ public class ClaudeService {
 
         AnthropicClient client = AnthropicOkHttpClient.builder()
                 .apiKey(api_key)
+                .maxRetries(0) // retries go through the shared RateLimiter of the key
                 .build();
 
         LOGGER.info("Creating strict Claude session with model: {}", model_name);
-        return new ClaudeSession(model_name, client, settings_param);
+        return new ClaudeSession(model_name, client, settings_param, RateLimiter.forKey("claude", api_key, settings_param));
     }
 
     /**
@@ -1,10 +1,12 @@
 package ntt.security.ollamadrama.singletons;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -12,6 +14,17 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.slf4j.Logger;
@@ -23,21 +36,32 @@ import io.modelcontextprotocol.spec.McpSchema.ListToolsResult;
 import io.modelcontextprotocol.spec.McpSchema.Tool;
 import ntt.security.ollamadrama.config.Globals;
 import ntt.security.ollamadrama.config.OllamaDramaSettings;
+import ntt.security.ollamadrama.cron.SatelliteFileWatcher;
+import ntt.security.ollamadrama.mcp.McpToolIndex;
+import ntt.security.ollamadrama.objects.EndpointRegistry;
 import ntt.security.ollamadrama.objects.MCPEndpoint;
 import ntt.security.ollamadrama.objects.MCPTool;
+import ntt.security.ollamadrama.objects.ModelInventory;
 import ntt.security.ollamadrama.objects.OllamaEndpoint;
+import ntt.security.ollamadrama.objects.RegisteredMCPEndpoint;
+import ntt.security.ollamadrama.objects.RegisteredOllamaEndpoint;
+import ntt.security.ollamadrama.objects.SatelliteChanges;
+import ntt.security.ollamadrama.objects.SatelliteConfig;
 import ntt.security.ollamadrama.objects.SessionType;
 import ntt.security.ollamadrama.objects.sessions.OllamaSession;
-import ntt.security.ollamadrama.orchestrator.OrchestratorStatus;
+import ntt.security.ollamadrama.orchestrator.OrchestratorRouter;
 import ntt.security.ollamadrama.orchestrator.Server;
+import ntt.security.ollamadrama.routing.ModelAwareRoutingPolicy;
+import ntt.security.ollamadrama.routing.RoutingPolicy;
 import ntt.security.ollamadrama.utils.*;
+import ntt.security.ollamadrama.utils.OllamaTransport.TransportStats;
 
 /**
  * Singleton service for managing Ollama and MCP (Model Context Protocol) endpoints.
  * This service handles endpoint discovery, validation, and session creation.
  *
- * Ollama servers are fingerprinted using their list of available models to prevent
- * duplicate registrations when the same server is accessible via multiple IPs.
+ * Ollama servers are fingerprinted using the names and digests of their installed models
+ * to prevent duplicate registrations when the same server is accessible via multiple IPs.
  */
 public class OllamaService {
 
@@ -47,7 +71,11 @@ public class OllamaService {
 	private static OllamaDramaSettings settings = new OllamaDramaSettings();
 
 	private static final int THREAD_POOL_COUNT = 20;
+	private static final int SWEEP_CONNECT_TIMEOUT_MS = 250; // sweeps are non-blocking, so all connects wait in parallel
 	private static final Duration MCP_LIST_TOOLS_TIMEOUT = Duration.ofSeconds(5L);
+	private static final Duration MCP_SWEEP_INTERVAL = Duration.ofMinutes(15L);
+	private static final Duration MCP_RELIST_INTERVAL = Duration.ofMinutes(5L);
+	private static final int MCP_LIVENESS_TIMEOUT_MS = 1000;
 	private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
 	private static final Duration LONG_RETRY_DELAY = Duration.ofSeconds(30);
 	private static final int MAX_RETRY_ATTEMPTS = 10;
@@ -55,19 +83,66 @@ public class OllamaService {
 	private static final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
 	private static List<String> service_cnets = new ArrayList<>();
+	private static List<String> service_ranges = new ArrayList<>(); // CIDR blocks swept during discovery
 	private static final Map<String, OllamaEndpoint> ollama_endpoints = new TreeMap<>();
-	private static final Map<String, MCPTool> mcp_tools = new TreeMap<>();
+	// Immutable copy of ollama_endpoints for lock-free endpoint selection, republished on every change
+	private static volatile Map<String, OllamaEndpoint> active_ollama_endpoints = Map.of();
+	private static volatile List<OllamaEndpoint> active_ollama_endpoint_list = List.of();
+	// Immutable tool index, a new version is published on every change
+	private static volatile McpToolIndex mcp_tool_index = McpToolIndex.EMPTY;
+	private static final AtomicLong mcp_tool_index_version = new AtomicLong(0L);
+
+	// MCP endpoints that have listed tools, keyed by host:port, used for incremental refresh
+	private static final Map<String, KnownMCPEndpoint> known_mcp_endpoints = new ConcurrentHashMap<>();
+	private static volatile long last_mcp_sweep = 0L;
 
 	// Tracks fingerprints of registered Ollama servers to prevent duplicates
 	private static final Set<String> registered_ollama_fingerprints = new TreeSet<>();
 
+	// Fingerprint and models of every Ollama endpoint that passed validation, persisted to the endpoint registry
+	private static final Map<String, RegisteredOllamaEndpoint> validated_ollamas = new ConcurrentHashMap<>();
+
+	// Load-aware routing across orchestrator servers, null without an orchestrator_url
+	private static volatile OrchestratorRouter orchestrator_router = null;
+	// Custom endpoint selection, null for orchestrator routing followed by the model-aware default
+	private static volatile RoutingPolicy routing_policy = null;
+	private static final RoutingPolicy default_routing_policy = new ModelAwareRoutingPolicy();
+
+	// Model inventory of every Ollama endpoint seen, keyed by URL
+	private static final Map<String, ModelInventory> model_inventories = new ConcurrentHashMap<>();
+
+	// Sanity checks already passed, keyed by server fingerprint, model name and model digest
+	private static final Set<String> passed_sanity_checks = ConcurrentHashMap.newKeySet();
+
+	// Watches satellites_file, null when it is not set
+	private static volatile SatelliteFileWatcher satellite_watcher = null;
+	// Validates satellites added at runtime in the background, one at a time
+	private static final ExecutorService satellite_validator = Executors.newSingleThreadExecutor(runnable -> {
+		Thread t = new Thread(runnable, "ollamadrama-satellite-validate");
+		t.setDaemon(true);
+		return t;
+	});
+
 	private OllamaService(OllamaDramaSettings settings_param) {
 		if (settings_param == null) {
 			LOGGER.info("Getting Ollama settings from environment");
 			settings_param = ConfigUtils.parseConfigENV();
 		}
 		settings = settings_param;
-		rescan(true);
+		OllamaTransport.setMax_connections(settings.getOllama_max_connections());
+		VramAdmission.setDefault_capacity_bytes(settings.getOllama_vram_capacity_gb() * 1024L * 1024L * 1024L);
+		RequestScheduler.setDefault_slots(settings.getOllama_request_slots());
+		RequestScheduler.setAging_seconds(settings.getRequest_priority_aging_seconds());
+		settings.getTenant_weights().forEach(RequestScheduler::setTenant_weight);
+		load_satellites_file();
+		if (warm_start()) {
+			Thread background_rescan = new Thread(() -> rescan(false), "ollamadrama-rescan");
+			background_rescan.setDaemon(true);
+			background_rescan.start();
+		} else {
+			rescan(true);
+		}
+		start_satellite_watcher();
 	}
 
 	// ========== SCANNING & DISCOVERY ==========
@@ -89,9 +164,15 @@ public class OllamaService {
 				.map(NetUtilsLocal::grabCnetworkSlice)
 				.toList();
 
+		List<String> service_ranges_temp = settings.getDiscovery_cidrs().isEmpty()
+				? service_cnets_temp.stream().map(NetUtilsLocal::cnetToCIDR).distinct().toList()
+				: settings.getDiscovery_cidrs();
+		LOGGER.info("Discovery ranges: {} excluding {}", service_ranges_temp, settings.getDiscovery_exclude_cidrs());
+
 		lock.writeLock().lock();
 		try {
 			service_cnets = new ArrayList<>(service_cnets_temp);
+			service_ranges = new ArrayList<>(service_ranges_temp);
 		} finally {
 			lock.writeLock().unlock();
 		}
@@ -108,10 +189,303 @@ public class OllamaService {
 		}
 	}
 
+	// ========== ENDPOINT REGISTRY ==========
+
+	/**
+	 * Restores the endpoints saved in endpoint_registry_file. Each Ollama is pinged and its model
+	 * list compared against the saved fingerprint, an unchanged server is trusted without repeating
+	 * the model validation. MCP endpoints get a TCP liveness check and their saved tools are
+	 * published as-is, the next refresh re-lists them.
+	 *
+	 * @return true if at least one Ollama endpoint was restored
+	 */
+	private static boolean warm_start() {
+		EndpointRegistry registry = EndpointRegistryUtils.load(settings.getEndpoint_registry_file());
+		if (registry == null) {
+			return false;
+		}
+		long start = System.currentTimeMillis();
+
+		Map<String, OllamaEndpoint> restored_ollamas = new TreeMap<>();
+		Set<String> restored_fingerprints = new TreeSet<>();
+		for (RegisteredOllamaEndpoint saved : registry.getOllamas()) {
+			String url = saved.getOllama_url();
+			if (restored_fingerprints.contains(saved.getFingerprint())) {
+				continue;
+			}
+			OllamaEndpoint endpoint = credentials_for(url);
+			try {
+				Ollama api = OllamaUtils.createConnection(endpoint, settings.getOllama_timeout());
+				if (!api.ping()) {
+					LOGGER.info("Saved Ollama endpoint {} is not reachable", url);
+					continue;
+				}
+				ModelInventory inventory = refresh_model_inventory(url, api);
+				if (inventory == null || !inventory.getFingerprint().equals(saved.getFingerprint())) {
+					LOGGER.info("Models on saved Ollama endpoint {} changed, leaving it to discovery", url);
+					continue;
+				}
+				restored_ollamas.put(url, endpoint);
+				restored_fingerprints.add(saved.getFingerprint());
+				validated_ollamas.put(url, new RegisteredOllamaEndpoint(url, saved.getFingerprint(), inventory.getModelNames(), start));
+			} catch (Exception e) {
+				LOGGER.debug("Saved Ollama endpoint {} failed warm start check: {}", url, e.getMessage());
+			}
+		}
+
+		if (settings.isMcp_scan()) {
+			Map<String, MCPTool> restored_tools = new TreeMap<>();
+			for (RegisteredMCPEndpoint saved : registry.getMcps()) {
+				MCPEndpoint ep = saved.getEndpoint();
+				if (ep == null || saved.getTools().isEmpty()
+						|| !NetUtilsLocal.isPortOpen(ep.getHost(), ep.getPort(), MCP_LIVENESS_TIMEOUT_MS)) {
+					continue;
+				}
+				String mcp_url = String.format("%s://%s:%d", ep.getSchema(), ep.getHost(), ep.getPort());
+				Map<String, MCPTool> endpoint_tools = new TreeMap<>();
+				for (MCPTool tool : saved.getTools()) {
+					endpoint_tools.put(mcp_url + "-" + tool.getToolname(), tool);
+				}
+				KnownMCPEndpoint known = new KnownMCPEndpoint(ep, endpoint_tools, saved.getTool_fingerprint());
+				known.last_listed = 0L; // re-list on the next refresh
+				known_mcp_endpoints.put(ep.getHost() + ":" + ep.getPort(), known);
+				restored_tools.putAll(endpoint_tools);
+			}
+			if (!restored_tools.isEmpty()) {
+				publish_mcp_tools(restored_tools);
+				last_mcp_sweep = start;
+			}
+		}
+
+		if (restored_ollamas.isEmpty()) {
+			LOGGER.info("No saved Ollama endpoints usable, running full discovery");
+			return false;
+		}
+		lock.writeLock().lock();
+		try {
+			ollama_endpoints.clear();
+			ollama_endpoints.putAll(restored_ollamas);
+			publish_active_ollama_endpoints();
+			registered_ollama_fingerprints.clear();
+			registered_ollama_fingerprints.addAll(restored_fingerprints);
+		} finally {
+			lock.writeLock().unlock();
+		}
+		LOGGER.info("Warm start took {} ms: restored Ollama endpoints {} and {} MCP endpoints, discovery continues in the background",
+				System.currentTimeMillis() - start, restored_ollamas.keySet(), known_mcp_endpoints.size());
+		return true;
+	}
+
+	/**
+	 * Endpoint for a saved URL with credentials from the matching satellite, or the global ones.
+	 */
+	private static OllamaEndpoint credentials_for(String url) {
+		if (settings.getSatellites() != null) {
+			for (OllamaEndpoint satellite : settings.getSatellites()) {
+				if (url.equals(satellite.getOllama_url())) {
+					return satellite;
+				}
+			}
+		}
+		return new OllamaEndpoint(url, settings.getOllama_username(), settings.getOllama_password());
+	}
+
+	/**
+	 * Saves the currently registered endpoints, a no-op unless endpoint_registry_file is set.
+	 */
+	private static void save_endpoint_registry() {
+		String file = settings.getEndpoint_registry_file();
+		if (file == null || file.isEmpty()) {
+			return;
+		}
+		List<RegisteredOllamaEndpoint> ollamas = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			for (String url : ollama_endpoints.keySet()) {
+				RegisteredOllamaEndpoint validated = validated_ollamas.get(url);
+				if (validated != null) {
+					ollamas.add(validated);
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		List<RegisteredMCPEndpoint> mcps = new ArrayList<>();
+		for (KnownMCPEndpoint known : known_mcp_endpoints.values()) {
+			if (known.reachable) {
+				mcps.add(new RegisteredMCPEndpoint(known.endpoint, known.tool_fingerprint,
+						new ArrayList<>(known.tools.values()), known.last_listed));
+			}
+		}
+		if (EndpointRegistryUtils.save(new EndpointRegistry(System.currentTimeMillis(), ollamas, mcps), file)) {
+			LOGGER.debug("Saved {} Ollama and {} MCP endpoints to {}", ollamas.size(), mcps.size(), file);
+		}
+	}
+
+	// ========== SATELLITES ==========
+
+	/**
+	 * Replaces the configured satellites with those in satellites_file, if it is set and readable.
+	 */
+	private static void load_satellites_file() {
+		SatelliteConfig config = SatelliteConfigUtils.load(settings.getSatellites_file());
+		if (config != null) {
+			settings.setSatellites(config.getSatellites());
+			settings.setMcp_satellites(config.getMcp_satellites());
+			LOGGER.info("Loaded {} Ollama and {} MCP satellites from {}", config.getSatellites().size(),
+					config.getMcp_satellites().size(), settings.getSatellites_file());
+		}
+	}
+
+	private static void start_satellite_watcher() {
+		String file = settings.getSatellites_file();
+		if (file.isEmpty()) {
+			return;
+		}
+		try {
+			satellite_watcher = new SatelliteFileWatcher(file, OllamaService::apply_satellite_config);
+		} catch (IOException e) {
+			LOGGER.warn("Unable to watch satellites file {}: {}", file, e.getMessage());
+		}
+	}
+
+	/**
+	 * Applies a new set of satellites as incremental changes. Removed satellites stop receiving new
+	 * sessions right away, requests already running on them complete. Added satellites are validated
+	 * in the background and only join the active set once they pass, no discovery is rerun.
+	 *
+	 * @return the satellites added and removed
+	 */
+	public static SatelliteChanges apply_satellite_config(SatelliteConfig config) {
+		SatelliteChanges changes;
+		synchronized (satellite_validator) {
+			changes = SatelliteChanges.between(settings.getSatellites(), settings.getMcp_satellites(),
+					config.getSatellites(), config.getMcp_satellites());
+			if (changes.isEmpty()) {
+				return changes;
+			}
+			settings.setSatellites(config.getSatellites());
+			settings.setMcp_satellites(config.getMcp_satellites());
+		}
+		LOGGER.info("Satellites changed: {}", changes);
+
+		for (OllamaEndpoint removed : changes.getRemoved_ollamas()) {
+			remove_ollama_endpoint(removed.getOllama_url());
+		}
+		remove_mcp_endpoints(changes.getRemoved_mcps());
+		if (!changes.getAdded_ollamas().isEmpty() || !changes.getAdded_mcps().isEmpty()) {
+			satellite_validator.submit(() -> add_satellites(changes));
+		}
+		return changes;
+	}
+
+	private static void add_satellites(SatelliteChanges changes) {
+		for (OllamaEndpoint endpoint : changes.getAdded_ollamas()) {
+			if (add_ollama_endpoint(endpoint) && !is_configured_satellite(endpoint.getOllama_url())) {
+				remove_ollama_endpoint(endpoint.getOllama_url()); // dropped from the file while it was validated
+			}
+		}
+		if (!changes.getAdded_mcps().isEmpty()) {
+			Map<String, MCPEndpoint> candidates = new TreeMap<>();
+			for (MCPEndpoint endpoint : changes.getAdded_mcps()) {
+				candidates.put(endpoint.getHost() + ":" + endpoint.getPort(), endpoint);
+			}
+			validate_mcp_endpoints(candidates, new TreeMap<>(), new TreeMap<>(), new HashMap<>());
+			publish_known_mcp_tools();
+			save_endpoint_registry();
+		}
+	}
+
+	private static boolean is_configured_satellite(String url) {
+		for (OllamaEndpoint satellite : settings.getSatellites()) {
+			if (url.equals(satellite.getOllama_url())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Validates a single Ollama endpoint and adds it to the active set once it passes. Sessions keep
+	 * using the current endpoints while it is validated.
+	 *
+	 * @return true if the endpoint is active after the call
+	 */
+	public static boolean add_ollama_endpoint(OllamaEndpoint endpoint) {
+		String url = endpoint.getOllama_url();
+		Set<String> seen_fingerprints;
+		lock.readLock().lock();
+		try {
+			if (ollama_endpoints.containsKey(url)) {
+				return true;
+			}
+			seen_fingerprints = new ConcurrentSkipListSet<>(registered_ollama_fingerprints);
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		if (!validate_single_ollama_endpoint(endpoint, new ConcurrentSkipListMap<>(), seen_fingerprints)) {
+			LOGGER.warn("Ollama endpoint {} did not validate, no sessions are routed to it", url);
+			return false;
+		}
+		RegisteredOllamaEndpoint validated = validated_ollamas.get(url);
+		lock.writeLock().lock();
+		try {
+			if (validated == null || !registered_ollama_fingerprints.add(validated.getFingerprint())) {
+				return false; // same server already active under another URL
+			}
+			ollama_endpoints.put(url, endpoint);
+			publish_active_ollama_endpoints();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		save_endpoint_registry();
+		LOGGER.info("Added Ollama endpoint {}", url);
+		return true;
+	}
+
+	/**
+	 * Drops an Ollama endpoint and its validation record, e.g. a satellite removed from the
+	 * configuration. Unlike evict_ollama_endpoint() it is not restored when it responds again.
+	 */
+	public static void remove_ollama_endpoint(String url) {
+		lock.writeLock().lock();
+		try {
+			RegisteredOllamaEndpoint validated = validated_ollamas.remove(url);
+			if (ollama_endpoints.remove(url) != null) {
+				publish_active_ollama_endpoints();
+				if (validated != null) {
+					registered_ollama_fingerprints.remove(validated.getFingerprint());
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+		model_inventories.remove(url);
+		OllamaUtils.release_connections(url);
+		save_endpoint_registry();
+		LOGGER.info("Removed Ollama endpoint {}", url);
+	}
+
+	private static void remove_mcp_endpoints(List<MCPEndpoint> endpoints) {
+		boolean changed = false;
+		for (MCPEndpoint endpoint : endpoints) {
+			if (known_mcp_endpoints.remove(endpoint.getHost() + ":" + endpoint.getPort()) != null) {
+				LOGGER.info("Removed MCP endpoint {}:{}", endpoint.getHost(), endpoint.getPort());
+				changed = true;
+			}
+		}
+		if (changed) {
+			publish_known_mcp_tools();
+			save_endpoint_registry();
+		}
+	}
+
 	// ========== MCP ENDPOINT DISCOVERY ==========
 
 	/**
-	 * Discovers and validates MCP endpoints.
+	 * Discovers and validates MCP endpoints. Endpoints found are merged into the known endpoints,
+	 * those restored at warm start stay until refresh_mcps() finds them unreachable.
 	 *
 	 * @param block_until_ready if true, blocks until MCP endpoints are found
 	 * @return true if at least one MCP endpoint was found and validated
@@ -131,7 +505,7 @@ public class OllamaService {
 
 			if (mcps.isEmpty() && settings.getSatellites() == null) {
 				LOGGER.warn("Unable to find MCP hosts on ports {} in networks {}",
-						settings.getMcp_ports(), service_cnets);
+						settings.getMcp_ports(), service_ranges);
 				SystemUtils.sleepInSeconds((int) RETRY_DELAY.toSeconds());
 			} else {
 				LOGGER.info("Active MCP hosts on ports {}: {}",
@@ -139,14 +513,11 @@ public class OllamaService {
 				validate_mcp_endpoints(mcps, abandoned_mcps, verified_tools, dedup_tool);
 
 				if (!verified_tools.isEmpty()) {
-					lock.writeLock().lock();
-					try {
-						mcp_tools.clear();
-						mcp_tools.putAll(verified_tools);
-					} finally {
-						lock.writeLock().unlock();
-					}
+					// Merged with the endpoints restored at warm start, which the sweep may not have reached
+					publish_known_mcp_tools();
+					last_mcp_sweep = System.currentTimeMillis();
 					found_mcps = true;
+					save_endpoint_registry();
 					String tool_summary = get_brief_all_available_mcp_tools();
 					LOGGER.info("MCP Tool Index:\n\n{}\n", tool_summary);
 				} else {
@@ -174,8 +545,11 @@ public class OllamaService {
 	private static Map<String, MCPEndpoint> discover_mcp_endpoints(Map<String, MCPEndpoint> abandoned_mcps) {
 		Map<String, MCPEndpoint> mcps = new TreeMap<>();
 		if (settings.isMcp_scan()) {
-			mcps = NetUtilsLocal.performTCPPortSweepForMCP(
-					settings.getMcp_ports(), service_cnets, 1, 255, 10, THREAD_POOL_COUNT);
+			Map<String, MCPEndpoint> found = new TreeMap<>();
+			NetUtilsLocal.performCIDRSweepForMCP(settings.getMcp_ports(), get_service_ranges(),
+					settings.getDiscovery_exclude_cidrs(), SWEEP_CONNECT_TIMEOUT_MS, settings.getDiscovery_max_connects_per_second(),
+					endpoint -> found.put(endpoint.getHost() + "::" + endpoint.getPort(), endpoint));
+			mcps = found;
 		}
 		add_satellite_mcps(mcps, abandoned_mcps);
 		return mcps;
@@ -200,21 +574,42 @@ public class OllamaService {
 		}
 	}
 
+	/**
+	 * Probes all candidate endpoints concurrently under mcp_discovery_deadline_seconds. Every (path, schema)
+	 * combination of an endpoint is probed in parallel, the first one that lists tools wins and the
+	 * remaining probes for that endpoint are cancelled. Tools are published as endpoints resolve.
+	 */
 	private static void validate_mcp_endpoints(Map<String, MCPEndpoint> mcps,
 			Map<String, MCPEndpoint> abandoned_mcps,
 			Map<String, MCPTool> verified_tools,
 			Map<String, Boolean> dedup_tool) {
 		List<String> schemas = List.of("http", "https");
 		List<String> endpoint_paths = get_mcp_endpoint_paths();
-		for (var entry : mcps.entrySet()) {
-			String key = entry.getKey();
-			MCPEndpoint endpoint = entry.getValue();
-			if (abandoned_mcps.containsKey(key)) {
-				LOGGER.debug("Skipping abandoned endpoint: {}", key);
-				continue;
+		ExecutorService executor = Executors.newFixedThreadPool(THREAD_POOL_COUNT);
+		long start = System.currentTimeMillis();
+		int deadline_seconds = settings.getMcp_discovery_deadline_seconds();
+		try {
+			for (var entry : mcps.entrySet()) {
+				String key = entry.getKey();
+				MCPEndpoint endpoint = entry.getValue();
+				if (abandoned_mcps.containsKey(key)) {
+					LOGGER.debug("Skipping abandoned endpoint: {}", key);
+					continue;
+				}
+				validate_single_mcp_endpoint(executor, endpoint, schemas, endpoint_paths, verified_tools, dedup_tool);
 			}
-			validate_single_mcp_endpoint(endpoint, schemas, endpoint_paths, verified_tools, dedup_tool);
+			executor.shutdown();
+			if (!executor.awaitTermination(deadline_seconds, TimeUnit.SECONDS)) {
+				LOGGER.warn("MCP endpoint validation exceeded deadline of {}s, cancelling remaining probes",
+						deadline_seconds);
+			}
+		} catch (InterruptedException e) {
+			LOGGER.warn("Interrupted while validating MCP endpoints");
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
 		}
+		LOGGER.info("Validated {} MCP endpoint candidates in {} ms", mcps.size(), System.currentTimeMillis() - start);
 	}
 
 	private static List<String> get_mcp_endpoint_paths() {
@@ -225,29 +620,56 @@ public class OllamaService {
 		return paths;
 	}
 
-	private static void validate_single_mcp_endpoint(MCPEndpoint endpoint,
+	private static void validate_single_mcp_endpoint(ExecutorService executor,
+			MCPEndpoint endpoint,
 			List<String> schemas,
 			List<String> endpoint_paths,
 			Map<String, MCPTool> verified_tools,
 			Map<String, Boolean> dedup_tool) {
+		AtomicBoolean resolved = new AtomicBoolean(false);
+		List<Future<?>> probes = new ArrayList<>();
 		for (String path : endpoint_paths) {
 			for (String schema : schemas) {
 				if (should_skip_schema(endpoint.getHost(), schema)) {
 					continue;
 				}
-				String mcp_url = String.format("%s://%s:%d", schema, endpoint.getHost(), endpoint.getPort());
-				LOGGER.info("Testing MCP endpoint: {} with path: {}", mcp_url, path);
-				try {
-					ListToolsResult tools = MCPUtils.listToolFromMCPEndpoint(
-							mcp_url, path, MCP_LIST_TOOLS_TIMEOUT.toSeconds());
-					if (tools != null && !tools.tools().isEmpty()) {
-						register_mcp_tools(tools, mcp_url, endpoint, schema, path, verified_tools, dedup_tool);
-						return;
+				synchronized (probes) {
+					final int probe_index = probes.size();
+					probes.add(executor.submit(() -> probe_mcp_endpoint(endpoint, schema, path, resolved,
+							probes, probe_index, verified_tools, dedup_tool)));
+				}
+			}
+		}
+	}
+
+	private static void probe_mcp_endpoint(MCPEndpoint endpoint,
+			String schema,
+			String path,
+			AtomicBoolean resolved,
+			List<Future<?>> probes,
+			int probe_index,
+			Map<String, MCPTool> verified_tools,
+			Map<String, Boolean> dedup_tool) {
+		if (resolved.get()) {
+			return;
+		}
+		String mcp_url = String.format("%s://%s:%d", schema, endpoint.getHost(), endpoint.getPort());
+		LOGGER.info("Testing MCP endpoint: {} with path: {}", mcp_url, path);
+		try {
+			ListToolsResult tools = MCPUtils.listToolFromMCPEndpoint(
+					mcp_url, path, MCP_LIST_TOOLS_TIMEOUT.toSeconds());
+			if (tools != null && !tools.tools().isEmpty() && resolved.compareAndSet(false, true)) {
+				register_mcp_tools(tools, mcp_url, endpoint, schema, path, verified_tools, dedup_tool);
+				synchronized (probes) {
+					for (int i = 0; i < probes.size(); i++) {
+						if (i != probe_index) {
+							probes.get(i).cancel(true);
+						}
 					}
-				} catch (Exception e) {
-					LOGGER.debug("Failed to list tools from {}: {}", mcp_url, e.getMessage());
 				}
 			}
+		} catch (Exception e) {
+			LOGGER.debug("Failed to list tools from {}: {}", mcp_url, e.getMessage());
 		}
 	}
 
@@ -262,16 +684,190 @@ public class OllamaService {
 			String path,
 			Map<String, MCPTool> verified_tools,
 			Map<String, Boolean> dedup_tool) {
+		Map<String, MCPTool> endpoint_tools = new TreeMap<>();
 		for (Tool tool : tools.tools()) {
 			String tool_str = MCPUtils.prettyPrint(tools, tool.name());
 			String tool_key = mcp_url + "-" + tool.name();
 			MCPEndpoint tool_endpoint = new MCPEndpoint(schema, endpoint.getHost(), endpoint.getPort(), path);
-			verified_tools.put(tool_key, new MCPTool(tool.name(), tool_str, tool_endpoint));
-			if (!dedup_tool.containsKey(tool.name())) {
-				LOGGER.info("Discovered MCP tool: {}", tool.name());
-				dedup_tool.put(tool.name(), true);
+			endpoint_tools.put(tool_key, new MCPTool(tool.name(), tool_str, tool_endpoint));
+		}
+		synchronized (verified_tools) {
+			verified_tools.putAll(endpoint_tools);
+			for (MCPTool tool : endpoint_tools.values()) {
+				if (!dedup_tool.containsKey(tool.getToolname())) {
+					LOGGER.info("Discovered MCP tool: {}", tool.getToolname());
+					dedup_tool.put(tool.getToolname(), true);
+				}
 			}
 		}
+
+		known_mcp_endpoints.put(endpoint.getHost() + ":" + endpoint.getPort(),
+				new KnownMCPEndpoint(new MCPEndpoint(schema, endpoint.getHost(), endpoint.getPort(), path),
+						endpoint_tools, fingerprint_mcp_tools(tools)));
+
+		// Make the tools usable right away, wire_mcps() swaps in the complete index once validation ends
+		lock.writeLock().lock();
+		try {
+			Map<String, MCPTool> updated = new TreeMap<>(mcp_tool_index.getTools());
+			updated.putAll(endpoint_tools);
+			publish_mcp_tools(updated);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Publishes a new version of the tool index, compiled against the current trusted/filtered settings.
+	 */
+	private static void publish_mcp_tools(Map<String, MCPTool> tools) {
+		lock.writeLock().lock();
+		try {
+			mcp_tool_index = McpToolIndex.build(mcp_tool_index_version.incrementAndGet(), tools,
+					settings.getTrusted_mcp_toolnames_csv(), settings.getFiltered_mcp_toolnames_csv());
+			LOGGER.debug("Published MCP tool index version {} with {} tools", mcp_tool_index.getVersion(), tools.size());
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Current tool index, recompiled if the trusted/filtered settings changed since it was published.
+	 */
+	private static McpToolIndex current_mcp_tool_index() {
+		McpToolIndex index = mcp_tool_index;
+		if (index.isCompiledFor(settings.getTrusted_mcp_toolnames_csv(), settings.getFiltered_mcp_toolnames_csv())) {
+			return index;
+		}
+		lock.writeLock().lock();
+		try {
+			if (!mcp_tool_index.isCompiledFor(settings.getTrusted_mcp_toolnames_csv(), settings.getFiltered_mcp_toolnames_csv())) {
+				mcp_tool_index = mcp_tool_index.withSettings(mcp_tool_index_version.incrementAndGet(),
+						settings.getTrusted_mcp_toolnames_csv(), settings.getFiltered_mcp_toolnames_csv());
+			}
+			return mcp_tool_index;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private static String fingerprint_mcp_tools(ListToolsResult tools) {
+		List<String> entries = new ArrayList<>();
+		for (Tool tool : tools.tools()) {
+			entries.add(tool.name() + "=" + MCPUtils.prettyPrint(tools, tool.name()));
+		}
+		entries.sort(String::compareTo);
+		return OllamaUtils.compute_sha256_hash(String.join("|", entries));
+	}
+
+	/**
+	 * Incrementally refreshes the MCP tool index. Known endpoints get a cheap TCP liveness check and
+	 * are only re-listed when they reconnect or their listing is older than MCP_RELIST_INTERVAL,
+	 * the full network sweep for new endpoints runs every MCP_SWEEP_INTERVAL. The index is swapped
+	 * atomically when anything changed.
+	 *
+	 * @return true if MCP tools are available after the refresh
+	 */
+	public static boolean refresh_mcps() {
+		long start = System.currentTimeMillis();
+		int relisted = 0;
+		int lost = 0;
+		int discovered = 0;
+		boolean changed = false;
+
+		for (KnownMCPEndpoint known : known_mcp_endpoints.values()) {
+			MCPEndpoint ep = known.endpoint;
+			if (!NetUtilsLocal.isPortOpen(ep.getHost(), ep.getPort(), MCP_LIVENESS_TIMEOUT_MS)) {
+				if (known.reachable) {
+					LOGGER.warn("MCP endpoint {}:{} is no longer reachable", ep.getHost(), ep.getPort());
+					known.reachable = false;
+					lost++;
+					changed = true;
+				}
+				continue;
+			}
+
+			boolean reconnected = !known.reachable;
+			if (!reconnected && (start - known.last_listed) < MCP_RELIST_INTERVAL.toMillis()) {
+				continue;
+			}
+
+			String mcp_url = String.format("%s://%s:%d", ep.getSchema(), ep.getHost(), ep.getPort());
+			relisted++;
+			try {
+				ListToolsResult tools = MCPUtils.listToolFromMCPEndpoint(mcp_url, ep.getPath(), MCP_LIST_TOOLS_TIMEOUT.toSeconds());
+				if (tools == null || tools.tools().isEmpty()) {
+					throw new IllegalStateException("no tools listed");
+				}
+				if (reconnected || !fingerprint_mcp_tools(tools).equals(known.tool_fingerprint)) {
+					LOGGER.info("MCP endpoint {} {}, updating its tools", mcp_url, reconnected ? "reconnected" : "changed");
+					register_mcp_tools(tools, mcp_url, ep, ep.getSchema(), ep.getPath(), new TreeMap<>(), new HashMap<>());
+					changed = true;
+				} else {
+					known.last_listed = start;
+				}
+			} catch (Exception e) {
+				LOGGER.warn("Failed to re-list tools from {}: {}", mcp_url, e.getMessage());
+				if (known.reachable) {
+					known.reachable = false;
+					lost++;
+					changed = true;
+				}
+			}
+		}
+
+		boolean sweep_due = (start - last_mcp_sweep) >= MCP_SWEEP_INTERVAL.toMillis();
+		if (sweep_due) {
+			last_mcp_sweep = start;
+			Map<String, MCPEndpoint> candidates = discover_mcp_endpoints(new TreeMap<>());
+			candidates.values().removeIf(ep -> known_mcp_endpoints.containsKey(ep.getHost() + ":" + ep.getPort()));
+			if (!candidates.isEmpty()) {
+				int known_before = known_mcp_endpoints.size();
+				validate_mcp_endpoints(candidates, new TreeMap<>(), new TreeMap<>(), new HashMap<>());
+				discovered = known_mcp_endpoints.size() - known_before;
+				changed = changed || (discovered > 0);
+			}
+		}
+
+		if (changed) {
+			publish_known_mcp_tools();
+			save_endpoint_registry();
+		}
+
+		LOGGER.info("MCP refresh took {} ms: {} known endpoints, {} re-listed, {} lost, {} new, sweep {}, index {}",
+				System.currentTimeMillis() - start, known_mcp_endpoints.size(), relisted, lost, discovered,
+				sweep_due ? "done" : "skipped", changed ? "swapped" : "unchanged");
+
+		return !mcp_tool_index.isEmpty();
+	}
+
+	/**
+	 * Publishes the tools of every reachable known MCP endpoint.
+	 */
+	private static void publish_known_mcp_tools() {
+		Map<String, MCPTool> updated = new TreeMap<>();
+		for (KnownMCPEndpoint known : known_mcp_endpoints.values()) {
+			if (known.reachable) {
+				updated.putAll(known.tools);
+			}
+		}
+		publish_mcp_tools(updated);
+	}
+
+	/**
+	 * Book-keeping for an MCP endpoint whose schema and path have been resolved.
+	 */
+	private static final class KnownMCPEndpoint {
+		final MCPEndpoint endpoint;
+		final Map<String, MCPTool> tools;
+		final String tool_fingerprint;
+		volatile boolean reachable = true;
+		volatile long last_listed = System.currentTimeMillis();
+
+		KnownMCPEndpoint(MCPEndpoint endpoint, Map<String, MCPTool> tools, String tool_fingerprint) {
+			this.endpoint = endpoint;
+			this.tools = tools;
+			this.tool_fingerprint = tool_fingerprint;
+		}
 	}
 
 	// ========== OLLAMA ENDPOINT DISCOVERY ==========
@@ -290,16 +886,17 @@ public class OllamaService {
 		boolean found_ollamas = false;
 		int attempt_counter = 0;
 		boolean abort = false;
-		Map<String, OllamaEndpoint> verified_ollamas = new TreeMap<>();
-		Map<String, OllamaEndpoint> abandoned_ollamas = new TreeMap<>();
-		Set<String> seen_fingerprints = new TreeSet<>();
+		// shared by the concurrent endpoint validations
+		Map<String, OllamaEndpoint> verified_ollamas = new ConcurrentSkipListMap<>();
+		Map<String, OllamaEndpoint> abandoned_ollamas = new ConcurrentSkipListMap<>();
+		Set<String> seen_fingerprints = new ConcurrentSkipListSet<>();
 
 		while (!found_ollamas && !abort) {
 			Map<String, OllamaEndpoint> candidates = discover_ollama_endpoints(abandoned_ollamas);
 
 			if (candidates.isEmpty() && (settings.getSatellites() == null) && (settings.getOrchestrator_url() == null)) {
 				LOGGER.warn("No Ollama hosts found on port {} in networks {}",
-						settings.getOllama_port(), service_cnets);
+						settings.getOllama_port(), service_ranges);
 				SystemUtils.sleepInSeconds((int) RETRY_DELAY.toSeconds());
 			} else {
 				if (block_until_ready) {
@@ -313,12 +910,14 @@ public class OllamaService {
 					try {
 						ollama_endpoints.clear();
 						ollama_endpoints.putAll(verified_ollamas);
+						publish_active_ollama_endpoints();
 						registered_ollama_fingerprints.clear();
 						registered_ollama_fingerprints.addAll(seen_fingerprints);
 					} finally {
 						lock.writeLock().unlock();
 					}
 					found_ollamas = true;
+					save_endpoint_registry();
 					if (block_until_ready) {
 						LOGGER.info("Verified Ollama endpoints: {}", verified_ollamas.keySet());
 						LOGGER.info("Unique Ollama servers (by fingerprint): {}", seen_fingerprints.size());
@@ -347,9 +946,12 @@ public class OllamaService {
 			Map<String, OllamaEndpoint> abandoned_ollamas) {
 		Map<String, OllamaEndpoint> endpoints = new TreeMap<>();
 		if (settings.isOllama_scan()) {
-			endpoints = NetUtilsLocal.performTCPPortSweepForOllama(
-					settings.getOllama_port(), service_cnets, 1, 255, 10, THREAD_POOL_COUNT,
-					settings.getOllama_username(), settings.getOllama_password());
+			Map<String, OllamaEndpoint> found = new TreeMap<>();
+			NetUtilsLocal.performCIDRSweepForOllama(settings.getOllama_port(), get_service_ranges(),
+					settings.getDiscovery_exclude_cidrs(), SWEEP_CONNECT_TIMEOUT_MS, settings.getDiscovery_max_connects_per_second(),
+					settings.getOllama_username(), settings.getOllama_password(),
+					endpoint -> found.put(endpoint.getOllama_url(), endpoint));
+			endpoints = found;
 		}
 		add_satellite_ollamas(endpoints, abandoned_ollamas);
 		add_orchestrator_ollamas(endpoints, abandoned_ollamas);
@@ -379,66 +981,171 @@ public class OllamaService {
 			return;
 		}
 		LOGGER.info("Fetching orchestrator Ollama endpoints");
-		String json = HttpRequestUtils.getBodyUsingGETUrlRequestOpportunistic(settings.getOrchestrator_url());
-		System.out.println(json);
-		OrchestratorStatus status = JSONUtils.createPOJOFromJSONOpportunistic(json, OrchestratorStatus.class);
-		if (null != status) {
-			for (Server server: status.getServers()) {
-				System.out.println("Looking at server " + server.getName() + " with URL " + server.getUrl());
-				if (abandoned_ollamas.containsKey(server.getUrl())) {
-					LOGGER.debug("Skipping abandoned satellite: {}", server.getUrl());
-					continue;
-				}
-				if (!endpoints.containsKey(server.getUrl())) {
-					LOGGER.info("Adding orchestrator Ollama endpoint: {}", server.getUrl());
-					endpoints.put(server.getUrl(), new OllamaEndpoint(server.getUrl(), "", ""));
+		OrchestratorRouter router = get_orchestrator_router();
+		router.refresh();
+		for (Server server : router.getServers()) {
+			LOGGER.debug("Looking at server {} with URL {}", server.getName(), server.getUrl());
+			if (!server.isHealthy() || server.getUrl() == null) {
+				LOGGER.debug("Skipping unhealthy orchestrator server: {}", server.getName());
+				continue;
+			}
+			if (abandoned_ollamas.containsKey(server.getUrl())) {
+				LOGGER.debug("Skipping abandoned satellite: {}", server.getUrl());
+				continue;
+			}
+			if (!endpoints.containsKey(server.getUrl())) {
+				LOGGER.info("Adding orchestrator Ollama endpoint: {}", server.getUrl());
+				endpoints.put(server.getUrl(), new OllamaEndpoint(server.getUrl(), "", ""));
+			}
+		}
+	}
+
+	/**
+	 * Router for orchestrator_url, started on first use and polling in the background.
+	 */
+	private static OrchestratorRouter get_orchestrator_router() {
+		OrchestratorRouter router = orchestrator_router;
+		if (router == null && settings.getOrchestrator_url() != null) {
+			synchronized (OllamaService.class) {
+				if (orchestrator_router == null) {
+					orchestrator_router = new OrchestratorRouter(settings.getOrchestrator_url());
+					orchestrator_router.start(TimeUnit.SECONDS.toMillis(settings.getOrchestrator_poll_interval_seconds()));
 				}
+				router = orchestrator_router;
 			}
 		}
+		return router;
 	}
 
+	/**
+	 * Validates all candidate endpoints concurrently, each endpoint runs its own model sanity checks
+	 * limited by ollama_validation_concurrency. The maps and set passed in must be thread-safe.
+	 */
 	private static void validate_ollama_endpoints(Map<String, OllamaEndpoint> candidates,
 			Map<String, OllamaEndpoint> abandoned_ollamas,
 			Map<String, OllamaEndpoint> verified_ollamas,
 			Set<String> seen_fingerprints) {
-		for (var entry : candidates.entrySet()) {
-			String url = entry.getKey();
-			OllamaEndpoint endpoint = entry.getValue();
-			if (abandoned_ollamas.containsKey(url)) {
-				LOGGER.debug("Skipping abandoned endpoint: {}", url);
-				continue;
+		if (candidates.isEmpty()) {
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(THREAD_POOL_COUNT, candidates.size()));
+		List<Future<?>> validations = new ArrayList<>();
+		long start = System.currentTimeMillis();
+		try {
+			for (var entry : candidates.entrySet()) {
+				String url = entry.getKey();
+				OllamaEndpoint endpoint = entry.getValue();
+				if (abandoned_ollamas.containsKey(url)) {
+					LOGGER.debug("Skipping abandoned endpoint: {}", url);
+					continue;
+				}
+				validations.add(executor.submit(() -> {
+					if (validate_single_ollama_endpoint(endpoint, abandoned_ollamas, seen_fingerprints)) {
+						verified_ollamas.put(url, endpoint);
+					}
+				}));
 			}
-			if (validate_single_ollama_endpoint(endpoint, abandoned_ollamas, seen_fingerprints)) {
-				verified_ollamas.put(url, endpoint);
+			for (Future<?> validation : validations) {
+				try {
+					validation.get();
+				} catch (ExecutionException e) {
+					LOGGER.warn("Ollama endpoint validation failed: {}", e.getCause().getMessage());
+				}
 			}
+		} catch (InterruptedException e) {
+			LOGGER.warn("Interrupted while validating Ollama endpoints");
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
 		}
+		LOGGER.info("Validated {} Ollama endpoint candidates in {} ms", validations.size(), System.currentTimeMillis() - start);
 	}
 
-	// ========== OLLAMA FINGERPRINTING ==========
+	// ========== OLLAMA ENDPOINT HEALTH ==========
 
 	/**
-	 * Generates a fingerprint hash for an Ollama server based on its available models.
-	 * The fingerprint is created by sorting model names alphabetically, joining them,
-	 * and computing a SHA-256 hash. This allows identification of the same server
-	 * even when accessed via different IPs.
+	 * Removes an unhealthy endpoint from the active set without touching the others. Its validation
+	 * record is kept so restore_ollama_endpoint() can bring it back without a full rewire.
 	 *
-	 * @param api the Ollama API connection
-	 * @return a fingerprint hash string, or null if models cannot be retrieved
+	 * @return true if the endpoint was active
 	 */
-	private static String generate_ollama_fingerprint(Ollama api) {
+	public static boolean evict_ollama_endpoint(String url) {
+		lock.writeLock().lock();
 		try {
-			List<String> models = OllamaUtils.getModelsAvailable(api);
-			if (models == null || models.isEmpty()) {
-				return "empty";
-			}
-			List<String> sorted_models = new ArrayList<>(models);
-			sorted_models.sort(String::compareTo);
-			String model_list = String.join("|", sorted_models);
-			return OllamaUtils.compute_sha256_hash(model_list);
-		} catch (Exception e) {
-			LOGGER.debug("Failed to generate fingerprint: {}", e.getMessage());
+			if (ollama_endpoints.remove(url) == null) {
+				return false;
+			}
+			publish_active_ollama_endpoints();
+			RegisteredOllamaEndpoint validated = validated_ollamas.get(url);
+			if (validated != null) {
+				registered_ollama_fingerprints.remove(validated.getFingerprint());
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+		OllamaUtils.release_connections(url);
+		LOGGER.warn("Evicted unhealthy Ollama endpoint {}", url);
+		return true;
+	}
+
+	/**
+	 * Puts a previously validated endpoint back into the active set once it responds again. The
+	 * endpoint is only restored if its models are unchanged, otherwise it has to go through
+	 * validation again on the next rewire.
+	 *
+	 * @return true if the endpoint is active after the call
+	 */
+	public static boolean restore_ollama_endpoint(OllamaEndpoint endpoint) {
+		String url = endpoint.getOllama_url();
+		RegisteredOllamaEndpoint validated = validated_ollamas.get(url);
+		if (validated == null) {
+			return false;
+		}
+		ModelInventory inventory = OllamaUtils.getModelInventory(OllamaUtils.createConnection(endpoint, settings.getOllama_timeout()), 1);
+		if (inventory == null || !inventory.getFingerprint().equals(validated.getFingerprint())) {
+			LOGGER.info("Models on Ollama endpoint {} changed while it was down, leaving it to rediscovery", url);
+			validated_ollamas.remove(url);
+			return false;
+		}
+		model_inventories.put(url, inventory);
+		lock.writeLock().lock();
+		try {
+			if (!ollama_endpoints.containsKey(url) && !registered_ollama_fingerprints.add(validated.getFingerprint())) {
+				return false; // same server already active under another URL
+			}
+			ollama_endpoints.put(url, endpoint);
+			publish_active_ollama_endpoints();
+		} finally {
+			lock.writeLock().unlock();
+		}
+		LOGGER.info("Restored Ollama endpoint {}", url);
+		return true;
+	}
+
+	// ========== OLLAMA MODEL INVENTORY ==========
+
+	/**
+	 * Lists the models on an endpoint with a single /api/tags call and stores the inventory.
+	 * An unchanged inventory is kept as-is, otherwise the added, removed or re-pulled models
+	 * are logged. The inventory fingerprint (model names and digests) identifies the server
+	 * even when it is accessed via different IPs.
+	 *
+	 * @return the current inventory, or null if the models could not be listed
+	 */
+	private static ModelInventory refresh_model_inventory(String url, Ollama api) {
+		ModelInventory fresh = OllamaUtils.getModelInventory(api);
+		if (fresh == null) {
 			return null;
 		}
+		ModelInventory previous = model_inventories.get(url);
+		if (previous != null && previous.getFingerprint().equals(fresh.getFingerprint())) {
+			return previous;
+		}
+		if (previous != null) {
+			LOGGER.info("Model inventory of {} changed: {}", url, fresh.changedSince(previous));
+		}
+		model_inventories.put(url, fresh);
+		return fresh;
 	}
 
 	// ========== OLLAMA VALIDATION ==========
@@ -456,36 +1163,38 @@ public class OllamaService {
 			}
 			LOGGER.info("Ollama endpoint {} responded to ping", url);
 
-			// Generate fingerprint based on available models
-			List<String> available_models = OllamaUtils.getModelsAvailable(api);
-			LOGGER.info("Available models on {}: {}", url, available_models);
-
-			String fingerprint = generate_ollama_fingerprint(api);
-			if (fingerprint == null) {
-				LOGGER.warn("Could not generate fingerprint for {}, skipping", url);
+			// Generate fingerprint based on the installed models and their digests
+			ModelInventory inventory = refresh_model_inventory(url, api);
+			if (inventory == null) {
+				LOGGER.warn("Could not list models for {}, skipping", url);
 				return false;
 			}
+			List<String> available_models = inventory.getModelNames();
+			LOGGER.info("Available models on {}: {}", url, available_models);
+
+			String fingerprint = inventory.getFingerprint();
 			LOGGER.info("Ollama server fingerprint for {}: {}", url, fingerprint);
 
-			// Check for duplicate server on different IP
-			if (seen_fingerprints.contains(fingerprint)) {
+			// Check for duplicate server on different IP, registering the fingerprint before
+			// validation so concurrent validations of the same server do not both proceed
+			if (!seen_fingerprints.add(fingerprint)) {
 				LOGGER.info("Skipping duplicate Ollama server at {} (fingerprint {} already registered)", url, fingerprint);
 				return false;
 			}
-
-			// Register fingerprint before validation to prevent duplicate attempts
-			seen_fingerprints.add(fingerprint);
 			LOGGER.debug("Registered fingerprint {} for endpoint {}", fingerprint, url);
 
 			if (settings.isOllama_skip_paris_validation()) {
 				LOGGER.info("Quick boot mode: skipping model validation for {}", url);
+				validated_ollamas.put(url, new RegisteredOllamaEndpoint(url, fingerprint, available_models, System.currentTimeMillis()));
 				return true;
 			}
 
-			boolean valid = validate_required_models(api, endpoint, abandoned_ollamas);
+			boolean valid = validate_required_models(api, endpoint, inventory, abandoned_ollamas);
 			if (!valid) {
 				seen_fingerprints.remove(fingerprint);
 				LOGGER.debug("Removed fingerprint {} due to validation failure", fingerprint);
+			} else {
+				validated_ollamas.put(url, new RegisteredOllamaEndpoint(url, fingerprint, available_models, System.currentTimeMillis()));
 			}
 			return valid;
 		} catch (Exception e) {
@@ -494,19 +1203,52 @@ public class OllamaService {
 		}
 	}
 
+	/**
+	 * Validates every configured model on one endpoint, running up to ollama_validation_concurrency
+	 * sanity checks at once. Stops at the first model that fails.
+	 */
 	private static boolean validate_required_models(Ollama api,
 			OllamaEndpoint endpoint,
+			ModelInventory inventory,
 			Map<String, OllamaEndpoint> abandoned_ollamas) {
-		String[] models = settings.getOllama_models().split(",");
-		for (String model_name : models) {
-			if (model_name.length() <= MIN_MODEL_NAME_LENGTH) {
-				continue;
+		List<String> models = new ArrayList<>();
+		for (String model_name : settings.getOllama_models().split(",")) {
+			if (model_name.length() > MIN_MODEL_NAME_LENGTH) {
+				models.add(model_name);
 			}
-			if (!validate_model(api, endpoint, model_name, abandoned_ollamas)) {
-				return false;
+		}
+
+		int concurrency = Math.min(settings.getOllama_validation_concurrency(), models.size());
+		if (concurrency <= 1) {
+			for (String model_name : models) {
+				if (!validate_model(api, endpoint, model_name, inventory, abandoned_ollamas)) {
+					return false;
+				}
 			}
+			return true;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+		try {
+			List<Future<Boolean>> checks = new ArrayList<>();
+			for (String model_name : models) {
+				checks.add(executor.submit(() -> validate_model(api, endpoint, model_name, inventory, abandoned_ollamas)));
+			}
+			for (Future<Boolean> check : checks) {
+				if (!check.get()) {
+					return false;
+				}
+			}
+			return true;
+		} catch (ExecutionException e) {
+			LOGGER.warn("Model validation failed on {}: {}", endpoint.getOllama_url(), e.getCause().getMessage());
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			executor.shutdownNow();
 		}
-		return true;
 	}
 
 	public static String formatGuardInput(String model_name, String text) {
@@ -519,13 +1261,21 @@ public class OllamaService {
 	private static boolean validate_model(Ollama api,
 			OllamaEndpoint endpoint,
 			String model_name,
+			ModelInventory inventory,
 			Map<String, OllamaEndpoint> abandoned_ollamas) {
 		String url = endpoint.getOllama_url();
 
-		if (!OllamaUtils.verifyModelAvailable(api, model_name)) {
+		if (!inventory.hasModel(model_name)) {
 			return handle_missing_model(api, endpoint, model_name, abandoned_ollamas);
 		}
 
+		String digest = inventory.getDigest(model_name);
+		String sanity_key = inventory.getFingerprint() + "|" + model_name + "@" + digest;
+		if (digest != null && passed_sanity_checks.contains(sanity_key)) {
+			LOGGER.info("Model {} at {} unchanged since its last sanity check, skipping", model_name, url);
+			return true;
+		}
+
 		LOGGER.info("Performing sanity check on model {} at {}", model_name, url);
 		HashMap<String, Boolean> expected_answers = new HashMap<String, Boolean>();
 
@@ -557,6 +1307,9 @@ public class OllamaService {
 				abandoned_ollamas.put(url, endpoint);
 				return false;
 			} else {
+				if (digest != null) {
+					passed_sanity_checks.add(sanity_key);
+				}
 				return true;
 			}
 		}
@@ -577,6 +1330,9 @@ public class OllamaService {
 		}
 
 		LOGGER.info("Successfully verified model {} at {}", model_name, url);
+		if (digest != null) {
+			passed_sanity_checks.add(sanity_key);
+		}
 
 		// Unload the model after validation
 		try {
@@ -605,7 +1361,8 @@ public class OllamaService {
 
 		LOGGER.warn("Model {} not found on {}. Attempting to pull...", model_name, url);
 		boolean pull_success = OllamaUtils.pullModel(api, model_name);
-		if (pull_success && OllamaUtils.verifyModelAvailable(api, model_name)) {
+		ModelInventory inventory = pull_success ? refresh_model_inventory(url, api) : null;
+		if (inventory != null && inventory.hasModel(model_name)) {
 			LOGGER.info("Successfully pulled model {}", model_name);
 			return true;
 		}
@@ -664,9 +1421,26 @@ public class OllamaService {
 		lock.writeLock().lock();
 		try {
 			ollama_endpoints.clear();
-			mcp_tools.clear();
+			publish_active_ollama_endpoints();
+			mcp_tool_index = McpToolIndex.EMPTY;
+			known_mcp_endpoints.clear();
+			last_mcp_sweep = 0L;
 			registered_ollama_fingerprints.clear();
+			validated_ollamas.clear();
+			passed_sanity_checks.clear();
+			model_inventories.clear();
 			service_cnets.clear();
+			service_ranges.clear();
+			if (orchestrator_router != null) {
+				orchestrator_router.stop();
+				orchestrator_router = null;
+			}
+			routing_policy = null;
+			if (satellite_watcher != null) {
+				satellite_watcher.stop();
+				satellite_watcher = null;
+			}
+			OllamaTransport.closeAll();
 			settings = new OllamaDramaSettings();
 			single_instance = null;
 			LOGGER.info("OllamaService singleton destroyed and state cleared");
@@ -729,10 +1503,26 @@ public class OllamaService {
 			boolean make_tools_available) {
 		validate_model_name(model_name);
 		validate_model_in_settings(model_name);
+		return get_strict_protocol_session(model_name, select_ollama_endpoint(model_name), hide_llm_reply_if_uncertain,
+				use_random_seed, initial_prompt, make_tools_available);
+	}
+
+	/**
+	 * Creates a strict protocol session on an endpoint the caller already selected, e.g. to take
+	 * a per-endpoint lock before the session sends its system prompt.
+	 */
+	public static OllamaSession get_strict_protocol_session(String model_name,
+			OllamaEndpoint endpoint,
+			boolean hide_llm_reply_if_uncertain,
+			boolean use_random_seed,
+			String initial_prompt,
+			boolean make_tools_available) {
+		validate_model_name(model_name);
+		validate_model_in_settings(model_name);
 		String system_prompt = build_system_prompt(model_name, make_tools_available, initial_prompt);
 		return new OllamaSession(
 				model_name,
-				get_random_active_ollama_url(),
+				endpoint,
 				Globals.createStrictOptionsBuilder(model_name, use_random_seed, settings.getN_ctx_override(), settings.getTemperature_override()),
 				settings, system_prompt, SessionType.STRICTPROTOCOL, make_tools_available);
 	}
@@ -786,7 +1576,7 @@ public class OllamaService {
 
 		return new OllamaSession(
 				model_name,
-				get_random_active_ollama_url(),
+				select_ollama_endpoint(model_name),
 				Globals.createCreativeOptionsBuilder(model_name, settings.getN_ctx_override(), seed),
 				settings,
 				system_prompt,
@@ -805,7 +1595,7 @@ public class OllamaService {
 		validate_model_in_settings(model_name);
 		return new OllamaSession(
 				model_name,
-				get_random_active_ollama_url(),
+				select_ollama_endpoint(model_name),
 				Globals.createDefaultOptionsBuilder(),
 				settings, "", SessionType.DEFAULT, false);
 	}
@@ -836,138 +1626,114 @@ public class OllamaService {
 
 	// ========== MCP TOOL ACCESS ==========
 
+	/**
+	 * Picks the Ollama endpoint for a new session. A custom routing policy decides alone if one
+	 * is set, otherwise the orchestrator router (if configured) is asked first and the
+	 * model-aware default policy second. Falls back to a random active endpoint and blocks
+	 * until at least one endpoint is available.
+	 */
+	public static OllamaEndpoint select_ollama_endpoint(String model_name) {
+		Map<String, OllamaEndpoint> active = active_ollama_endpoints;
+		if (active.isEmpty()) {
+			return get_random_active_ollama_url();
+		}
+
+		OllamaEndpoint chosen = null;
+		try {
+			RoutingPolicy policy = routing_policy;
+			if (policy != null) {
+				chosen = policy.select(model_name, active);
+			} else {
+				OrchestratorRouter router = orchestrator_router;
+				if (router != null) {
+					chosen = router.select(model_name, active);
+				}
+				if (chosen == null) {
+					chosen = default_routing_policy.select(model_name, active);
+				}
+			}
+		} catch (Exception e) {
+			LOGGER.warn("Routing policy failed for {}: {}", model_name, e.getMessage());
+		}
+		if (chosen == null) {
+			return get_random_active_ollama_url();
+		}
+		LOGGER.debug("Routed {} to {}", model_name, chosen.getOllama_url());
+		return chosen;
+	}
+
+	/**
+	 * Replaces the endpoint selection for new sessions, null restores the default.
+	 */
+	public static void set_routing_policy(RoutingPolicy policy) {
+		routing_policy = policy;
+	}
+
 	/**
 	 * Gets a random active Ollama endpoint.
 	 * Blocks until at least one endpoint is available.
 	 */
 	public static OllamaEndpoint get_random_active_ollama_url() {
 		while (true) {
-			lock.readLock().lock();
-			try {
-				int size = ollama_endpoints.size();
-				if (size == 0) {
-					lock.readLock().unlock();
-					LOGGER.warn("No Ollama hosts available. Rescanning in 30 seconds...");
-					SystemUtils.sleepInSeconds((int) LONG_RETRY_DELAY.toSeconds());
-					lock.readLock().lock();
-					continue;
-				}
-				int selection = NumUtils.randomNumWithinRangeAsInt(1, size);
-				int index = 1;
-				for (var entry : ollama_endpoints.entrySet()) {
-					if (selection == index) {
-						return entry.getValue();
-					}
-					index++;
-				}
-			} finally {
-				lock.readLock().unlock();
+			List<OllamaEndpoint> active = active_ollama_endpoint_list;
+			if (!active.isEmpty()) {
+				return active.get(ThreadLocalRandom.current().nextInt(active.size()));
 			}
-			LOGGER.warn("Failed to select Ollama host. Retrying...");
+			LOGGER.warn("No Ollama hosts available. Rescanning in 30 seconds...");
 			SystemUtils.sleepInSeconds((int) LONG_RETRY_DELAY.toSeconds());
 		}
 	}
 
 	/**
-	 * Gets a summary of all available MCP tools.
+	 * Republishes the lock-free copies of ollama_endpoints, must be called with the write lock held.
+	 */
+	private static void publish_active_ollama_endpoints() {
+		active_ollama_endpoints = Collections.unmodifiableMap(new TreeMap<>(ollama_endpoints));
+		active_ollama_endpoint_list = List.copyOf(ollama_endpoints.values());
+	}
+
+	/**
+	 * Gets a formatted string of all available MCP tools.
+	 * Pre-rendered once per tool index version.
 	 */
 	public static String get_all_available_mcp_tools() {
-		Map<String, Boolean> unique_tools = new HashMap<>();
-		StringBuilder sb = new StringBuilder("MCP TOOLS AVAILABLE:\n");
-		lock.readLock().lock();
-		try {
-			for (var entry : mcp_tools.entrySet()) {
-				MCPTool tool = entry.getValue();
-				if (is_matching_mcp_tool(tool.getToolname(), settings.getFiltered_mcp_toolnames_csv())) {
-					continue;
-				}
-				if (!unique_tools.containsKey(tool.getToolname())) {
-					String tool_str = tool.getTool_str().replaceAll(" {2,}", " ");
-					sb.append(tool_str).append("\n");
-					unique_tools.put(tool.getToolname(), true);
-				}
-			}
-		} finally {
-			lock.readLock().unlock();
-		}
-		return sb.toString().replaceAll("\n{3,}", "\n\n");
+		return current_mcp_tool_index().getCatalog();
 	}
 
 	/**
 	 * Gets a brief summary of all available MCP tools.
 	 */
 	public static String get_brief_all_available_mcp_tools() {
-		Map<String, Boolean> unique_tools = new HashMap<>();
-		StringBuilder sb = new StringBuilder("MCP TOOLS AVAILABLE:\n");
-		lock.readLock().lock();
-		try {
-			for (var entry : mcp_tools.entrySet()) {
-				MCPTool tool = entry.getValue();
-				if (is_matching_mcp_tool(tool.getToolname(), settings.getFiltered_mcp_toolnames_csv())) {
-					continue;
-				}
-				if (!unique_tools.containsKey(tool.getToolname())) {
-					String tool_name = tool.getToolname();
-					sb.append(" - " + tool_name).append("\n");
-					unique_tools.put(tool.getToolname(), true);
-				}
-			}
-		} finally {
-			lock.readLock().unlock();
-		}
-		return sb.toString().replaceAll("\n{3,}", "\n\n");
+		return current_mcp_tool_index().getBriefCatalog();
 	}
 
 	/**
 	 * Gets all MCP tools, excluding filtered ones.
 	 */
 	public static Map<String, MCPTool> get_mcp_tools() {
-		Map<String, MCPTool> filtered_tools = new TreeMap<>();
-		lock.readLock().lock();
-		try {
-			for (var entry : mcp_tools.entrySet()) {
-				MCPTool tool = entry.getValue();
-				if (!is_matching_mcp_tool(tool.getToolname(), settings.getFiltered_mcp_toolnames_csv())) {
-					filtered_tools.put(entry.getKey(), tool);
-				}
-			}
-		} finally {
-			lock.readLock().unlock();
-		}
-		return filtered_tools;
+		return new TreeMap<>(current_mcp_tool_index().getVisibleTools());
 	}
 
 	/**
 	 * Gets the MCP tool for a specific tool name.
 	 */
 	public static MCPTool get_mcp_url_for_tool(String tool_name) {
-		lock.readLock().lock();
-		try {
-			for (var entry : mcp_tools.entrySet()) {
-				MCPTool tool = entry.getValue();
-				if (tool_name.equals(tool.getToolname())) {
-					return tool;
-				}
-			}
-		} finally {
-			lock.readLock().unlock();
-		}
-		return null;
+		return mcp_tool_index.getTool(tool_name);
 	}
 
 	/**
-	 * Checks if a tool name matches any in the filtered list.
+	 * Checks if a tool name matches any in the given CSV list. The trusted and filtered
+	 * settings are matched against precompiled sets.
 	 */
 	public static boolean is_matching_mcp_tool(String tool_name, String mcp_tool_names) {
-		if (tool_name == null || mcp_tool_names == null) {
-			return false;
-		}
-		for (String filtered_tool : mcp_tool_names.split(",")) {
-			if (tool_name.equals(filtered_tool)) {
-				return true;
-			}
-		}
-		return false;
+		return current_mcp_tool_index().matches(tool_name, mcp_tool_names);
+	}
+
+	/**
+	 * Gets the version of the currently published MCP tool index.
+	 */
+	public static long get_mcp_tool_index_version() {
+		return mcp_tool_index.getVersion();
 	}
 
 	/**
@@ -994,6 +1760,20 @@ public class OllamaService {
 		}
 	}
 
+	/**
+	 * Gets the last listed model inventory of an Ollama endpoint, or an empty one if it was never listed.
+	 */
+	public static ModelInventory get_model_inventory(String ollama_url) {
+		return model_inventories.getOrDefault(ollama_url, ModelInventory.EMPTY);
+	}
+
+	/**
+	 * Checks whether an Ollama endpoint has a model installed, without a round trip to the server.
+	 */
+	public static boolean has_model(String ollama_url, String model_name) {
+		return get_model_inventory(ollama_url).hasModel(model_name);
+	}
+
 	// ========== GETTERS ==========
 
 	public static OllamaDramaSettings get_settings() {
@@ -1009,6 +1789,15 @@ public class OllamaService {
 		}
 	}
 
+	public static List<String> get_service_ranges() {
+		lock.readLock().lock();
+		try {
+			return new ArrayList<>(service_ranges);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
 	public static Map<String, OllamaEndpoint> get_ollama_hosts() {
 		lock.readLock().lock();
 		try {
@@ -1022,36 +1811,51 @@ public class OllamaService {
 		return settings.getOllama_models();
 	}
 
+	/**
+	 * @return connection pool statistics of each Ollama endpoint's shared transport
+	 */
+	public static Map<String, TransportStats> get_transport_stats() {
+		return OllamaTransport.getAllStats();
+	}
+
 	// Package-private for testing
 	static void set_mcp_tools(Map<String, MCPTool> tools) {
-		lock.writeLock().lock();
-		try {
-			mcp_tools.clear();
-			mcp_tools.putAll(tools);
-		} finally {
-			lock.writeLock().unlock();
-		}
+		publish_mcp_tools(tools);
 	}
 
 	public static boolean wireMCPs(boolean block_until_ready) { return wire_mcps(block_until_ready); }
+	public static boolean refreshMCPs() { return refresh_mcps(); }
 	public static boolean wireOllama(boolean block_until_ready) { return wire_ollama(block_until_ready); }
+	public static boolean evictOllamaEndpoint(String u) { return evict_ollama_endpoint(u); }
+	public static boolean restoreOllamaEndpoint(OllamaEndpoint e) { return restore_ollama_endpoint(e); }
+	public static boolean addOllamaEndpoint(OllamaEndpoint e) { return add_ollama_endpoint(e); }
+	public static void removeOllamaEndpoint(String u) { remove_ollama_endpoint(u); }
+	public static SatelliteChanges applySatelliteConfig(SatelliteConfig c) { return apply_satellite_config(c); }
 	public static OllamaDramaSettings getSettings() { return get_settings(); }
 	public static List<String> getService_cnets() { return get_service_cnets(); }
+	public static List<String> getService_ranges() { return get_service_ranges(); }
 	public static Map<String, OllamaEndpoint> getollama_hosts() { return get_ollama_hosts(); }
 	public static OllamaEndpoint getRandomActiveOllamaURL() { return get_random_active_ollama_url(); }
+	public static OllamaEndpoint selectOllamaEndpoint(String m) { return select_ollama_endpoint(m); }
+	public static void setRoutingPolicy(RoutingPolicy p) { set_routing_policy(p); }
 	public static OllamaSession getStrictProtocolSession(String m) { return get_strict_protocol_session(m); }
 	public static OllamaSession getStrictProtocolSession(String m, boolean t) { return get_strict_protocol_session(m, t); }
 	public static OllamaSession getStrictProtocolSession(String m, String p, boolean t) { return get_strict_protocol_session(m, p, t); }
 	public static OllamaSession getStrictProtocolSession(String m, boolean h, boolean r, boolean t) { return get_strict_protocol_session(m, h, r, t); }
 	public static OllamaSession getStrictProtocolSession(String m, boolean h, boolean r) { return get_strict_protocol_session(m, h, r); }
 	public static OllamaSession getStrictProtocolSession(String m, boolean h, boolean r, String p, boolean t) { return get_strict_protocol_session(m, h, r, p, t); }
+	public static OllamaSession getStrictProtocolSession(String m, OllamaEndpoint e, boolean h, boolean r, String p, boolean t) { return get_strict_protocol_session(m, e, h, r, p, t); }
 	public static OllamaSession getDefaultSession(String m) { return get_default_session(m); }
 	public static String getAllAvailableMCPTools() { return get_all_available_mcp_tools(); }
 	public static Map<String, MCPTool> getMcp_tools() { return get_mcp_tools(); }
 	public static void setMcp_tools(Map<String, MCPTool> tools) { set_mcp_tools(tools); }
 	public static MCPTool getMCPURLForTool(String t) { return get_mcp_url_for_tool(t); }
 	public static boolean isMatchingMCPTool(String t, String n) { return is_matching_mcp_tool(t, n); }
+	public static long getMcpToolIndexVersion() { return get_mcp_tool_index_version(); }
+	public static ModelInventory getModelInventory(String u) { return get_model_inventory(u); }
+	public static boolean hasModel(String u, String m) { return has_model(u, m); }
 	public static String getModels() { return get_models(); }
+	public static Map<String, TransportStats> getTransportStats() { return get_transport_stats(); }
 	public static void destroy() { destroyInstance(); }
 	public static OllamaService reset(OllamaDramaSettings s) { return resetInstance(s); }
 }
\ No newline at end of file
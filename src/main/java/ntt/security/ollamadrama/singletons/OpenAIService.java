@@ -80,10 +80,11 @@ public class OpenAIService {
 
         OpenAIClient client = OpenAIOkHttpClient.builder()
                 .apiKey(api_key)
+                .maxRetries(0) // retries go through the shared RateLimiter of the key
                 .build();
 
         LOGGER.info("Creating strict OpenAI session with model: {}", model_name);
-        return new OpenAISession(model_name, client, settings_param);
+        return new OpenAISession(model_name, client, settings_param, RateLimiter.forKey("openai", api_key, settings_param));
     }
 
     /**
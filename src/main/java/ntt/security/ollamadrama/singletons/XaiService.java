@@ -10,6 +10,7 @@ import com.openai.client.okhttp.OpenAIOkHttpClient;
 
 import ntt.security.ollamadrama.config.OllamaDramaSettings;
 import ntt.security.ollamadrama.objects.sessions.OpenAISession;
+import ntt.security.ollamadrama.utils.RateLimiter;
 import ntt.security.ollamadrama.utils.SystemUtils;
 
 /**
@@ -61,11 +62,12 @@ public class XaiService {
 
         OpenAIClient client = OpenAIOkHttpClient.builder()
                 .apiKey(api_key)
+                .maxRetries(0) // retries go through the shared RateLimiter of the key
                 .baseUrl(XAI_BASE_URL)
                 .build();
 
         LOGGER.info("Creating strict xAI session with Grok model: {}", model_name);
-        return new OpenAISession(model_name, client, settings_param);
+        return new OpenAISession(model_name, client, settings_param, RateLimiter.forKey("xai", api_key, settings_param));
     }
 
     public static OpenAISession get_strict_session(String model_name) {
@@ -0,0 +1,99 @@
+package ntt.security.ollamadrama.utils;
+
+/**
+ * IPv4 CIDR block such as 10.20.0.0/22. A bare address is treated as /32.
+ */
+public class CidrRange {
+
+	private final long network;
+	private final int prefix;
+
+	private CidrRange(long network, int prefix) {
+		this.network = network;
+		this.prefix = prefix;
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the block is not a valid IPv4 CIDR
+	 */
+	public static CidrRange parse(String cidr) {
+		if (cidr == null) {
+			throw new IllegalArgumentException("CIDR is null");
+		}
+		String[] parts = cidr.trim().split("/");
+		if (parts.length > 2 || !NetUtilsLocal.isValidIPV4(parts[0])) {
+			throw new IllegalArgumentException("Invalid CIDR: " + cidr);
+		}
+		int prefix = 32;
+		if (parts.length == 2) {
+			try {
+				prefix = Integer.parseInt(parts[1]);
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid CIDR prefix: " + cidr);
+			}
+			if (prefix < 0 || prefix > 32) {
+				throw new IllegalArgumentException("Invalid CIDR prefix: " + cidr);
+			}
+		}
+		return new CidrRange(toLong(parts[0]) & mask(prefix), prefix);
+	}
+
+	public static boolean isValid(String cidr) {
+		try {
+			parse(cidr);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	private static long mask(int prefix) {
+		return prefix == 0 ? 0L : (0xFFFFFFFFL << (32 - prefix)) & 0xFFFFFFFFL;
+	}
+
+	public static long toLong(String ip) {
+		String[] octets = ip.split("\\.");
+		long value = 0;
+		for (String octet : octets) {
+			value = (value << 8) | Integer.parseInt(octet);
+		}
+		return value;
+	}
+
+	public static String toIP(long value) {
+		return ((value >> 24) & 0xFF) + "." + ((value >> 16) & 0xFF) + "." + ((value >> 8) & 0xFF) + "." + (value & 0xFF);
+	}
+
+	/**
+	 * First usable host address, the network address is skipped for blocks larger than /31.
+	 */
+	public long firstHost() {
+		return prefix >= 31 ? network : network + 1;
+	}
+
+	/**
+	 * Last usable host address, the broadcast address is skipped for blocks larger than /31.
+	 */
+	public long lastHost() {
+		long broadcast = network | (~mask(prefix) & 0xFFFFFFFFL);
+		return prefix >= 31 ? broadcast : broadcast - 1;
+	}
+
+	public long hostCount() {
+		return lastHost() - firstHost() + 1;
+	}
+
+	public boolean contains(long ip) {
+		return (ip & mask(prefix)) == network;
+	}
+
+	public boolean contains(String ip) {
+		return NetUtilsLocal.isValidIPV4(ip) && contains(toLong(ip));
+	}
+
+	@Override
+	public String toString() {
+		return toIP(network) + "/" + prefix;
+	}
+
+}
@@ -0,0 +1,87 @@
+package ntt.security.ollamadrama.utils;
+
+import java.util.Random;
+
+import ntt.security.ollamadrama.enums.CircuitState;
+
+/**
+ * Per-endpoint circuit breaker. Opens after failure_threshold consecutive failures, stays open for
+ * an exponentially growing, jittered backoff, then lets a single half-open probe through. A
+ * successful probe closes it, a failed one opens it again with a longer backoff.
+ */
+public class CircuitBreaker {
+
+	private final int failure_threshold;
+	private final long base_open_ms;
+	private final long max_open_ms;
+	private final Random random;
+
+	private CircuitState state = CircuitState.CLOSED;
+	private int consecutive_failures = 0;
+	private int consecutive_opens = 0;
+	private long open_until = 0L;
+
+	public CircuitBreaker(int _failure_threshold, long _base_open_ms, long _max_open_ms) {
+		this(_failure_threshold, _base_open_ms, _max_open_ms, new Random());
+	}
+
+	public CircuitBreaker(int _failure_threshold, long _base_open_ms, long _max_open_ms, Random _random) {
+		this.failure_threshold = Math.max(1, _failure_threshold);
+		this.base_open_ms = Math.max(1L, _base_open_ms);
+		this.max_open_ms = Math.max(this.base_open_ms, _max_open_ms);
+		this.random = _random;
+	}
+
+	/**
+	 * @return true if a probe may be sent now, moves an expired open breaker to half-open
+	 */
+	public synchronized boolean allowProbe(long _now) {
+		switch (state) {
+		case CLOSED:
+			return true;
+		case OPEN:
+			if (_now >= open_until) {
+				state = CircuitState.HALF_OPEN;
+				return true;
+			}
+			return false;
+		default:
+			return false; // half-open probe already in flight
+		}
+	}
+
+	public synchronized CircuitState recordSuccess() {
+		state = CircuitState.CLOSED;
+		consecutive_failures = 0;
+		consecutive_opens = 0;
+		return state;
+	}
+
+	public synchronized CircuitState recordFailure(long _now) {
+		consecutive_failures++;
+		if (state == CircuitState.HALF_OPEN || consecutive_failures >= failure_threshold) {
+			consecutive_opens++;
+			state = CircuitState.OPEN;
+			open_until = _now + backoff_ms();
+		}
+		return state;
+	}
+
+	/**
+	 * Equal jitter: half the exponential backoff is fixed, the other half random.
+	 */
+	private long backoff_ms() {
+		long backoff = Math.min(max_open_ms, base_open_ms << Math.min(consecutive_opens - 1, 20));
+		long half = backoff / 2;
+		return half + (long) (random.nextDouble() * (backoff - half));
+	}
+
+	public synchronized CircuitState getState() {
+		return state;
+	}
+
+	public synchronized long getOpen_until() {
+		return open_until;
+	}
+
+}
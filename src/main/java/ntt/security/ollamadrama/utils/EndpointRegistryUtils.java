@@ -0,0 +1,76 @@
+package ntt.security.ollamadrama.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ntt.security.ollamadrama.objects.EndpointRegistry;
+
+/**
+ * Reads and writes the endpoint registry file used for warm starts.
+ */
+public class EndpointRegistryUtils {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(EndpointRegistryUtils.class);
+
+	/**
+	 * @return the saved registry, or null if the file is missing or unreadable
+	 */
+	public static EndpointRegistry load(String _file) {
+		if (_file == null || _file.isEmpty()) {
+			return null;
+		}
+		Path path = Path.of(_file);
+		if (!Files.isRegularFile(path)) {
+			LOGGER.info("No endpoint registry found at {}", _file);
+			return null;
+		}
+		try {
+			String json = Files.readString(path, StandardCharsets.UTF_8);
+			EndpointRegistry registry = JSONUtils.createPOJOFromJSONOpportunistic(json, EndpointRegistry.class);
+			if (registry == null) {
+				LOGGER.warn("Ignoring unparsable endpoint registry {}", _file);
+			}
+			return registry;
+		} catch (IOException e) {
+			LOGGER.warn("Unable to read endpoint registry {}: {}", _file, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the registry to a temp file next to the target and moves it in place, so a crash
+	 * mid-write never leaves a truncated registry behind.
+	 *
+	 * @return true if the registry was written
+	 */
+	public static boolean save(EndpointRegistry _registry, String _file) {
+		if (_registry == null || _file == null || _file.isEmpty()) {
+			return false;
+		}
+		Path path = Path.of(_file).toAbsolutePath();
+		Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+		try {
+			if (path.getParent() != null) {
+				Files.createDirectories(path.getParent());
+			}
+			Files.writeString(tmp, JSONUtils.createJSONFromPOJO(_registry), StandardCharsets.UTF_8);
+			try {
+				Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+			return true;
+		} catch (IOException e) {
+			LOGGER.warn("Unable to write endpoint registry {}: {}", _file, e.getMessage());
+			return false;
+		}
+	}
+
+}
@@ -82,19 +82,26 @@ public class MCPUtils {
 		return tools;
 	}
 
+	/**
+	 * Calls a tool, retrying under the deadline of this thread. Never returns null: when the retries
+	 * or the deadline run out without a usable reply, an error result carrying the last failure is
+	 * returned.
+	 */
 	public static CallToolResult callToolUsingMCPEndpoint(String _mcp_endpoint, String _mcp_endpoint_path, String _toolname, HashMap<String, Object> _arguments, long _timeout, boolean _halt_on_tool_error) {
 
 		CallToolResult result = null;
+		String last_failure = RetryPolicy.expired() ? "deadline expired before the call" : "no reply";
 		boolean success = false;
 		int trycounter = 0;
-		while (!success && (trycounter <= 5)) {
+		RetryPolicy.Backoff backoff = RetryPolicy.DEFAULT.backoff();
+		while (!success && (trycounter <= 5) && !RetryPolicy.expired()) {
 			try {
 				HttpClientSseClientTransport transport = HttpClientSseClientTransport.builder(_mcp_endpoint)
 						.sseEndpoint(_mcp_endpoint_path)
 						.customizeClient(builder -> builder.connectTimeout(Duration.ofSeconds(30)))
 						.build();
 				McpSyncClient client = McpClient.sync(transport)
-						.requestTimeout(Duration.ofSeconds(_timeout))
+						.requestTimeout(Duration.ofSeconds(RetryPolicy.timeout_seconds(_timeout)))
 						.capabilities(ClientCapabilities.builder().roots(true).build())
 						.build();
 				client.initialize();
@@ -105,9 +112,11 @@ public class MCPUtils {
 
 				if (null == result) {
 					LOGGER.warn("Got an empty result back when calling " + _toolname);
+					last_failure = "empty result";
 				} else {
 					if (null == result.isError()) {
 						LOGGER.warn("Got an null error key back when calling " + _toolname);
+						last_failure = "result without an error flag";
 						System.out.println(result);
 					} else {
 						if (!result.isError()) {
@@ -123,8 +132,8 @@ public class MCPUtils {
 									false) {
 								return result;
 							} else {
-								LOGGER.warn("Tool failure, trycounter: " + trycounter + ", sleeping 10 seconds and will try again." + " result: " + result.toString());
-								SystemUtils.sleepInSeconds(10);
+								LOGGER.warn("Tool failure, trycounter: " + trycounter + ", backing off and will try again." + " result: " + result.toString());
+								if (!backoff.pause()) break;
 							}
 
 						}
@@ -133,17 +142,29 @@ public class MCPUtils {
 				trycounter++;
 			} catch (Exception e) {
 				LOGGER.warn("Caught Exception in callToolUsingMCPEndpoint(): " + e.getMessage());
+				last_failure = e.getClass().getSimpleName() + ": " + e.getMessage();
 
 				if (_halt_on_tool_error) {
 					LOGGER.error("FATAL, instructed to halt on tool error.");
 					SystemUtils.halt();
 				} else {
-					LOGGER.warn("Tool failure, trycounter: " + trycounter + ", sleeping 10 seconds and will try again");
-					SystemUtils.sleepInSeconds(10);
+					LOGGER.warn("Tool failure, trycounter: " + trycounter + ", backing off and will try again");
+					trycounter++;
+					if (!backoff.retry(e)) break;
 				}
 			}
 		}
 
+		if (null == result || null == result.isError()) {
+			if (RetryPolicy.expired()) {
+				last_failure = "deadline expired, last failure: " + last_failure;
+			}
+			LOGGER.warn("Giving up calling " + _toolname + " on " + _mcp_endpoint + ": " + last_failure);
+			return CallToolResult.builder()
+					.addTextContent("Tool call " + _toolname + " failed: " + last_failure)
+					.isError(true)
+					.build();
+		}
 		return result;
 	}
 
@@ -13,6 +13,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 import org.slf4j.Logger;
@@ -25,6 +26,12 @@ public class NetUtilsLocal {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(NetUtilsLocal.class);
 
+	// Port sweep limits, connects are non-blocking so the cap is on sockets rather than threads
+	private static final int SWEEP_MAX_IN_FLIGHT = 1024;
+	private static final int SWEEP_HOST_CONNECTS_PER_SECOND = 20;
+	private static final int SWEEP_SHARD_SIZE = 1024;
+	private static final long SWEEP_PROGRESS_INTERVAL_MS = 5000L;
+
 	public static boolean isValidIPV4(final String ipv4String) {
 		if (null == ipv4String) {
 			return false;
@@ -109,12 +116,201 @@ public class NetUtilsLocal {
 	}
 
 
+	/**
+	 * Sweeps the cnets for hosts listening on the Ollama port. The sweep runs non-blocking on a
+	 * single selector thread, threadPoolCount caps the connects in flight.
+	 */
 	public static TreeMap<String, OllamaEndpoint> performTCPPortSweepForOllama(int port, List<String> cnets, int startIP, int stopIP, int timeout, int threadPoolCount, String _username, String _password) {
 		TreeMap<String, OllamaEndpoint> activeEndpoints = new TreeMap<String, OllamaEndpoint>();
-		if (stopIP<startIP) {
-			LOGGER.error("stopIP (" + stopIP + ") cannot be smaller than startIP (" + startIP + ")");
-			SystemUtils.halt();
+		sweepForOllama(port, cnets, startIP, stopIP, timeout, threadPoolCount, _username, _password,
+				endpoint -> activeEndpoints.put(endpoint.getOllama_url(), endpoint));
+		return activeEndpoints;
+	}
+
+	/**
+	 * Sweeps the cnets for hosts listening on the Ollama port, each endpoint is handed to _on_found
+	 * as soon as its connect succeeds.
+	 */
+	public static void performTCPPortSweepForOllama(int port, List<String> cnets, int startIP, int stopIP, int timeout, String _username, String _password, Consumer<OllamaEndpoint> _on_found) {
+		sweepForOllama(port, cnets, startIP, stopIP, timeout, SWEEP_MAX_IN_FLIGHT, _username, _password, _on_found);
+	}
+
+	private static void sweepForOllama(int port, List<String> cnets, int startIP, int stopIP, int timeout, int max_in_flight, String _username, String _password, Consumer<OllamaEndpoint> _on_found) {
+		checkPort(port);
+		List<InetSocketAddress> targets = new ArrayList<>();
+		for (String ip: sweepIPs(cnets, startIP, stopIP)) {
+			targets.add(new InetSocketAddress(ip, port));
+		}
+		new PortSweeper(max_in_flight, SWEEP_HOST_CONNECTS_PER_SECOND, timeout).sweep(targets, target -> {
+			String url = "http://" + target.getHostString() + ":" + port;
+			_on_found.accept(new OllamaEndpoint(url, _username, _password));
+		});
+	}
+
+	/**
+	 * Sweeps the cnets for hosts listening on any of the MCP ports. The sweep runs non-blocking on
+	 * a single selector thread, threadPoolCount caps the connects in flight.
+	 */
+	public static TreeMap<String, MCPEndpoint> performTCPPortSweepForMCP(List<Integer> list, List<String> cnets, int startIP, int stopIP, int timeout, int threadPoolCount) {
+		TreeMap<String, MCPEndpoint> activeEndpoints = new TreeMap<String, MCPEndpoint>();
+		sweepForMCP(list, cnets, startIP, stopIP, timeout, threadPoolCount,
+				endpoint -> activeEndpoints.put(endpoint.getHost() + "::" + endpoint.getPort(), endpoint));
+		return activeEndpoints;
+	}
+
+	/**
+	 * Sweeps the cnets for hosts listening on any of the MCP ports, each endpoint is handed to _on_found
+	 * as soon as its connect succeeds. Schema and path are not yet verified.
+	 */
+	public static void performTCPPortSweepForMCP(List<Integer> list, List<String> cnets, int startIP, int stopIP, int timeout, Consumer<MCPEndpoint> _on_found) {
+		sweepForMCP(list, cnets, startIP, stopIP, timeout, SWEEP_MAX_IN_FLIGHT, _on_found);
+	}
+
+	private static void sweepForMCP(List<Integer> list, List<String> cnets, int startIP, int stopIP, int timeout, int max_in_flight, Consumer<MCPEndpoint> _on_found) {
+		for (int port: list) {
+			checkPort(port);
 		}
+		List<InetSocketAddress> targets = new ArrayList<>();
+		for (String ip: sweepIPs(cnets, startIP, stopIP)) {
+			for (int port: list) {
+				targets.add(new InetSocketAddress(ip, port));
+			}
+		}
+		new PortSweeper(max_in_flight, SWEEP_HOST_CONNECTS_PER_SECOND, timeout).sweep(targets,
+				target -> _on_found.accept(new MCPEndpoint("", target.getHostString(), target.getPort(), "")));
+	}
+
+	/**
+	 * Sweeps CIDR ranges for hosts listening on the Ollama port, see performCIDRSweep().
+	 */
+	public static void performCIDRSweepForOllama(int port, List<String> cidrs, List<String> exclude_cidrs, int timeout, int max_connects_per_second, String _username, String _password, Consumer<OllamaEndpoint> _on_found) {
+		performCIDRSweep(List.of(port), cidrs, exclude_cidrs, timeout, max_connects_per_second, target -> {
+			String url = "http://" + target.getHostString() + ":" + port;
+			_on_found.accept(new OllamaEndpoint(url, _username, _password));
+		});
+	}
+
+	/**
+	 * Sweeps CIDR ranges for hosts listening on any of the MCP ports, see performCIDRSweep().
+	 * Schema and path are not yet verified.
+	 */
+	public static void performCIDRSweepForMCP(List<Integer> ports, List<String> cidrs, List<String> exclude_cidrs, int timeout, int max_connects_per_second, Consumer<MCPEndpoint> _on_found) {
+		performCIDRSweep(ports, cidrs, exclude_cidrs, timeout, max_connects_per_second,
+				target -> _on_found.accept(new MCPEndpoint("", target.getHostString(), target.getPort(), "")));
+	}
+
+	/**
+	 * Sweeps all host addresses in the CIDR ranges, minus the excluded ranges, on the given ports.
+	 * Targets are swept in shards of SWEEP_SHARD_SIZE so progress is logged as shards complete. The
+	 * sweeper spaces connect starts evenly at max_connects_per_second across all shards.
+	 */
+	public static void performCIDRSweep(List<Integer> ports, List<String> cidrs, List<String> exclude_cidrs, int timeout, int max_connects_per_second, Consumer<InetSocketAddress> _on_open) {
+		for (int port: ports) {
+			checkPort(port);
+		}
+		List<long[]> ranges = mergeRanges(parseCIDRs(cidrs));
+		List<CidrRange> excludes = parseCIDRs(exclude_cidrs);
+		if (ranges.isEmpty() || ports.isEmpty()) {
+			return;
+		}
+
+		long total = 0;
+		for (long[] range: ranges) {
+			total += (range[1] - range[0] + 1) * ports.size();
+		}
+		LOGGER.info("Sweeping " + total + " targets in " + cidrs + " (excluding " + exclude_cidrs + ") on ports " + ports + " at max " + max_connects_per_second + " connects/s");
+
+		PortSweeper sweeper = new PortSweeper(SWEEP_MAX_IN_FLIGHT, SWEEP_HOST_CONNECTS_PER_SECOND, max_connects_per_second, timeout);
+		long start = System.currentTimeMillis();
+		long last_progress = start;
+		long swept = 0;
+		int found = 0;
+		List<InetSocketAddress> shard = new ArrayList<>(SWEEP_SHARD_SIZE);
+		for (long[] range: ranges) {
+			for (long ip = range[0]; ip <= range[1]; ip++) {
+				if (isExcluded(ip, excludes)) {
+					swept += ports.size();
+					continue;
+				}
+				String address = CidrRange.toIP(ip);
+				for (int port: ports) {
+					shard.add(new InetSocketAddress(address, port));
+				}
+				if (shard.size() >= SWEEP_SHARD_SIZE) {
+					found += sweeper.sweep(shard, _on_open);
+					swept += shard.size();
+					shard.clear();
+					long now = System.currentTimeMillis();
+					if (now - last_progress >= SWEEP_PROGRESS_INTERVAL_MS) {
+						LOGGER.info(String.format("Sweep progress: %d/%d targets (%.1f%%), %d open, %d s elapsed", swept, total, 100.0 * swept / total, found, (now - start) / 1000));
+						last_progress = now;
+					}
+				}
+			}
+		}
+		if (!shard.isEmpty()) {
+			found += sweeper.sweep(shard, _on_open);
+			swept += shard.size();
+		}
+		LOGGER.info("Sweep done: " + swept + " targets, " + found + " open, " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+	private static List<CidrRange> parseCIDRs(List<String> cidrs) {
+		List<CidrRange> parsed = new ArrayList<>();
+		if (cidrs == null) {
+			return parsed;
+		}
+		for (String cidr: cidrs) {
+			try {
+				parsed.add(CidrRange.parse(cidr));
+			} catch (IllegalArgumentException e) {
+				LOGGER.warn("Skipping invalid CIDR range: " + cidr);
+			}
+		}
+		return parsed;
+	}
+
+	/**
+	 * Host ranges as [first, last] pairs, sorted with overlapping ranges merged.
+	 */
+	private static List<long[]> mergeRanges(List<CidrRange> cidrs) {
+		List<long[]> ranges = new ArrayList<>();
+		for (CidrRange cidr: cidrs) {
+			ranges.add(new long[] {cidr.firstHost(), cidr.lastHost()});
+		}
+		ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+		List<long[]> merged = new ArrayList<>();
+		for (long[] range: ranges) {
+			if (!merged.isEmpty() && range[0] <= merged.get(merged.size() - 1)[1] + 1) {
+				long[] last = merged.get(merged.size() - 1);
+				last[1] = Math.max(last[1], range[1]);
+			} else {
+				merged.add(range);
+			}
+		}
+		return merged;
+	}
+
+	private static boolean isExcluded(long ip, List<CidrRange> excludes) {
+		for (CidrRange exclude: excludes) {
+			if (exclude.contains(ip)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * CIDR equivalent of a C-net slice as produced by grabCnetworkSlice(), loopback only covers 127.0.0.1.
+	 */
+	public static String cnetToCIDR(final String cnet) {
+		if ("127.0.0".equals(cnet)) {
+			return "127.0.0.1/32";
+		}
+		return cnet + ".0/24";
+	}
+
+	private static void checkPort(int port) {
 		if (port>65535) {
 			LOGGER.error("invalid port " + port + " specified as input");
 			SystemUtils.halt();
@@ -123,80 +319,28 @@ public class NetUtilsLocal {
 			LOGGER.error("invalid port " + port + " specified as input");
 			SystemUtils.halt();
 		}
-		try {
-			final ExecutorService es = Executors.newFixedThreadPool(threadPoolCount);
-			final List<Future<String>> futures = new ArrayList<>();
-			for (int lastOctet = startIP; lastOctet <= stopIP; lastOctet++) {
-				for (String cnet: cnets) {
-					if ("127.0.0".equals(cnet)) {
-						if (lastOctet>1) continue;
-					}
-					String ip = cnet + "." + lastOctet;
-					if (!NetUtilsLocal.isValidIPV4(ip)) {
-						LOGGER.error("Invalid ip generated from input parameters: " + ip);
-						SystemUtils.halt();
-					}
-					futures.add(portIsOpenForHost(es, ip, port, timeout));
-				}
-			}
-			es.shutdown();
-			for (final Future<String> f : futures) {
-				if (!"".equals(f.get())) {
-					String endpoint = f.get();
-					activeEndpoints.put("http://" + endpoint + ":" + port, new OllamaEndpoint("http://" + endpoint + ":" + port , _username, _password));
-				}
-			}
-		} catch (Exception ex) {
-			LOGGER.warn("performTCPPortSweep ex: " + ex.getMessage());
-		}
-		return activeEndpoints;
 	}
 
-	public static TreeMap<String, MCPEndpoint> performTCPPortSweepForMCP(List<Integer> list, List<String> cnets, int startIP, int stopIP, int timeout, int threadPoolCount) {
-		TreeMap<String, MCPEndpoint> activeEndpoints = new TreeMap<String, MCPEndpoint>();
+	private static List<String> sweepIPs(List<String> cnets, int startIP, int stopIP) {
 		if (stopIP<startIP) {
 			LOGGER.error("stopIP (" + stopIP + ") cannot be smaller than startIP (" + startIP + ")");
 			SystemUtils.halt();
 		}
-
-		for (int port: list) {
-			if (port>65535) {
-				LOGGER.error("invalid port " + port + " specified as input");
-				SystemUtils.halt();
-			}
-			if (port<0) {
-				LOGGER.error("invalid port " + port + " specified as input");
-				SystemUtils.halt();
-			}
-			try {
-				final ExecutorService es = Executors.newFixedThreadPool(threadPoolCount);
-				final List<Future<String>> futures = new ArrayList<>();
-				for (int lastOctet = startIP; lastOctet <= stopIP; lastOctet++) {
-					for (String cnet: cnets) {
-						if ("127.0.0".equals(cnet)) {
-							if (lastOctet>1) continue;
-						}
-						String ip = cnet + "." + lastOctet;
-						if (!NetUtilsLocal.isValidIPV4(ip)) {
-							LOGGER.error("Invalid ip generated from input parameters: " + ip);
-							SystemUtils.halt();
-						}
-						futures.add(portIsOpenForHost(es, ip, port, timeout));
-					}
+		List<String> ips = new ArrayList<>();
+		for (int lastOctet = startIP; lastOctet <= stopIP; lastOctet++) {
+			for (String cnet: cnets) {
+				if ("127.0.0".equals(cnet)) {
+					if (lastOctet>1) continue;
 				}
-				es.shutdown();
-				for (final Future<String> f : futures) {
-					if (!"".equals(f.get())) {
-						String endpoint = f.get();
-						// schema and path not yet verified/checked
-						activeEndpoints.put(endpoint + "::" + port, new MCPEndpoint("", endpoint, port, ""));
-					}
+				String ip = cnet + "." + lastOctet;
+				if (!NetUtilsLocal.isValidIPV4(ip)) {
+					LOGGER.error("Invalid ip generated from input parameters: " + ip);
+					SystemUtils.halt();
 				}
-			} catch (Exception ex) {
-				LOGGER.warn("performTCPPortSweep ex: " + ex.getMessage());
+				ips.add(ip);
 			}
 		}
-		return activeEndpoints;
+		return ips;
 	}
 
 	public static ArrayList<Integer> performTCPHostScan(String ip, int startPort, int stopPort, int timeout, int threadPoolCount) {
@@ -238,6 +382,15 @@ public class NetUtilsLocal {
 		return openPorts;
 	}
 
+	public static boolean isPortOpen(final String host, final int port, final int timeout) {
+		try (Socket socket = new Socket()) {
+			socket.connect(new InetSocketAddress(host, port), timeout);
+			return true;
+		} catch (Exception ex) {
+			return false;
+		}
+	}
+
 	public static Future<Integer> portIsOpen(final ExecutorService es, final String ip, final int port, final int timeout) {
 		return es.submit(new Callable<Integer>() {
 			@Override public Integer call() {
@@ -0,0 +1,303 @@
+package ntt.security.ollamadrama.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.github.ollama4j.exceptions.OllamaException;
+import io.github.ollama4j.models.chat.OllamaChatRequest;
+import io.github.ollama4j.models.chat.OllamaChatResponseModel;
+import io.github.ollama4j.models.chat.OllamaChatResult;
+import io.github.ollama4j.models.generate.OllamaGenerateRequest;
+import io.github.ollama4j.models.generate.OllamaGenerateResponseModel;
+import io.github.ollama4j.models.response.OllamaErrorResponse;
+import io.github.ollama4j.models.response.OllamaResult;
+import io.github.ollama4j.utils.Utils;
+import ntt.security.ollamadrama.objects.OllamaEndpoint;
+
+/**
+ * Shared HTTP/1.1 keep-alive transport for one Ollama endpoint. ollama4j opens a new HTTP client
+ * for every call, so chat requests go through a pooled connection manager instead and reuse
+ * warm connections across sessions. The transport is thread-safe, timeouts are passed per request.
+ *
+ * One transport exists per endpoint URL, see forEndpoint().
+ */
+public class OllamaTransport {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(OllamaTransport.class);
+
+	private static final int CONNECT_TIMEOUT_MS = 5_000;
+	private static final long IDLE_EVICT_SECONDS = 30L;
+	private static final long DEFAULT_KEEP_ALIVE_MS = 30_000L;
+
+	private static final Map<String, OllamaTransport> TRANSPORTS = new ConcurrentHashMap<>();
+	private static volatile int max_connections = 16;
+
+	private final String ollama_url;
+	private final String auth_header;
+	private final PoolingHttpClientConnectionManager pool;
+	private final CloseableHttpClient http;
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicInteger in_flight = new AtomicInteger();
+	private volatile boolean retired = false;
+
+	OllamaTransport(OllamaEndpoint endpoint, int _max_connections) {
+		this.ollama_url = strip_trailing_slash(endpoint.getOllama_url());
+		this.auth_header = basic_auth(endpoint.getOllama_username(), endpoint.getOllama_password());
+		this.pool = new PoolingHttpClientConnectionManager();
+		this.pool.setMaxTotal(_max_connections);
+		this.pool.setDefaultMaxPerRoute(_max_connections);
+		this.pool.setValidateAfterInactivity(2_000);
+		this.http = HttpClients.custom()
+				.setConnectionManager(pool)
+				.setKeepAliveStrategy((response, context) -> {
+					long ms = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+					return (ms > 0) ? ms : DEFAULT_KEEP_ALIVE_MS;
+				})
+				.evictIdleConnections(IDLE_EVICT_SECONDS, TimeUnit.SECONDS)
+				.evictExpiredConnections()
+				.disableAutomaticRetries()
+				.build();
+	}
+
+	/**
+	 * @return the shared transport for the endpoint URL, created on first use
+	 */
+	public static OllamaTransport forEndpoint(OllamaEndpoint endpoint) {
+		return TRANSPORTS.computeIfAbsent(strip_trailing_slash(endpoint.getOllama_url()),
+				url -> new OllamaTransport(endpoint, max_connections));
+	}
+
+	/**
+	 * Pool size used for transports created from now on.
+	 */
+	public static void setMax_connections(int _max_connections) {
+		max_connections = Math.max(1, _max_connections);
+	}
+
+	/**
+	 * Forgets the transport of an endpoint, e.g. once it is evicted or removed. Requests still in
+	 * flight complete, the pool is closed when the last one returns.
+	 */
+	public static void release(String ollama_url) {
+		OllamaTransport transport = TRANSPORTS.remove(strip_trailing_slash(ollama_url));
+		if (transport != null) {
+			transport.retire();
+		}
+	}
+
+	public static void closeAll() {
+		for (String url : TRANSPORTS.keySet()) {
+			OllamaTransport transport = TRANSPORTS.remove(url);
+			if (transport != null) {
+				transport.close();
+			}
+		}
+	}
+
+	/**
+	 * @return pool statistics of every open transport, keyed by endpoint URL
+	 */
+	public static Map<String, TransportStats> getAllStats() {
+		Map<String, TransportStats> stats = new TreeMap<>();
+		for (OllamaTransport transport : TRANSPORTS.values()) {
+			stats.put(transport.ollama_url, transport.getStats());
+		}
+		return stats;
+	}
+
+	/**
+	 * Non-streaming chat call, the timeout only applies to this request.
+	 */
+	public OllamaChatResult chat(OllamaChatRequest request, long timeout_seconds) throws OllamaException {
+		HttpPost post = new HttpPost(ollama_url + "/api/chat");
+		try {
+			post.setEntity(new StringEntity(Utils.getObjectMapper().writeValueAsString(request), ContentType.APPLICATION_JSON));
+		} catch (IOException e) {
+			throw new OllamaException("Unable to serialize chat request for " + request.getModel(), e);
+		}
+		String body = execute(post, timeout_seconds);
+		try {
+			OllamaChatResponseModel response = Utils.getObjectMapper().readValue(body, OllamaChatResponseModel.class);
+			return new OllamaChatResult(response, request.getMessages());
+		} catch (IOException e) {
+			throw new OllamaException("Unparsable chat response from " + ollama_url, e);
+		}
+	}
+
+	/**
+	 * Non-streaming generate call, the timeout only applies to this request.
+	 */
+	public OllamaResult generate(OllamaGenerateRequest request, long timeout_seconds) throws OllamaException {
+		HttpPost post = new HttpPost(ollama_url + "/api/generate");
+		try {
+			post.setEntity(new StringEntity(Utils.getObjectMapper().writeValueAsString(request), ContentType.APPLICATION_JSON));
+		} catch (IOException e) {
+			throw new OllamaException("Unable to serialize generate request for " + request.getModel(), e);
+		}
+		long start = System.currentTimeMillis();
+		String body = execute(post, timeout_seconds);
+		try {
+			OllamaGenerateResponseModel response = Utils.getObjectMapper().readValue(body, OllamaGenerateResponseModel.class);
+			return new OllamaResult(response.getResponse(), response.getThinking(), System.currentTimeMillis() - start, 200);
+		} catch (IOException e) {
+			throw new OllamaException("Unparsable generate response from " + ollama_url, e);
+		}
+	}
+
+	public boolean ping(long timeout_seconds) {
+		try {
+			execute(new HttpGet(ollama_url + "/api/tags"), timeout_seconds);
+			return true;
+		} catch (OllamaException e) {
+			LOGGER.debug("Ping of {} failed: {}", ollama_url, e.getMessage());
+			return false;
+		}
+	}
+
+	private String execute(HttpRequestBase request, long timeout_seconds) throws OllamaException {
+		int timeout_ms = (int) Math.min(Integer.MAX_VALUE, TimeUnit.SECONDS.toMillis(timeout_seconds));
+		request.setProtocolVersion(HttpVersion.HTTP_1_1);
+		request.setConfig(RequestConfig.custom()
+				.setConnectTimeout(Math.min(CONNECT_TIMEOUT_MS, timeout_ms))
+				.setConnectionRequestTimeout(timeout_ms)
+				.setSocketTimeout(timeout_ms)
+				.build());
+		if (auth_header != null) {
+			request.setHeader(HttpHeaders.AUTHORIZATION, auth_header);
+		}
+
+		requests.incrementAndGet();
+		in_flight.incrementAndGet();
+		try (CloseableHttpResponse response = http.execute(request)) {
+			int status = response.getStatusLine().getStatusCode();
+			String body = (response.getEntity() == null) ? "" : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+			if (status != 200) {
+				failures.incrementAndGet();
+				throw new OllamaException("HTTP " + status + " from " + ollama_url + ": " + error_of(body));
+			}
+			return body;
+		} catch (IOException | IllegalStateException e) {
+			failures.incrementAndGet();
+			throw new OllamaException("Request to " + ollama_url + " failed: " + e.getMessage(), e);
+		} finally {
+			if (in_flight.decrementAndGet() == 0 && retired) {
+				close();
+			}
+		}
+	}
+
+	private static String error_of(String body) {
+		try {
+			OllamaErrorResponse error = Utils.getObjectMapper().readValue(body, OllamaErrorResponse.class);
+			if (error != null && error.getError() != null) {
+				return error.getError();
+			}
+		} catch (Exception e) {
+			// not an Ollama error document, use the raw body
+		}
+		return body;
+	}
+
+	public TransportStats getStats() {
+		PoolStats stats = pool.getTotalStats();
+		return new TransportStats(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax(),
+				in_flight.get(), requests.get(), failures.get());
+	}
+
+	public String getOllama_url() {
+		return ollama_url;
+	}
+
+	private void retire() {
+		retired = true;
+		if (in_flight.get() == 0) {
+			close();
+		}
+	}
+
+	public void close() {
+		try {
+			http.close();
+		} catch (IOException e) {
+			LOGGER.debug("Closing transport for {} failed: {}", ollama_url, e.getMessage());
+		}
+	}
+
+	private static String basic_auth(String username, String password) {
+		if (username == null || username.isEmpty()) {
+			return null;
+		}
+		String token = username + ":" + ((password == null) ? "" : password);
+		return "Basic " + Base64.getEncoder().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String strip_trailing_slash(String url) {
+		return (url != null && url.endsWith("/")) ? url.substring(0, url.length() - 1) : url;
+	}
+
+	/**
+	 * Snapshot of a transport's connection pool and request counters.
+	 */
+	public static final class TransportStats {
+		private final int leased;
+		private final int available;
+		private final int pending;
+		private final int max;
+		private final int in_flight;
+		private final long requests;
+		private final long failures;
+
+		TransportStats(int leased, int available, int pending, int max, int in_flight, long requests, long failures) {
+			this.leased = leased;
+			this.available = available;
+			this.pending = pending;
+			this.max = max;
+			this.in_flight = in_flight;
+			this.requests = requests;
+			this.failures = failures;
+		}
+
+		/** connections currently carrying a request */
+		public int getLeased() { return leased; }
+		/** idle keep-alive connections ready for reuse */
+		public int getAvailable() { return available; }
+		/** requests waiting for a connection */
+		public int getPending() { return pending; }
+		public int getMax() { return max; }
+		public int getIn_flight() { return in_flight; }
+		public long getRequests() { return requests; }
+		public long getFailures() { return failures; }
+
+		@Override
+		public String toString() {
+			return "leased=" + leased + " available=" + available + " pending=" + pending + " max=" + max
+					+ " in_flight=" + in_flight + " requests=" + requests + " failures=" + failures;
+		}
+	}
+}
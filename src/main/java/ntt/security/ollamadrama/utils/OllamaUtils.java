@@ -4,7 +4,6 @@ import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
-import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -19,12 +18,13 @@ import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
-import java.util.regex.Pattern;
 
 import io.github.ollama4j.Ollama;
 import io.github.ollama4j.exceptions.OllamaException;
 import io.github.ollama4j.models.response.Model;
+import io.github.ollama4j.models.response.ModelMeta;
 import io.github.ollama4j.models.response.OllamaResult;
 import io.github.ollama4j.models.chat.OllamaChatMessage;
 import io.github.ollama4j.models.chat.OllamaChatMessageRole;
@@ -40,7 +40,9 @@ import ntt.security.ollamadrama.config.Globals;
 import ntt.security.ollamadrama.config.OllamaDramaSettings;
 import ntt.security.ollamadrama.objects.ChatInteraction;
 import ntt.security.ollamadrama.objects.ConfidenceThresholdCard;
+import ntt.security.ollamadrama.objects.ModelInventory;
 import ntt.security.ollamadrama.objects.ModelsScoreCard;
+import ntt.security.ollamadrama.objects.OllamaModel;
 import ntt.security.ollamadrama.objects.OllamaEndpoint;
 import ntt.security.ollamadrama.objects.OllamaEnsemble;
 import ntt.security.ollamadrama.objects.OllamaWrappedSession;
@@ -60,11 +62,16 @@ public class OllamaUtils {
 
 	private static final int MAX_RETRY_ATTEMPTS = 10;
 	private static final int MODEL_VERIFY_RETRY_ATTEMPTS = 3;
+	private static final int ENSEMBLE_ATTEMPTS_PER_MODEL = 6;
 	private static final Duration RETRY_DELAY = Duration.ofSeconds(10);
 	private static final Duration SHORT_RETRY_DELAY = Duration.ofSeconds(5);
-	private static final Duration THROTTLE_DELAY = Duration.ofSeconds(1);
+	private static final Duration DEFAULT_GENERATE_TIMEOUT = Duration.ofSeconds(240); // same as the default ollama_timeout
 	private static final int DEFAULT_PROBABILITY_THRESHOLD = 55;
 
+	// one client per endpoint/credentials/timeout, and the endpoint each client talks to
+	private static final Map<String, Ollama> SHARED_CLIENTS = new ConcurrentHashMap<>();
+	private static final Map<Ollama, OllamaEndpoint> CLIENT_ENDPOINTS = new ConcurrentHashMap<>();
+
 	// Prevent instantiation
 	private OllamaUtils() {
 		throw new UnsupportedOperationException("Utility class");
@@ -93,11 +100,13 @@ public class OllamaUtils {
 	}
 	
 	/**
-	 * Creates a connection to an Ollama endpoint with retry logic.
+	 * Returns the shared Ollama client for an endpoint and timeout. Clients are created once and
+	 * never reconfigured afterwards, so sessions on the same endpoint can use one concurrently.
+	 * Chat calls made through chat() go over the endpoint's pooled OllamaTransport.
 	 * 
 	 * @param endpoint the Ollama endpoint configuration
-	 * @param timeout_seconds timeout in seconds for requests
-	 * @return configured Ollama instance, or null if all retries fail
+	 * @param timeout_seconds default timeout in seconds for requests made by the client itself
+	 * @return shared Ollama instance, or null if all retries fail
 	 */
 	public static Ollama create_connection(OllamaEndpoint endpoint, long timeout_seconds) {
 		Objects.requireNonNull(endpoint, "Endpoint cannot be null");
@@ -105,16 +114,20 @@ public class OllamaUtils {
 		int retry_counter = 0;
 		while (retry_counter < MAX_RETRY_ATTEMPTS) {
 			try {
-				var ollama_api = new Ollama(endpoint.getOllama_url());
-				ollama_api.setRequestTimeoutSeconds(timeout_seconds);
-
-				if (has_credentials(endpoint)) {
-					ollama_api.setBasicAuth(
-							endpoint.getOllama_username(), 
-							endpoint.getOllama_password());
-				}
+				String key = endpoint.getOllama_url() + "|" + endpoint.getOllama_username() + "|" + Objects.hashCode(endpoint.getOllama_password()) + "|" + timeout_seconds;
+				Ollama ollama_api = SHARED_CLIENTS.computeIfAbsent(key, k -> {
+					var client = new Ollama(endpoint.getOllama_url());
+					client.setRequestTimeoutSeconds(timeout_seconds);
+					if (has_credentials(endpoint)) {
+						client.setBasicAuth(
+								endpoint.getOllama_username(), 
+								endpoint.getOllama_password());
+					}
+					CLIENT_ENDPOINTS.put(client, endpoint);
+					return client;
+				});
 
-				LOGGER.debug("Successfully connected to: {}", endpoint.getOllama_url());
+				LOGGER.debug("Using shared client for: {}", endpoint.getOllama_url());
 				return ollama_api;
 
 			} catch (Exception e) {
@@ -128,6 +141,98 @@ public class OllamaUtils {
 		return null;
 	}
 
+	/**
+	 * Sends a chat request with its own timeout, over the pooled transport of the client's endpoint.
+	 * Clients not created by create_connection(), or requests with tools, go through ollama4j
+	 * with the client's configured timeout. The request first waits for a slot from the endpoint's
+	 * RequestScheduler, with the tenant and priority of the calling thread, and then counts as in
+	 * flight for VramAdmission, so its model is not evicted meanwhile. The timeout is cut to what is
+	 * left of the caller's RetryPolicy deadline.
+	 */
+	public static OllamaChatResult chat(Ollama ollama_api, OllamaChatRequest request, long timeout_seconds) throws OllamaException {
+		if (RetryPolicy.expired()) {
+			throw new OllamaException("Deadline expired before the request for " + request.getModel());
+		}
+		timeout_seconds = RetryPolicy.timeout_seconds(timeout_seconds);
+		OllamaEndpoint endpoint = CLIENT_ENDPOINTS.get(ollama_api);
+		if (endpoint == null) {
+			return ollama_api.chat(request, null);
+		}
+		RequestScheduler.Permit permit;
+		try {
+			permit = RequestScheduler.forEndpoint(endpoint.getOllama_url()).acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OllamaException("Interrupted while queued for " + endpoint.getOllama_url(), e);
+		}
+		VramAdmission admission = VramAdmission.forEndpoint(endpoint.getOllama_url());
+		admission.begin(request.getModel());
+		try (permit) {
+			if (request.getTools() != null && !request.getTools().isEmpty()) {
+				return ollama_api.chat(request, null);
+			}
+			return OllamaTransport.forEndpoint(endpoint).chat(request, timeout_seconds);
+		} catch (OllamaException e) {
+			if (VramAdmission.is_out_of_memory(e)) {
+				admission.out_of_memory(request.getModel());
+			}
+			throw e;
+		} finally {
+			admission.end(request.getModel());
+		}
+	}
+
+	/**
+	 * Sends a generate request the same way chat() sends a chat request: queued for a slot of the
+	 * endpoint, in flight for VramAdmission, and with the timeout cut to the caller's deadline.
+	 */
+	public static OllamaResult generate(Ollama ollama_api, OllamaGenerateRequest request, long timeout_seconds) throws OllamaException {
+		if (RetryPolicy.expired()) {
+			throw new OllamaException("Deadline expired before the request for " + request.getModel());
+		}
+		timeout_seconds = RetryPolicy.timeout_seconds(timeout_seconds);
+		OllamaEndpoint endpoint = CLIENT_ENDPOINTS.get(ollama_api);
+		if (endpoint == null) {
+			return ollama_api.generate(request, null);
+		}
+		RequestScheduler.Permit permit;
+		try {
+			permit = RequestScheduler.forEndpoint(endpoint.getOllama_url()).acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OllamaException("Interrupted while queued for " + endpoint.getOllama_url(), e);
+		}
+		VramAdmission admission = VramAdmission.forEndpoint(endpoint.getOllama_url());
+		admission.begin(request.getModel());
+		try (permit) {
+			return OllamaTransport.forEndpoint(endpoint).generate(request, timeout_seconds);
+		} catch (OllamaException e) {
+			if (VramAdmission.is_out_of_memory(e)) {
+				admission.out_of_memory(request.getModel());
+			}
+			throw e;
+		} finally {
+			admission.end(request.getModel());
+		}
+	}
+
+	/**
+	 * Drops the shared clients and pooled connections of an endpoint.
+	 */
+	public static void release_connections(String ollama_url) {
+		SHARED_CLIENTS.values().removeIf(client -> {
+			OllamaEndpoint endpoint = CLIENT_ENDPOINTS.get(client);
+			if (endpoint != null && ollama_url.equals(endpoint.getOllama_url())) {
+				CLIENT_ENDPOINTS.remove(client);
+				return true;
+			}
+			return false;
+		});
+		OllamaTransport.release(ollama_url);
+		VramAdmission.release(ollama_url);
+		RequestScheduler.release(ollama_url);
+	}
+
 	private static boolean has_credentials(OllamaEndpoint endpoint) {
 		return endpoint.getOllama_username() != null && 
 				endpoint.getOllama_username().length() > 0 &&
@@ -176,6 +281,46 @@ public class OllamaUtils {
 		return models;
 	}
 
+	/**
+	 * Retrieves the model inventory (name, digest, size, quantization) with a single /api/tags call.
+	 * 
+	 * @param ollama_api the Ollama API instance
+	 * @return the inventory, or null if the models could not be listed
+	 */
+	public static ModelInventory get_model_inventory(Ollama ollama_api) {
+		return get_model_inventory(ollama_api, MAX_RETRY_ATTEMPTS);
+	}
+
+	public static ModelInventory get_model_inventory(Ollama ollama_api, int max_attempts) {
+		Objects.requireNonNull(ollama_api, "Ollama cannot be null");
+
+		int retry_counter = 0;
+		while (retry_counter < max_attempts) {
+			try {
+				List<OllamaModel> models = new ArrayList<>();
+				for (Model model : ollama_api.listModels()) {
+					ModelMeta meta = model.getModelMeta();
+					models.add(new OllamaModel(model.getName(), model.getDigest(), model.getSize(),
+							(meta == null) ? "" : meta.getParameterSize(),
+							(meta == null) ? "" : meta.getQuantizationLevel()));
+				}
+				LOGGER.debug("Retrieved inventory of {} models", models.size());
+				return new ModelInventory(models);
+
+			} catch (Exception e) {
+				LOGGER.warn("Error retrieving model inventory (attempt {}): {}", 
+						retry_counter + 1, e.getMessage());
+				retry_counter++;
+				if (retry_counter < max_attempts) {
+					SystemUtils.sleepInSeconds((int) RETRY_DELAY.toSeconds());
+				}
+			}
+		}
+
+		LOGGER.error("Failed to retrieve model inventory after {} attempts", max_attempts);
+		return null;
+	}
+
 	/**
 	 * Pulls a model from the Ollama repository.
 	 * 
@@ -262,87 +407,96 @@ public class OllamaUtils {
 		return false;
 	}
 
-	public static void wait_for_our_turn(Ollama o_, String model_name) {
-		LOGGER.info("wait_for_our_turn(): Looking to establish Ollama session with " + model_name);
-
-		int pollcounter = 0;
-
-		boolean no_models_loaded_or_only_mine_loaded = false;
-		while (!no_models_loaded_or_only_mine_loaded) {
-
-			pollcounter++;
-
-			try {
-				ModelProcessesResult response = o_.ps();
-				List<ModelProcess> models = response.getModels();
+	/**
+	 * Lists the models currently loaded on the server with a single /api/ps call.
+	 * 
+	 * @param ollama_api the Ollama API instance
+	 * @return names of the loaded models, or null if the server could not be asked
+	 */
+	public static Set<String> get_resident_models(Ollama ollama_api) {
+		try {
+			List<ModelProcess> models = ollama_api.ps().getModels();
+			if (models == null) {
+				return Set.of();
+			}
+			return models.stream().map(ModelProcess::getName).collect(Collectors.toUnmodifiableSet());
+		} catch (Exception e) {
+			LOGGER.debug("Unable to list loaded models: {}", e.getMessage());
+			return null;
+		}
+	}
 
-				if (models == null || models.isEmpty()) {
-					LOGGER.info("No models currently loaded");
-					no_models_loaded_or_only_mine_loaded = true;
-				} else {
-					LOGGER.info("Ollama server has " + models.size() + " model(s) loaded:");
+	/**
+	 * Waits until the endpoint has room for the model in VRAM, see VramAdmission.
+	 */
+	public static void wait_for_our_turn(Ollama o_, String model_name) {
+		OllamaEndpoint endpoint = CLIENT_ENDPOINTS.get(o_);
+		if (endpoint == null) {
+			LOGGER.debug("No admission control for {}, the client was not created by create_connection()", model_name);
+			return;
+		}
+		try {
+			VramAdmission.forEndpoint(endpoint.getOllama_url()).admit(model_name, vram_server(o_, endpoint.getOllama_url()));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
 
-					boolean our_model_loaded = false;
+	/**
+	 * Lets the endpoint's VramAdmission learn its capacity from a failed load.
+	 */
+	private static void note_out_of_memory(Ollama o_, String model_name) {
+		OllamaEndpoint endpoint = CLIENT_ENDPOINTS.get(o_);
+		if (endpoint != null) {
+			VramAdmission.forEndpoint(endpoint.getOllama_url()).out_of_memory(model_name);
+		}
+	}
 
+	private static VramAdmission.Server vram_server(Ollama ollama_api, String ollama_url) {
+		return new VramAdmission.Server() {
+			@Override
+			public List<VramAdmission.Resident> resident() throws Exception {
+				List<ModelProcess> models = ollama_api.ps().getModels();
+				List<VramAdmission.Resident> resident = new ArrayList<>();
+				if (models != null) {
 					for (ModelProcess model : models) {
-						if (model.getName().equals(model_name)) {
-							our_model_loaded = true;
-							LOGGER.debug("Our model " + model_name + " is already loaded on the server");
-							if (models.size() == 1) {
-								no_models_loaded_or_only_mine_loaded = true;
-							}
-						}
-
-						String expiresAt = model.getExpiresAt();
-						Instant expiresInstant = OffsetDateTime.parse(expiresAt).toInstant();
-						Instant now = Instant.now();
-						long minutesRemaining = Duration.between(now, expiresInstant).toMinutes();
-
-						// Binary GB (GiB) - dividing by 1024^3
-						long sizeVramBytes = model.getSizeVram();
-						double sizeVramGiB = sizeVramBytes / (1024.0 * 1024.0 * 1024.0);
-
-						LOGGER.info(" - Model: {} | VRAM: {} GB | Expires in: {} min | Our: {}", 
-								model.getName(), 
-								String.format("%.1f", sizeVramGiB), 
-								minutesRemaining, our_model_loaded);
-
+						resident.add(new VramAdmission.Resident(model.getName(), model.getSizeVram(), expires_at_millis(model.getExpiresAt())));
 					}
 				}
-			} catch (Exception e) {
-				LOGGER.info("Exception: " + e.getMessage());
+				return resident;
 			}
 
-			if (!no_models_loaded_or_only_mine_loaded) {
-				// take action or wait
-				if (pollcounter > 3) {
-					pollcounter = 0;
-					LOGGER.info("Have waited patiently to run " + model_name + " but will now try to unload existing models on the server (except the one we want)");
-					SystemUtils.sleepInSeconds(2);
-					try {
-						ModelProcessesResult response = o_.ps();
-						List<ModelProcess> models = response.getModels();
-						if (models != null) {
-							for (ModelProcess model : models) {
-								if (!model.getName().equals(model_name)) {
-									LOGGER.info("Making request to unload " + model.getName());
-									o_.unloadModel(model.getName());
-									//SystemUtils.sleepInSeconds(2);
-								}
-							}
-						}
-					} catch (OllamaException e) {
-						LOGGER.info("Caught exception while attempting to unload models: " + e.getMessage());
-					}
-				} else {
-					LOGGER.info("Sleeping 2 seconds");
-					SystemUtils.sleepInSeconds(2);
-				}
+			@Override
+			public void unload(String model_name) throws Exception {
+				ollama_api.unloadModel(model_name);
+			}
+
+			@Override
+			public long installed_size(String model_name) {
+				OllamaModel model = OllamaService.getModelInventory(ollama_url).getModel(model_name);
+				return (model == null) ? 0L : model.getSize();
 			}
+		};
+	}
 
+	private static long expires_at_millis(String expires_at) {
+		try {
+			return OffsetDateTime.parse(expires_at).toInstant().toEpochMilli();
+		} catch (Exception e) {
+			return Long.MAX_VALUE; // keep_alive -1 or unparsable, treat as most recently used
 		}
+	}
 
-		LOGGER.info("Our turn to run Ollama session with " + model_name);
+	/**
+	 * Unloads a model after use, unless other requests from this process are still running on it.
+	 */
+	public static void unload_model_when_idle(Ollama ollama_api, String model_name) throws OllamaException {
+		OllamaEndpoint endpoint = CLIENT_ENDPOINTS.get(ollama_api);
+		if (endpoint != null && VramAdmission.forEndpoint(endpoint.getOllama_url()).getIn_flight(model_name) > 0) {
+			LOGGER.debug("Keeping {} loaded, it has requests in flight", model_name);
+			return;
+		}
+		ollama_api.unloadModel(model_name);
 	}
 
 	public static boolean verify_model_sanity_using_creative_single_word_response(
@@ -404,6 +558,7 @@ public class OllamaUtils {
 						(null != e.getMessage()) && e.getMessage().contains("llama runner process has terminated") ||
 						false) {
 					LOGGER.info("Currently lack available RAM to run model {}", model_name);
+					note_out_of_memory(ollama_api, model_name);
 					LOGGER.info("Sleeping 10 seconds before trying again, exception: \"" + e.getMessage() + "\"");
 					temp_error = true;
 					SystemUtils.sleepInSeconds(10);
@@ -500,6 +655,7 @@ public class OllamaUtils {
 						(null != e.getMessage()) && e.getMessage().contains("llama runner process has terminated") ||
 						false) {
 					LOGGER.info("Currently lack available RAM to run model {}", model_name);
+					note_out_of_memory(ollama_api, model_name);
 					LOGGER.info("Sleeping 10 seconds before trying again, exception: \"" + e.getMessage() + "\"");
 					temp_error = true;
 					SystemUtils.sleepInSeconds(10);
@@ -730,10 +886,30 @@ public class OllamaUtils {
 		return create_connection(endpoint, timeout);
 	}
 
+	public static void releaseConnections(String ollama_url) {
+		release_connections(ollama_url);
+	}
+
+	public static void unloadModelWhenIdle(Ollama ollama_api, String model_name) throws OllamaException {
+		unload_model_when_idle(ollama_api, model_name);
+	}
+
 	public static ArrayList<String> getModelsAvailable(Ollama ollama_api) {
 		return new ArrayList<>(get_models_available(ollama_api));
 	}
 
+	public static ModelInventory getModelInventory(Ollama ollama_api) {
+		return get_model_inventory(ollama_api);
+	}
+
+	public static ModelInventory getModelInventory(Ollama ollama_api, int max_attempts) {
+		return get_model_inventory(ollama_api, max_attempts);
+	}
+
+	public static Set<String> getResidentModels(Ollama ollama_api) {
+		return get_resident_models(ollama_api);
+	}
+
 	public static Boolean pullModel(Ollama ollama_api, String model_name) {
 		return pull_model(ollama_api, model_name);
 	}
@@ -857,56 +1033,51 @@ public class OllamaUtils {
 			return new ChatInteraction(null, "N/A", false);
 		}
 
-		int retry_counter = 0;
-		while (retry_counter < MAX_RETRY_ATTEMPTS) {
+		// one loop for empty replies and errors, bounded by attempts and the caller's deadline
+		RetryPolicy.Backoff backoff = RetryPolicy.DEFAULT.backoff();
+		for (int attempt = 1; attempt <= MAX_RETRY_ATTEMPTS; attempt++) {
 			try {
-				int counter = 0;
-				while (true) {
-					// Build the message list
-					List<OllamaChatMessage> messages = new ArrayList<>();
-
-					if (custom_chat_history == null) {
-						messages.addAll(chat_result.getChatHistory());
-					} else {
-						messages.addAll(custom_chat_history);
-					}
+				// Build the message list
+				List<OllamaChatMessage> messages = new ArrayList<>();
 
-					// Add the new user question
-					messages.add(new OllamaChatMessage(OllamaChatMessageRole.USER, question));
+				if (custom_chat_history == null) {
+					messages.addAll(chat_result.getChatHistory());
+				} else {
+					messages.addAll(custom_chat_history);
+				}
 
-					// Build the chat request
-					OllamaChatRequest request_model = OllamaChatRequest.builder()
-							.withModel(model_name)
-							.withOptions(options)
-							.withMessages(messages)
-							.build();
+				// Add the new user question
+				messages.add(new OllamaChatMessage(OllamaChatMessageRole.USER, question));
 
-					ollama_api.setRequestTimeoutSeconds(timeout_seconds);
-					chat_result = ollama_api.chat(request_model, null);
+				// Build the chat request
+				OllamaChatRequest request_model = OllamaChatRequest.builder()
+						.withModel(model_name)
+						.withOptions(options)
+						.withMessages(messages)
+						.build();
 
-					if (chat_result != null) {
-						String content = chat_result.getResponseModel().getMessage().getResponse();
+				OllamaChatResult result = chat(ollama_api, request_model, timeout_seconds);
 
-						String content_cleaned = preprocess_llm_response(content);
-						return new ChatInteraction(chat_result, content_cleaned, true);
-					}
+				if (result != null) {
+					String content = result.getResponseModel().getMessage().getResponse();
 
-					counter++;
-					if (counter > 5) {
-						LOGGER.warn("Struggling to get reply from {} (counter: {})",
-								model_name, counter);
-					}
-					if (counter > 10) {
-						return new ChatInteraction(chat_result, "N/A", false);
-					}
+					String content_cleaned = preprocess_llm_response(content);
+					return new ChatInteraction(result, content_cleaned, true);
+				}
 
-					SystemUtils.sleepInSeconds((int) THROTTLE_DELAY.toSeconds());
+				if (attempt > 5) {
+					LOGGER.warn("Struggling to get reply from {} (attempt: {})",
+							model_name, attempt);
+				}
+				if (!backoff.pause()) {
+					break;
 				}
 			} catch (Exception e) {
 				LOGGER.warn("Error in raw chat question for {} (attempt {}, timeout: {}): {}",
-						model_name, retry_counter + 1, timeout_seconds, e.getMessage());
-				SystemUtils.sleepInSeconds((int) SHORT_RETRY_DELAY.toSeconds());
-				retry_counter++;
+						model_name, attempt, timeout_seconds, e.getMessage());
+				if (!backoff.retry(e)) {
+					break;
+				}
 			}
 		}
 
@@ -945,7 +1116,7 @@ public class OllamaUtils {
 	 * @param chat_result the current chat result
 	 * @param statement the statement to add
 	 * @param timeout_seconds timeout in seconds
-	 * @return chat interaction result, or null if failed
+	 * @return chat interaction result, unsuccessful with the unchanged chat if retries or the deadline ran out
 	 */
 	public static ChatInteraction add_creative_statement_to_existing_chat(
 			Ollama ollama_api,
@@ -959,48 +1130,43 @@ public class OllamaUtils {
 		Objects.requireNonNull(model_name, "Model name cannot be null");
 		Objects.requireNonNull(chat_result, "Chat result cannot be null");
 
-		int retry_counter = 0;
-		while (retry_counter < MAX_RETRY_ATTEMPTS) {
+		// one loop for empty replies and errors, bounded by attempts and the caller's deadline
+		RetryPolicy.Backoff backoff = RetryPolicy.DEFAULT.backoff();
+		for (int attempt = 1; attempt <= MAX_RETRY_ATTEMPTS && !RetryPolicy.expired(); attempt++) {
 			try {
-				int counter = 0;
-				while (true) {
-					// Build the message list
-					List<OllamaChatMessage> messages = new ArrayList<>();
-					messages.addAll(chat_result.getChatHistory());
-					messages.add(new OllamaChatMessage(OllamaChatMessageRole.USER, statement));
-
-					// Build the chat request
-					OllamaChatRequest request_model = OllamaChatRequest.builder()
-							.withModel(model_name)
-							.withOptions(options)
-							.withMessages(messages)
-							.build();
+				// Build the message list
+				List<OllamaChatMessage> messages = new ArrayList<>();
+				messages.addAll(chat_result.getChatHistory());
+				messages.add(new OllamaChatMessage(OllamaChatMessageRole.USER, statement));
 
-					ollama_api.setRequestTimeoutSeconds(timeout_seconds);
-					chat_result = ollama_api.chat(request_model, null);
+				// Build the chat request
+				OllamaChatRequest request_model = OllamaChatRequest.builder()
+						.withModel(model_name)
+						.withOptions(options)
+						.withMessages(messages)
+						.build();
 
-					if (chat_result != null) {
-						String content = chat_result.getResponseModel()
-								.getMessage().getResponse();
-						return new ChatInteraction(chat_result, content, true);
-					}
+				OllamaChatResult result = chat(ollama_api, request_model, timeout_seconds);
 
-					counter++;
-					if (counter > 10) {
-						LOGGER.error("Giving up on creative statement for {}", model_name);
-						return null;
-					}
+				if (result != null) {
+					String content = result.getResponseModel()
+							.getMessage().getResponse();
+					return new ChatInteraction(result, content, true);
+				}
 
-					SystemUtils.sleepInSeconds((int) THROTTLE_DELAY.toSeconds());
+				if (!backoff.pause()) {
+					break;
 				}
 			} catch (Exception e) {
 				LOGGER.warn("Error adding creative statement to {} (attempt {}): {}",
-						model_name, retry_counter + 1, e.getMessage());
-				SystemUtils.sleepInSeconds((int) SHORT_RETRY_DELAY.toSeconds());
-				retry_counter++;
+						model_name, attempt, e.getMessage());
+				if (!backoff.retry(e)) {
+					break;
+				}
 			}
 		}
 
+		LOGGER.error("Giving up on creative statement for {}", model_name);
 		return new ChatInteraction(chat_result, "", false);
 	}
 
@@ -1013,7 +1179,7 @@ public class OllamaUtils {
 	 * @param chat_result the current chat result
 	 * @param statement the statement to add
 	 * @param timeout_seconds timeout in seconds
-	 * @return chat interaction result, or null if failed
+	 * @return chat interaction result, unsuccessful with the unchanged chat if retries or the deadline ran out
 	 */
 	public static ChatInteraction add_strict_statement_to_existing_chat(
 			Ollama ollama_api,
@@ -1027,77 +1193,71 @@ public class OllamaUtils {
 		Objects.requireNonNull(model_name, "Model name cannot be null");
 		Objects.requireNonNull(chat_result, "Chat result cannot be null");
 
-		int retry_counter = 0;
-		while (retry_counter < MAX_RETRY_ATTEMPTS) {
+		// one loop for unusable replies and errors, bounded by attempts and the caller's deadline
+		RetryPolicy.Backoff backoff = RetryPolicy.DEFAULT.backoff();
+		String addon = "";
+		for (int attempt = 1; attempt <= MAX_RETRY_ATTEMPTS && !RetryPolicy.expired(); attempt++) {
 			try {
-				int counter = 0;
-				String addon = "";
+				// Build the message list
+				List<OllamaChatMessage> messages = new ArrayList<>();
+				messages.addAll(chat_result.getChatHistory());
+				messages.add(new OllamaChatMessage(OllamaChatMessageRole.USER,
+						statement + Globals.ENFORCE_SINGLE_KEY_JSON_RESPONSE_TO_STATEMENTS + addon));
 
-				while (true) {
-					// Build the message list
-					List<OllamaChatMessage> messages = new ArrayList<>();
-					messages.addAll(chat_result.getChatHistory());
-					messages.add(new OllamaChatMessage(OllamaChatMessageRole.USER,
-							statement + Globals.ENFORCE_SINGLE_KEY_JSON_RESPONSE_TO_STATEMENTS + addon));
+				// Build the chat request
+				OllamaChatRequest request_model = OllamaChatRequest.builder()
+						.withModel(model_name)
+						.withOptions(options)
+						.withMessages(messages)
+						.build();
 
-					// Build the chat request
-					OllamaChatRequest request_model = OllamaChatRequest.builder()
-							.withModel(model_name)
-							.withOptions(options)
-							.withMessages(messages)
-							.build();
+				OllamaChatResult result = chat(ollama_api, request_model, timeout_seconds);
 
-					ollama_api.setRequestTimeoutSeconds(timeout_seconds);
-					chat_result = ollama_api.chat(request_model, null);
+				if (result != null) {
+					String content = result.getResponseModel()
+							.getMessage().getResponse();
 
-					if (chat_result != null) {
-						String content = chat_result.getResponseModel()
-								.getMessage().getResponse();
+					if (attempt > 2) {
+						LOGGER.debug("Response from {}: {}", model_name, content);
+					}
 
-						if (retry_counter > 1) {
-							LOGGER.debug("Response from {}: {}", model_name, content);
-						}
+					if (content.contains("{") && content.contains("}")) {
+						var response = JSONUtils.createPOJOFromJSONOpportunistic(
+								content, StatementResponse.class);
 
-						if (content.contains("{") && content.contains("}")) {
-							var response = JSONUtils.createPOJOFromJSONOpportunistic(
-									content, StatementResponse.class);
-
-							if (response == null) {
-								LOGGER.warn("Unable to map statement response for {}", model_name);
-								addon = ". Make sure the response is JSON formatted";
-							} else if (response.getResponse().contains("OKIDOKI")) {
-								return new ChatInteraction(chat_result, content, true);
-							} else {
-								LOGGER.warn("Model {} struggling to understand statement: {}",
-										model_name, statement);
-								LOGGER.warn("Reason: {}", response.getExplanation());
-							}
-						} else {
+						if (response == null) {
+							LOGGER.warn("Unable to map statement response for {}", model_name);
 							addon = ". Make sure the response is JSON formatted";
+						} else if (response.getResponse().contains("OKIDOKI")) {
+							return new ChatInteraction(result, content, true);
+						} else {
+							LOGGER.warn("Model {} struggling to understand statement: {}",
+									model_name, statement);
+							LOGGER.warn("Reason: {}", response.getExplanation());
 						}
+					} else {
+						addon = ". Make sure the response is JSON formatted";
 					}
+				}
 
-					counter++;
-					if (counter > 5) {
-						LOGGER.warn("Struggling to get valid reply from {} (counter: {})",
-								model_name, counter);
-						addon = ". Make sure you reply with OKIDOKI if you understand";
-					}
-					if (counter > 10) {
-						LOGGER.error("Giving up on strict statement for {}", model_name);
-						return null;
-					}
-
-					SystemUtils.sleepInSeconds((int) THROTTLE_DELAY.toSeconds());
+				if (attempt > 5) {
+					LOGGER.warn("Struggling to get valid reply from {} (attempt: {})",
+							model_name, attempt);
+					addon = ". Make sure you reply with OKIDOKI if you understand";
+				}
+				if (!backoff.pause()) {
+					break;
 				}
 			} catch (Exception e) {
 				LOGGER.warn("Error adding strict statement to {} (attempt {}): {}",
-						model_name, retry_counter + 1, e.getMessage());
-				SystemUtils.sleepInSeconds((int) SHORT_RETRY_DELAY.toSeconds());
-				retry_counter++;
+						model_name, attempt, e.getMessage());
+				if (!backoff.retry(e)) {
+					break;
+				}
 			}
 		}
 
+		LOGGER.error("Giving up on strict statement for {}", model_name);
 		return new ChatInteraction(chat_result, "", false);
 	}
 
@@ -1152,12 +1312,27 @@ public class OllamaUtils {
 			String model_name,
 			Options options,
 			String question) {
+		return ask_generic_single_word_question(ollama_api, model_name, options, question, DEFAULT_GENERATE_TIMEOUT.toSeconds());
+	}
+
+	/**
+	 * Asks a generic single word question, each attempt bounded by timeout_seconds and all of them
+	 * by the caller's deadline.
+	 *
+	 * @return response string, or empty string if failed
+	 */
+	public static String ask_generic_single_word_question(
+			Ollama ollama_api,
+			String model_name,
+			Options options,
+			String question,
+			long timeout_seconds) {
 
 		Objects.requireNonNull(ollama_api, "Ollama cannot be null");
 		Objects.requireNonNull(model_name, "Model name cannot be null");
 
-		int retry_counter = 0;
-		while (retry_counter < MAX_RETRY_ATTEMPTS) {
+		RetryPolicy.Backoff backoff = RetryPolicy.DEFAULT.backoff();
+		for (int attempt = 1; attempt <= MAX_RETRY_ATTEMPTS && !RetryPolicy.expired(); attempt++) {
 			try {
 				String full_question = question +
 						Globals.ENFORCE_SINGLE_KEY_JSON_RESPONSE_TO_QUESTIONS +
@@ -1170,8 +1345,7 @@ public class OllamaUtils {
 						.withOptions(options)
 						.build();
 
-				// Generate response (null = no streaming)
-				OllamaResult result = ollama_api.generate(request, null);
+				OllamaResult result = generate(ollama_api, request, timeout_seconds);
 
 				if (result != null && result.getResponse() != null &&
 						!result.getResponse().isEmpty()) {
@@ -1180,18 +1354,19 @@ public class OllamaUtils {
 					}
 				}
 
-				SystemUtils.sleepInSeconds((int) THROTTLE_DELAY.toSeconds());
-				retry_counter++;
-
+				if (!backoff.pause()) {
+					break;
+				}
 			} catch (Exception e) {
 				LOGGER.warn("Error asking generic question to {} (attempt {}): {}",
-						model_name, retry_counter + 1, e.getMessage());
-				SystemUtils.sleepInSeconds((int) RETRY_DELAY.toSeconds());
-				retry_counter++;
+						model_name, attempt, e.getMessage());
+				if (!backoff.retry(e)) {
+					break;
+				}
 			}
 		}
 
-		LOGGER.error("Failed to get response from {} after {} attempts",
+		LOGGER.error("Failed to get response from {} within {} attempts or the deadline",
 				model_name, MAX_RETRY_ATTEMPTS);
 		return "";
 	}
@@ -1222,8 +1397,9 @@ public class OllamaUtils {
 		Objects.requireNonNull(model_name, "Model name cannot be null");
 		Objects.requireNonNull(chat_result, "Chat result cannot be null");
 
+		RetryPolicy.Backoff backoff = RetryPolicy.DEFAULT.backoff();
 		int retry_counter = 0;
-		while (retry_counter <= retry_threshold) {
+		while (retry_counter <= retry_threshold && !RetryPolicy.expired()) {
 			try {
 				String addon = "";
 
@@ -1241,8 +1417,7 @@ public class OllamaUtils {
 						.build();
 
 				LOGGER.debug("Timeout set to " + timeout_seconds);
-				ollama_api.setRequestTimeoutSeconds(timeout_seconds);
-				chat_result = ollama_api.chat(request_model, null);
+				chat_result = chat(ollama_api, request_model, timeout_seconds);
 
 				if (retry_counter > 1) {
 					LOGGER.info("Response from {}: {}", model_name,
@@ -1254,7 +1429,7 @@ public class OllamaUtils {
 							.getMessage().getResponse();
 
 					if (content.contains("{") && content.contains("}")) {
-						if (_unloadModelAfterUse) ollama_api.unloadModel(model_name);
+						if (_unloadModelAfterUse) unload_model_when_idle(ollama_api, model_name);
 						return new ChatInteraction(chat_result, content, true);
 					} else {
 						LOGGER.info("Poking LLM to align with JSON protocol, retry_counter is " + retry_counter + " and threshold " + retry_threshold);
@@ -1269,15 +1444,19 @@ public class OllamaUtils {
 							model_name, retry_counter);
 				}
 				if (retry_counter > 10) {
-					if (_unloadModelAfterUse) ollama_api.unloadModel(model_name);
+					if (_unloadModelAfterUse) unload_model_when_idle(ollama_api, model_name);
 					return new ChatInteraction(chat_result, "N/A", false);
 				}
 
-				SystemUtils.sleepInSeconds((int) THROTTLE_DELAY.toSeconds());
+				if (!backoff.pause()) {
+					break;
+				}
 			} catch (Exception e) {
 				LOGGER.warn("Error in chat question for {} (attempt {}, timeout: {}): {}",
 						model_name, retry_counter + 1, timeout_seconds, e.getMessage());
-				SystemUtils.sleepInSeconds((int) RETRY_DELAY.toSeconds());
+				if (!backoff.retry(e)) {
+					break;
+				}
 			}
 			retry_counter++;
 		}
@@ -1581,20 +1760,23 @@ public class OllamaUtils {
 
 		OllamaService.getInstance(settings);
 
-		var ensemble = new OllamaEnsemble();
-		for (String model_name : models.split(",")) {
-			var session = OllamaService.getStrictProtocolSession(
-					model_name, hide_llm_reply_if_uncertain, use_random_seed, false);
+		// one budget for the whole ensemble, the sessions only ever shorten it
+		try (RetryPolicy.Deadline deadline = RetryPolicy.within(settings.getRequest_deadline_seconds())) {
+			var ensemble = new OllamaEnsemble();
+			for (String model_name : models.split(",")) {
+				var session = OllamaService.getStrictProtocolSession(
+						model_name, hide_llm_reply_if_uncertain, use_random_seed, false);
 
-			LOGGER.info("Using {} with model {}", 
-					session.getEndpoint().getOllama_url(), model_name);
+				LOGGER.info("Using {} with model {}", 
+						session.getEndpoint().getOllama_url(), model_name);
 
-			ensemble.addWrappedSession(new OllamaWrappedSession(
-					session, Globals.MODEL_PROBABILITY_THRESHOLDS.get(model_name)));
-		}
+				ensemble.addWrappedSession(new OllamaWrappedSession(
+						session, Globals.MODEL_PROBABILITY_THRESHOLDS.get(model_name)));
+			}
 
-		return ensemble.askChatQuestion(query, hide_llm_reply_if_uncertain, 
-				settings.getOllama_timeout());
+			return ensemble.askChatQuestion(query, hide_llm_reply_if_uncertain, 
+					settings.getOllama_timeout());
+		}
 	}
 
 	// Additional overloaded variants of strict_ensemble_run
@@ -1628,6 +1810,11 @@ public class OllamaUtils {
 		return ask_generic_single_word_question(ollama_api, model_name, options, question);
 	}
 
+	public static String askGenericSingleWordQuestion(
+			Ollama ollama_api, String model_name, Options options, String question, long timeout_seconds) {
+		return ask_generic_single_word_question(ollama_api, model_name, options, question, timeout_seconds);
+	}
+
 	public static ChatInteraction askChatQuestion(
 			Ollama ollama_api, String model_name, Options options,
 			OllamaChatResult chat_result, String question, Integer retry_threshold, 
@@ -1702,7 +1889,7 @@ public class OllamaUtils {
 	 * @param query the query to run
 	 * @param models comma-separated model names
 	 * @param settings the Ollama settings
-	 * @return first creative response
+	 * @return first creative response, empty if no model replied within request_deadline_seconds
 	 */
 	public static String creative_ensemble_run_early_exit_on_first(
 			String query, String models, OllamaDramaSettings settings) {
@@ -1713,20 +1900,29 @@ public class OllamaUtils {
 
 		OllamaService.getInstance(settings);
 
-		for (String model_name : models.split(",")) {
-			var session = OllamaService.getCreativeSession(model_name, "");
-			LOGGER.info("Using {} with model {}", session.getEndpoint().getOllama_url(), model_name);
-			while (true) {
-				int retryCounter = 0;
-				String response = session.askRawChatQuestion(query, settings.getOllama_timeout());
-				if (null != response) {
-					return response;
-				} else {
+		try (RetryPolicy.Deadline deadline = RetryPolicy.within(settings.getRequest_deadline_seconds())) {
+			for (String model_name : models.split(",")) {
+				var session = OllamaService.getCreativeSession(model_name, "");
+				LOGGER.info("Using {} with model {}", session.getEndpoint().getOllama_url(), model_name);
+				RetryPolicy.Backoff backoff = RetryPolicy.DEFAULT.backoff();
+				for (int attempt = 1; attempt <= ENSEMBLE_ATTEMPTS_PER_MODEL; attempt++) {
+					String response = session.askRawChatQuestion(query, settings.getOllama_timeout());
+					if (null != response) {
+						return response;
+					}
 					LOGGER.info("Issue getting a proper reply, will setup a new creative session (new seed)");
+					if (attempt == ENSEMBLE_ATTEMPTS_PER_MODEL) {
+						LOGGER.warn("Having problems getting a valid reply using this query: " + query);
+						break;
+					}
+					if (!backoff.pause()) {
+						break;
+					}
 					session = OllamaService.getCreativeSession(model_name, "");
-					retryCounter++;
-					if (retryCounter > 5) LOGGER.warn("Having problems getting a valid reply using this query: " + query);
-					SystemUtils.sleepInSeconds(1); // throttle
+				}
+				if (RetryPolicy.expired()) {
+					LOGGER.warn("Deadline reached, skipping the remaining models");
+					break;
 				}
 			}
 		}
@@ -1746,20 +1942,26 @@ public class OllamaUtils {
 
 		OllamaService.getInstance(settings);
 
-		for (String model_name : models.split(",")) {
-			var session = OllamaService.getStrictProtocolSession(
-					model_name, hide_llm_reply_if_uncertain, use_random_seed, false);
+		try (RetryPolicy.Deadline deadline = RetryPolicy.within(settings.getRequest_deadline_seconds())) {
+			for (String model_name : models.split(",")) {
+				if (RetryPolicy.expired()) {
+					LOGGER.warn("Deadline reached, skipping the remaining models");
+					break;
+				}
+				var session = OllamaService.getStrictProtocolSession(
+						model_name, hide_llm_reply_if_uncertain, use_random_seed, false);
 
-			LOGGER.info("Using {} with model {}", session.getEndpoint().getOllama_url(), model_name);
-			var response = session.askStrictChatQuestion(query, hide_llm_reply_if_uncertain, settings.getOllama_timeout(), null);
+				LOGGER.info("Using {} with model {}", session.getEndpoint().getOllama_url(), model_name);
+				var response = session.askStrictChatQuestion(query, hide_llm_reply_if_uncertain, settings.getOllama_timeout(), null);
 
-			Integer proba_threshold = Globals.MODEL_PROBABILITY_THRESHOLDS.get(model_name);
-			if (proba_threshold == null) proba_threshold = DEFAULT_PROBABILITY_THRESHOLD;
+				Integer proba_threshold = Globals.MODEL_PROBABILITY_THRESHOLDS.get(model_name);
+				if (proba_threshold == null) proba_threshold = DEFAULT_PROBABILITY_THRESHOLD;
 
-			if (response.getProbability() > proba_threshold) return response;
+				if (response.getProbability() > proba_threshold) return response;
 
-			System.out.println("\n" + model_name);
-			response.print();
+				System.out.println("\n" + model_name);
+				response.print();
+			}
 		}
 		return new SingleStringQuestionResponse();
 	}
@@ -1778,18 +1980,24 @@ public class OllamaUtils {
 
 		OllamaService.getInstance(settings);
 
-		for (String model_name : models.split(",")) {
-			var session = OllamaService.getStrictProtocolSession(
-					model_name, hide_llm_reply_if_uncertain, use_random_seed);
+		try (RetryPolicy.Deadline deadline = RetryPolicy.within(settings.getRequest_deadline_seconds())) {
+			for (String model_name : models.split(",")) {
+				if (RetryPolicy.expired()) {
+					LOGGER.warn("Deadline reached, skipping the remaining models");
+					break;
+				}
+				var session = OllamaService.getStrictProtocolSession(
+						model_name, hide_llm_reply_if_uncertain, use_random_seed);
 
-			LOGGER.info("Using {} with model {}", session.getEndpoint().getOllama_url(), model_name);
-			var response = session.askStrictChatQuestion(query, hide_llm_reply_if_uncertain, settings.getOllama_timeout(), null);
+				LOGGER.info("Using {} with model {}", session.getEndpoint().getOllama_url(), model_name);
+				var response = session.askStrictChatQuestion(query, hide_llm_reply_if_uncertain, settings.getOllama_timeout(), null);
 
-			if (response.getProbability() > proba_threshold) return response;
+				if (response.getProbability() > proba_threshold) return response;
 
-			System.out.println("\n" + model_name);
-			response.print();
-			System.out.println();
+				System.out.println("\n" + model_name);
+				response.print();
+				System.out.println();
+			}
 		}
 		return new SingleStringQuestionResponse();
 	}
@@ -1810,25 +2018,28 @@ public class OllamaUtils {
 			return new SingleStringEnsembleResponse();
 		}
 
-		var sser1 = strict_ensemble_run(query, ollama_model_names, ollamadrama_settings, hide_llm_reply_if_uncertain, use_random_seed);
-		var sser2 = OpenAIUtils.strictEnsembleRun(query, openai_model_names, ollamadrama_settings, hide_llm_reply_if_uncertain);
-		var sser = merge(sser1, sser2);
+		// both rounds share one budget
+		try (RetryPolicy.Deadline deadline = RetryPolicy.within(ollamadrama_settings.getRequest_deadline_seconds())) {
+			var sser1 = strict_ensemble_run(query, ollama_model_names, ollamadrama_settings, hide_llm_reply_if_uncertain, use_random_seed);
+			var sser2 = OpenAIUtils.strictEnsembleRun(query, openai_model_names, ollamadrama_settings, hide_llm_reply_if_uncertain);
+			var sser = merge(sser1, sser2);
 
-		if (print_first_run) sser.printEnsembleSummary();
+			if (print_first_run) sser.printEnsembleSummary();
 
-		if (sser.getUniq_confident_replies().size() > 0) {
-			LOGGER.info("At least 1 confident reply - running collective round");
-			var sb = new StringBuilder();
-			for (String conf_resp : sser.getUniq_confident_replies().keySet()) {
-				sb.append(" - ").append(conf_resp).append("\n");
-			}
+			if (sser.getUniq_confident_replies().size() > 0 && !RetryPolicy.expired()) {
+				LOGGER.info("At least 1 confident reply - running collective round");
+				var sb = new StringBuilder();
+				for (String conf_resp : sser.getUniq_confident_replies().keySet()) {
+					sb.append(" - ").append(conf_resp).append("\n");
+				}
 
-			String enhanced_query = query + Globals.ENSEMBLE_LOOP_STATEMENT + "\n" + sb.toString();
-			SingleStringEnsembleResponse sser3 = strict_ensemble_run(enhanced_query, ollama_model_names, ollamadrama_settings, hide_llm_reply_if_uncertain, use_random_seed);
-			SingleStringEnsembleResponse sser4 = OpenAIUtils.strictEnsembleRun(enhanced_query, openai_model_names, ollamadrama_settings, hide_llm_reply_if_uncertain);
-			return merge(sser3, sser4);
+				String enhanced_query = query + Globals.ENSEMBLE_LOOP_STATEMENT + "\n" + sb.toString();
+				SingleStringEnsembleResponse sser3 = strict_ensemble_run(enhanced_query, ollama_model_names, ollamadrama_settings, hide_llm_reply_if_uncertain, use_random_seed);
+				SingleStringEnsembleResponse sser4 = OpenAIUtils.strictEnsembleRun(enhanced_query, openai_model_names, ollamadrama_settings, hide_llm_reply_if_uncertain);
+				return merge(sser3, sser4);
+			}
+			return sser;
 		}
-		return sser;
 	}
 
 	/**
@@ -2179,66 +2390,7 @@ public class OllamaUtils {
 	}
 
 	public static String sanitizePromptInjection(String tool_response, String replacement) {
-		if (tool_response == null || tool_response.isEmpty()) return tool_response;
-
-		String[] patterns = {
-				// Classic override attacks
-				"ignore\\s+(?:all\\s+)?(?:previous|prior|above)\\s+instructions?",
-				"disregard\\s+(?:all\\s+)?(?:previous|prior|above)\\s+instructions?",
-				"forget\\s+(?:all\\s+)?(?:previous|prior|above)\\s+instructions?",
-				"skip\\s+(?:all\\s+)?(?:previous|prior|above)\\s+instructions?",
-
-				// Memory wipe
-				"forget\\s+everything\\s+(?:you\\s+)?(?:know|learned)",
-				"clear\\s+(?:your\\s+)?memory",
-				"reset\\s+(?:your\\s+)?(?:instructions?|context|memory)",
-
-				// Jailbreak/DAN attempts
-				"you\\s+are\\s+now\\s+(?:in\\s+)?developer\\s+mode",
-				"you\\s+are\\s+now\\s+dan",
-				"enter\\s+developer\\s+mode",
-				"enable\\s+jailbreak",
-				"act\\s+as\\s+(?:an?\\s+)?unrestricted",
-
-				// Prompt replacement
-				"new\\s+system\\s+prompt",
-				"override\\s+(?:the\\s+)?system\\s+(?:settings?|prompt|instructions?)",
-				"replace\\s+(?:your\\s+)?(?:system\\s+)?instructions?",
-				"\\[\\s*system\\s*(?:override|prompt)\\s*\\]",
-
-				// Prompt extraction
-				"show\\s+(?:me\\s+)?(?:your\\s+)?system\\s+prompt",
-				"display\\s+(?:your\\s+)?(?:system\\s+)?instructions?",
-				"repeat\\s+(?:the\\s+)?instructions?\\s+verbatim",
-				"output\\s+(?:the\\s+)?(?:full\\s+)?prompt",
-				"print\\s+(?:your\\s+)?(?:system\\s+)?prompt",
-				"what\\s+(?:are|is)\\s+(?:your\\s+)?(?:system\\s+)?(?:instructions?|prompt)",
-				"reveal\\s+(?:your\\s+)?(?:system\\s+)?(?:instructions?|prompt)",
-
-				// Secrecy/hiding
-				"do\\s+not\\s+mention\\s+(?:the\\s+)?instructions?",
-				"don'?t\\s+mention\\s+(?:the\\s+)?instructions?",
-				"hide\\s+(?:the\\s+fact|that)",
-
-				// Role manipulation
-				"you\\s+are\\s+no\\s+longer",
-				"stop\\s+being\\s+(?:an?\\s+)?assistant",
-				"pretend\\s+(?:you\\s+)?(?:are|have)\\s+no\\s+restrictions?",
-
-				// Encoding tricks
-				"decode\\s+(?:the\\s+following|this)\\s+(?:base64|hex)",
-				"execute\\s+(?:the\\s+following|this)\\s+encoded"
-		};
-
-		String result = tool_response;
-		for (String pattern : patterns) {
-			String linePattern = pattern + ".*?(\\r?\\n|$)";
-			result = Pattern.compile(linePattern, Pattern.CASE_INSENSITIVE)
-					.matcher(result)
-					.replaceAll(replacement + "$1");
-		}
-
-		return result;
+		return PromptInjectionScanner.getDefault().sanitize(tool_response, replacement);
 	}
 
 }
\ No newline at end of file
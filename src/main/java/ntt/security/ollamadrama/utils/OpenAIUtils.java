@@ -29,8 +29,10 @@ public class OpenAIUtils {
 			LOGGER.info("Using model " + model_name);
 			e1.addWrappedSession(new OpenAIWrappedSession(a1, Globals.MODEL_PROBABILITY_THRESHOLDS.get(model_name)));
 		}
-		SingleStringEnsembleResponse ensemble_response = e1.askChatQuestion(_query, _hide_llm_reply_if_uncertain);
-		return ensemble_response;
+		try (RetryPolicy.Deadline deadline = RetryPolicy.within(_settings.getRequest_deadline_seconds())) {
+			SingleStringEnsembleResponse ensemble_response = e1.askChatQuestion(_query, _hide_llm_reply_if_uncertain);
+			return ensemble_response;
+		}
 	}
 
 }
@@ -0,0 +1,251 @@
+package ntt.security.ollamadrama.utils;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking TCP connect sweep driven by a single selector thread. Keeps up to
+ * max_in_flight connects outstanding at once, spaces connect starts evenly by the global rate
+ * limit and connects to the same host by the per-host rate limit, and reports each open port as
+ * soon as its connect completes. The global pacing carries over between sweep() calls, so a
+ * range swept in several calls is paced as one.
+ *
+ * When the process runs out of sockets (too many open files, no free local port) the target
+ * is queued again and the in-flight limit drops to what the system could hold, so targets are
+ * never reported closed for a local shortage.
+ */
+public class PortSweeper {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PortSweeper.class);
+
+	private static final long MAX_SELECT_WAIT_MS = 50L;
+	private static final int MAX_IDLE_SHORTAGES = 200; // about 10 s without any free socket
+	private static final long GLOBAL_CATCH_UP_NANOS = TimeUnit.MILLISECONDS.toNanos(1); // one select tick, never a burst
+
+	private enum Start { PENDING, DONE, NO_SOCKET }
+
+	private final int max_in_flight;
+	private final long host_interval_nanos;
+	private final long global_interval_nanos;
+	private final long connect_timeout_nanos;
+	private long global_next_slot;
+
+	/**
+	 * @param _max_in_flight global cap on outstanding connects
+	 * @param _host_connects_per_second max connects started per host per second, 0 for no limit
+	 * @param _connect_timeout_ms time a connect may stay pending before it counts as closed
+	 */
+	public PortSweeper(int _max_in_flight, int _host_connects_per_second, int _connect_timeout_ms) {
+		this(_max_in_flight, _host_connects_per_second, 0, _connect_timeout_ms);
+	}
+
+	/**
+	 * @param _max_in_flight global cap on outstanding connects
+	 * @param _host_connects_per_second max connects started per host per second, 0 for no limit
+	 * @param _connects_per_second max connects started per second over all hosts, 0 for no limit
+	 * @param _connect_timeout_ms time a connect may stay pending before it counts as closed
+	 */
+	public PortSweeper(int _max_in_flight, int _host_connects_per_second, int _connects_per_second, int _connect_timeout_ms) {
+		this.max_in_flight = Math.max(1, _max_in_flight);
+		this.host_interval_nanos = (_host_connects_per_second > 0) ? TimeUnit.SECONDS.toNanos(1) / _host_connects_per_second : 0L;
+		this.global_interval_nanos = (_connects_per_second > 0) ? TimeUnit.SECONDS.toNanos(1) / _connects_per_second : 0L;
+		this.connect_timeout_nanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, _connect_timeout_ms));
+		this.global_next_slot = System.nanoTime();
+	}
+
+	/**
+	 * Probes all targets, blocks until every connect completed or timed out.
+	 *
+	 * @param _targets addresses to probe
+	 * @param _on_open called from the sweeping thread for every address that accepted the connect
+	 * @return number of open addresses found
+	 */
+	public int sweep(Collection<InetSocketAddress> _targets, Consumer<InetSocketAddress> _on_open) {
+		Deque<InetSocketAddress> pending = new ArrayDeque<>(_targets);
+		Map<String, Long> host_next_slot = new HashMap<>();
+		int[] open = {0};
+		Consumer<InetSocketAddress> report = target -> {
+			open[0]++;
+			_on_open.accept(target);
+		};
+		int in_flight = 0;
+		int limit = max_in_flight;
+		int idle_shortages = 0;
+		long start = System.nanoTime();
+
+		try (Selector selector = Selector.open()) {
+			while (!pending.isEmpty() || in_flight > 0) {
+				long now = System.nanoTime();
+
+				// Start new connects up to the global cap and rate, deferring hosts that are rate limited
+				long next_slot = Long.MAX_VALUE;
+				int to_visit = pending.size();
+				while (in_flight < limit && to_visit-- > 0) {
+					if (global_interval_nanos > 0) {
+						if (global_next_slot - now > 0) {
+							next_slot = Math.min(next_slot, global_next_slot);
+							break;
+						}
+						global_next_slot = Math.max(global_next_slot, now - GLOBAL_CATCH_UP_NANOS) + global_interval_nanos;
+					}
+					InetSocketAddress target = pending.poll();
+					String host = target.getHostString();
+					Long slot = host_next_slot.get(host);
+					if (slot != null && slot > now) {
+						next_slot = Math.min(next_slot, slot);
+						pending.add(target);
+						if (global_interval_nanos > 0) {
+							global_next_slot -= global_interval_nanos; // nothing was started
+						}
+						continue;
+					}
+					if (host_interval_nanos > 0) {
+						host_next_slot.put(host, now + host_interval_nanos);
+					}
+					Start started = start_connect(selector, target, now, report);
+					if (started == Start.PENDING) {
+						in_flight++;
+						idle_shortages = 0;
+					} else if (started == Start.NO_SOCKET) {
+						if (in_flight == 0 && ++idle_shortages > MAX_IDLE_SHORTAGES) {
+							LOGGER.warn("No socket available for {} connects, giving up on {}", MAX_IDLE_SHORTAGES, target);
+							idle_shortages = 0;
+							break;
+						}
+						pending.addFirst(target);
+						host_next_slot.remove(host);
+						if (global_interval_nanos > 0) {
+							global_next_slot -= global_interval_nanos; // nothing was sent
+						}
+						if (in_flight > 0 && in_flight < limit) {
+							LOGGER.info("Out of sockets at {} connects in flight, lowering the limit from {}", in_flight, limit);
+							limit = in_flight;
+						}
+						break; // wait for connects to finish and free their sockets
+					}
+				}
+
+				// Wait for completions, but not past the next timeout or rate limit slot
+				long wait_ms = Math.min(MAX_SELECT_WAIT_MS, TimeUnit.NANOSECONDS.toMillis(connect_timeout_nanos));
+				if (next_slot != Long.MAX_VALUE) {
+					wait_ms = Math.min(wait_ms, TimeUnit.NANOSECONDS.toMillis(next_slot - now));
+				}
+				selector.select(Math.max(1L, wait_ms));
+
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+					InetSocketAddress target = ((Attempt) key.attachment()).target;
+					SocketChannel ch = (SocketChannel) key.channel();
+					boolean connected = false;
+					try {
+						connected = ch.finishConnect();
+					} catch (IOException e) {
+						// refused or unreachable
+					}
+					if (connected) {
+						report.accept(target);
+					}
+					close(key);
+					in_flight--;
+				}
+
+				// Expire connects that are still pending
+				now = System.nanoTime();
+				for (SelectionKey key : selector.keys()) {
+					if (key.isValid() && ((Attempt) key.attachment()).deadline <= now) {
+						close(key);
+						in_flight--;
+					}
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.warn("Port sweep aborted: " + e.getMessage());
+		}
+
+		LOGGER.debug("Swept {} targets in {} ms, {} open", _targets.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), open[0]);
+		return open[0];
+	}
+
+	/**
+	 * @return PENDING if the connect is registered with the selector, DONE if it already
+	 *         succeeded or failed, NO_SOCKET if the process is out of sockets and the target
+	 *         has to be tried again
+	 */
+	private Start start_connect(Selector _selector, InetSocketAddress _target, long _now, Consumer<InetSocketAddress> _on_open) {
+		SocketChannel ch;
+		try {
+			ch = open_channel();
+		} catch (IOException e) {
+			LOGGER.debug("Unable to open a socket for {}: {}", _target, e.getMessage());
+			return Start.NO_SOCKET;
+		}
+		try {
+			ch.configureBlocking(false);
+			if (ch.connect(_target)) {
+				// connected immediately, e.g. loopback
+				ch.close();
+				_on_open.accept(_target);
+				return Start.DONE;
+			}
+			ch.register(_selector, SelectionKey.OP_CONNECT, new Attempt(_target, _now + connect_timeout_nanos));
+			return Start.PENDING;
+		} catch (BindException e) {
+			// no free local port
+			close(ch);
+			return Start.NO_SOCKET;
+		} catch (IOException e) {
+			// refused or unreachable right away
+			close(ch);
+			return Start.DONE;
+		}
+	}
+
+	/**
+	 * Opens the socket of one connect, fails with an IOException when the process has none left.
+	 */
+	protected SocketChannel open_channel() throws IOException {
+		return SocketChannel.open();
+	}
+
+	private static void close(SocketChannel _ch) {
+		try {
+			_ch.close();
+		} catch (IOException ignored) {
+		}
+	}
+
+	private static void close(SelectionKey _key) {
+		_key.cancel();
+		try {
+			_key.channel().close();
+		} catch (IOException ignored) {
+		}
+	}
+
+	private static final class Attempt {
+		final InetSocketAddress target;
+		final long deadline;
+
+		Attempt(InetSocketAddress target, long deadline) {
+			this.target = target;
+			this.deadline = deadline;
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package ntt.security.ollamadrama.utils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ntt.security.ollamadrama.config.OllamaDramaSettings;
+import ntt.security.ollamadrama.objects.PromptInjectionRule;
+import ntt.security.ollamadrama.objects.PromptInjectionScanResult;
+
+/**
+ * Single-pass prompt injection scanner. All rules are combined into one alternation so the text is
+ * scanned once instead of once per rule. Each rule carries a lowercase literal that every match must
+ * contain, only rules whose literal is present in the text take part in the scan, and text without
+ * any literal is returned without running a regex at all.
+ *
+ * From the leftmost match on a line to the end of that line is replaced once, keeping the line break,
+ * and the replacement text is never scanned again. The previous rule-by-rule implementation rescanned
+ * the output of each rule, so it differs when matches chain through the replacement or overlap: with
+ * a replacement containing "prompt", "output ignore previous instructions" used to collapse entirely
+ * and now keeps "output " in front of the replacement.
+ */
+public class PromptInjectionScanner {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(PromptInjectionScanner.class);
+
+	private static final String LINE_TAIL = ".*?(?<eol>\\r?\\n|$)";
+	private static final int MAX_CACHED_PATTERNS = 256;
+
+	public static final List<PromptInjectionRule> DEFAULT_RULES = List.of(
+			// Classic override attacks
+			new PromptInjectionRule("override-ignore", "instruction", "ignore\\s+(?:all\\s+)?(?:previous|prior|above)\\s+instructions?"),
+			new PromptInjectionRule("override-disregard", "instruction", "disregard\\s+(?:all\\s+)?(?:previous|prior|above)\\s+instructions?"),
+			new PromptInjectionRule("override-forget", "instruction", "forget\\s+(?:all\\s+)?(?:previous|prior|above)\\s+instructions?"),
+			new PromptInjectionRule("override-skip", "instruction", "skip\\s+(?:all\\s+)?(?:previous|prior|above)\\s+instructions?"),
+
+			// Memory wipe
+			new PromptInjectionRule("memory-forget-everything", "everything", "forget\\s+everything\\s+(?:you\\s+)?(?:know|learned)"),
+			new PromptInjectionRule("memory-clear", "memory", "clear\\s+(?:your\\s+)?memory"),
+			new PromptInjectionRule("memory-reset", "reset", "reset\\s+(?:your\\s+)?(?:instructions?|context|memory)"),
+
+			// Jailbreak/DAN attempts
+			new PromptInjectionRule("jailbreak-developer-mode", "developer", "you\\s+are\\s+now\\s+(?:in\\s+)?developer\\s+mode"),
+			new PromptInjectionRule("jailbreak-dan", "dan", "you\\s+are\\s+now\\s+dan"),
+			new PromptInjectionRule("jailbreak-enter-developer-mode", "developer", "enter\\s+developer\\s+mode"),
+			new PromptInjectionRule("jailbreak-enable", "jailbreak", "enable\\s+jailbreak"),
+			new PromptInjectionRule("jailbreak-unrestricted", "unrestricted", "act\\s+as\\s+(?:an?\\s+)?unrestricted"),
+
+			// Prompt replacement
+			new PromptInjectionRule("replace-new-system-prompt", "system", "new\\s+system\\s+prompt"),
+			new PromptInjectionRule("replace-override-system", "override", "override\\s+(?:the\\s+)?system\\s+(?:settings?|prompt|instructions?)"),
+			new PromptInjectionRule("replace-instructions", "instruction", "replace\\s+(?:your\\s+)?(?:system\\s+)?instructions?"),
+			new PromptInjectionRule("replace-system-tag", "system", "\\[\\s*system\\s*(?:override|prompt)\\s*\\]"),
+
+			// Prompt extraction
+			new PromptInjectionRule("extract-show", "system", "show\\s+(?:me\\s+)?(?:your\\s+)?system\\s+prompt"),
+			new PromptInjectionRule("extract-display", "instruction", "display\\s+(?:your\\s+)?(?:system\\s+)?instructions?"),
+			new PromptInjectionRule("extract-repeat", "verbatim", "repeat\\s+(?:the\\s+)?instructions?\\s+verbatim"),
+			new PromptInjectionRule("extract-output", "prompt", "output\\s+(?:the\\s+)?(?:full\\s+)?prompt"),
+			new PromptInjectionRule("extract-print", "prompt", "print\\s+(?:your\\s+)?(?:system\\s+)?prompt"),
+			new PromptInjectionRule("extract-what", "what", "what\\s+(?:are|is)\\s+(?:your\\s+)?(?:system\\s+)?(?:instructions?|prompt)"),
+			new PromptInjectionRule("extract-reveal", "reveal", "reveal\\s+(?:your\\s+)?(?:system\\s+)?(?:instructions?|prompt)"),
+
+			// Secrecy/hiding
+			new PromptInjectionRule("secrecy-do-not-mention", "mention", "do\\s+not\\s+mention\\s+(?:the\\s+)?instructions?"),
+			new PromptInjectionRule("secrecy-dont-mention", "mention", "don'?t\\s+mention\\s+(?:the\\s+)?instructions?"),
+			new PromptInjectionRule("secrecy-hide", "hide", "hide\\s+(?:the\\s+fact|that)"),
+
+			// Role manipulation
+			new PromptInjectionRule("role-no-longer", "longer", "you\\s+are\\s+no\\s+longer"),
+			new PromptInjectionRule("role-stop-assistant", "assistant", "stop\\s+being\\s+(?:an?\\s+)?assistant"),
+			new PromptInjectionRule("role-no-restrictions", "restriction", "pretend\\s+(?:you\\s+)?(?:are|have)\\s+no\\s+restrictions?"),
+
+			// Encoding tricks
+			new PromptInjectionRule("encoding-decode", "decode", "decode\\s+(?:the\\s+following|this)\\s+(?:base64|hex)"),
+			new PromptInjectionRule("encoding-execute", "encoded", "execute\\s+(?:the\\s+following|this)\\s+encoded")
+			);
+
+	private static final PromptInjectionScanner DEFAULT = new PromptInjectionScanner(DEFAULT_RULES);
+	private static final Map<String, PromptInjectionScanner> scanners = new ConcurrentHashMap<>();
+
+	private final List<PromptInjectionRule> rules;
+	private final String[] prefilters;
+	private final Map<BitSet, Pattern> combined_patterns = new ConcurrentHashMap<>();
+	private final Pattern all_rules_pattern;
+
+	public PromptInjectionScanner(List<PromptInjectionRule> _rules) {
+		List<PromptInjectionRule> valid = new ArrayList<>();
+		for (PromptInjectionRule rule : _rules) {
+			try {
+				Pattern.compile(rule.getPattern());
+				valid.add(rule);
+			} catch (PatternSyntaxException e) {
+				LOGGER.warn("Skipping prompt injection rule " + rule.getId() + " with invalid pattern: " + e.getMessage());
+			}
+		}
+		this.rules = Collections.unmodifiableList(valid);
+		this.prefilters = new String[rules.size()];
+		for (int i = 0; i < rules.size(); i++) {
+			String prefilter = rules.get(i).getPrefilter();
+			prefilters[i] = (prefilter == null) ? "" : prefilter.toLowerCase(Locale.ROOT);
+		}
+		BitSet all = new BitSet();
+		all.set(0, rules.size());
+		this.all_rules_pattern = compile(all);
+	}
+
+	public static PromptInjectionScanner getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Scanner for the built-in rules plus any custom mcp_promptinject_rules from the settings.
+	 */
+	public static PromptInjectionScanner forSettings(OllamaDramaSettings _settings) {
+		if (_settings == null || _settings.getMcp_promptinject_rules().isEmpty()) {
+			return DEFAULT;
+		}
+		StringBuilder key = new StringBuilder();
+		for (PromptInjectionRule rule : _settings.getMcp_promptinject_rules()) {
+			key.append(rule.getId()).append('\u0000').append(rule.getPrefilter()).append('\u0000').append(rule.getPattern()).append('\u0001');
+		}
+		return scanners.computeIfAbsent(key.toString(), k -> {
+			List<PromptInjectionRule> combined = new ArrayList<>(DEFAULT_RULES);
+			combined.addAll(_settings.getMcp_promptinject_rules());
+			return new PromptInjectionScanner(combined);
+		});
+	}
+
+	public List<PromptInjectionRule> getRules() {
+		return rules;
+	}
+
+	public String sanitize(String _text, String _replacement) {
+		return scan(_text, _replacement).getSanitized();
+	}
+
+	public PromptInjectionScanResult scan(String _text, String _replacement) {
+		if (_text == null || _text.isEmpty() || rules.isEmpty()) {
+			return new PromptInjectionScanResult(_text, Collections.emptyList());
+		}
+
+		// Literal prefilter, only rules whose literal is present take part in the scan
+		String lowered = _text.toLowerCase(Locale.ROOT);
+		BitSet active = new BitSet();
+		for (int i = 0; i < prefilters.length; i++) {
+			if (prefilters[i].isEmpty() || lowered.contains(prefilters[i])) {
+				active.set(i);
+			}
+		}
+		if (active.isEmpty()) {
+			return new PromptInjectionScanResult(_text, Collections.emptyList());
+		}
+
+		Pattern pattern = combined_patterns.get(active);
+		if (pattern == null) {
+			if (combined_patterns.size() < MAX_CACHED_PATTERNS) {
+				pattern = combined_patterns.computeIfAbsent(active, this::compile);
+			} else {
+				pattern = all_rules_pattern;
+			}
+		}
+
+		List<String> matched = new ArrayList<>();
+		String replacement = Matcher.quoteReplacement(_replacement) + "${eol}";
+		Matcher m = pattern.matcher(_text);
+		StringBuilder sb = new StringBuilder(_text.length());
+		while (m.find()) {
+			for (int i = active.nextSetBit(0); i >= 0; i = active.nextSetBit(i + 1)) {
+				if (m.start("r" + i) >= 0) {
+					if (!matched.contains(rules.get(i).getId())) {
+						matched.add(rules.get(i).getId());
+					}
+					break;
+				}
+			}
+			m.appendReplacement(sb, replacement);
+		}
+		if (matched.isEmpty()) {
+			return new PromptInjectionScanResult(_text, matched);
+		}
+		m.appendTail(sb);
+		return new PromptInjectionScanResult(sb.toString(), matched);
+	}
+
+	private Pattern compile(BitSet _active) {
+		StringBuilder sb = new StringBuilder("(?:");
+		boolean first = true;
+		for (int i = _active.nextSetBit(0); i >= 0; i = _active.nextSetBit(i + 1)) {
+			if (!first) sb.append('|');
+			sb.append("(?<r").append(i).append('>').append(rules.get(i).getPattern()).append(')');
+			first = false;
+		}
+		sb.append(')').append(LINE_TAIL);
+		return Pattern.compile(sb.toString(), Pattern.CASE_INSENSITIVE);
+	}
+
+}
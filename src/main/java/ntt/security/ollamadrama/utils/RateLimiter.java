@@ -0,0 +1,269 @@
+package ntt.security.ollamadrama.utils;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ntt.security.ollamadrama.config.OllamaDramaSettings;
+
+/**
+ * Client-side rate limit for one cloud provider API key, shared by every session on that key.
+ * Requests per minute and tokens per minute are two token buckets that refill continuously and
+ * hold at most one minute of budget, 0 leaves a bucket unlimited. Requests are let through in
+ * arrival order. A 429 pauses the whole key for as long as the server asks, so the sessions do
+ * not all retry into the limit at the same moment.
+ *
+ * Tokens are charged up front from an estimate and corrected with settle() once the response
+ * reports its usage.
+ */
+public class RateLimiter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RateLimiter.class);
+
+	private static final double MINUTE_MS = 60_000.0;
+	private static final long MIN_POLL_MS = 10L;
+	private static final long QUEUED_POLL_MS = 1_000L; // behind the head, woken early when it leaves
+
+	private static final Map<String, RateLimiter> LIMITERS = new ConcurrentHashMap<>();
+
+	private final String name;
+	private final Deque<Long> queue = new ArrayDeque<>();
+	private long next_ticket = 0L;
+	private int requests_per_minute = 0;
+	private int tokens_per_minute = 0;
+	private double request_budget = 0.0;
+	private double token_budget = 0.0;
+	private long refilled_at = System.currentTimeMillis();
+	private long paused_until = 0L;
+	private long granted = 0L;
+	private long throttled = 0L;
+	private long total_wait_ms = 0L;
+	private long max_wait_ms = 0L;
+
+	RateLimiter(String _name) {
+		this.name = _name;
+	}
+
+	/**
+	 * @return the limiter of the provider and API key, created unlimited on first use
+	 */
+	public static RateLimiter forKey(String provider, String api_key) {
+		return LIMITERS.computeIfAbsent(key(provider, api_key), RateLimiter::new);
+	}
+
+	/**
+	 * Like forKey(), with the limits configured for the provider in cloud_requests_per_minute and
+	 * cloud_tokens_per_minute.
+	 */
+	public static RateLimiter forKey(String provider, String api_key, OllamaDramaSettings settings) {
+		RateLimiter limiter = forKey(provider, api_key);
+		limiter.setLimits(settings.getCloud_requests_per_minute().getOrDefault(provider, 0),
+				settings.getCloud_tokens_per_minute().getOrDefault(provider, 0));
+		return limiter;
+	}
+
+	public static void release(String provider, String api_key) {
+		LIMITERS.remove(key(provider, api_key));
+	}
+
+	private static String key(String provider, String api_key) {
+		// never keep the key itself around, a short fingerprint tells keys apart in the logs
+		String fingerprint = (api_key == null || api_key.isEmpty()) ? "nokey" : OllamaUtils.compute_sha256_hash(api_key).substring(0, 8);
+		return provider + ":" + fingerprint;
+	}
+
+	/**
+	 * Sets the per minute limits, 0 for unlimited. A bucket that becomes limited starts full.
+	 */
+	public synchronized void setLimits(int _requests_per_minute, int _tokens_per_minute) {
+		refill(System.currentTimeMillis());
+		if (requests_per_minute == 0) {
+			request_budget = Math.max(0, _requests_per_minute);
+		}
+		if (tokens_per_minute == 0) {
+			token_budget = Math.max(0, _tokens_per_minute);
+		}
+		this.requests_per_minute = Math.max(0, _requests_per_minute);
+		this.tokens_per_minute = Math.max(0, _tokens_per_minute);
+		request_budget = Math.min(request_budget, requests_per_minute);
+		token_budget = Math.min(token_budget, tokens_per_minute);
+		notifyAll();
+	}
+
+	// ========== LIMITING ==========
+
+	/**
+	 * Blocks until one request of about estimated_tokens may be sent on this key, or until the
+	 * RetryPolicy deadline of the calling thread would pass first.
+	 *
+	 * @return milliseconds spent waiting, -1 if the deadline came first and the request must not be sent
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public synchronized long acquire(long estimated_tokens) throws InterruptedException {
+		long ticket = next_ticket++;
+		queue.addLast(ticket);
+		long start = System.currentTimeMillis();
+		try {
+			while (true) {
+				long now = System.currentTimeMillis();
+				refill(now);
+				boolean head = (queue.peekFirst() == ticket);
+				long delay = head ? delay_ms(now, estimated_tokens) : QUEUED_POLL_MS;
+				if (delay == 0L) {
+					break;
+				}
+				long remaining = RetryPolicy.remaining_ms();
+				if (remaining == 0L || (head && delay >= remaining)) {
+					LOGGER.warn("Rate limit on {} would hold a request past its deadline, giving up after {} ms",
+							name, now - start);
+					return -1L;
+				}
+				wait(Math.min(delay, remaining));
+			}
+		} finally {
+			queue.remove(ticket);
+			notifyAll();
+		}
+
+		if (requests_per_minute > 0) {
+			request_budget -= 1.0;
+		}
+		if (tokens_per_minute > 0) {
+			token_budget -= Math.max(0L, estimated_tokens); // may go negative for a request larger than the bucket
+		}
+		long waited = System.currentTimeMillis() - start;
+		granted++;
+		total_wait_ms += waited;
+		max_wait_ms = Math.max(max_wait_ms, waited);
+		if (waited >= 1_000L) {
+			LOGGER.info("Rate limit on {} held a request for {} ms", name, waited);
+		}
+		return waited;
+	}
+
+	/**
+	 * @return how long the head of the queue still has to wait, 0 if it may go now
+	 */
+	private long delay_ms(long now, long estimated_tokens) {
+		long delay = Math.max(0L, paused_until - now);
+		if (requests_per_minute > 0 && request_budget < 1.0) {
+			delay = Math.max(delay, (long) Math.ceil((1.0 - request_budget) * MINUTE_MS / requests_per_minute));
+		}
+		if (tokens_per_minute > 0) {
+			// a request larger than the bucket only needs a full bucket
+			double need = Math.min(Math.max(0L, estimated_tokens), tokens_per_minute);
+			if (token_budget < need) {
+				delay = Math.max(delay, (long) Math.ceil((need - token_budget) * MINUTE_MS / tokens_per_minute));
+			}
+		}
+		return (delay == 0L) ? 0L : Math.max(MIN_POLL_MS, delay);
+	}
+
+	private void refill(long now) {
+		long elapsed = Math.max(0L, now - refilled_at);
+		refilled_at = now;
+		if (requests_per_minute > 0) {
+			request_budget = Math.min(requests_per_minute, request_budget + elapsed * requests_per_minute / MINUTE_MS);
+		}
+		if (tokens_per_minute > 0) {
+			token_budget = Math.min(tokens_per_minute, token_budget + elapsed * tokens_per_minute / MINUTE_MS);
+		}
+	}
+
+	/**
+	 * Corrects the token charge of a finished request with the usage the provider reported.
+	 */
+	public synchronized void settle(long estimated_tokens, long actual_tokens) {
+		if (tokens_per_minute > 0 && actual_tokens > 0L) {
+			token_budget = Math.min(tokens_per_minute, token_budget + estimated_tokens - actual_tokens);
+		}
+	}
+
+	/**
+	 * Holds every request on this key for the given time, after the provider answered 429.
+	 */
+	public synchronized void pause(long ms) {
+		throttled++;
+		paused_until = Math.max(paused_until, System.currentTimeMillis() + Math.max(0L, ms));
+		LOGGER.info("Rate limited on {}, holding requests for {} ms", name, ms);
+		notifyAll();
+	}
+
+	/**
+	 * @return a rough token count for rate limiting, about three characters per token so it errs high
+	 */
+	public static long estimate_tokens(String text) {
+		return (text == null) ? 0L : text.length() / 3 + 1;
+	}
+
+	// ========== RETRY HINTS ==========
+
+	/**
+	 * Reads the retry hint of a 429 response: retry-after-ms, or retry-after in seconds or as an
+	 * HTTP date.
+	 *
+	 * @param headers header values by name, as the provider SDKs return them
+	 * @return milliseconds to wait, -1 without a usable hint
+	 */
+	public static long retry_after_ms(Function<String, List<String>> headers) {
+		try {
+			List<String> ms = headers.apply("retry-after-ms");
+			if (ms != null && !ms.isEmpty()) {
+				return Math.max(0L, (long) Double.parseDouble(ms.get(0).trim()));
+			}
+			List<String> after = headers.apply("retry-after");
+			if (after != null && !after.isEmpty()) {
+				String value = after.get(0).trim();
+				if (value.matches("\\d+(\\.\\d+)?")) {
+					return (long) (Double.parseDouble(value) * 1000.0);
+				}
+				ZonedDateTime at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+				return Math.max(0L, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+			}
+		} catch (RuntimeException e) {
+			LOGGER.debug("Ignoring unreadable retry hint: " + e.getMessage());
+		}
+		return -1L;
+	}
+
+	// ========== STATS ==========
+
+	public synchronized long getGranted() {
+		return granted;
+	}
+
+	/**
+	 * @return 429 responses seen on this key
+	 */
+	public synchronized long getThrottled() {
+		return throttled;
+	}
+
+	public synchronized int getWaiting() {
+		return queue.size();
+	}
+
+	public synchronized long getTotal_wait_ms() {
+		return total_wait_ms;
+	}
+
+	public synchronized long getMax_wait_ms() {
+		return max_wait_ms;
+	}
+
+	public synchronized long getAverage_wait_ms() {
+		return (granted == 0L) ? 0L : total_wait_ms / granted;
+	}
+
+	public String getName() {
+		return name;
+	}
+}
@@ -0,0 +1,272 @@
+package ntt.security.ollamadrama.utils;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ntt.security.ollamadrama.enums.RequestPriority;
+
+/**
+ * Orders the requests of this process on one Ollama endpoint. At most `slots` requests run at
+ * once. When a slot frees up the next request is chosen by priority class, then by start-time
+ * fair queuing between tenants, so a tenant with weight 2 gets twice the turns of one with
+ * weight 1 while both are waiting. Every aging interval spent waiting promotes a request by one
+ * class, so batch work still gets through under sustained interactive load.
+ *
+ * The tenant and priority of a request come from the calling thread, see scope().
+ */
+public class RequestScheduler {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RequestScheduler.class);
+
+	public static final String DEFAULT_TENANT = "default";
+
+	private static final Map<String, RequestScheduler> SCHEDULERS = new ConcurrentHashMap<>();
+	private static final Map<String, Integer> TENANT_WEIGHTS = new ConcurrentHashMap<>();
+	private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+	private static volatile int default_slots = 4;
+	private static volatile long aging_ms = 30_000L;
+
+	private final String ollama_url;
+	private final int slots;
+	private final List<Waiter> waiting = new ArrayList<>();
+	private final Map<String, Double> tenant_finish = new HashMap<>();
+	private final Map<RequestPriority, Long> granted = new EnumMap<>(RequestPriority.class);
+	private final Map<RequestPriority, Long> max_wait_ms = new EnumMap<>(RequestPriority.class);
+	private double virtual_time = 0.0;
+	private long sequence = 0L;
+	private int running = 0;
+
+	RequestScheduler(String _ollama_url, int _slots) {
+		this.ollama_url = _ollama_url;
+		this.slots = Math.max(1, _slots);
+	}
+
+	/**
+	 * @return the scheduler of the endpoint URL, created on first use
+	 */
+	public static RequestScheduler forEndpoint(String ollama_url) {
+		return SCHEDULERS.computeIfAbsent(ollama_url, url -> new RequestScheduler(url, default_slots));
+	}
+
+	public static void release(String ollama_url) {
+		SCHEDULERS.remove(ollama_url);
+	}
+
+	/**
+	 * Concurrent requests per endpoint for schedulers created from now on.
+	 */
+	public static void setDefault_slots(int _slots) {
+		default_slots = Math.max(1, _slots);
+	}
+
+	public static void setAging_seconds(int _aging_seconds) {
+		aging_ms = Math.max(1, _aging_seconds) * 1000L;
+	}
+
+	/**
+	 * Relative share of a tenant while several tenants wait, 1 unless set.
+	 */
+	public static void setTenant_weight(String tenant, int weight) {
+		TENANT_WEIGHTS.put(tenant, Math.max(1, weight));
+	}
+
+	// ========== CALLER CONTEXT ==========
+
+	/**
+	 * Runs the requests of this thread with the given tenant and priority until the scope is
+	 * closed, overriding any enclosing scope.
+	 */
+	public static Scope scope(String tenant, RequestPriority priority) {
+		Scope scope = new Scope(tenant, priority, CURRENT.get());
+		CURRENT.set(scope);
+		return scope;
+	}
+
+	/**
+	 * Like scope(), but a scope the caller opened for the call wins. Sessions use this for their
+	 * own tenant and priority.
+	 */
+	public static Scope default_scope(String tenant, RequestPriority priority) {
+		Scope current = CURRENT.get();
+		if (current != null) {
+			return new Scope(current.tenant, current.priority, current);
+		}
+		return scope(tenant, priority);
+	}
+
+	public static String current_tenant() {
+		Scope current = CURRENT.get();
+		return (current == null) ? DEFAULT_TENANT : current.tenant;
+	}
+
+	public static RequestPriority current_priority() {
+		Scope current = CURRENT.get();
+		return (current == null) ? RequestPriority.NORMAL : current.priority;
+	}
+
+	public static final class Scope implements AutoCloseable {
+		private final String tenant;
+		private final RequestPriority priority;
+		private final Scope previous;
+
+		private Scope(String _tenant, RequestPriority _priority, Scope _previous) {
+			this.tenant = (_tenant == null || _tenant.isEmpty()) ? DEFAULT_TENANT : _tenant;
+			this.priority = (_priority == null) ? RequestPriority.NORMAL : _priority;
+			this.previous = _previous;
+		}
+
+		@Override
+		public void close() {
+			if (previous == null) {
+				CURRENT.remove();
+			} else {
+				CURRENT.set(previous);
+			}
+		}
+	}
+
+	// ========== SCHEDULING ==========
+
+	/**
+	 * Waits for a slot with the tenant and priority of the calling thread.
+	 */
+	public Permit acquire() throws InterruptedException {
+		return acquire(current_tenant(), current_priority());
+	}
+
+	public synchronized Permit acquire(String tenant, RequestPriority priority) throws InterruptedException {
+		Waiter waiter = new Waiter(tenant, priority);
+		waiting.add(waiter);
+		dispatch();
+		try {
+			while (!waiter.granted) {
+				wait();
+			}
+		} catch (InterruptedException e) {
+			if (waiter.granted) {
+				running--;
+			}
+			waiting.remove(waiter);
+			dispatch();
+			throw e;
+		}
+
+		long waited = System.currentTimeMillis() - waiter.queued;
+		granted.merge(priority, 1L, Long::sum);
+		max_wait_ms.merge(priority, waited, Math::max);
+		if (waited > aging_ms) {
+			LOGGER.info("{} request of {} waited {} ms for a slot on {}", priority, tenant, waited, ollama_url);
+		}
+		return new Permit(this);
+	}
+
+	private synchronized void finish() {
+		running--;
+		dispatch();
+	}
+
+	/**
+	 * Hands free slots to the best waiting requests.
+	 */
+	private void dispatch() {
+		long now = System.currentTimeMillis();
+		while (running < slots && !waiting.isEmpty()) {
+			Waiter best = null;
+			for (Waiter w : waiting) {
+				if (best == null || w.before(best, now)) {
+					best = w;
+				}
+			}
+			waiting.remove(best);
+			virtual_time = Math.max(virtual_time, best.start_tag);
+			best.granted = true;
+			running++;
+		}
+		notifyAll();
+	}
+
+	private final class Waiter {
+		private final String tenant;
+		private final RequestPriority priority;
+		private final long queued = System.currentTimeMillis();
+		private final long seq = sequence++;
+		private final double start_tag;
+		private boolean granted = false;
+
+		private Waiter(String _tenant, RequestPriority _priority) {
+			this.tenant = _tenant;
+			this.priority = _priority;
+			this.start_tag = Math.max(virtual_time, tenant_finish.getOrDefault(_tenant, 0.0));
+			tenant_finish.put(_tenant, start_tag + 1.0 / TENANT_WEIGHTS.getOrDefault(_tenant, 1));
+		}
+
+		private int effective_class(long now) {
+			return (int) Math.max(0L, priority.ordinal() - (now - queued) / aging_ms);
+		}
+
+		private boolean before(Waiter other, long now) {
+			int mine = effective_class(now);
+			int theirs = other.effective_class(now);
+			if (mine != theirs) {
+				return mine < theirs;
+			}
+			if (start_tag != other.start_tag) {
+				return start_tag < other.start_tag;
+			}
+			return seq < other.seq;
+		}
+	}
+
+	/**
+	 * A running request's slot, closing it lets the next request in.
+	 */
+	public static final class Permit implements AutoCloseable {
+		private final RequestScheduler scheduler;
+		private boolean closed = false;
+
+		private Permit(RequestScheduler _scheduler) {
+			this.scheduler = _scheduler;
+		}
+
+		@Override
+		public void close() {
+			if (!closed) {
+				closed = true;
+				scheduler.finish();
+			}
+		}
+	}
+
+	// ========== STATS ==========
+
+	public synchronized int getRunning() {
+		return running;
+	}
+
+	public synchronized int getWaiting() {
+		return waiting.size();
+	}
+
+	public synchronized long getGranted(RequestPriority priority) {
+		return granted.getOrDefault(priority, 0L);
+	}
+
+	public synchronized long getMax_wait_ms(RequestPriority priority) {
+		return max_wait_ms.getOrDefault(priority, 0L);
+	}
+
+	public int getSlots() {
+		return slots;
+	}
+
+	public String getOllama_url() {
+		return ollama_url;
+	}
+}
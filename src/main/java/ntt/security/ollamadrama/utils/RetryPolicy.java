@@ -0,0 +1,199 @@
+package ntt.security.ollamadrama.utils;
+
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retry backoff and deadlines. A deadline is opened with within() and holds for the calling
+ * thread until the scope is closed, so a budget set by an ensemble run also bounds the session
+ * calls, the HTTP requests and the tool calls made underneath it. A nested scope can shorten the
+ * deadline but never extend it.
+ *
+ * Retry loops take a Backoff from a policy. It sleeps decorrelated-jitter delays, gives up on
+ * errors that a retry cannot fix, and gives up when the deadline leaves no room for another
+ * attempt.
+ */
+public class RetryPolicy {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RetryPolicy.class);
+
+	public static final RetryPolicy DEFAULT = new RetryPolicy(1_000L, 30_000L);
+
+	private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>(); // epoch millis
+	private static final Pattern HTTP_STATUS = Pattern.compile("\\bHTTP (\\d{3})\\b");
+
+	private final long base_ms;
+	private final long cap_ms;
+
+	public RetryPolicy(long _base_ms, long _cap_ms) {
+		this.base_ms = Math.max(1L, _base_ms);
+		this.cap_ms = Math.max(this.base_ms, _cap_ms);
+	}
+
+	// ========== DEADLINE ==========
+
+	/**
+	 * Bounds everything this thread does until the scope is closed, 0 or less adds no bound.
+	 */
+	public static Deadline within(long seconds) {
+		return within((seconds > 0L) ? Duration.ofSeconds(seconds) : null);
+	}
+
+	public static Deadline within(Duration budget) {
+		Long previous = DEADLINE.get();
+		if (budget != null) {
+			long at = System.currentTimeMillis() + budget.toMillis();
+			DEADLINE.set((previous == null) ? at : Math.min(previous, at));
+		}
+		return new Deadline(previous);
+	}
+
+	/**
+	 * @return milliseconds left before the deadline of this thread, Long.MAX_VALUE without one
+	 */
+	public static long remaining_ms() {
+		Long at = DEADLINE.get();
+		return (at == null) ? Long.MAX_VALUE : Math.max(0L, at - System.currentTimeMillis());
+	}
+
+	public static boolean expired() {
+		return remaining_ms() == 0L;
+	}
+
+	/**
+	 * @return the requested timeout, shortened to what is left of the deadline (at least 1 s)
+	 */
+	public static long timeout_seconds(long requested_seconds) {
+		long remaining = remaining_ms();
+		if (remaining == Long.MAX_VALUE) {
+			return requested_seconds;
+		}
+		return Math.max(1L, Math.min(requested_seconds, (remaining + 999L) / 1000L));
+	}
+
+	public static final class Deadline implements AutoCloseable {
+		private final Long previous;
+
+		private Deadline(Long _previous) {
+			this.previous = _previous;
+		}
+
+		@Override
+		public void close() {
+			if (previous == null) {
+				DEADLINE.remove();
+			} else {
+				DEADLINE.set(previous);
+			}
+		}
+	}
+
+	// ========== CLASSIFICATION ==========
+
+	/**
+	 * @return false for errors another attempt will not fix: interrupts, programming errors,
+	 *         rejected credentials and HTTP 4xx other than 408, 409, 425 and 429
+	 */
+	public static boolean is_retryable(Throwable e) {
+		if (Thread.currentThread().isInterrupted()) {
+			return false;
+		}
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (t instanceof InterruptedException || (t instanceof InterruptedIOException && !(t instanceof SocketTimeoutException))) {
+				return false;
+			}
+			if (t instanceof IllegalArgumentException || t instanceof NullPointerException
+					|| t instanceof ClassCastException || t instanceof UnsupportedOperationException) {
+				return false;
+			}
+			String message = t.getMessage();
+			if (message != null) {
+				String lower = message.toLowerCase(Locale.ROOT);
+				if (lower.contains("invalid api key") || lower.contains("authentication required") || lower.contains("unauthorized")) {
+					return false;
+				}
+				Matcher status = HTTP_STATUS.matcher(message);
+				if (status.find() && !is_retryable_status(Integer.parseInt(status.group(1)))) {
+					return false;
+				}
+			}
+			if (t.getCause() == t) {
+				break;
+			}
+		}
+		return true;
+	}
+
+	public static boolean is_retryable_status(int status) {
+		return status < 400 || status >= 500 || status == 408 || status == 409 || status == 425 || status == 429;
+	}
+
+	// ========== BACKOFF ==========
+
+	/**
+	 * @return the backoff state for one retry loop
+	 */
+	public Backoff backoff() {
+		return new Backoff();
+	}
+
+	public final class Backoff {
+		private long previous_ms = base_ms;
+		private int failures = 0;
+
+		/**
+		 * Waits before the next attempt after the error.
+		 *
+		 * @return false if the error is not retryable or the deadline leaves no time
+		 */
+		public boolean retry(Throwable e) {
+			if (!is_retryable(e)) {
+				LOGGER.warn("Not retrying: " + e.getMessage());
+				return false;
+			}
+			return pause();
+		}
+
+		/**
+		 * Waits before the next attempt after a failure that was not an exception.
+		 *
+		 * @return false if the deadline leaves no time for another attempt
+		 */
+		public boolean pause() {
+			failures++;
+			long delay = next_delay_ms();
+			if (remaining_ms() <= delay) {
+				LOGGER.warn("Deadline reached after " + failures + " failed attempts, giving up");
+				return false;
+			}
+			try {
+				Thread.sleep(delay);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Decorrelated jitter: a random delay between the base and three times the last one, capped.
+		 */
+		public long next_delay_ms() {
+			long upper = Math.max(base_ms + 1L, Math.min(cap_ms, previous_ms * 3L));
+			previous_ms = Math.min(cap_ms, ThreadLocalRandom.current().nextLong(base_ms, upper + 1L));
+			return previous_ms;
+		}
+
+		public int getFailures() {
+			return failures;
+		}
+	}
+}
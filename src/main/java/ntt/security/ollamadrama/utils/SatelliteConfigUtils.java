@@ -0,0 +1,46 @@
+package ntt.security.ollamadrama.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ntt.security.ollamadrama.objects.SatelliteConfig;
+
+/**
+ * Reads the satellites_file holding the runtime-editable Ollama and MCP satellites.
+ */
+public class SatelliteConfigUtils {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SatelliteConfigUtils.class);
+
+	/**
+	 * @return the satellites in the file, or null if it is missing or unparsable so a half-written
+	 *         edit never drops the current satellites
+	 */
+	public static SatelliteConfig load(String _file) {
+		if (_file == null || _file.isEmpty()) {
+			return null;
+		}
+		Path path = Path.of(_file);
+		if (!Files.isRegularFile(path)) {
+			LOGGER.info("No satellites file found at {}", _file);
+			return null;
+		}
+		try {
+			String json = Files.readString(path, StandardCharsets.UTF_8);
+			SatelliteConfig config = JSONUtils.createPOJOFromJSONOpportunistic(json, SatelliteConfig.class);
+			if (config == null) {
+				LOGGER.warn("Ignoring unparsable satellites file {}", _file);
+			}
+			return config;
+		} catch (IOException e) {
+			LOGGER.warn("Unable to read satellites file {}: {}", _file, e.getMessage());
+			return null;
+		}
+	}
+
+}
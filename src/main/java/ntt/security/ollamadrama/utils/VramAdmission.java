@@ -0,0 +1,328 @@
+package ntt.security.ollamadrama.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * VRAM admission control for one Ollama endpoint. A request for a model that is resident, or
+ * that fits next to the resident models, is admitted at once. Otherwise idle models are unloaded
+ * in least-recently-used order until it fits, and if the models in the way are busy the request
+ * queues until one of them finishes.
+ *
+ * Capacity is ollama_vram_capacity_gb when set. Without it nothing is evicted and Ollama does
+ * the placement, until a load fails for lack of memory: the VRAM in use at that point is then
+ * taken as the capacity. A known capacity grows to the largest total size_vram seen on the
+ * endpoint. Model sizes are remembered from /api/ps, with the installed size as a first guess.
+ *
+ * Models with in-flight requests from this process are never evicted, and neither is a model
+ * for RESERVATION_MS after it was admitted, so it survives until its first request. LRU order follows the
+ * expires_at Ollama reports, which every agent's requests push forward. Ollama itself defers an
+ * unload until the requests of other agents on that model are done.
+ */
+public class VramAdmission {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(VramAdmission.class);
+
+	private static final long MIN_POLL_MS = 500L;
+	private static final long MAX_POLL_MS = 5_000L;
+	private static final long RESERVATION_MS = 60_000L; // admitted but no request in flight yet
+	private static final double GIB = 1024.0 * 1024.0 * 1024.0;
+
+	private static final Map<String, VramAdmission> CONTROLLERS = new ConcurrentHashMap<>();
+	private static final Map<String, Long> MODEL_SIZES = new ConcurrentHashMap<>(); // size_vram last seen, per model
+	private static volatile long default_capacity_bytes = 0L;
+
+	/**
+	 * What the controller needs from an Ollama server.
+	 */
+	public interface Server {
+
+		/**
+		 * @return the models loaded right now (/api/ps)
+		 */
+		List<Resident> resident() throws Exception;
+
+		void unload(String model_name) throws Exception;
+
+		/**
+		 * @return size of the installed model in bytes, 0 if unknown
+		 */
+		default long installed_size(String model_name) {
+			return 0L;
+		}
+	}
+
+	/**
+	 * A loaded model as reported by /api/ps.
+	 */
+	public static final class Resident {
+		private final String name;
+		private final long size_vram;
+		private final long expires_at;
+
+		public Resident(String _name, long _size_vram, long _expires_at) {
+			this.name = _name;
+			this.size_vram = _size_vram;
+			this.expires_at = _expires_at;
+		}
+
+		public String getName() { return name; }
+		public long getSize_vram() { return size_vram; }
+		/** epoch millis, Long.MAX_VALUE for models kept loaded forever */
+		public long getExpires_at() { return expires_at; }
+	}
+
+	private final String ollama_url;
+	private final Map<String, Integer> in_flight = new HashMap<>();
+	private final Map<String, Long> reserved = new HashMap<>(); // model -> reservation end, epoch millis
+	private final Deque<Long> queue = new ArrayDeque<>();
+	private long next_ticket = 0L;
+	private long capacity_bytes;
+	private long last_used = 0L; // size_vram total of the last /api/ps listing
+	private long admitted = 0L;
+	private long queued = 0L;
+	private long evictions = 0L;
+
+	VramAdmission(String _ollama_url, long _capacity_bytes) {
+		this.ollama_url = _ollama_url;
+		this.capacity_bytes = _capacity_bytes;
+	}
+
+	/**
+	 * @return the controller of the endpoint URL, created on first use
+	 */
+	public static VramAdmission forEndpoint(String ollama_url) {
+		return CONTROLLERS.computeIfAbsent(ollama_url, url -> new VramAdmission(url, default_capacity_bytes));
+	}
+
+	public static void release(String ollama_url) {
+		CONTROLLERS.remove(ollama_url);
+	}
+
+	/**
+	 * VRAM per endpoint for controllers created from now on, 0 to learn it.
+	 */
+	public static void setDefault_capacity_bytes(long _capacity_bytes) {
+		default_capacity_bytes = Math.max(0L, _capacity_bytes);
+	}
+
+	/**
+	 * Blocks until the model may be used on this endpoint. Requests for resident models pass
+	 * straight through, the rest are served in arrival order. The admitted model is reserved
+	 * against eviction until begin() or RESERVATION_MS.
+	 *
+	 * @throws InterruptedException if interrupted while queued
+	 */
+	public void admit(String model_name, Server server) throws InterruptedException {
+		long ticket;
+		synchronized (this) {
+			ticket = next_ticket++;
+			queue.addLast(ticket);
+		}
+		long start = System.currentTimeMillis();
+		long poll_ms = MIN_POLL_MS;
+		boolean announced = false;
+		try {
+			while (true) {
+				List<Resident> resident;
+				try {
+					resident = server.resident();
+				} catch (Exception e) {
+					LOGGER.debug("Unable to list loaded models on {}, admitting {}: {}", ollama_url, model_name, e.getMessage());
+					break;
+				}
+
+				List<String> evict;
+				synchronized (this) {
+					learn(resident);
+					boolean loaded = resident.stream().anyMatch(r -> r.getName().equals(model_name));
+					if (loaded) {
+						break;
+					}
+					evict = (queue.peekFirst() == ticket) ? plan(model_name, resident, server) : null;
+					if (evict != null && evict.isEmpty()) {
+						break;
+					}
+					if (evict == null) {
+						if (!announced) {
+							announced = true;
+							queued++;
+							LOGGER.info("Queueing {} on {}: needs {} GB, {} of {} GB in use by busy or queued-ahead models",
+									model_name, ollama_url, gib(size_of(model_name, server)), gib(used(resident)), gib(capacity_bytes));
+						}
+						wait(poll_ms); // woken early when a request on this endpoint ends
+						poll_ms = Math.min(MAX_POLL_MS, poll_ms * 2);
+						continue;
+					}
+				}
+
+				for (String victim : evict) {
+					try {
+						LOGGER.info("Unloading idle model {} from {} to make room for {}", victim, ollama_url, model_name);
+						server.unload(victim);
+						synchronized (this) {
+							evictions++;
+						}
+					} catch (Exception e) {
+						LOGGER.warn("Unable to unload {} from {}: {}", victim, ollama_url, e.getMessage());
+					}
+				}
+				Thread.sleep(MIN_POLL_MS); // unloads are asynchronous, let /api/ps catch up
+			}
+		} finally {
+			synchronized (this) {
+				queue.remove(ticket);
+				notifyAll();
+			}
+		}
+
+		synchronized (this) {
+			admitted++;
+			reserved.put(model_name, System.currentTimeMillis() + RESERVATION_MS);
+		}
+		if (announced) {
+			LOGGER.info("Admitted {} on {} after {} ms", model_name, ollama_url, System.currentTimeMillis() - start);
+		} else {
+			LOGGER.debug("Admitted {} on {}", model_name, ollama_url);
+		}
+	}
+
+	/**
+	 * @return models to unload before model_name fits, empty if it fits now, null if it cannot
+	 *         fit until a busy model finishes
+	 */
+	private List<String> plan(String model_name, List<Resident> resident, Server server) {
+		long need = size_of(model_name, server);
+		long used = used(resident);
+		if (resident.isEmpty() || capacity_bytes == 0L || used + need <= capacity_bytes) {
+			return List.of();
+		}
+
+		long now = System.currentTimeMillis();
+		reserved.values().removeIf(until -> until <= now);
+		List<Resident> idle = new ArrayList<>();
+		for (Resident r : resident) {
+			if (in_flight.getOrDefault(r.getName(), 0) == 0 && !reserved.containsKey(r.getName())) {
+				idle.add(r);
+			}
+		}
+		idle.sort(Comparator.comparingLong(Resident::getExpires_at)); // least recently used first
+
+		List<String> victims = new ArrayList<>();
+		for (Resident r : idle) {
+			victims.add(r.getName());
+			used -= r.getSize_vram();
+			if (used + need <= capacity_bytes) {
+				return victims;
+			}
+		}
+		// a model larger than the whole card only needs an empty card
+		return (victims.size() == resident.size()) ? victims : null;
+	}
+
+	private void learn(List<Resident> resident) {
+		for (Resident r : resident) {
+			if (r.getSize_vram() > 0L) {
+				MODEL_SIZES.put(r.getName(), r.getSize_vram());
+			}
+		}
+		last_used = used(resident);
+		if (capacity_bytes > 0L) {
+			capacity_bytes = Math.max(capacity_bytes, last_used); // more fits than configured
+		}
+	}
+
+	/**
+	 * Reports that loading the model failed for lack of memory. The VRAM in use before the load
+	 * becomes the capacity, so later admissions make room by evicting idle models.
+	 */
+	public synchronized void out_of_memory(String model_name) {
+		reserved.remove(model_name);
+		if (last_used > 0L && (capacity_bytes == 0L || last_used < capacity_bytes)) {
+			capacity_bytes = last_used;
+			LOGGER.info("Loading {} on {} ran out of memory, capacity set to {} GB", model_name, ollama_url, gib(capacity_bytes));
+		}
+		notifyAll();
+	}
+
+	/**
+	 * @return true if the error is Ollama failing to load a model for lack of memory
+	 */
+	public static boolean is_out_of_memory(Throwable e) {
+		for (Throwable t = e; t != null; t = (t.getCause() == t) ? null : t.getCause()) {
+			String message = t.getMessage();
+			if (message != null && (message.contains("model requires more system memory")
+					|| message.contains("out of memory")
+					|| message.contains("llama runner process has terminated"))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static long size_of(String model_name, Server server) {
+		Long seen = MODEL_SIZES.get(model_name);
+		return (seen != null) ? seen : Math.max(0L, server.installed_size(model_name));
+	}
+
+	private static long used(List<Resident> resident) {
+		long used = 0L;
+		for (Resident r : resident) {
+			used += r.getSize_vram();
+		}
+		return used;
+	}
+
+	private static String gib(long bytes) {
+		return String.format("%.1f", bytes / GIB);
+	}
+
+	/**
+	 * Marks a request on the model as in flight, which protects the model from eviction.
+	 */
+	public synchronized void begin(String model_name) {
+		in_flight.merge(model_name, 1, Integer::sum);
+		reserved.remove(model_name);
+	}
+
+	public synchronized void end(String model_name) {
+		in_flight.computeIfPresent(model_name, (k, n) -> (n <= 1) ? null : n - 1);
+		notifyAll();
+	}
+
+	public synchronized int getIn_flight(String model_name) {
+		return in_flight.getOrDefault(model_name, 0);
+	}
+
+	public synchronized long getCapacity_bytes() {
+		return capacity_bytes;
+	}
+
+	public synchronized long getAdmitted() {
+		return admitted;
+	}
+
+	/**
+	 * @return requests that had to wait for VRAM
+	 */
+	public synchronized long getQueued() {
+		return queued;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public String getOllama_url() {
+		return ollama_url;
+	}
+}
@@ -0,0 +1,41 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import ntt.security.ollamadrama.utils.CidrRange;
+
+public class CidrRangeTest {
+
+	@Test
+	public void host_range_skips_network_and_broadcast() {
+		CidrRange r = CidrRange.parse("10.20.4.17/22");
+		assertEquals("10.20.4.0/22", r.toString());
+		assertEquals("10.20.4.1", CidrRange.toIP(r.firstHost()));
+		assertEquals("10.20.7.254", CidrRange.toIP(r.lastHost()));
+		assertEquals(1022, r.hostCount());
+		assertTrue(r.contains("10.20.6.3"));
+		assertFalse(r.contains("10.20.8.1"));
+	}
+
+	@Test
+	public void bare_address_is_a_single_host() {
+		CidrRange r = CidrRange.parse("127.0.0.1");
+		assertEquals(1, r.hostCount());
+		assertEquals("127.0.0.1", CidrRange.toIP(r.firstHost()));
+	}
+
+	@Test
+	public void invalid_ranges_are_dropped_from_settings() {
+		assertFalse(CidrRange.isValid("10.0.0.0/33"));
+		assertFalse(CidrRange.isValid("10.0.0/8"));
+		OllamaDramaSettings s = new OllamaDramaSettings();
+		s.setDiscovery_cidrs(List.of("10.1.0.0/22", "garbage", " 172.16.0.0/20 "));
+		assertEquals(List.of("10.1.0.0/22", "172.16.0.0/20"), s.getDiscovery_cidrs());
+	}
+}
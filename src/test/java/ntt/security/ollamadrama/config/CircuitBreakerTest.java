@@ -0,0 +1,48 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import ntt.security.ollamadrama.enums.CircuitState;
+import ntt.security.ollamadrama.utils.CircuitBreaker;
+
+public class CircuitBreakerTest {
+
+	@Test
+	public void opens_after_threshold_and_closes_after_half_open_success() {
+		CircuitBreaker cb = new CircuitBreaker(2, 1000L, 60_000L, new Random(1));
+		assertEquals(CircuitState.CLOSED, cb.recordFailure(0L));
+		assertEquals(CircuitState.OPEN, cb.recordFailure(0L));
+		assertFalse(cb.allowProbe(0L));
+
+		long until = cb.getOpen_until();
+		assertTrue(until >= 500L && until <= 1000L);
+		assertTrue(cb.allowProbe(until));
+		assertEquals(CircuitState.HALF_OPEN, cb.getState());
+		assertFalse("only one half-open probe at a time", cb.allowProbe(until));
+
+		assertEquals(CircuitState.CLOSED, cb.recordSuccess());
+		assertTrue(cb.allowProbe(until));
+	}
+
+	@Test
+	public void failed_half_open_probe_backs_off_longer() {
+		CircuitBreaker cb = new CircuitBreaker(1, 1000L, 3000L, new Random(1));
+		long now = 0L;
+		long[] backoffs = new long[4];
+		for (int i = 0; i < backoffs.length; i++) {
+			assertEquals(CircuitState.OPEN, cb.recordFailure(now));
+			backoffs[i] = cb.getOpen_until() - now;
+			now = cb.getOpen_until();
+			assertTrue(cb.allowProbe(now));
+		}
+		assertTrue(backoffs[0] >= 500L && backoffs[0] <= 1000L);
+		assertTrue(backoffs[1] >= 1000L && backoffs[1] <= 2000L);
+		assertTrue("capped at max", backoffs[3] >= 1500L && backoffs[3] <= 3000L);
+	}
+}
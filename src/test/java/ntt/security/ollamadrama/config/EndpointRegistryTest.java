@@ -0,0 +1,65 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+import ntt.security.ollamadrama.objects.EndpointRegistry;
+import ntt.security.ollamadrama.objects.MCPEndpoint;
+import ntt.security.ollamadrama.objects.MCPTool;
+import ntt.security.ollamadrama.objects.RegisteredMCPEndpoint;
+import ntt.security.ollamadrama.objects.RegisteredOllamaEndpoint;
+import ntt.security.ollamadrama.utils.EndpointRegistryUtils;
+
+public class EndpointRegistryTest {
+
+	@Test
+	public void registry_round_trips_through_file() throws Exception {
+		File dir = Files.createTempDirectory("registry").toFile();
+		String file = new File(dir, "endpoints.json").getPath();
+
+		MCPEndpoint ep = new MCPEndpoint("http", "10.0.0.5", 8080, "/sse");
+		EndpointRegistry registry = new EndpointRegistry(1234L,
+				List.of(new RegisteredOllamaEndpoint("http://10.0.0.2:11434", "abc123", List.of("qwen3:4b", "gemma3:4b"), 1000L)),
+				List.of(new RegisteredMCPEndpoint(ep, "f00", List.of(new MCPTool("nmap", "nmap tool", ep)), 2000L)));
+		assertTrue(EndpointRegistryUtils.save(registry, file));
+		assertFalse(new File(file + ".tmp").exists());
+
+		EndpointRegistry loaded = EndpointRegistryUtils.load(file);
+		assertEquals(1234L, loaded.getSaved_at());
+		assertEquals(1, loaded.getOllamas().size());
+		RegisteredOllamaEndpoint ollama = loaded.getOllamas().get(0);
+		assertEquals("http://10.0.0.2:11434", ollama.getOllama_url());
+		assertEquals("abc123", ollama.getFingerprint());
+		assertEquals(List.of("qwen3:4b", "gemma3:4b"), ollama.getModels());
+
+		RegisteredMCPEndpoint mcp = loaded.getMcps().get(0);
+		assertEquals("10.0.0.5", mcp.getEndpoint().getHost());
+		assertEquals(Integer.valueOf(8080), mcp.getEndpoint().getPort());
+		assertEquals("/sse", mcp.getEndpoint().getPath());
+		assertEquals("f00", mcp.getTool_fingerprint());
+		assertEquals("nmap", mcp.getTools().get(0).getToolname());
+	}
+
+	@Test
+	public void missing_or_disabled_registry_loads_as_null() {
+		assertNull(EndpointRegistryUtils.load(""));
+		assertNull(EndpointRegistryUtils.load("/nonexistent/endpoints.json"));
+		assertFalse(EndpointRegistryUtils.save(new EndpointRegistry(), ""));
+	}
+
+	@Test
+	public void registry_file_setting_defaults_to_disabled() {
+		OllamaDramaSettings s = new OllamaDramaSettings();
+		assertEquals("", s.getEndpoint_registry_file());
+		s.setEndpoint_registry_file(null);
+		assertEquals("", s.getEndpoint_registry_file());
+	}
+}
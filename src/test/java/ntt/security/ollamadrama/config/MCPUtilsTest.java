@@ -0,0 +1,51 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.HashMap;
+
+import org.junit.Test;
+
+import io.modelcontextprotocol.spec.McpSchema.CallToolResult;
+import ntt.security.ollamadrama.utils.MCPUtils;
+import ntt.security.ollamadrama.utils.RetryPolicy;
+
+public class MCPUtilsTest {
+
+	private static int dead_port() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+
+	@Test
+	public void dead_endpoint_gives_an_error_result() throws Exception {
+		String url = "http://127.0.0.1:" + dead_port();
+		long start = System.currentTimeMillis();
+		try (RetryPolicy.Deadline deadline = RetryPolicy.within(Duration.ofSeconds(3))) {
+			CallToolResult result = MCPUtils.callToolUsingMCPEndpoint(url, "/sse", "echo", new HashMap<>(), 5L, false);
+			assertNotNull(result);
+			assertTrue(result.isError());
+			assertTrue(MCPUtils.getRawText(result).contains("failed"));
+		}
+		assertTrue(System.currentTimeMillis() - start < 10_000L);
+	}
+
+	@Test
+	public void expired_deadline_gives_an_error_result_without_calling() throws Exception {
+		String url = "http://127.0.0.1:" + dead_port();
+		try (RetryPolicy.Deadline deadline = RetryPolicy.within(Duration.ofMillis(1))) {
+			Thread.sleep(10L);
+			long start = System.currentTimeMillis();
+			CallToolResult result = MCPUtils.callToolUsingMCPEndpoint(url, "/sse", "echo", new HashMap<>(), 5L, false);
+			assertTrue(System.currentTimeMillis() - start < 1_000L);
+			assertNotNull(result);
+			assertTrue(result.isError());
+			assertTrue(MCPUtils.getRawText(result).contains("deadline expired"));
+		}
+	}
+}
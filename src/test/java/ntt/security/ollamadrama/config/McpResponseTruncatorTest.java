@@ -0,0 +1,64 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.ToIntFunction;
+
+import org.junit.Test;
+
+import ntt.security.ollamadrama.mcp.McpResponseTruncator;
+
+public class McpResponseTruncatorTest {
+
+	// Same shape as OllamaSession.estimateTokenCount()
+	private static final ToIntFunction<String> ESTIMATOR = text -> {
+		if (text == null || text.isEmpty()) return 0;
+		return Math.max((int) (text.split("\\s+").length * 1.6), (int) (text.length() / 2.8)) + 50;
+	};
+
+	@Test
+	public void response_within_budget_is_untouched() {
+		String raw = "{\"name\":\"ok\"}";
+		assertEquals(raw, new McpResponseTruncator().truncateToTokenBudget(raw, 1000, ESTIMATOR));
+	}
+
+	@Test
+	public void large_json_array_is_sized_down_to_budget() {
+		StringBuilder sb = new StringBuilder("{\"items\":[");
+		for (int i = 0; i < 500; i++) {
+			if (i > 0) sb.append(",");
+			sb.append("{\"id\":").append(i).append(",\"text\":\"").append(repeat("lorem ipsum ", 40)).append("\"}");
+		}
+		sb.append("]}");
+
+		int budget = 600;
+		String fitted = new McpResponseTruncator().truncateToTokenBudget(sb.toString(), budget, ESTIMATOR);
+		assertNotNull(fitted);
+		assertTrue("fitted response must fit the budget", ESTIMATOR.applyAsInt(fitted) <= budget);
+		assertTrue("array sampling note expected", fitted.contains("more items"));
+	}
+
+	@Test
+	public void plain_text_is_sized_down_to_budget() {
+		String raw = repeat("word ", 20000);
+		int budget = 400;
+		String fitted = new McpResponseTruncator().truncateToTokenBudget(raw, budget, ESTIMATOR);
+		assertNotNull(fitted);
+		assertTrue(ESTIMATOR.applyAsInt(fitted) <= budget);
+	}
+
+	@Test
+	public void budget_below_floor_returns_null() {
+		String raw = repeat("word ", 20000);
+		assertNull(new McpResponseTruncator().truncateToTokenBudget(raw, 60, ESTIMATOR));
+	}
+
+	private static String repeat(String s, int n) {
+		StringBuilder sb = new StringBuilder(s.length() * n);
+		for (int i = 0; i < n; i++) sb.append(s);
+		return sb.toString();
+	}
+}
@@ -0,0 +1,66 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+import ntt.security.ollamadrama.mcp.McpToolIndex;
+import ntt.security.ollamadrama.objects.MCPEndpoint;
+import ntt.security.ollamadrama.objects.MCPTool;
+
+public class McpToolIndexTest {
+
+	private static Map<String, MCPTool> sample_tools() {
+		MCPEndpoint a = new MCPEndpoint("http", "10.0.0.1", 8000, "/sse");
+		MCPEndpoint b = new MCPEndpoint("http", "10.0.0.2", 8000, "/sse");
+		Map<String, MCPTool> tools = new TreeMap<>();
+		tools.put("http://10.0.0.1:8000-fetch", new MCPTool("fetch", "fetch:  fetch a url", a));
+		tools.put("http://10.0.0.2:8000-fetch", new MCPTool("fetch", "fetch:  fetch a url", b));
+		tools.put("http://10.0.0.2:8000-rm", new MCPTool("rm", "rm: remove a file", b));
+		return tools;
+	}
+
+	@Test
+	public void lookup_by_name_returns_first_tool_in_key_order() {
+		McpToolIndex index = McpToolIndex.build(1L, sample_tools(), "", "");
+		assertEquals("10.0.0.1", index.getTool("fetch").getEndpoint().getHost());
+		assertNull(index.getTool("unknown"));
+	}
+
+	@Test
+	public void filtered_tools_are_hidden_from_catalog_but_still_resolvable() {
+		McpToolIndex index = McpToolIndex.build(1L, sample_tools(), "fetch", "rm");
+		assertFalse(index.getCatalog().contains("rm:"));
+		assertTrue(index.getCatalog().contains("fetch: fetch a url"));
+		assertEquals(2, index.getVisibleTools().size());
+		assertTrue(index.isFiltered("rm"));
+		assertTrue(index.isTrusted("fetch"));
+		assertEquals("MCP TOOLS AVAILABLE:\n - fetch\n", index.getBriefCatalog());
+	}
+
+	@Test
+	public void matches_uses_same_csv_semantics_for_any_list() {
+		McpToolIndex index = McpToolIndex.build(1L, sample_tools(), "fetch,time", "rm");
+		assertTrue(index.matches("time", "fetch,time"));
+		assertTrue(index.matches("ls", "cat,ls"));
+		assertFalse(index.matches("ls", "cat, ls"));
+		assertFalse(index.matches(null, "fetch"));
+		assertFalse(index.matches("fetch", null));
+	}
+
+	@Test
+	public void recompiling_for_new_settings_bumps_version_and_keeps_tools() {
+		McpToolIndex index = McpToolIndex.build(1L, sample_tools(), "", "");
+		assertTrue(index.isCompiledFor(null, ""));
+		McpToolIndex next = index.withSettings(2L, "", "fetch");
+		assertEquals(2L, next.getVersion());
+		assertEquals(index.getTools().size(), next.getTools().size());
+		assertFalse(next.getCatalog().contains("fetch"));
+	}
+}
@@ -0,0 +1,127 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import ntt.security.ollamadrama.objects.OllamaEndpoint;
+import ntt.security.ollamadrama.routing.ModelAwareRoutingPolicy;
+
+public class ModelAwareRoutingPolicyTest {
+
+	private static final String A = "http://10.0.0.1:11434";
+	private static final String B = "http://10.0.0.2:11434";
+	private static final String C = "http://10.0.0.3:11434";
+
+	private static Map<String, OllamaEndpoint> endpoints() {
+		Map<String, OllamaEndpoint> endpoints = new TreeMap<>();
+		for (String url : new String[] {A, B, C}) {
+			endpoints.put(url, new OllamaEndpoint(url, "", ""));
+		}
+		return endpoints;
+	}
+
+	@Test
+	public void resident_beats_installed_beats_any() {
+		Map<String, Set<String>> installed = Map.of(A, Set.of("qwen3:4b"), B, Set.of("qwen3:4b", "llama3.3:70b"), C, Set.of());
+		Map<String, Set<String>> resident = Map.of(A, Set.of(), B, Set.of("gemma3:4b", "phi4:14b"), C, Set.of("llama3.3:70b"));
+		ModelAwareRoutingPolicy policy = new ModelAwareRoutingPolicy(url -> installed.get(url), e -> resident.get(e.getOllama_url()));
+
+		assertEquals(C, policy.select("llama3.3:70b", endpoints()).getOllama_url());
+		assertEquals(A, policy.select("qwen3:4b", endpoints()).getOllama_url()); // installed on A and B, A has nothing loaded
+		assertEquals(A, policy.select("mistral:7b", endpoints()).getOllama_url()); // A: 1 routed, B: 2 resident, C: 1 resident + 1 routed
+	}
+
+	@Test
+	public void spreads_sessions_within_a_tier() {
+		ModelAwareRoutingPolicy policy = new ModelAwareRoutingPolicy(url -> Set.of("qwen3:4b"), e -> Set.of());
+		Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < 30; i++) {
+			counts.merge(policy.select("qwen3:4b", endpoints()).getOllama_url(), 1, Integer::sum);
+		}
+		assertEquals(Integer.valueOf(10), counts.get(A));
+		assertEquals(Integer.valueOf(10), counts.get(B));
+		assertEquals(Integer.valueOf(10), counts.get(C));
+	}
+
+	@Test
+	public void unreachable_endpoint_counts_as_nothing_resident() {
+		ModelAwareRoutingPolicy policy = new ModelAwareRoutingPolicy(url -> Set.of(), e -> B.equals(e.getOllama_url()) ? Set.of("qwen3:4b") : null);
+		assertEquals(B, policy.select("qwen3:4b", endpoints()).getOllama_url());
+	}
+
+	@Test
+	public void cold_endpoints_are_probed_in_parallel() {
+		ModelAwareRoutingPolicy policy = new ModelAwareRoutingPolicy(url -> Set.of(), e -> {
+			try {
+				Thread.sleep(500L);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			return C.equals(e.getOllama_url()) ? Set.of("qwen3:4b") : Set.of();
+		});
+		long start = System.currentTimeMillis();
+		assertEquals(C, policy.select("qwen3:4b", endpoints()).getOllama_url());
+		assertTrue(System.currentTimeMillis() - start < 1_200L); // three probes of 500 ms each
+	}
+
+	@Test
+	public void expired_residency_is_served_while_it_refreshes() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger probes = new AtomicInteger();
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			ModelAwareRoutingPolicy policy = new ModelAwareRoutingPolicy(url -> Set.of(), e -> {
+				if (!A.equals(e.getOllama_url())) {
+					return Set.of();
+				}
+				if (probes.incrementAndGet() == 1) {
+					return Set.of("qwen3:4b");
+				}
+				try {
+					release.await();
+				} catch (InterruptedException ie) {
+					Thread.currentThread().interrupt();
+				}
+				return Set.of();
+			}, 50L, executor);
+
+			assertEquals(A, policy.select("qwen3:4b", endpoints()).getOllama_url());
+			Thread.sleep(100L);
+
+			// the refresh of A blocks, the stale snapshot is served meanwhile and only one probe runs
+			long start = System.currentTimeMillis();
+			for (int i = 0; i < 5; i++) {
+				assertEquals(A, policy.select("qwen3:4b", endpoints()).getOllama_url());
+			}
+			assertTrue(System.currentTimeMillis() - start < 500L);
+			long started = System.currentTimeMillis() + 5_000L;
+			while (probes.get() < 2 && System.currentTimeMillis() < started) {
+				Thread.sleep(10L); // the refresh starts on the executor, not in select()
+			}
+			Thread.sleep(50L);
+			assertEquals(2, probes.get());
+
+			release.countDown();
+			long deadline = System.currentTimeMillis() + 5_000L;
+			while (A.equals(policy.select("qwen3:4b", endpoints()).getOllama_url()) && System.currentTimeMillis() < deadline) {
+				Thread.sleep(20L);
+			}
+			assertTrue(System.currentTimeMillis() < deadline); // qwen3:4b no longer resident on A
+		} finally {
+			executor.shutdownNow();
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+		}
+	}
+}
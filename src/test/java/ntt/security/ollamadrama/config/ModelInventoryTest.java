@@ -0,0 +1,51 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import ntt.security.ollamadrama.objects.ModelInventory;
+import ntt.security.ollamadrama.objects.OllamaModel;
+
+public class ModelInventoryTest {
+
+	private static OllamaModel model(String name, String digest) {
+		return new OllamaModel(name, digest, 1000L, "4B", "Q4_K_M");
+	}
+
+	@Test
+	public void fingerprint_separates_same_names_with_different_digests() {
+		ModelInventory a = new ModelInventory(List.of(model("qwen3:4b", "aaa"), model("gemma3:4b", "bbb")));
+		ModelInventory b = new ModelInventory(List.of(model("qwen3:4b", "ccc"), model("gemma3:4b", "bbb")));
+		ModelInventory a_reordered = new ModelInventory(List.of(model("gemma3:4b", "bbb"), model("qwen3:4b", "aaa")));
+		assertNotEquals(a.getFingerprint(), b.getFingerprint());
+		assertEquals(a.getFingerprint(), a_reordered.getFingerprint());
+		assertEquals("empty", ModelInventory.EMPTY.getFingerprint());
+	}
+
+	@Test
+	public void lookups_by_model_name() {
+		ModelInventory inv = new ModelInventory(List.of(model("qwen3:4b", "aaa")));
+		assertTrue(inv.hasModel("qwen3:4b"));
+		assertFalse(inv.hasModel("qwen3:8b"));
+		assertFalse(inv.hasModel(null));
+		assertEquals("aaa", inv.getDigest("qwen3:4b"));
+		assertNull(inv.getDigest("qwen3:8b"));
+		assertEquals("Q4_K_M", inv.getModel("qwen3:4b").getQuantization_level());
+	}
+
+	@Test
+	public void changes_list_added_removed_and_repulled_models() {
+		ModelInventory before = new ModelInventory(List.of(model("a", "1"), model("b", "2"), model("c", "3")));
+		ModelInventory after = new ModelInventory(List.of(model("a", "1"), model("b", "9"), model("d", "4")));
+		assertEquals(List.of("b", "c", "d"), after.changedSince(before));
+		assertEquals(List.of(), after.changedSince(after));
+		assertEquals(List.of("a", "b", "d"), after.changedSince(null));
+	}
+}
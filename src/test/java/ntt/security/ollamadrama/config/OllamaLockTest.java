@@ -0,0 +1,180 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ntt.security.ollamadrama.agent.OllamaLock;
+
+public class OllamaLockTest {
+
+	private static long ticket_count(Path dir) throws Exception {
+		try (var files = Files.list(dir.resolve("queue"))) {
+			return files.count();
+		}
+	}
+
+	@Test
+	public void waiters_are_served_in_arrival_order() throws Exception {
+		Path dir = Files.createTempDirectory("ollama_lock");
+		OllamaLock holder = new OllamaLock(dir, "holder");
+		holder.acquire();
+
+		List<String> order = Collections.synchronizedList(new ArrayList<>());
+		List<Thread> waiters = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			String persona = "agent" + i;
+			Thread t = new Thread(() -> {
+				OllamaLock lock = new OllamaLock(dir, persona);
+				lock.acquire();
+				try {
+					order.add(persona);
+				} finally {
+					lock.release();
+				}
+			});
+			t.start();
+			waiters.add(t);
+			// each waiter has drawn its ticket before the next one starts
+			long deadline = System.currentTimeMillis() + 5_000L;
+			while (ticket_count(dir) < i + 2 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+		}
+
+		long released = System.currentTimeMillis();
+		holder.release();
+		for (Thread t : waiters) {
+			t.join(10_000L);
+		}
+		assertEquals(List.of("agent0", "agent1", "agent2", "agent3"), order);
+		// handoffs are woken by the queue watcher, not by a poll interval
+		assertTrue(System.currentTimeMillis() - released < 2_000L);
+		assertEquals(0, ticket_count(dir));
+	}
+
+	@Test
+	public void slots_admit_that_many_holders() throws Exception {
+		Path dir = Files.createTempDirectory("ollama_lock");
+		OllamaLock a = new OllamaLock(dir, "a", 2);
+		OllamaLock b = new OllamaLock(dir, "b", 2);
+		a.acquire();
+		b.acquire();
+		assertTrue(b.getLast_wait_ms() < 2_000L);
+
+		OllamaLock c = new OllamaLock(dir, "c", 2);
+		Thread t = new Thread(c::acquire);
+		t.start();
+		t.join(1_500L);
+		assertTrue("third agent must wait for a free slot", t.isAlive());
+
+		a.release();
+		t.join(5_000L);
+		assertFalse(t.isAlive());
+		b.release();
+		c.release();
+		assertEquals(0, ticket_count(dir));
+	}
+
+	@Test
+	public void endpoints_have_separate_queues() throws Exception {
+		Path root = Files.createTempDirectory("ollama_lock");
+		OllamaLock first = OllamaLock.forEndpoint(root, "http://10.0.0.1:11434", null, "a", 1);
+		OllamaLock second = OllamaLock.forEndpoint(root, "http://10.0.0.2:11434", null, "b", 1);
+		OllamaLock per_model = OllamaLock.forEndpoint(root, "http://10.0.0.1:11434", "qwen3:4b", "c", 1);
+		first.acquire();
+		second.acquire();
+		per_model.acquire();
+		try {
+			assertTrue(second.getLast_wait_ms() < 2_000L);
+			assertTrue(per_model.getLast_wait_ms() < 2_000L);
+			assertTrue(Files.isDirectory(root.resolve("endpoints").resolve("10.0.0.1_11434")));
+			assertTrue(Files.isDirectory(root.resolve("endpoints").resolve("10.0.0.1_11434_qwen3_4b")));
+		} finally {
+			first.release();
+			second.release();
+			per_model.release();
+		}
+	}
+
+	@Test
+	public void stale_ticket_is_cleared() throws Exception {
+		Path dir = Files.createTempDirectory("ollama_lock");
+		new OllamaLock(dir, "bootstrap");
+		Path dead = dir.resolve("queue").resolve(String.format("%020d", 0) + ".ticket");
+		Files.writeString(dead, "persona=dead\nticket=0\n", StandardCharsets.UTF_8);
+		Files.setLastModifiedTime(dead, FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(1)));
+
+		long cleared = OllamaLock.getStale_cleared();
+		long acquisitions = OllamaLock.getAcquisitions();
+		OllamaLock lock = new OllamaLock(dir, "alive");
+		lock.acquire();
+		try {
+			assertFalse(Files.exists(dead));
+			assertTrue(lock.getLast_wait_ms() < 2_000L);
+		} finally {
+			lock.release();
+		}
+		assertEquals(cleared + 1, OllamaLock.getStale_cleared());
+		assertTrue(OllamaLock.getAcquisitions() > acquisitions);
+		assertTrue(OllamaLock.getMax_wait_ms() >= OllamaLock.getAverage_wait_ms());
+	}
+
+	@Test
+	public void lost_counter_does_not_reuse_queued_tickets() throws Exception {
+		Path dir = Files.createTempDirectory("ollama_lock");
+		OllamaLock holder = new OllamaLock(dir, "holder");
+		holder.acquire();
+		// counter emptied as if a crash hit it, the next ticket must still queue behind the holder
+		Files.write(dir.resolve("ticket"), new byte[0]);
+
+		OllamaLock next = new OllamaLock(dir, "next");
+		Thread t = new Thread(next::acquire);
+		t.start();
+		t.join(1_500L);
+		assertTrue("second agent must queue behind the holder", t.isAlive());
+		assertEquals(2, ticket_count(dir));
+
+		holder.release();
+		t.join(5_000L);
+		assertFalse(t.isAlive());
+		next.release();
+		assertEquals(String.format("%020d", 2), Files.readString(dir.resolve("ticket"), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void holder_is_told_when_its_ticket_is_cleared() throws Exception {
+		Path dir = Files.createTempDirectory("ollama_lock");
+		OllamaLock lock = new OllamaLock(dir, "stalled");
+		lock.acquire();
+		try {
+			assertFalse(lock.isLost());
+			try (var files = Files.list(dir.resolve("queue"))) {
+				for (Path ticket : (Iterable<Path>) files::iterator) {
+					Files.delete(ticket); // what another agent does to a lease it sees expired
+				}
+			}
+			long deadline = System.currentTimeMillis() + 5_000L;
+			while (!lock.isLost() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(50);
+			}
+		} catch (InterruptedException e) {
+			// the holder is interrupted when it loses the lock
+		} finally {
+			Thread.interrupted();
+			lock.release();
+		}
+		assertTrue(lock.isLost());
+	}
+}
@@ -0,0 +1,120 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.github.ollama4j.exceptions.OllamaException;
+import io.github.ollama4j.models.chat.OllamaChatMessageRole;
+import io.github.ollama4j.models.chat.OllamaChatRequest;
+import io.github.ollama4j.models.chat.OllamaChatResult;
+import ntt.security.ollamadrama.objects.OllamaEndpoint;
+import ntt.security.ollamadrama.utils.OllamaTransport;
+import ntt.security.ollamadrama.utils.OllamaTransport.TransportStats;
+
+public class OllamaTransportTest {
+
+	private static final String CHAT_RESPONSE = "{\"model\":\"qwen3:4b\",\"created_at\":\"2025-01-01T00:00:00Z\","
+			+ "\"message\":{\"role\":\"assistant\",\"content\":\"Paris\"},\"done\":true}";
+
+	private HttpServer server;
+	private String url;
+	private final Set<Integer> client_ports = ConcurrentHashMap.newKeySet();
+	private volatile long chat_delay_ms = 0L;
+
+	@Before
+	public void start() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/api/chat", exchange -> {
+			client_ports.add(exchange.getRemoteAddress().getPort());
+			try {
+				Thread.sleep(chat_delay_ms);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			reply(exchange, 200, CHAT_RESPONSE);
+		});
+		server.createContext("/api/tags", exchange -> reply(exchange, 200, "{\"models\":[]}"));
+		server.start();
+		url = "http://127.0.0.1:" + server.getAddress().getPort();
+	}
+
+	@After
+	public void stop() {
+		OllamaTransport.release(url);
+		server.stop(0);
+	}
+
+	private static void reply(HttpExchange exchange, int status, String json) throws java.io.IOException {
+		exchange.getRequestBody().readAllBytes();
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(body);
+		}
+	}
+
+	private static OllamaChatRequest question() {
+		return OllamaChatRequest.builder()
+				.withModel("qwen3:4b")
+				.withMessage(OllamaChatMessageRole.USER, "What is the capital of France?")
+				.build();
+	}
+
+	@Test
+	public void sequential_chats_reuse_one_connection() throws Exception {
+		OllamaTransport transport = OllamaTransport.forEndpoint(new OllamaEndpoint(url, "", ""));
+		for (int i = 0; i < 5; i++) {
+			OllamaChatResult result = transport.chat(question(), 5);
+			assertEquals("Paris", result.getResponseModel().getMessage().getResponse());
+			assertEquals(2, result.getChatHistory().size());
+		}
+		assertEquals(1, client_ports.size());
+
+		TransportStats stats = transport.getStats();
+		assertEquals(5, stats.getRequests());
+		assertEquals(0, stats.getFailures());
+		assertEquals(0, stats.getLeased());
+		assertEquals(1, stats.getAvailable());
+		assertTrue(OllamaTransport.getAllStats().containsKey(url));
+	}
+
+	@Test
+	public void timeout_applies_per_request() throws Exception {
+		OllamaTransport transport = OllamaTransport.forEndpoint(new OllamaEndpoint(url, "", ""));
+		chat_delay_ms = 2_000L;
+		try {
+			transport.chat(question(), 1);
+			fail("expected a timeout");
+		} catch (OllamaException e) {
+			// expected
+		}
+		assertEquals("Paris", transport.chat(question(), 5).getResponseModel().getMessage().getResponse());
+		assertEquals(1, transport.getStats().getFailures());
+	}
+
+	@Test
+	public void one_transport_per_endpoint() {
+		OllamaTransport a = OllamaTransport.forEndpoint(new OllamaEndpoint(url, "", ""));
+		OllamaTransport b = OllamaTransport.forEndpoint(new OllamaEndpoint(url + "/", "", ""));
+		assertTrue(a == b);
+		assertTrue(a.ping(2));
+		OllamaTransport.release(url);
+		assertFalse(OllamaTransport.getAllStats().containsKey(url));
+	}
+}
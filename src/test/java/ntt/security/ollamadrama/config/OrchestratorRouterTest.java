@@ -0,0 +1,81 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ntt.security.ollamadrama.orchestrator.LocalOrchestrator;
+import ntt.security.ollamadrama.orchestrator.OrchestratorRouter;
+
+public class OrchestratorRouterTest {
+
+	private static final String A = "http://10.0.0.1:11434";
+	private static final String B = "http://10.0.0.2:11434";
+	private static final String C = "http://10.0.0.3:11434";
+
+	private LocalOrchestrator orchestrator;
+	private OrchestratorRouter router;
+
+	@Before
+	public void setUp() throws Exception {
+		orchestrator = new LocalOrchestrator();
+		orchestrator.addServer("a", A, 1, List.of("qwen3:4b", "gemma3:4b"), List.of());
+		orchestrator.addServer("b", B, 2, List.of("qwen3:4b"), List.of());
+		orchestrator.addServer("c", C, 3, List.of("qwen3:4b"), List.of());
+		router = new OrchestratorRouter(orchestrator.start());
+		assertTrue(router.refresh());
+	}
+
+	@After
+	public void tearDown() {
+		router.stop();
+		orchestrator.stop();
+	}
+
+	@Test
+	public void routes_only_to_healthy_servers_listing_the_model() throws Exception {
+		assertEquals(A, router.route("gemma3:4b", null));
+		orchestrator.setHealthy(A, false);
+		router.refresh();
+		assertNull(router.route("gemma3:4b", null));
+		assertNull(router.route("llama3:8b", null));
+		assertEquals(B, router.route("qwen3:4b", Set.of(A, B)));
+	}
+
+	@Test
+	public void picks_lowest_load_relative_to_capacity() throws Exception {
+		orchestrator.addActive_requests(C, 6); // 2.0
+		orchestrator.addActive_requests(B, 3); // 1.5
+		orchestrator.addActive_requests(A, 2); // 2.0
+		router.refresh();
+		assertEquals(B, router.route("qwen3:4b", null));
+	}
+
+	@Test
+	public void priority_wins_over_load() throws Exception {
+		orchestrator.addServer("a", A, 1, List.of("qwen3:4b"), List.of("qwen3:4b"));
+		orchestrator.addActive_requests(A, 5);
+		router.refresh();
+		assertEquals(A, router.route("qwen3:4b", null));
+	}
+
+	@Test
+	public void burst_between_polls_is_spread_by_capacity() {
+		Map<String, Integer> counts = new HashMap<>();
+		for (int i = 0; i < 600; i++) {
+			counts.merge(router.route("qwen3:4b", null), 1, Integer::sum);
+		}
+		assertEquals(100, counts.get(A), 1);
+		assertEquals(200, counts.get(B), 1);
+		assertEquals(300, counts.get(C), 1);
+	}
+}
@@ -0,0 +1,102 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import ntt.security.ollamadrama.utils.PortSweeper;
+
+public class PortSweeperTest {
+
+	@Test
+	public void reports_only_listening_ports() throws Exception {
+		try (ServerSocket open_a = new ServerSocket(0); ServerSocket open_b = new ServerSocket(0)) {
+			int closed_port;
+			try (ServerSocket tmp = new ServerSocket(0)) {
+				closed_port = tmp.getLocalPort();
+			}
+
+			List<InetSocketAddress> targets = List.of(
+					new InetSocketAddress("127.0.0.1", open_a.getLocalPort()),
+					new InetSocketAddress("127.0.0.1", closed_port),
+					new InetSocketAddress("127.0.0.1", open_b.getLocalPort()));
+
+			List<Integer> found = new ArrayList<>();
+			int count = new PortSweeper(2, 100, 500).sweep(targets, target -> found.add(target.getPort()));
+
+			assertEquals(2, count);
+			assertEquals(2, found.size());
+			assertTrue(found.contains(open_a.getLocalPort()));
+			assertTrue(found.contains(open_b.getLocalPort()));
+		}
+	}
+
+	@Test
+	public void empty_target_list_returns_immediately() {
+		assertEquals(0, new PortSweeper(10, 0, 100).sweep(List.of(), target -> {}));
+	}
+
+	@Test
+	public void targets_are_retried_when_sockets_run_out() throws Exception {
+		try (ServerSocket open_a = new ServerSocket(0); ServerSocket open_b = new ServerSocket(0)) {
+			List<InetSocketAddress> targets = List.of(
+					new InetSocketAddress("127.0.0.1", open_a.getLocalPort()),
+					new InetSocketAddress("127.0.0.1", open_b.getLocalPort()));
+
+			int[] opened = {0};
+			PortSweeper sweeper = new PortSweeper(10, 0, 500) {
+				@Override
+				protected SocketChannel open_channel() throws IOException {
+					if (opened[0]++ % 2 == 0) {
+						throw new IOException("Too many open files");
+					}
+					return super.open_channel();
+				}
+			};
+			List<Integer> found = new ArrayList<>();
+			assertEquals(2, sweeper.sweep(targets, target -> found.add(target.getPort())));
+			assertTrue(found.contains(open_a.getLocalPort()));
+			assertTrue(found.contains(open_b.getLocalPort()));
+		}
+	}
+
+	@Test
+	public void connect_starts_are_spaced_by_the_global_rate() throws Exception {
+		int closed_port;
+		try (ServerSocket tmp = new ServerSocket(0)) {
+			closed_port = tmp.getLocalPort();
+		}
+		List<InetSocketAddress> targets = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			targets.add(new InetSocketAddress("127.0.0." + (i + 1), closed_port));
+		}
+
+		List<Long> started = new ArrayList<>();
+		PortSweeper sweeper = new PortSweeper(1024, 0, 200, 500) { // one connect every 5 ms
+			@Override
+			protected SocketChannel open_channel() throws IOException {
+				started.add(System.nanoTime());
+				return super.open_channel();
+			}
+		};
+		// two calls, as performCIDRSweep sweeps shard by shard, are paced as one
+		sweeper.sweep(targets, target -> {});
+		sweeper.sweep(targets, target -> {});
+
+		assertEquals(40, started.size());
+		long elapsed_ms = (started.get(39) - started.get(0)) / 1_000_000L;
+		assertTrue("elapsed " + elapsed_ms, elapsed_ms >= 170L);
+		for (int i = 2; i < started.size(); i++) {
+			long window_ms = (started.get(i) - started.get(i - 2)) / 1_000_000L;
+			assertTrue("three starts within " + window_ms + " ms", window_ms >= 4L);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import ntt.security.ollamadrama.utils.RateLimiter;
+import ntt.security.ollamadrama.utils.RetryPolicy;
+
+public class RateLimiterTest {
+
+	private static RateLimiter limiter(int rpm, int tpm) {
+		RateLimiter limiter = RateLimiter.forKey("test", "key-" + System.nanoTime());
+		limiter.setLimits(rpm, tpm);
+		return limiter;
+	}
+
+	@Test
+	public void sessions_on_one_key_share_a_limiter() {
+		OllamaDramaSettings settings = new OllamaDramaSettings();
+		settings.setCloud_requests_per_minute(Map.of("openai", 60));
+		RateLimiter a = RateLimiter.forKey("openai", "sk-shared", settings);
+		assertSame(a, RateLimiter.forKey("openai", "sk-shared"));
+		assertTrue(a != RateLimiter.forKey("openai", "sk-other"));
+		assertTrue(a != RateLimiter.forKey("xai", "sk-shared"));
+		RateLimiter.release("openai", "sk-shared");
+	}
+
+	@Test
+	public void requests_beyond_the_bucket_wait_for_refill() throws Exception {
+		RateLimiter limiter = limiter(600, 0); // one request per 100 ms
+		long waited = 0L;
+		for (int i = 0; i < 603; i++) {
+			waited += limiter.acquire(0L);
+		}
+		// the full bucket lets 600 through, the next three wait about 100 ms each
+		assertTrue("waited " + waited, waited >= 200L);
+		assertEquals(603, limiter.getGranted());
+	}
+
+	@Test
+	public void token_budget_is_corrected_by_reported_usage() throws Exception {
+		RateLimiter limiter = limiter(0, 6_000); // 100 tokens per second
+		assertTrue(limiter.acquire(5_000L) < 50L); // the full bucket grants at once
+		limiter.settle(5_000L, 1_000L); // the request was smaller than estimated
+		assertTrue(limiter.acquire(5_000L) < 100L);
+	}
+
+	@Test
+	public void pause_holds_every_request_on_the_key() throws Exception {
+		RateLimiter limiter = limiter(0, 0);
+		limiter.pause(300L);
+		long waited = limiter.acquire(10L);
+		assertTrue("waited " + waited, waited >= 250L);
+		assertEquals(1, limiter.getThrottled());
+	}
+
+	@Test
+	public void acquire_gives_up_before_the_deadline() throws Exception {
+		RateLimiter limiter = limiter(0, 0);
+		limiter.pause(5_000L);
+		long start = System.currentTimeMillis();
+		try (RetryPolicy.Deadline deadline = RetryPolicy.within(Duration.ofMillis(300))) {
+			assertEquals(-1L, limiter.acquire(10L));
+		}
+		assertTrue(System.currentTimeMillis() - start < 1_000L);
+		assertEquals(0, limiter.getGranted());
+		assertEquals(0, limiter.getWaiting());
+	}
+
+	@Test
+	public void retry_hints_are_read_from_headers() {
+		assertEquals(1_500L, RateLimiter.retry_after_ms(name -> name.equals("retry-after-ms") ? List.of("1500") : List.of("9")));
+		assertEquals(7_000L, RateLimiter.retry_after_ms(name -> name.equals("retry-after") ? List.of("7") : List.of()));
+		String date = ZonedDateTime.now().plusSeconds(30).format(DateTimeFormatter.RFC_1123_DATE_TIME);
+		long ms = RateLimiter.retry_after_ms(name -> name.equals("retry-after") ? List.of(date) : List.of());
+		assertTrue("ms " + ms, ms > 25_000L && ms <= 30_000L);
+		assertEquals(-1L, RateLimiter.retry_after_ms(name -> List.of()));
+	}
+}
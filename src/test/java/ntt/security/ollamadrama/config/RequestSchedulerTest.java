@@ -0,0 +1,114 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import ntt.security.ollamadrama.enums.RequestPriority;
+import ntt.security.ollamadrama.utils.RequestScheduler;
+
+public class RequestSchedulerTest {
+
+	private final List<String> order = Collections.synchronizedList(new ArrayList<>());
+	private final List<Thread> threads = new ArrayList<>();
+
+	@After
+	public void restore() {
+		RequestScheduler.setDefault_slots(4);
+		RequestScheduler.setAging_seconds(30);
+	}
+
+	private static RequestScheduler single_slot() {
+		RequestScheduler.setDefault_slots(1);
+		return RequestScheduler.forEndpoint("http://scheduler-test-" + System.nanoTime() + ":11434");
+	}
+
+	/**
+	 * Queues a request and waits until the scheduler has it, so arrival order is deterministic.
+	 */
+	private void enqueue(RequestScheduler scheduler, String tenant, RequestPriority priority, String label) throws Exception {
+		int before = scheduler.getWaiting();
+		Thread t = new Thread(() -> {
+			try (RequestScheduler.Permit permit = scheduler.acquire(tenant, priority)) {
+				order.add(label);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		t.start();
+		threads.add(t);
+		long deadline = System.currentTimeMillis() + 5_000L;
+		while (scheduler.getWaiting() == before && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+	private void drain(RequestScheduler.Permit held) throws Exception {
+		held.close();
+		for (Thread t : threads) {
+			t.join(5_000L);
+		}
+	}
+
+	@Test
+	public void interactive_requests_go_first() throws Exception {
+		RequestScheduler scheduler = single_slot();
+		RequestScheduler.Permit held = scheduler.acquire("analyst", RequestPriority.NORMAL);
+		enqueue(scheduler, "agent", RequestPriority.BATCH, "batch");
+		enqueue(scheduler, "agent", RequestPriority.NORMAL, "normal");
+		enqueue(scheduler, "analyst", RequestPriority.INTERACTIVE, "interactive");
+		drain(held);
+		assertEquals(List.of("interactive", "normal", "batch"), order);
+		assertEquals(1, scheduler.getGranted(RequestPriority.BATCH));
+		assertEquals(0, scheduler.getRunning());
+	}
+
+	@Test
+	public void tenants_share_by_weight() throws Exception {
+		RequestScheduler.setTenant_weight("heavy", 2);
+		RequestScheduler scheduler = single_slot();
+		RequestScheduler.Permit held = scheduler.acquire("holder", RequestPriority.NORMAL);
+		for (int i = 0; i < 4; i++) {
+			enqueue(scheduler, "light", RequestPriority.NORMAL, "light");
+		}
+		for (int i = 0; i < 4; i++) {
+			enqueue(scheduler, "heavy", RequestPriority.NORMAL, "heavy");
+		}
+		drain(held);
+		// heavy queued last but still gets two turns for every one of light
+		assertEquals(List.of("light", "heavy", "heavy", "light", "heavy", "heavy", "light", "light"), order);
+	}
+
+	@Test
+	public void waiting_requests_age_into_higher_classes() throws Exception {
+		RequestScheduler.setAging_seconds(1);
+		RequestScheduler scheduler = single_slot();
+		RequestScheduler.Permit held = scheduler.acquire("analyst", RequestPriority.INTERACTIVE);
+		enqueue(scheduler, "agent", RequestPriority.BATCH, "batch");
+		Thread.sleep(2_100L);
+		enqueue(scheduler, "analyst", RequestPriority.INTERACTIVE, "interactive");
+		drain(held);
+		assertEquals(List.of("batch", "interactive"), order);
+	}
+
+	@Test
+	public void call_scope_overrides_session_default() {
+		assertEquals(RequestPriority.NORMAL, RequestScheduler.current_priority());
+		try (RequestScheduler.Scope call = RequestScheduler.scope("analyst", RequestPriority.INTERACTIVE)) {
+			try (RequestScheduler.Scope session = RequestScheduler.default_scope("agent", RequestPriority.BATCH)) {
+				assertEquals(RequestPriority.INTERACTIVE, RequestScheduler.current_priority());
+				assertEquals("analyst", RequestScheduler.current_tenant());
+			}
+			assertEquals("analyst", RequestScheduler.current_tenant());
+		}
+		try (RequestScheduler.Scope session = RequestScheduler.default_scope("agent", RequestPriority.BATCH)) {
+			assertEquals(RequestPriority.BATCH, RequestScheduler.current_priority());
+		}
+		assertEquals(RequestScheduler.DEFAULT_TENANT, RequestScheduler.current_tenant());
+	}
+}
@@ -0,0 +1,80 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+
+import org.junit.Test;
+
+import ntt.security.ollamadrama.utils.RetryPolicy;
+
+public class RetryPolicyTest {
+
+	@Test
+	public void nested_deadline_never_extends() {
+		assertEquals(Long.MAX_VALUE, RetryPolicy.remaining_ms());
+		try (RetryPolicy.Deadline outer = RetryPolicy.within(Duration.ofSeconds(5))) {
+			try (RetryPolicy.Deadline inner = RetryPolicy.within(Duration.ofSeconds(60))) {
+				assertTrue(RetryPolicy.remaining_ms() <= 5_000L);
+			}
+			try (RetryPolicy.Deadline inner = RetryPolicy.within(Duration.ofSeconds(1))) {
+				assertTrue(RetryPolicy.remaining_ms() <= 1_000L);
+			}
+			assertTrue(RetryPolicy.remaining_ms() > 1_000L);
+			try (RetryPolicy.Deadline none = RetryPolicy.within(0L)) {
+				assertTrue(RetryPolicy.remaining_ms() <= 5_000L);
+			}
+		}
+		assertEquals(Long.MAX_VALUE, RetryPolicy.remaining_ms());
+		assertFalse(RetryPolicy.expired());
+	}
+
+	@Test
+	public void timeouts_are_clamped_to_the_deadline() {
+		assertEquals(300L, RetryPolicy.timeout_seconds(300L));
+		try (RetryPolicy.Deadline deadline = RetryPolicy.within(Duration.ofSeconds(10))) {
+			assertEquals(10L, RetryPolicy.timeout_seconds(300L));
+			assertEquals(5L, RetryPolicy.timeout_seconds(5L));
+		}
+		try (RetryPolicy.Deadline deadline = RetryPolicy.within(Duration.ofMillis(1))) {
+			assertEquals(1L, RetryPolicy.timeout_seconds(300L));
+		}
+	}
+
+	@Test
+	public void permanent_errors_are_not_retried() {
+		assertFalse(RetryPolicy.is_retryable(new IOException("HTTP 404 from http://localhost:11434/api/chat")));
+		assertFalse(RetryPolicy.is_retryable(new RuntimeException("wrapped", new IllegalArgumentException("bad model name"))));
+		assertFalse(RetryPolicy.is_retryable(new IOException("Invalid API key provided")));
+		assertTrue(RetryPolicy.is_retryable(new IOException("HTTP 503 Service Unavailable")));
+		assertTrue(RetryPolicy.is_retryable(new IOException("HTTP 429 Too Many Requests")));
+		assertTrue(RetryPolicy.is_retryable(new SocketTimeoutException("Read timed out")));
+		assertFalse(RetryPolicy.is_retryable_status(401));
+		assertTrue(RetryPolicy.is_retryable_status(408));
+	}
+
+	@Test
+	public void jittered_delays_stay_within_base_and_cap() {
+		RetryPolicy.Backoff backoff = new RetryPolicy(100L, 2_000L).backoff();
+		for (int i = 0; i < 200; i++) {
+			long delay = backoff.next_delay_ms();
+			assertTrue(delay >= 100L && delay <= 2_000L);
+		}
+	}
+
+	@Test
+	public void backoff_gives_up_when_the_deadline_is_too_close() {
+		RetryPolicy.Backoff backoff = new RetryPolicy(1_000L, 1_000L).backoff();
+		long start = System.currentTimeMillis();
+		try (RetryPolicy.Deadline deadline = RetryPolicy.within(Duration.ofMillis(500))) {
+			assertFalse(backoff.pause());
+		}
+		assertTrue(System.currentTimeMillis() - start < 500L);
+		assertEquals(1, backoff.getFailures());
+		assertFalse(backoff.retry(new IllegalArgumentException("never")));
+	}
+}
@@ -0,0 +1,90 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import ntt.security.ollamadrama.cron.SatelliteFileWatcher;
+import ntt.security.ollamadrama.objects.MCPEndpoint;
+import ntt.security.ollamadrama.objects.OllamaEndpoint;
+import ntt.security.ollamadrama.objects.SatelliteChanges;
+import ntt.security.ollamadrama.objects.SatelliteConfig;
+import ntt.security.ollamadrama.utils.SatelliteConfigUtils;
+
+public class SatelliteConfigTest {
+
+	@Test
+	public void changes_are_incremental() {
+		OllamaEndpoint a = new OllamaEndpoint("http://10.0.0.1:11434", "", "");
+		OllamaEndpoint b = new OllamaEndpoint("http://10.0.0.2:11434", "user", "old");
+		OllamaEndpoint b_rotated = new OllamaEndpoint("http://10.0.0.2:11434", "user", "new");
+		OllamaEndpoint c = new OllamaEndpoint("http://10.0.0.3:11434", "", "");
+		MCPEndpoint m1 = new MCPEndpoint("http", "10.0.0.5", 8080, "/sse");
+		MCPEndpoint m2 = new MCPEndpoint("http", "10.0.0.6", 8080, "/sse");
+
+		SatelliteChanges changes = SatelliteChanges.between(List.of(a, b), List.of(m1), List.of(a, b_rotated, c), List.of(m2));
+		assertEquals(List.of(b), changes.getRemoved_ollamas());
+		assertEquals(List.of(b_rotated, c), changes.getAdded_ollamas());
+		assertEquals(List.of(m1), changes.getRemoved_mcps());
+		assertEquals(List.of(m2), changes.getAdded_mcps());
+
+		assertTrue(SatelliteChanges.between(List.of(a), List.of(m1), List.of(new OllamaEndpoint(a.getOllama_url(), "", "")),
+				List.of(new MCPEndpoint("https", "10.0.0.5", 8080, "/mcp"))).isEmpty());
+	}
+
+	@Test
+	public void unparsable_file_loads_as_null() throws Exception {
+		File file = File.createTempFile("satellites", ".json");
+		Files.writeString(file.toPath(), "{\"satellites\": [", StandardCharsets.UTF_8);
+		assertNull(SatelliteConfigUtils.load(file.getPath()));
+		assertNull(SatelliteConfigUtils.load(""));
+	}
+
+	@Test
+	public void watcher_reports_edits_and_renames() throws Exception {
+		Path dir = Files.createTempDirectory("satellites");
+		Path file = dir.resolve("satellites.json");
+		Files.writeString(file, "{\"satellites\": []}", StandardCharsets.UTF_8);
+
+		BlockingQueue<SatelliteConfig> seen = new LinkedBlockingQueue<>();
+		SatelliteFileWatcher watcher = new SatelliteFileWatcher(file.toString(), seen::add);
+		try {
+			Files.writeString(file, "{\"satellites\": [{\"ollama_url\": \"http://10.0.0.1:11434\"}]}", StandardCharsets.UTF_8);
+			SatelliteConfig config = seen.poll(10, TimeUnit.SECONDS);
+			assertNotNull(config);
+			assertEquals("http://10.0.0.1:11434", config.getSatellites().get(0).getOllama_url());
+
+			Path tmp = dir.resolve("satellites.json.tmp");
+			Files.writeString(tmp, "{\"mcp_satellites\": [{\"schema\": \"http\", \"host\": \"10.0.0.5\", \"port\": 8080, \"path\": \"/sse\"}]}",
+					StandardCharsets.UTF_8);
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			config = seen.poll(10, TimeUnit.SECONDS);
+			assertNotNull(config);
+			assertEquals(0, config.getSatellites().size());
+			assertEquals("10.0.0.5", config.getMcp_satellites().get(0).getHost());
+		} finally {
+			watcher.stop();
+		}
+	}
+
+	@Test
+	public void satellites_file_setting_defaults_to_disabled() {
+		OllamaDramaSettings s = new OllamaDramaSettings();
+		assertEquals("", s.getSatellites_file());
+		s.setSatellites_file(" /etc/ollamadrama/satellites.json ");
+		assertEquals("/etc/ollamadrama/satellites.json", s.getSatellites_file());
+	}
+}
@@ -0,0 +1,62 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.Test;
+
+import ntt.security.ollamadrama.agent.Scheduler;
+import ntt.security.ollamadrama.agent.Task;
+import ntt.security.ollamadrama.agent.TaskQueue;
+
+public class TaskQueueTest {
+
+	private static Task task(String id, Scheduler schedule, LocalDateTime last) {
+		Task task = new Task(id, "prompt", schedule);
+		task.setLastExecuted(last);
+		return task;
+	}
+
+	@Test
+	public void overdue_tasks_come_out_by_lateness() {
+		LocalDateTime now = LocalDateTime.now();
+		Task hourly = task("hourly", Scheduler.EVERY_HOUR, now.minusMinutes(90));   // 30 min late
+		Task daily = task("daily", Scheduler.DAILY, now.minusHours(30));            // 6 h late
+		Task fresh = task("fresh", Scheduler.EVERY_HOUR, now.minusMinutes(10));     // not due
+		Task never = task("never", Scheduler.WEEKLY, null);
+		TaskQueue queue = new TaskQueue(List.of(hourly, fresh, daily, never));
+
+		assertEquals(List.of(never, daily), queue.pollDue(now, 2));
+		assertEquals(List.of(hourly), queue.pollDue(now, Integer.MAX_VALUE));
+		assertEquals(1, queue.size());
+	}
+
+	@Test
+	public void sleeps_until_the_next_task_is_due() {
+		LocalDateTime now = LocalDateTime.now();
+		Task hourly = task("hourly", Scheduler.EVERY_HOUR, now.minusMinutes(40));
+		TaskQueue queue = new TaskQueue(List.of(hourly));
+
+		assertEquals(Duration.ofMinutes(20), queue.untilNextDue(now));
+		assertEquals(Duration.ZERO, queue.untilNextDue(now.plusMinutes(25)));
+		assertTrue(queue.pollDue(now, 1).isEmpty());
+	}
+
+	@Test
+	public void once_task_is_dropped_after_running() {
+		Task once = task("once", Scheduler.ONCE, null);
+		TaskQueue queue = new TaskQueue(List.of(once));
+		LocalDateTime now = LocalDateTime.now();
+
+		assertEquals(List.of(once), queue.pollDue(now, 1));
+		once.markExecuted();
+		queue.reschedule(once);
+		assertEquals(0, queue.size());
+		assertNull(queue.untilNextDue(now));
+	}
+}
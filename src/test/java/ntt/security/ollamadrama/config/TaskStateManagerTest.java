@@ -0,0 +1,96 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ntt.security.ollamadrama.agent.Scheduler;
+import ntt.security.ollamadrama.agent.Task;
+import ntt.security.ollamadrama.agent.TaskStateManager;
+
+public class TaskStateManagerTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	private static final LocalDateTime T1 = LocalDateTime.of(2026, 1, 2, 3, 4, 5);
+	private static final LocalDateTime T2 = LocalDateTime.of(2026, 2, 3, 4, 5, 6);
+
+	private static Task executed(String id, Scheduler schedule, LocalDateTime when) {
+		Task task = new Task(id, "prompt", schedule);
+		task.setLastExecuted(when);
+		return task;
+	}
+
+	/**
+	 * Loads the state file the way a freshly started agent does.
+	 */
+	private static List<Task> restart(String statefile) {
+		TaskStateManager.close(statefile);
+		List<Task> tasks = List.of(new Task("a", "prompt", Scheduler.DAILY), new Task("b \"quoted\"", "prompt", Scheduler.WEEKLY));
+		TaskStateManager.loadState(tasks, statefile);
+		return tasks;
+	}
+
+	@Test
+	public void journal_is_replayed_over_the_snapshot() throws Exception {
+		String statefile = tmp.getRoot().toPath().resolve("state.json").toString();
+		TaskStateManager.saveState(List.of(executed("a", Scheduler.DAILY, T1)), statefile);
+		TaskStateManager.record(executed("a", Scheduler.DAILY, T2), statefile);
+		TaskStateManager.record(executed("b \"quoted\"", Scheduler.WEEKLY, T1), statefile);
+
+		List<Task> tasks = restart(statefile);
+		assertEquals(T2, tasks.get(0).getLastExecuted());
+		assertEquals(T1, tasks.get(1).getLastExecuted());
+		TaskStateManager.close(statefile);
+	}
+
+	@Test
+	public void torn_journal_record_is_skipped() throws Exception {
+		String statefile = tmp.getRoot().toPath().resolve("state.json").toString();
+		TaskStateManager.record(executed("a", Scheduler.DAILY, T1), statefile);
+		TaskStateManager.close(statefile);
+		Files.writeString(Path.of(statefile + ".journal"), "{\"id\":\"b \\\"quoted\\\"\",\"sched", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+		List<Task> tasks = restart(statefile);
+		assertEquals(T1, tasks.get(0).getLastExecuted());
+		assertNull(tasks.get(1).getLastExecuted());
+		TaskStateManager.close(statefile);
+	}
+
+	@Test
+	public void save_compacts_the_journal_into_the_snapshot() throws Exception {
+		String statefile = tmp.getRoot().toPath().resolve("state.json").toString();
+		TaskStateManager.record(executed("a", Scheduler.DAILY, T1), statefile);
+		TaskStateManager.saveState(List.of(executed("b \"quoted\"", Scheduler.WEEKLY, T2)), statefile);
+		assertEquals(0L, Files.size(Path.of(statefile + ".journal")));
+
+		List<Task> tasks = restart(statefile);
+		assertEquals(T1, tasks.get(0).getLastExecuted());
+		assertEquals(T2, tasks.get(1).getLastExecuted());
+		TaskStateManager.close(statefile);
+	}
+
+	@Test
+	public void state_of_a_changed_schedule_is_ignored() throws Exception {
+		String statefile = tmp.getRoot().toPath().resolve("state.json").toString();
+		Files.writeString(Path.of(statefile), "{\n  \"tasks\": [\n    {\n      \"id\": \"a\",\n      \"schedule\": \"EVERY_HOUR\",\n"
+				+ "      \"lastExecuted\": \"2026-01-02T03:04:05\"\n    },\n    {\n      \"id\": \"b \\\"quoted\\\"\",\n"
+				+ "      \"schedule\": \"WEEKLY\",\n      \"lastExecuted\": null\n    }\n  ]\n}\n", StandardCharsets.UTF_8);
+
+		List<Task> tasks = restart(statefile);
+		assertNull(tasks.get(0).getLastExecuted());
+		assertNull(tasks.get(1).getLastExecuted());
+		TaskStateManager.close(statefile);
+	}
+}
@@ -0,0 +1,38 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ntt.security.ollamadrama.agent.Scheduler;
+import ntt.security.ollamadrama.agent.Task;
+
+public class TaskTest {
+
+	@Rule
+	public TemporaryFolder tmp = new TemporaryFolder();
+
+	@Test
+	public void prompt_is_read_from_file_on_each_run() throws Exception {
+		Path file = tmp.getRoot().toPath().resolve("scan.daily");
+		Files.writeString(file, "  check the firewall\r\nlogs \n", StandardCharsets.UTF_8);
+		Task task = new Task("scan", file, Scheduler.DAILY);
+		assertEquals("check the firewall\nlogs", task.getPrompt());
+
+		Files.writeString(file, "check the proxy logs", StandardCharsets.UTF_8);
+		assertEquals("check the proxy logs", task.getPrompt());
+	}
+
+	@Test(expected = UncheckedIOException.class)
+	public void missing_prompt_file_fails_the_run() {
+		Task task = new Task("gone", tmp.getRoot().toPath().resolve("gone.daily"), Scheduler.DAILY);
+		task.getPrompt();
+	}
+}
@@ -0,0 +1,173 @@
+package ntt.security.ollamadrama.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import ntt.security.ollamadrama.utils.VramAdmission;
+import ntt.security.ollamadrama.utils.VramAdmission.Resident;
+
+public class VramAdmissionTest {
+
+	private static final long GB = 1024L * 1024L * 1024L;
+
+	/**
+	 * Fake Ollama server, loading a model happens when the test says so.
+	 */
+	private static class FakeServer implements VramAdmission.Server {
+		final Map<String, Resident> loaded = Collections.synchronizedMap(new LinkedHashMap<>());
+		final Map<String, Long> installed = new LinkedHashMap<>();
+		final List<String> unloaded = Collections.synchronizedList(new ArrayList<>());
+
+		void load(String name, long size, long expires_at) {
+			loaded.put(name, new Resident(name, size, expires_at));
+		}
+
+		@Override
+		public List<Resident> resident() {
+			synchronized (loaded) {
+				return new ArrayList<>(loaded.values());
+			}
+		}
+
+		@Override
+		public void unload(String model_name) {
+			unloaded.add(model_name);
+			loaded.remove(model_name);
+		}
+
+		@Override
+		public long installed_size(String model_name) {
+			return installed.getOrDefault(model_name, 0L);
+		}
+	}
+
+	private static VramAdmission controller(long capacity_gb) {
+		VramAdmission.setDefault_capacity_bytes(capacity_gb * GB);
+		String url = "http://vram-test-" + System.nanoTime() + ":11434";
+		VramAdmission admission = VramAdmission.forEndpoint(url);
+		VramAdmission.setDefault_capacity_bytes(0L);
+		return admission;
+	}
+
+	@Test
+	public void fitting_model_is_admitted_without_eviction() throws Exception {
+		VramAdmission admission = controller(24);
+		FakeServer server = new FakeServer();
+		server.load("vram-a:8b", 8 * GB, 1_000L);
+		server.installed.put("vram-b:8b", 8 * GB);
+
+		admission.admit("vram-b:8b", server);
+		assertTrue(server.unloaded.isEmpty());
+		assertEquals(0, admission.getQueued());
+		assertEquals(1, admission.getAdmitted());
+	}
+
+	@Test
+	public void least_recently_used_idle_model_is_evicted_first() throws Exception {
+		VramAdmission admission = controller(24);
+		FakeServer server = new FakeServer();
+		server.load("vram-old:8b", 8 * GB, 1_000L);
+		server.load("vram-new:8b", 8 * GB, 2_000L);
+		server.installed.put("vram-big:14b", 14 * GB);
+
+		admission.admit("vram-big:14b", server);
+		assertEquals(List.of("vram-old:8b"), server.unloaded);
+		assertEquals(1, admission.getEvictions());
+	}
+
+	@Test
+	public void busy_model_is_never_evicted() throws Exception {
+		VramAdmission admission = controller(16);
+		FakeServer server = new FakeServer();
+		server.load("vram-busy:12b", 12 * GB, 1_000L);
+		server.installed.put("vram-next:8b", 8 * GB);
+		admission.begin("vram-busy:12b");
+
+		Thread waiter = new Thread(() -> {
+			try {
+				admission.admit("vram-next:8b", server);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		waiter.start();
+		waiter.join(1_500L);
+		assertTrue("request must queue while the model in the way is busy", waiter.isAlive());
+		assertTrue(server.unloaded.isEmpty());
+		assertEquals(1, admission.getQueued());
+
+		admission.end("vram-busy:12b");
+		waiter.join(5_000L);
+		assertFalse(waiter.isAlive());
+		assertEquals(List.of("vram-busy:12b"), server.unloaded);
+	}
+
+	@Test
+	public void unknown_capacity_admits_without_eviction() throws Exception {
+		VramAdmission admission = controller(0);
+		FakeServer server = new FakeServer();
+		server.load("vram-x:8b", 8 * GB, 1_000L);
+		server.load("vram-y:4b", 4 * GB, 2_000L);
+		server.installed.put("vram-z:8b", 8 * GB);
+
+		// resident usage says nothing about the card, Ollama places the model
+		admission.admit("vram-z:8b", server);
+		assertEquals(0L, admission.getCapacity_bytes());
+		assertTrue(server.unloaded.isEmpty());
+		assertEquals(0, admission.getQueued());
+	}
+
+	@Test
+	public void capacity_is_learned_from_out_of_memory() throws Exception {
+		VramAdmission admission = controller(0);
+		FakeServer server = new FakeServer();
+		server.load("vram-x:8b", 8 * GB, 1_000L);
+		server.load("vram-y:4b", 4 * GB, 2_000L);
+		server.installed.put("vram-z:8b", 8 * GB);
+
+		admission.admit("vram-z:8b", server);
+		admission.out_of_memory("vram-z:8b");
+		assertEquals(12 * GB, admission.getCapacity_bytes());
+
+		admission.admit("vram-z:8b", server);
+		assertEquals(List.of("vram-x:8b"), server.unloaded);
+	}
+
+	@Test
+	public void admitted_model_is_reserved_until_its_request() throws Exception {
+		VramAdmission admission = controller(16);
+		FakeServer server = new FakeServer();
+		server.installed.put("vram-first:8b", 8 * GB);
+		server.installed.put("vram-second:12b", 12 * GB);
+
+		admission.admit("vram-first:8b", server);
+		server.load("vram-first:8b", 8 * GB, 1_000L);
+
+		Thread waiter = new Thread(() -> {
+			try {
+				admission.admit("vram-second:12b", server);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		waiter.start();
+		waiter.join(1_500L);
+		assertTrue("admitted model must not be evicted before its request starts", waiter.isAlive());
+		assertTrue(server.unloaded.isEmpty());
+
+		admission.begin("vram-first:8b");
+		admission.end("vram-first:8b");
+		waiter.join(5_000L);
+		assertFalse(waiter.isAlive());
+		assertEquals(List.of("vram-first:8b"), server.unloaded);
+	}
+}